@@ -0,0 +1,279 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.scheduler.Component;
+import com.olleb.nes.CPU6502.scheduler.Scheduler;
+import com.olleb.nes.CPU6502.state.Stateful;
+
+/**
+ * 2A03 APU, NTSC. Runs lazily as a {@link Component}: register accesses
+ * catch it up to the CPU cycle of the access, so every write lands at its
+ * cycle. Between two catch-up points the channels are synthesized in
+ * blocks, timer event to timer event, and resampled to the output rate by
+ * band-limited steps.
+ * 
+ * Linear mixer approximation: every channel adds its own steps.
+ *
+ */
+public final class APU implements Memory, Component, Stateful {
+
+	// NTSC CPU clock
+	public static final double CLOCK_RATE = 1_789_773;
+	public static final int SAMPLE_RATE = 48_000;
+
+	private static final int STATUS = 0x4015;
+	private static final int FRAME_COUNTER = 0x4017;
+
+	// mixer weight of one level step, 16 bit full scale
+	private static final int PULSE_WEIGHT = 246;
+	private static final int TRIANGLE_WEIGHT = 279;
+	private static final int NOISE_WEIGHT = 162;
+	private static final int DMC_WEIGHT = 110;
+
+	// frame sequencer steps, CPU cycles after the 0x4017 write
+	private static final int[] FOUR_STEP = { 3729, 7457, 11186, 14915 };
+	private static final int[] FIVE_STEP = { 3729, 7457, 11186, 14915, 18641 };
+
+	private final Resampler out;
+	private final DMC dmc;
+	// status bit order: pulse 1, pulse 2, triangle, noise, DMC
+	private final Channel[] channels;
+
+	// CPU cycle the APU has run to
+	private long now;
+	private long frameStart;
+	private int step;
+	private boolean fiveStep;
+	private boolean irqInhibit;
+	private boolean frameIRQ;
+
+	/**
+	 * @param memory CPU bus, DMC sample fetches
+	 */
+	public APU(final Memory memory) {
+		this(memory, SAMPLE_RATE);
+	}
+
+	public APU(final Memory memory, final int sampleRate) {
+		// a quarter of a second unread
+		this.out = new Resampler(CLOCK_RATE, sampleRate, sampleRate / 4);
+		this.dmc = new DMC(out, DMC_WEIGHT, memory);
+		this.channels = new Channel[] { new Pulse(out, PULSE_WEIGHT, true), new Pulse(out, PULSE_WEIGHT, false),
+				new Triangle(out, TRIANGLE_WEIGHT), new Noise(out, NOISE_WEIGHT), dmc };
+	}
+
+	/**
+	 * Map the registers on the I/O page, caught up by the scheduler, and the
+	 * IRQ line on the interrupt controller of the CPU. The rest of the page
+	 * (OAM DMA, controllers) keeps going to the device mapped there before.
+	 * 
+	 * @param bus       the CPU bus
+	 * @param scheduler the scheduler of the CPU
+	 */
+	public void map(final Bus bus, final Scheduler scheduler) {
+		final int begin = Bus.Address.IO_BEGIN.getAddress();
+		final Memory io = bus.getDevice(begin);
+		final Memory registers = new Memory() {
+			@Override
+			public int read(final int address) {
+				return address == STATUS ? APU.this.read(address) : io.read(address);
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				if (address <= 0x4013 || address == STATUS || address == FRAME_COUNTER) {
+					APU.this.write(address, value);
+				} else {
+					io.write(address, value);
+				}
+			}
+		};
+		scheduler.getCPU().getInterrupts().addIRQ(this::isIRQ);
+		scheduler.add(this);
+		bus.map(begin, Bus.Address.IO_END.getAddress(), scheduler.attach(this, registers));
+	}
+
+	/**
+	 * 0x4015 status: length counters, DMC active, frame and DMC IRQ. Reading
+	 * acknowledges the frame IRQ.
+	 */
+	@Override
+	public int read(final int address) {
+		if (address != STATUS) {
+			return address >> 8;
+		}
+		int status = frameIRQ ? 0x40 : 0;
+		status |= dmc.isIRQ() ? 0x80 : 0;
+		for (int i = 0; i < channels.length; i++) {
+			status |= channels[i].isActive() ? 1 << i : 0;
+		}
+		frameIRQ = false;
+		return status;
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		if (address < 0x4014) {
+			channels[(address >> 2) & 0x07].write(address, value);
+		} else if (address == STATUS) {
+			for (int i = 0; i < channels.length; i++) {
+				channels[i].setEnabled((value & (1 << i)) != 0);
+			}
+		} else if (address == FRAME_COUNTER) {
+			fiveStep = (value & 0x80) != 0;
+			irqInhibit = (value & 0x40) != 0;
+			if (irqInhibit) {
+				frameIRQ = false;
+			}
+			frameStart = now;
+			step = 0;
+			if (fiveStep) {
+				quarterFrame();
+				halfFrame();
+			}
+		}
+	}
+
+	/**
+	 * Synthesize up to the CPU cycle, in blocks between frame sequencer
+	 * steps.
+	 */
+	@Override
+	public void catchUp(final long cycle) {
+		final Channel[] channels = this.channels;
+		while (now < cycle) {
+			final long event = frameStart + (fiveStep ? FIVE_STEP : FOUR_STEP)[step];
+			final long end = Math.min(cycle, event);
+			for (final Channel channel : channels) {
+				channel.run(now, end);
+			}
+			now = end;
+			if (now == event) {
+				sequence();
+			}
+			out.endFrame(now);
+		}
+	}
+
+	// next frame sequencer step or DMC IRQ
+	@Override
+	public long getDeadline() {
+		final long event = frameStart + (fiveStep ? FIVE_STEP : FOUR_STEP)[step];
+		final long irq = dmc.getDeadline();
+		return irq == Long.MAX_VALUE ? event : Math.min(event, irq + 1);
+	}
+
+	private void sequence() {
+		final int[] steps = fiveStep ? FIVE_STEP : FOUR_STEP;
+		if (fiveStep) {
+			if (step != 3) {
+				quarterFrame();
+			}
+			if (step == 1 || step == 4) {
+				halfFrame();
+			}
+		} else {
+			quarterFrame();
+			if (step == 1 || step == 3) {
+				halfFrame();
+			}
+			if (step == 3 && !irqInhibit) {
+				frameIRQ = true;
+			}
+		}
+		if (++step == steps.length) {
+			step = 0;
+			frameStart += steps[steps.length - 1];
+		}
+	}
+
+	private void quarterFrame() {
+		for (final Channel channel : channels) {
+			channel.quarterFrame();
+		}
+	}
+
+	private void halfFrame() {
+		for (final Channel channel : channels) {
+			channel.halfFrame();
+		}
+	}
+
+	/**
+	 * IRQ line: frame counter or DMC, level triggered.
+	 * 
+	 * @return true while asserted
+	 */
+	public boolean isIRQ() {
+		return frameIRQ || dmc.isIRQ();
+	}
+
+	/**
+	 * @return samples synthesized and not read yet
+	 */
+	public int getAvailableSamples() {
+		return out.getAvailable();
+	}
+
+	/**
+	 * Read synthesized samples, 16 bit signed mono at the sample rate. Unread
+	 * samples older than a quarter of a second are dropped.
+	 * 
+	 * @param samples destination
+	 * @param from    first index in samples
+	 * @param length  max samples
+	 * @return samples read
+	 */
+	public int readSamples(final short[] samples, final int from, final int length) {
+		return out.read(samples, from, length);
+	}
+
+	// frame counter and channels, pending samples are dropped
+	@Override
+	public void save(final ByteBuffer buffer) {
+		buffer.putLong(now).putLong(frameStart).put((byte) step);
+		buffer.put((byte) ((fiveStep ? 1 : 0) | (irqInhibit ? 2 : 0) | (frameIRQ ? 4 : 0)));
+		for (final Channel channel : channels) {
+			channel.save(buffer);
+		}
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		now = buffer.getLong();
+		frameStart = buffer.getLong();
+		step = buffer.get();
+		final int flags = buffer.get();
+		fiveStep = (flags & 1) != 0;
+		irqInhibit = (flags & 2) != 0;
+		frameIRQ = (flags & 4) != 0;
+		for (final Channel channel : channels) {
+			channel.restore(buffer);
+		}
+		out.clear(now);
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+/**
+ * APU channel. Synthesized in blocks: {@link #run(long, long)} steps the
+ * channel timer from event to event, not cycle by cycle, and only output
+ * level changes reach the {@link Resampler}.
+ *
+ */
+abstract class Channel {
+
+	static final int[] LENGTHS = { 10, 254, 20, 2, 40, 4, 80, 6, 160, 8, 60, 10, 14, 12, 26, 14, 12, 16, 24, 18, 48,
+			20, 96, 22, 192, 24, 72, 26, 16, 28, 32, 30 };
+
+	private final Resampler out;
+	// mixer weight of one level step
+	private final int weight;
+	// last level sent
+	private int level;
+
+	boolean enabled;
+	boolean halt;
+	int length;
+	// CPU cycle of the next timer clock
+	long next;
+
+	Channel(final Resampler out, final int weight) {
+		this.out = out;
+		this.weight = weight;
+	}
+
+	abstract void write(int register, int value);
+
+	/**
+	 * Run the timer up to the end cycle.
+	 * 
+	 * @param start current cycle, register writes and frame counter clocks
+	 *              apply here
+	 * @param end   end cycle, exclusive
+	 */
+	abstract void run(long start, long end);
+
+	// envelopes, linear counter
+	void quarterFrame() {
+	}
+
+	// length counters, sweeps
+	void halfFrame() {
+		if (length > 0 && !halt) {
+			length--;
+		}
+	}
+
+	void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			length = 0;
+		}
+	}
+
+	void load(final int index) {
+		if (enabled) {
+			length = LENGTHS[index];
+		}
+	}
+
+	boolean isActive() {
+		return length > 0;
+	}
+
+	final void output(final long cycle, final int level) {
+		if (level != this.level) {
+			out.addDelta(cycle, (level - this.level) * weight);
+			this.level = level;
+		}
+	}
+
+	// timer clocks before the end cycle, from next
+	static long clocks(final long next, final long end, final long period) {
+		return next < end ? (end - next + period - 1) / period : 0;
+	}
+
+	void save(final ByteBuffer buffer) {
+		buffer.put((byte) (enabled ? 1 : 0)).put((byte) (halt ? 1 : 0)).put((byte) length).put((byte) level);
+		buffer.putLong(next);
+	}
+
+	void restore(final ByteBuffer buffer) {
+		enabled = buffer.get() != 0;
+		halt = buffer.get() != 0;
+		length = buffer.get() & 0xFF;
+		level = buffer.get();
+		next = buffer.getLong();
+	}
+
+}
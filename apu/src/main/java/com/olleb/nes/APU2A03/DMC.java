@@ -0,0 +1,200 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Delta modulation channel, 0x4010 - 0x4013. Sample bytes are read from the
+ * CPU bus as the output unit needs them, CPU stalls are not modeled.
+ *
+ */
+final class DMC extends Channel {
+
+	// NTSC, CPU cycles per output bit
+	private static final int[] RATES = { 428, 380, 340, 320, 286, 254, 226, 214, 190, 160, 142, 128, 106, 84, 72,
+			54 };
+
+	private final Memory memory;
+
+	private boolean irqEnabled;
+	private boolean loop;
+	private boolean irq;
+	private int rate = RATES[0];
+	private int value;
+
+	private int sampleAddress = 0xC000;
+	private int sampleLength = 1;
+	private int address;
+	private int remaining;
+
+	private int buffer;
+	private boolean empty = true;
+	private int shift;
+	private int bits = 8;
+	private boolean silence = true;
+
+	DMC(final Resampler out, final int weight, final Memory memory) {
+		super(out, weight);
+		this.memory = memory;
+	}
+
+	@Override
+	void write(final int register, final int v) {
+		switch (register & 0x03) {
+		case 0:
+			irqEnabled = (v & 0x80) != 0;
+			if (!irqEnabled) {
+				irq = false;
+			}
+			loop = (v & 0x40) != 0;
+			rate = RATES[v & 0x0F];
+			break;
+		case 1:
+			value = v & 0x7F;
+			break;
+		case 2:
+			sampleAddress = 0xC000 | (v << 6);
+			break;
+		default:
+			sampleLength = (v << 4) | 1;
+			break;
+		}
+	}
+
+	@Override
+	void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+		irq = false;
+		if (!enabled) {
+			remaining = 0;
+		} else if (remaining == 0) {
+			restart();
+			fetch();
+		}
+	}
+
+	private void restart() {
+		address = sampleAddress;
+		remaining = sampleLength;
+	}
+
+	private void fetch() {
+		if (!empty || remaining == 0) {
+			return;
+		}
+		buffer = memory.read(address);
+		empty = false;
+		address = (address + 1) | 0x8000;
+		if (--remaining == 0) {
+			if (loop) {
+				restart();
+			} else if (irqEnabled) {
+				irq = true;
+			}
+		}
+	}
+
+	@Override
+	void run(final long start, final long end) {
+		output(start, value);
+		while (next < end) {
+			if (!silence) {
+				if ((shift & 1) != 0) {
+					if (value <= 125) {
+						value += 2;
+					}
+				} else if (value >= 2) {
+					value -= 2;
+				}
+				output(next, value);
+			}
+			shift >>= 1;
+			if (--bits == 0) {
+				bits = 8;
+				silence = empty;
+				if (!empty) {
+					shift = buffer;
+					empty = true;
+					fetch();
+				}
+			}
+			next += rate;
+		}
+	}
+
+	// no length counter
+	@Override
+	void halfFrame() {
+	}
+
+	@Override
+	boolean isActive() {
+		return remaining > 0;
+	}
+
+	boolean isIRQ() {
+		return irq;
+	}
+
+	/**
+	 * @return CPU cycle of the last sample byte fetch, when it raises the
+	 *         IRQ, Long.MAX_VALUE if none
+	 */
+	long getDeadline() {
+		if (!irqEnabled || loop || remaining == 0 || empty) {
+			return Long.MAX_VALUE;
+		}
+		// a fetch every time the shift register reloads
+		return next + ((bits - 1) + 8L * (remaining - 1)) * rate;
+	}
+
+	@Override
+	void save(final ByteBuffer b) {
+		super.save(b);
+		b.put((byte) ((irqEnabled ? 1 : 0) | (loop ? 2 : 0) | (irq ? 4 : 0) | (empty ? 8 : 0) | (silence ? 16 : 0)));
+		b.putShort((short) rate).put((byte) value).putShort((short) sampleAddress).putShort((short) sampleLength);
+		b.putShort((short) address).putShort((short) remaining).put((byte) buffer).put((byte) shift).put((byte) bits);
+	}
+
+	@Override
+	void restore(final ByteBuffer b) {
+		super.restore(b);
+		final int flags = b.get();
+		irqEnabled = (flags & 1) != 0;
+		loop = (flags & 2) != 0;
+		irq = (flags & 4) != 0;
+		empty = (flags & 8) != 0;
+		silence = (flags & 16) != 0;
+		rate = b.getShort();
+		value = b.get();
+		sampleAddress = b.getShort() & 0xFFFF;
+		sampleLength = b.getShort() & 0xFFFF;
+		address = b.getShort() & 0xFFFF;
+		remaining = b.getShort() & 0xFFFF;
+		buffer = b.get() & 0xFF;
+		shift = b.get() & 0xFF;
+		bits = b.get();
+	}
+
+}
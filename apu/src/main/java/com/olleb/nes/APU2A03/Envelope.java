@@ -0,0 +1,84 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Volume envelope of the pulse and noise channels.
+ *
+ */
+final class Envelope {
+
+	private boolean start;
+	private boolean loop;
+	private boolean constant;
+	private int period;
+	private int divider;
+	private int decay;
+
+	void write(final int value) {
+		loop = (value & 0x20) != 0;
+		constant = (value & 0x10) != 0;
+		period = value & 0x0F;
+	}
+
+	void restart() {
+		start = true;
+	}
+
+	void clock() {
+		if (start) {
+			start = false;
+			decay = 15;
+			divider = period;
+		} else if (divider > 0) {
+			divider--;
+		} else {
+			divider = period;
+			if (decay > 0) {
+				decay--;
+			} else if (loop) {
+				decay = 15;
+			}
+		}
+	}
+
+	int getVolume() {
+		return constant ? period : decay;
+	}
+
+	void save(final ByteBuffer buffer) {
+		buffer.put((byte) ((start ? 1 : 0) | (loop ? 2 : 0) | (constant ? 4 : 0))).put((byte) period)
+				.put((byte) divider).put((byte) decay);
+	}
+
+	void restore(final ByteBuffer buffer) {
+		final int flags = buffer.get();
+		start = (flags & 1) != 0;
+		loop = (flags & 2) != 0;
+		constant = (flags & 4) != 0;
+		period = buffer.get();
+		divider = buffer.get();
+		decay = buffer.get();
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Noise channel, 0x400C - 0x400F.
+ *
+ */
+final class Noise extends Channel {
+
+	// NTSC, CPU cycles
+	private static final int[] PERIODS = { 4, 8, 16, 32, 64, 96, 128, 160, 202, 254, 380, 508, 762, 1016, 2034,
+			4068 };
+
+	private final Envelope envelope = new Envelope();
+
+	private int period = PERIODS[0];
+	// short mode: feedback from bit 6
+	private int tap = 1;
+	private int shift = 1;
+
+	Noise(final Resampler out, final int weight) {
+		super(out, weight);
+	}
+
+	@Override
+	void write(final int register, final int value) {
+		switch (register & 0x03) {
+		case 0:
+			halt = (value & 0x20) != 0;
+			envelope.write(value);
+			break;
+		case 2:
+			tap = (value & 0x80) != 0 ? 6 : 1;
+			period = PERIODS[value & 0x0F];
+			break;
+		case 3:
+			load(value >> 3);
+			envelope.restart();
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	void run(final long start, final long end) {
+		final int volume = length == 0 ? 0 : envelope.getVolume();
+		output(start, (shift & 1) == 0 ? volume : 0);
+		// the shift register keeps running when silent
+		int s = shift;
+		while (next < end) {
+			s = (s >> 1) | (((s ^ (s >> tap)) & 1) << 14);
+			output(next, (s & 1) == 0 ? volume : 0);
+			next += period;
+		}
+		shift = s;
+	}
+
+	@Override
+	void quarterFrame() {
+		envelope.clock();
+	}
+
+	@Override
+	void save(final ByteBuffer buffer) {
+		super.save(buffer);
+		envelope.save(buffer);
+		buffer.putShort((short) period).put((byte) tap).putShort((short) shift);
+	}
+
+	@Override
+	void restore(final ByteBuffer buffer) {
+		super.restore(buffer);
+		envelope.restore(buffer);
+		period = buffer.getShort();
+		tap = buffer.get();
+		shift = buffer.getShort();
+	}
+
+}
@@ -0,0 +1,159 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pulse channel, 0x4000 - 0x4003 and 0x4004 - 0x4007.
+ *
+ */
+final class Pulse extends Channel {
+
+	// 8 step sequences, first step in bit 7
+	private static final int[] DUTY = { 0b0100_0000, 0b0110_0000, 0b0111_1000, 0b1001_1111 };
+
+	// pulse 1 negates in ones' complement
+	private final int negateBias;
+	private final Envelope envelope = new Envelope();
+
+	private int duty;
+	private int step;
+	private int period;
+
+	private boolean sweep;
+	private boolean negate;
+	private boolean reload;
+	private int sweepPeriod;
+	private int sweepDivider;
+	private int shift;
+
+	Pulse(final Resampler out, final int weight, final boolean first) {
+		super(out, weight);
+		this.negateBias = first ? 1 : 0;
+	}
+
+	@Override
+	void write(final int register, final int value) {
+		switch (register & 0x03) {
+		case 0:
+			duty = value >> 6;
+			halt = (value & 0x20) != 0;
+			envelope.write(value);
+			break;
+		case 1:
+			sweep = (value & 0x80) != 0;
+			sweepPeriod = (value >> 4) & 0x07;
+			negate = (value & 0x08) != 0;
+			shift = value & 0x07;
+			reload = true;
+			break;
+		case 2:
+			period = (period & 0x0700) | value;
+			break;
+		default:
+			period = (period & 0x00FF) | ((value & 0x07) << 8);
+			load(value >> 3);
+			step = 0;
+			envelope.restart();
+			break;
+		}
+	}
+
+	private int target() {
+		final int change = period >> shift;
+		return negate ? period - change - negateBias : period + change;
+	}
+
+	// the sweep unit mutes even when disabled
+	private boolean isMuted() {
+		return period < 8 || target() > 0x07FF;
+	}
+
+	private int level() {
+		return length == 0 || isMuted() ? 0 : ((DUTY[duty] >> (7 - step)) & 1) * envelope.getVolume();
+	}
+
+	@Override
+	void run(final long start, final long end) {
+		final long p = (period + 1) << 1;
+		output(start, level());
+		if (length == 0 || isMuted() || envelope.getVolume() == 0) {
+			// silent: skip the whole block
+			final long n = clocks(next, end, p);
+			step = (int) ((step + n) & 0x07);
+			next += n * p;
+			return;
+		}
+		final int volume = envelope.getVolume();
+		final int sequence = DUTY[duty];
+		while (next < end) {
+			step = (step + 1) & 0x07;
+			output(next, ((sequence >> (7 - step)) & 1) * volume);
+			next += p;
+		}
+	}
+
+	@Override
+	void quarterFrame() {
+		envelope.clock();
+	}
+
+	@Override
+	void halfFrame() {
+		super.halfFrame();
+		if (sweepDivider == 0 && sweep && shift > 0 && !isMuted()) {
+			period = target();
+		}
+		if (sweepDivider == 0 || reload) {
+			sweepDivider = sweepPeriod;
+			reload = false;
+		} else {
+			sweepDivider--;
+		}
+	}
+
+	@Override
+	void save(final ByteBuffer buffer) {
+		super.save(buffer);
+		envelope.save(buffer);
+		buffer.put((byte) duty).put((byte) step).putShort((short) period);
+		buffer.put((byte) ((sweep ? 1 : 0) | (negate ? 2 : 0) | (reload ? 4 : 0))).put((byte) sweepPeriod)
+				.put((byte) sweepDivider).put((byte) shift);
+	}
+
+	@Override
+	void restore(final ByteBuffer buffer) {
+		super.restore(buffer);
+		envelope.restore(buffer);
+		duty = buffer.get();
+		step = buffer.get();
+		period = buffer.getShort();
+		final int flags = buffer.get();
+		sweep = (flags & 1) != 0;
+		negate = (flags & 2) != 0;
+		reload = (flags & 4) != 0;
+		sweepPeriod = buffer.get();
+		sweepDivider = buffer.get();
+		shift = buffer.get();
+	}
+
+}
@@ -0,0 +1,174 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.util.Arrays;
+
+/**
+ * Band-limited resampler, CPU clock to output rate. Channels add amplitude
+ * steps at CPU cycles; every step is spread over {@link #WIDTH} output
+ * samples with a precomputed band-limited impulse, picked by the sub-sample
+ * phase of the step. Reading integrates the impulses back into steps. The
+ * cost is per step, not per CPU cycle.
+ *
+ */
+final class Resampler {
+
+	static final int WIDTH = 16;
+	private static final int PHASE_BITS = 5;
+	private static final int PHASES = 1 << PHASE_BITS;
+	// impulse taps sum to 1 << KERNEL_BITS
+	private static final int KERNEL_BITS = 15;
+	// DC removal, integrator leak of 2^-BASS_SHIFT per sample
+	private static final int BASS_SHIFT = 9;
+	// 32.32 fixed point sample positions
+	private static final int FRACTION_BITS = 32;
+	// of the output Nyquist frequency
+	private static final double CUTOFF = 0.9;
+
+	// phase => windowed sinc, delayed by WIDTH / 2 samples
+	private static final int[][] KERNEL = new int[PHASES][WIDTH];
+
+	static {
+		for (int phase = 0; phase < PHASES; phase++) {
+			final double[] taps = new double[WIDTH];
+			double sum = 0;
+			for (int i = 0; i < WIDTH; i++) {
+				final double t = i - WIDTH / 2 + 1 - (double) phase / PHASES;
+				final double x = Math.PI * CUTOFF * t;
+				final double sinc = t == 0 ? 1 : Math.sin(x) / x;
+				// Blackman
+				final double w = Math.PI * t / (WIDTH / 2);
+				final double window = Math.abs(t) >= WIDTH / 2 ? 0 : 0.42 + 0.5 * Math.cos(w) + 0.08 * Math.cos(2 * w);
+				taps[i] = sinc * window;
+				sum += taps[i];
+			}
+			int total = 0;
+			int peak = 0;
+			for (int i = 0; i < WIDTH; i++) {
+				KERNEL[phase][i] = (int) Math.round(taps[i] / sum * (1 << KERNEL_BITS));
+				total += KERNEL[phase][i];
+				peak = KERNEL[phase][i] > KERNEL[phase][peak] ? i : peak;
+			}
+			// exact steps: no drift when integrating
+			KERNEL[phase][peak] += (1 << KERNEL_BITS) - total;
+		}
+	}
+
+	private final long factor;
+	private final int capacity;
+	// pending impulses, samples [0, available) are complete
+	private final int[] buffer;
+	// CPU cycle of offset
+	private long start;
+	// 32.32 position of start in buffer
+	private long offset;
+	private long integrator;
+
+	/**
+	 * @param clockRate  input clock, Hz
+	 * @param sampleRate output rate, Hz
+	 * @param capacity   samples kept unread, older samples are dropped
+	 */
+	Resampler(final double clockRate, final int sampleRate, final int capacity) {
+		this.factor = Math.round(sampleRate / clockRate * (1L << FRACTION_BITS));
+		this.capacity = capacity;
+		// + one catch-up segment of the APU
+		this.buffer = new int[capacity + sampleRate / 100 + 2 * WIDTH];
+	}
+
+	/**
+	 * Amplitude step.
+	 * 
+	 * @param cycle CPU cycle, not before the last {@link #endFrame(long)}
+	 * @param delta amplitude change
+	 */
+	void addDelta(final long cycle, final int delta) {
+		final long position = offset + (cycle - start) * factor;
+		final int index = (int) (position >>> FRACTION_BITS);
+		final int[] kernel = KERNEL[(int) (position >>> (FRACTION_BITS - PHASE_BITS)) & (PHASES - 1)];
+		final int[] b = buffer;
+		for (int i = 0; i < WIDTH; i++) {
+			b[index + i] += delta * kernel[i];
+		}
+	}
+
+	/**
+	 * Complete the samples up to the cycle.
+	 * 
+	 * @param cycle CPU cycle
+	 */
+	void endFrame(final long cycle) {
+		offset += (cycle - start) * factor;
+		start = cycle;
+		final int overflow = getAvailable() - capacity;
+		if (overflow > 0) {
+			read(null, 0, overflow);
+		}
+	}
+
+	int getAvailable() {
+		return (int) (offset >>> FRACTION_BITS);
+	}
+
+	/**
+	 * Integrate complete samples, 16 bit signed.
+	 * 
+	 * @param out    destination, null to drop the samples
+	 * @param from   first index in out
+	 * @param length max samples
+	 * @return samples read
+	 */
+	int read(final short[] out, final int from, final int length) {
+		final int available = getAvailable();
+		final int n = Math.min(length, available);
+		final int[] b = buffer;
+		long sum = integrator;
+		for (int i = 0; i < n; i++) {
+			sum += b[i];
+			final int sample = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum >> KERNEL_BITS));
+			if (out != null) {
+				out[from + i] = (short) sample;
+			}
+			sum -= (long) sample << (KERNEL_BITS - BASS_SHIFT);
+		}
+		integrator = sum;
+		// impulse tails of the pending samples move down
+		final int pending = available - n + WIDTH;
+		System.arraycopy(b, n, b, 0, pending);
+		Arrays.fill(b, pending, pending + n, 0);
+		offset -= (long) n << FRACTION_BITS;
+		return n;
+	}
+
+	/**
+	 * Drop everything, next steps start at the cycle.
+	 * 
+	 * @param cycle CPU cycle
+	 */
+	void clear(final long cycle) {
+		Arrays.fill(buffer, 0);
+		start = cycle;
+		offset = 0;
+		integrator = 0;
+	}
+
+}
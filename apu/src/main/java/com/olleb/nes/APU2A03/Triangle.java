@@ -0,0 +1,109 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Triangle channel, 0x4008 - 0x400B.
+ *
+ */
+final class Triangle extends Channel {
+
+	private static final int[] SEQUENCE = { 15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0, 0, 1, 2, 3, 4, 5,
+			6, 7, 8, 9, 10, 11, 12, 13, 14, 15 };
+
+	private int step;
+	private int period;
+	private int linear;
+	private int linearPeriod;
+	private boolean reload;
+
+	Triangle(final Resampler out, final int weight) {
+		super(out, weight);
+	}
+
+	@Override
+	void write(final int register, final int value) {
+		switch (register & 0x03) {
+		case 0:
+			// length counter halt and linear counter control
+			halt = (value & 0x80) != 0;
+			linearPeriod = value & 0x7F;
+			break;
+		case 2:
+			period = (period & 0x0700) | value;
+			break;
+		case 3:
+			period = (period & 0x00FF) | ((value & 0x07) << 8);
+			load(value >> 3);
+			reload = true;
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	void run(final long start, final long end) {
+		final long p = period + 1;
+		// halted sequencer holds its level, ultrasonic periods hold it too
+		if (length == 0 || linear == 0 || period < 2) {
+			next += clocks(next, end, p) * p;
+			return;
+		}
+		while (next < end) {
+			step = (step + 1) & 0x1F;
+			output(next, SEQUENCE[step]);
+			next += p;
+		}
+	}
+
+	@Override
+	void quarterFrame() {
+		if (reload) {
+			linear = linearPeriod;
+		} else if (linear > 0) {
+			linear--;
+		}
+		if (!halt) {
+			reload = false;
+		}
+	}
+
+	@Override
+	void save(final ByteBuffer buffer) {
+		super.save(buffer);
+		buffer.put((byte) step).putShort((short) period).put((byte) linear).put((byte) linearPeriod)
+				.put((byte) (reload ? 1 : 0));
+	}
+
+	@Override
+	void restore(final ByteBuffer buffer) {
+		super.restore(buffer);
+		step = buffer.get();
+		period = buffer.getShort();
+		linear = buffer.get();
+		linearPeriod = buffer.get();
+		reload = buffer.get() != 0;
+	}
+
+}
@@ -0,0 +1,179 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.scheduler.Scheduler;
+
+@DisplayName("APU tests")
+class APUTest {
+
+	// DMC samples: every byte 0xFF
+	private static final Memory SAMPLES = new Memory() {
+		@Override
+		public int read(final int address) {
+			return 0xFF;
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+		}
+	};
+
+	private APU apu;
+
+	@BeforeEach
+	void setUp() {
+		apu = new APU(SAMPLES);
+	}
+
+	@Test
+	@DisplayName("Length counters clocked by the frame sequencer")
+	void testLength() {
+		apu.write(0x4015, 0x01);
+		// length 2, halt off
+		apu.write(0x4000, 0x00);
+		apu.write(0x4003, 0x18);
+		assertEquals(0x01, apu.read(0x4015) & 0x1F);
+		// one half frame
+		apu.catchUp(7457);
+		assertEquals(0x01, apu.read(0x4015) & 0x1F);
+		apu.catchUp(14915);
+		assertEquals(0x00, apu.read(0x4015) & 0x1F);
+
+		// disabled channels do not load
+		apu.write(0x4015, 0x00);
+		apu.write(0x4007, 0x18);
+		assertEquals(0x00, apu.read(0x4015) & 0x1F);
+	}
+
+	@Test
+	@DisplayName("Frame IRQ")
+	void testFrameIRQ() {
+		assertEquals(3729, apu.getDeadline());
+		apu.catchUp(14914);
+		assertFalse(apu.isIRQ());
+		apu.catchUp(14915);
+		assertTrue(apu.isIRQ());
+		// reading the status acknowledges
+		assertEquals(0x40, apu.read(0x4015) & 0x40);
+		assertFalse(apu.isIRQ());
+
+		// inhibited
+		apu.write(0x4017, 0x40);
+		apu.catchUp(14915 * 3);
+		assertFalse(apu.isIRQ());
+	}
+
+	@Test
+	@DisplayName("Pulse tone")
+	void testPulse() {
+		apu.write(0x4015, 0x01);
+		// 50 % duty, halt, constant volume 15
+		apu.write(0x4000, 0xBF);
+		// 1789773 / (16 * (253 + 1)) = 440.4 Hz
+		apu.write(0x4002, 253);
+		apu.write(0x4003, 0x08);
+
+		final short[] samples = new short[APU.SAMPLE_RATE * 2];
+		int n = 0;
+		for (int frame = 1; frame <= 60; frame++) {
+			apu.catchUp((long) (APU.CLOCK_RATE * frame / 60));
+			n += apu.readSamples(samples, n, samples.length - n);
+		}
+		assertTrue(Math.abs(n - APU.SAMPLE_RATE) <= 1, Integer.toString(n));
+
+		int crossings = 0;
+		int peak = 0;
+		for (int i = 1; i < n; i++) {
+			if ((samples[i - 1] < 0) != (samples[i] < 0)) {
+				crossings++;
+			}
+			peak = Math.max(peak, Math.abs(samples[i]));
+		}
+		assertTrue(Math.abs(crossings - 881) < 10, Integer.toString(crossings));
+		assertTrue(peak > 1000, Integer.toString(peak));
+	}
+
+	@Test
+	@DisplayName("DMC IRQ after the last sample byte")
+	void testDMC() {
+		// IRQ, fastest rate, 17 bytes at 0xC000
+		apu.write(0x4010, 0x8F);
+		apu.write(0x4012, 0x00);
+		apu.write(0x4013, 0x01);
+		apu.write(0x4015, 0x10);
+		assertEquals(0x10, apu.read(0x4015) & 0x10);
+
+		// first fetch on enable, 16 more every 8 output bits of 54 cycles
+		apu.catchUp(6858);
+		assertFalse(apu.isIRQ());
+		apu.catchUp(6859);
+		assertTrue(apu.isIRQ());
+		assertEquals(0x80, apu.read(0x4015) & 0x90);
+
+		// writing the status acknowledges
+		apu.write(0x4015, 0x00);
+		assertFalse(apu.isIRQ());
+	}
+
+	@Test
+	@DisplayName("Mapped on the I/O page next to the previous device")
+	void testMap() {
+		final Bus bus = new Bus(new RAM());
+		final int[] io = new int[1];
+		bus.map(0x4000, 0x40FF, new Memory() {
+			@Override
+			public int read(final int address) {
+				return 0x41;
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				io[0] = address;
+			}
+		});
+		final APU apu = new APU(bus);
+		apu.map(bus, new Scheduler(new CPU6502(bus)));
+
+		bus.write(0x4015, 0x01);
+		bus.write(0x4003, 0x08);
+		assertEquals(0x01, bus.read(0x4015) & 0x1F);
+		// OAM DMA, controllers
+		bus.write(0x4014, 0x02);
+		assertEquals(0x4014, io[0]);
+		assertEquals(0x41, bus.read(0x4016));
+		bus.write(0x4017, 0x40);
+		assertEquals(0x4014, io[0]);
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.APU2A03;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Resampler tests")
+class ResamplerTest {
+
+	// 1 output sample per 37.29 cycles
+	private final Resampler resampler = new Resampler(APU.CLOCK_RATE, APU.SAMPLE_RATE, 1024);
+
+	@Test
+	@DisplayName("Band-limited step")
+	void testStep() {
+		resampler.addDelta(100, 1000);
+		resampler.endFrame(64 * 38);
+		final short[] samples = new short[64];
+		assertEquals(64, resampler.read(samples, 0, samples.length));
+		// delayed by half the kernel, no ringing before
+		for (int i = 0; i < 4; i++) {
+			assertEquals(0, samples[i]);
+		}
+		for (int i = 3 + Resampler.WIDTH; i < samples.length; i++) {
+			// slow DC removal
+			assertTrue(samples[i] > 900 && samples[i] <= 1010, Integer.toString(samples[i]));
+		}
+	}
+
+	@Test
+	@DisplayName("Unread samples are dropped")
+	void testOverflow() {
+		for (int i = 1; i <= 100; i++) {
+			resampler.addDelta(i * 1000 - 500, i % 2 == 0 ? 1000 : -1000);
+			resampler.endFrame(i * 1000);
+			assertTrue(resampler.getAvailable() <= 1024);
+		}
+		assertEquals(1024, resampler.read(new short[2048], 0, 2048));
+		assertEquals(0, resampler.getAvailable());
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.olleb.nes.CPU6502.cpu.AddressingMode;
+import com.olleb.nes.CPU6502.cpu.Registers;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+/**
+ * AddressingMode resolvers. Average time per resolved address.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressingModeBenchmark {
+
+	private static final int EP = 0x0200;
+
+	@Param({ "IMMEDIATE", "ZERO_PAGE", "INDEXED_ZERO_PAGE_X", "INDEXED_ZERO_PAGE_Y", "ABSOLUTE", "INDEXED_ABSOLUTE_X",
+			"INDEXED_ABSOLUTE_Y", "INDEXED_INDIRECT", "INDIRECT_INDEXED", "INDIRECT" })
+	private AddressingMode mode;
+
+	private Registers registers;
+	private RAM ram;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ram = new RAM();
+		// every operand and pointer => 0x10, addresses => 0x1010
+		for (int i = 0; i <= RAM.Address.END.getAddress(); i++) {
+			ram.write(i, 0x10);
+		}
+		registers = new Registers();
+		// X/Y index crosses the 0x10xx page
+		registers.setX(0xF8);
+		registers.setY(0xF8);
+	}
+
+	@Benchmark
+	public int resolve() {
+		registers.setPC(EP);
+		return mode.applyAsInt(registers, ram);
+	}
+
+}
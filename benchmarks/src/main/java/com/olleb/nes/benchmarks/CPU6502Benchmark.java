@@ -0,0 +1,89 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.cpu.Registers;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+/**
+ * CPU6502 fetch - decode - execute loop. Instructions per second for every
+ * dispatch mode.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CPU6502Benchmark {
+
+	private static final int EP = 0x0200;
+
+	// LDA #$05, STA $10, LDX $10, INX, INC $10, ASL A, EOR #$AA, JMP $0200
+	// => 8 instructions, 22 cycles per loop
+	private static final int[] PROGRAM = { 0xA9, 0x05, 0x85, 0x10, 0xA6, 0x10, 0xE8, 0xE6, 0x10, 0x0A, 0x49, 0xAA,
+			0x4C, 0x00, 0x02 };
+
+	private static final int LOOPS = 1000;
+	private static final int INSTRUCTIONS = LOOPS * 8;
+	private static final int CYCLES = LOOPS * 22;
+
+	@Param({ "TABLE", "SWITCH", "JIT", "PREDECODE" })
+	private Dispatch dispatch;
+
+	private CPU6502 cpu;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final RAM ram = new RAM();
+		for (int i = 0; i < PROGRAM.length; i++) {
+			ram.write(EP + i, PROGRAM[i]);
+		}
+		final Registers registers = new Registers();
+		registers.setPC(EP);
+		cpu = new CPU6502(registers, ram, dispatch);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(INSTRUCTIONS)
+	public long run() {
+		return cpu.run(CYCLES);
+	}
+
+}
@@ -0,0 +1,166 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.olleb.nes.CPU6502.cpu.Instruction;
+import com.olleb.nes.CPU6502.cpu.Registers;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+/**
+ * Instruction families. Average time of a single Instruction.exec, no fetch
+ * loop involved.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionBenchmark {
+
+	private static final int EP = 0x0200;
+
+	@State(Scope.Thread)
+	public abstract static class Family {
+
+		private Instruction instruction;
+		private Registers registers;
+		private RAM ram;
+
+		abstract String opCode();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			instruction = Instruction.valueOf(Integer.parseInt(opCode(), 16));
+			ram = new RAM();
+			// operands => zero page 0x10, absolute 0x0110
+			ram.write(EP + 1, 0x10);
+			ram.write(EP + 2, 0x01);
+			ram.write(0x10, 0x10);
+			ram.write(0x11, 0x01);
+			ram.write(0x0110, 0x81);
+			registers = new Registers();
+			registers.setA(0x42);
+			registers.setX(0x01);
+			registers.setY(0x01);
+		}
+
+		int exec() {
+			registers.setPC(EP);
+			return instruction.exec(registers, ram);
+		}
+	}
+
+	public static class Load extends Family {
+		// LDA #nn, LDA nn, LDA nnnn, LDA nnnn,X, LDA (nn),Y, LDX nn,Y
+		@Param({ "A9", "A5", "AD", "BD", "B1", "B6" })
+		private String opCode;
+
+		@Override
+		String opCode() {
+			return opCode;
+		}
+	}
+
+	public static class Store extends Family {
+		// STA nn, STA nnnn, STA nnnn,X, STA (nn),Y, STX nn,Y
+		@Param({ "85", "8D", "9D", "91", "96" })
+		private String opCode;
+
+		@Override
+		String opCode() {
+			return opCode;
+		}
+	}
+
+	public static class Alu extends Family {
+		// ADC #nn, SBC #nn, AND nnnn, EOR nn, CMP nnnn,X, BIT nn, INC nn, DEX
+		@Param({ "69", "E9", "2D", "45", "DD", "24", "E6", "CA" })
+		private String opCode;
+
+		@Override
+		String opCode() {
+			return opCode;
+		}
+	}
+
+	public static class Shift extends Family {
+		// ASL A, ASL nn, LSR nnnn, ROL A, ROR nnnn,X
+		@Param({ "0A", "06", "4E", "2A", "7E" })
+		private String opCode;
+
+		@Override
+		String opCode() {
+			return opCode;
+		}
+	}
+
+	public static class Stack extends Family {
+		// PHA, PHP, PLA, PLP, TSX, TXS
+		@Param({ "48", "08", "68", "28", "BA", "9A" })
+		private String opCode;
+
+		@Override
+		String opCode() {
+			return opCode;
+		}
+	}
+
+	@Benchmark
+	public int load(final Load family) {
+		return family.exec();
+	}
+
+	@Benchmark
+	public int store(final Store family) {
+		return family.exec();
+	}
+
+	@Benchmark
+	public int alu(final Alu family) {
+		return family.exec();
+	}
+
+	@Benchmark
+	public int shift(final Shift family) {
+		return family.exec();
+	}
+
+	@Benchmark
+	public int stack(final Stack family) {
+		return family.exec();
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Page crossed check. &gt;&gt; vs &amp; vs boxed vs branch-free difference.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageCrossedBenchmark {
+
+	private static final int N = 1024;
+
+	// former boxed AddressingMode PAGE_CROSSED
+	private static final BiPredicate<Integer, Integer> BOXED = (x, y) -> (x >> 8 != y >> 8);
+
+	private final int[] base = new int[N];
+	private final int[] index = new int[N];
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final Random random = new Random(6502);
+		for (int i = 0; i < N; i++) {
+			base[i] = random.nextInt(0x10000);
+			index[i] = random.nextInt(0x100);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int shift() {
+		int r = 0;
+		for (int i = 0; i < N; i++) {
+			final int x = base[i];
+			final int y = x + index[i];
+			if (x >> 8 != y >> 8) {
+				r++;
+			}
+		}
+		return r;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int mask() {
+		int r = 0;
+		for (int i = 0; i < N; i++) {
+			final int x = base[i];
+			final int y = x + index[i];
+			if ((x & 0xFF00) != (y & 0xFF00)) {
+				r++;
+			}
+		}
+		return r;
+	}
+
+	// AddressingMode.pageCrossed, high byte difference is the penalty
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int difference() {
+		int r = 0;
+		for (int i = 0; i < N; i++) {
+			final int x = base[i];
+			r += ((x + index[i]) >> 8) - (x >> 8);
+		}
+		return r;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int boxed() {
+		int r = 0;
+		for (int i = 0; i < N; i++) {
+			final int x = base[i];
+			if (BOXED.test(x, x + index[i])) {
+				r++;
+			}
+		}
+		return r;
+	}
+
+}
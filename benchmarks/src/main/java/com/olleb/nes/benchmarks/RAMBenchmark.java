@@ -0,0 +1,112 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+/**
+ * RAM reads and writes, direct and through the Bus page table. Base 0x0000 -
+ * 0x07FF vs mirrors 0x0800 - 0x1FFF.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RAMBenchmark {
+
+	private static final int N = 256;
+
+	@Param({ "BASE", "MIRROR" })
+	private String region;
+
+	private final int[] addresses = new int[N];
+	private RAM ram;
+	private Bus bus;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ram = new RAM();
+		bus = new Bus(ram);
+		// spread over the region, one address per 8 bytes
+		final int begin = "BASE".equals(region) ? RAM.Address.TOTAL_BEGIN.getAddress()
+				: RAM.Address.MIRROR_BEGIN.getAddress();
+		for (int i = 0; i < N; i++) {
+			addresses[i] = begin + i * 8;
+			ram.write(addresses[i], i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int read() {
+		int r = 0;
+		for (final int address : addresses) {
+			r += ram.read(address);
+		}
+		return r;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public void write() {
+		for (int i = 0; i < N; i++) {
+			ram.write(addresses[i], i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int busRead() {
+		int r = 0;
+		for (final int address : addresses) {
+			r += bus.read(address);
+		}
+		return r;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public void busWrite() {
+		for (int i = 0; i < N; i++) {
+			bus.write(addresses[i], i);
+		}
+	}
+
+}
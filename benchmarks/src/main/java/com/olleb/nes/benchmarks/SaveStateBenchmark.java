@@ -0,0 +1,79 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.state.SaveState;
+
+/**
+ * Save state of CPU + RAM, one per frame: snapshot and restore into a direct
+ * buffer.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveStateBenchmark {
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(0x1000);
+	private RAM ram;
+	private CPU6502 cpu;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ram = new RAM();
+		cpu = new CPU6502(ram);
+		SaveState.save(buffer, ram, cpu);
+	}
+
+	@Benchmark
+	public ByteBuffer save() {
+		buffer.clear();
+		SaveState.save(buffer, ram, cpu);
+		return buffer;
+	}
+
+	@Benchmark
+	public ByteBuffer restore() {
+		buffer.rewind();
+		SaveState.restore(buffer, ram, cpu);
+		return buffer;
+	}
+
+}
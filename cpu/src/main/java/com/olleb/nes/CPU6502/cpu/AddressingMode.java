@@ -21,8 +21,6 @@ package com.olleb.nes.CPU6502.cpu;
 
 import static com.olleb.nes.CPU6502.mem.RAM.Address.ZERO_PAGE_END;
 
-import java.util.function.BiPredicate;
-import java.util.function.IntFunction;
 import java.util.function.ToIntBiFunction;
 
 import com.olleb.nes.CPU6502.mem.Memory;
@@ -38,44 +36,53 @@ public enum AddressingMode implements ToIntBiFunction<Registers, Memory> {
 	ZERO_PAGE((r, m) -> m.read(r.incrementPC())),
 
 	// wraparound zero page => the data addr always in zero page 0x000 - 0x00FF
-	INDEXED_ZERO_PAGE_X((r, m) -> m.read(r.incrementPC()) + AddressingMode.WRAP_AROUND_ZERO_PAGE.apply(r.getX())),
+	INDEXED_ZERO_PAGE_X((r, m) -> wrapAroundZeroPage(m.read(r.incrementPC()) + r.getX())),
 
-	INDEXED_ZERO_PAGE_Y((r, m) -> m.read(r.incrementPC()) + AddressingMode.WRAP_AROUND_ZERO_PAGE.apply(r.getY())),
+	INDEXED_ZERO_PAGE_Y((r, m) -> wrapAroundZeroPage(m.read(r.incrementPC()) + r.getY())),
 
 	// int 4 bytes (32 bits). Abs uses 16 bit address (2 x 8 bit).
 	// LSB -> shift 2nd (least) value 8 bits to the left and add 1st.
 	ABSOLUTE((r, m) -> m.read(r.incrementPC()) + (m.read(r.incrementPC()) << 8)),
 
 	INDEXED_ABSOLUTE_X((r, m) -> {
-		final int i = m.read(r.incrementPC()) + (m.read(r.incrementPC()) << 8) + r.getX();
-		r.setPg(AddressingMode.PAGE_CROSSED.test(i, i + r.getX()));
+		final int base = m.read(r.incrementPC()) + (m.read(r.incrementPC()) << 8);
+		final int i = base + r.getX();
+		r.setPg(pageCrossed(base, i));
 		return i;
 	}),
 
 	INDEXED_ABSOLUTE_Y((r, m) -> {
-		final int i = m.read(r.incrementPC()) + (m.read(r.incrementPC()) << 8) + r.getY();
-		r.setPg(AddressingMode.PAGE_CROSSED.test(i, i + r.getY()));
+		final int base = m.read(r.incrementPC()) + (m.read(r.incrementPC()) << 8);
+		final int i = base + r.getY();
+		r.setPg(pageCrossed(base, i));
 		return i;
 	}),
 
 	// wraparound zero page
 	INDEXED_INDIRECT((r, m) -> {
 		final int i = m.read(r.incrementPC()) + r.getX();
-		return m.read(i & ZERO_PAGE_END.getAddress())
-				+ (m.read(AddressingMode.WRAP_AROUND_ZERO_PAGE.apply(i + 1)) << 8);
+		return m.read(i & ZERO_PAGE_END.getAddress()) + (m.read(wrapAroundZeroPage(i + 1)) << 8);
 	}),
 
 	// wraparound zero page
 	INDIRECT_INDEXED((r, m) -> {
-		int i = m.read(r.incrementPC());
-		i = (m.read(i & 0x00FF) + (m.read(AddressingMode.WRAP_AROUND_ZERO_PAGE.apply(i + 1)) << 8)) + r.getY();
-		r.setPg(AddressingMode.PAGE_CROSSED.test(i, i + r.getY()));
+		final int z = m.read(r.incrementPC());
+		final int base = m.read(z & 0x00FF) + (m.read(wrapAroundZeroPage(z + 1)) << 8);
+		final int i = base + r.getY();
+		r.setPg(pageCrossed(base, i));
 		return i;
 	}),
 
+	// the high byte is read from the same page: JMP ($10FF) => $10FF, $1000
 	INDIRECT((r, m) -> {
 		final int i = AddressingMode.ABSOLUTE.applyAsInt(r, m);
-		return m.read(i) + (m.read(i + 1) << 8);
+		return m.read(i) + (m.read((i & 0xFF00) | ((i + 1) & 0x00FF)) << 8);
+	}),
+
+	// branch target, signed offset from the next instruction
+	RELATIVE((r, m) -> {
+		final int offset = (byte) m.read(r.incrementPC());
+		return (r.getPC() + 1 + offset) & 0xFFFF;
 	}),
 
 	;
@@ -86,15 +93,57 @@ public enum AddressingMode implements ToIntBiFunction<Registers, Memory> {
 		this.toIntBiFunction = toIntBiFunction;
 	}
 
+	@Override
+	public int applyAsInt(Registers r, Memory m) {
+		return this.toIntBiFunction.applyAsInt(r, m);
+	}
+
+	// primitive only, no boxing in the hot path.
 	// same page => high-byte of addresses have the same value
 	// example: 0xFE00 - 0xFEFF, different page: 0xFE00 - 0xFF00
-	// TODO: JMH >> vs &. (addr1 & 0xFF00) != (addr2 & 0xFF00);
-	private static final BiPredicate<Integer, Integer> PAGE_CROSSED = (x, y) -> (x >> 8 != y >> 8);
+	// y = x + index, index <= 0xFF => the high bytes differ by 0 or 1, the
+	// difference is the penalty itself, no compare. See PageCrossedBenchmark.
+	static int pageCrossed(final int x, final int y) {
+		return (y >> 8) - (x >> 8);
+	}
 
-	private static final IntFunction<Integer> WRAP_AROUND_ZERO_PAGE = x -> x & ZERO_PAGE_END.getAddress();
+	/**
+	 * Addressing mode of an assembler format.
+	 * 
+	 * @param assemblerFormat "LDA nnnn,X"
+	 * @return the mode, null for implied and accumulator
+	 */
+	public static AddressingMode of(final String assemblerFormat) {
+		final int operand = assemblerFormat.indexOf(' ');
+		switch (operand < 0 ? "" : assemblerFormat.substring(operand + 1)) {
+		case "#nn":
+			return IMMEDIATE;
+		case "nn":
+			return ZERO_PAGE;
+		case "nn,X":
+			return INDEXED_ZERO_PAGE_X;
+		case "nn,Y":
+			return INDEXED_ZERO_PAGE_Y;
+		case "nnnn":
+			return ABSOLUTE;
+		case "nnnn,X":
+			return INDEXED_ABSOLUTE_X;
+		case "nnnn,Y":
+			return INDEXED_ABSOLUTE_Y;
+		case "(nn,X)":
+			return INDEXED_INDIRECT;
+		case "(nn),Y":
+			return INDIRECT_INDEXED;
+		case "(nnnn)":
+			return INDIRECT;
+		case "rr":
+			return RELATIVE;
+		default:
+			return null;
+		}
+	}
 
-	@Override
-	public int applyAsInt(Registers r, Memory m) {
-		return this.toIntBiFunction.applyAsInt(r, m);
+	static int wrapAroundZeroPage(final int x) {
+		return x & ZERO_PAGE_END.getAddress();
 	}
 }
@@ -0,0 +1,84 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.util.function.ToIntBiFunction;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Compiled basic block: straight-line run from start to the first
+ * branch, jump, call or return.
+ *
+ */
+final class Block {
+
+	private final int start;
+	// last byte, inclusive
+	private final int end;
+	private final int bank;
+	private final int length;
+	// worst case cycles, page crossings and branches taken
+	private final int cost;
+	private final ToIntBiFunction<Registers, Memory> code;
+
+	// other banks mapped at the same PC
+	Block next;
+
+	Block(final int start, final int end, final int bank, final int length, final int cost,
+			final ToIntBiFunction<Registers, Memory> code) {
+		this.start = start;
+		this.end = end;
+		this.bank = bank;
+		this.length = length;
+		this.cost = cost;
+		this.code = code;
+	}
+
+	// cycles go to the clock, returns the instructions executed
+	int exec(final Registers r, final Memory m) {
+		return code.applyAsInt(r, m);
+	}
+
+	boolean contains(final int address) {
+		return address >= start && address <= end;
+	}
+
+	int getStart() {
+		return start;
+	}
+
+	int getEnd() {
+		return end;
+	}
+
+	int getBank() {
+		return bank;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	int getCost() {
+		return cost;
+	}
+
+}
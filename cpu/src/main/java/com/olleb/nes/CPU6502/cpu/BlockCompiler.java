@@ -0,0 +1,1287 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntBiFunction;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Basic block to JVM bytecode. One class per opcode sequence, operands are
+ * fetched at run time so the class only depends on the opcodes.
+ * 
+ * Loads, stores, ALU, shifts, transfers, stack pushes and pulls, flag
+ * instructions, branches and JMP are emitted inline against the
+ * {@link Registers} and {@link Memory} accessors, PC kept in a local. The
+ * rest goes through its strategy, bound to a static final field so the JIT
+ * sees a constant receiver.
+ * 
+ * A liveness pass drops the N, Z, C and V writes the next instructions of
+ * the block overwrite before anything reads them. Every flag is live at the
+ * block exits.
+ * 
+ * Cycles are summed and go to the clock once, at the end of the block, but
+ * before and after every instruction a device may see: absolute, indexed and
+ * indirect accesses and the strategy calls. Devices catching up in the middle
+ * of a block see the same cycle as with the interpreter, the block returns
+ * early once the clock says the batch limit, lowered by the access or not, is
+ * reached. Zero page, stack and opcode fetches are taken as plain memory.
+ * 
+ * <pre>
+ * public int applyAsInt(Registers r, Memory m) {
+ * 	int pc = r.getPC();
+ * 	int v = m.read(pc + 1); r.setX(v);               // LDX #nn, NZ dead
+ * 	v = (r.getX() + 1) &amp; 0xFF; r.setX(v); r.setNZ(v); // INX
+ * 	clock.test(4);
+ * 	m.write(m.read(pc + 4) + (m.read(pc + 5) &lt;&lt; 8), r.getX()); // STX nnnn
+ * 	if (!clock.test(4)) { r.setPC(pc + 6); return 3; }
+ * 	...
+ * 	return n;
+ * }
+ * </pre>
+ * 
+ * Classes are defined in a class loader owned by the compiler, they are
+ * collected with it. Once {@link #MAX_CLASSES} are defined the owner drops
+ * its blocks and calls {@link #reset()}.
+ *
+ */
+final class BlockCompiler {
+
+	// classes per loader
+	static final int MAX_CLASSES = 4096;
+
+	private static final String PACKAGE = "com/olleb/nes/CPU6502/cpu/";
+	private static final String OBJECT = "java/lang/Object";
+	private static final String STRATEGY = PACKAGE + "InstructionStrategy";
+	private static final String REGISTERS = PACKAGE + "Registers";
+	private static final String MEMORY = "com/olleb/nes/CPU6502/mem/Memory";
+	private static final String FUNCTION = "java/util/function/ToIntBiFunction";
+	private static final String LOADER = "java/util/function/IntFunction";
+	private static final String CLOCK = "java/util/function/IntPredicate";
+	private static final String EXEC = "(L" + REGISTERS + ";L" + MEMORY + ";)I";
+	private static final String APPLY = "(L" + OBJECT + ";L" + OBJECT + ";)I";
+
+	// Java 11 class file
+	private static final int VERSION = 55;
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ICONST_0 = 0x03;
+	private static final int BIPUSH = 0x10;
+	private static final int SIPUSH = 0x11;
+	private static final int LDC_W = 0x13;
+	private static final int ILOAD = 0x15;
+	private static final int ALOAD_0 = 0x2A;
+	private static final int ALOAD_1 = 0x2B;
+	private static final int ALOAD_2 = 0x2C;
+	private static final int ISTORE = 0x36;
+	private static final int ASTORE_0 = 0x4B;
+	private static final int ASTORE_1 = 0x4C;
+	private static final int ASTORE_2 = 0x4D;
+	private static final int POP = 0x57;
+	private static final int IADD = 0x60;
+	private static final int ISUB = 0x64;
+	private static final int ISHL = 0x78;
+	private static final int ISHR = 0x7A;
+	private static final int IUSHR = 0x7C;
+	private static final int IAND = 0x7E;
+	private static final int IOR = 0x80;
+	private static final int IXOR = 0x82;
+	private static final int IINC = 0x84;
+	private static final int I2B = 0x91;
+	private static final int IFEQ = 0x99;
+	private static final int IFNE = 0x9A;
+	private static final int IF_ICMPEQ = 0x9F;
+	private static final int IRETURN = 0xAC;
+	private static final int RETURN = 0xB1;
+	private static final int GETSTATIC = 0xB2;
+	private static final int PUTSTATIC = 0xB3;
+	private static final int GETFIELD = 0xB4;
+	private static final int PUTFIELD = 0xB5;
+	private static final int INVOKEVIRTUAL = 0xB6;
+	private static final int INVOKESPECIAL = 0xB7;
+	private static final int INVOKEINTERFACE = 0xB9;
+	private static final int CHECKCAST = 0xC0;
+
+	// applyAsInt locals after this, Registers and Memory
+	private static final int CYCLES = 3;
+	private static final int PC = 4;
+	private static final int ADDRESS = 5;
+	private static final int VALUE = 6;
+	private static final int TEMP = 7;
+	private static final int LOCALS = 8;
+
+	// stack map frames
+	private static final int SAME_FRAME_EXTENDED = 251;
+	private static final int FULL_FRAME = 255;
+	private static final int ITEM_INTEGER = 1;
+	private static final int ITEM_OBJECT = 7;
+
+	// flags the liveness pass tracks
+	private static final int NZ = Registers.N | Registers.Z;
+	private static final int FLAGS = NZ | Registers.C | Registers.V;
+
+	private final IntPredicate clock;
+	// opcode sequence => compiled block, blocks recompiled after an
+	// invalidation or found in another bank reuse the class
+	private final Map<String, ToIntBiFunction<Registers, Memory>> cache = new HashMap<>();
+	private Loader loader = new Loader();
+
+	/**
+	 * Defines the block classes. The generated code only links against
+	 * public types, it gets its strategies from here.
+	 *
+	 */
+	private static final class Loader extends ClassLoader implements IntFunction<InstructionStrategy<Memory>> {
+
+		private int ids;
+
+		Loader() {
+			super(BlockCompiler.class.getClassLoader());
+		}
+
+		Class<?> define(final int[] opCodes) {
+			final String name = PACKAGE + "CompiledBlock" + ++ids;
+			final byte[] bytes = generate(name, opCodes);
+			return defineClass(name.replace('/', '.'), bytes, 0, bytes.length);
+		}
+
+		@Override
+		public InstructionStrategy<Memory> apply(final int opCode) {
+			return Instruction.valueOf(opCode).getInstructionStrategy();
+		}
+
+	}
+
+	/**
+	 * @param clock takes the cycles run so far, false ends the block
+	 */
+	BlockCompiler(final IntPredicate clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Block of the opcode sequence. Returns the instructions executed.
+	 * 
+	 * @param opCodes the opcodes
+	 * @return the block
+	 */
+	ToIntBiFunction<Registers, Memory> compile(final int[] opCodes) {
+		return cache.computeIfAbsent(Arrays.toString(opCodes), k -> define(opCodes));
+	}
+
+	boolean isFull() {
+		return cache.size() >= MAX_CLASSES;
+	}
+
+	// new loader, the old one goes with the last block using it
+	void reset() {
+		cache.clear();
+		loader = new Loader();
+	}
+
+	@SuppressWarnings("unchecked")
+	private ToIntBiFunction<Registers, Memory> define(final int[] opCodes) {
+		try {
+			return (ToIntBiFunction<Registers, Memory>) loader.define(opCodes).getConstructor(IntPredicate.class)
+					.newInstance(clock);
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("Block compilation failed", e);
+		}
+	}
+
+	// emitted inline, the rest through the strategy
+	static boolean isInline(final int opCode) {
+		switch (OpCodes.getMnemonic(opCode)) {
+		case "LDA":
+		case "LDX":
+		case "LDY":
+		case "STA":
+		case "STX":
+		case "STY":
+		case "TAX":
+		case "TAY":
+		case "TXA":
+		case "TYA":
+		case "TSX":
+		case "TXS":
+		case "PHA":
+		case "PHP":
+		case "PLA":
+		case "AND":
+		case "EOR":
+		case "ORA":
+		case "BIT":
+		case "ADC":
+		case "SBC":
+		case "CMP":
+		case "CPX":
+		case "CPY":
+		case "INC":
+		case "DEC":
+		case "INX":
+		case "INY":
+		case "DEX":
+		case "DEY":
+		case "ASL":
+		case "LSR":
+		case "ROL":
+		case "ROR":
+		case "BPL":
+		case "BMI":
+		case "BVC":
+		case "BVS":
+		case "BCC":
+		case "BCS":
+		case "BNE":
+		case "BEQ":
+		case "CLC":
+		case "SEC":
+		case "CLV":
+		case "CLD":
+		case "SED":
+		case "NOP":
+			return true;
+		case "JMP":
+			return opCode == 0x4C;
+		default:
+			return false;
+		}
+	}
+
+	// a device may see it: data access through an absolute, indexed or
+	// indirect address, or anything the strategy does
+	static boolean isObserved(final int opCode) {
+		if (!isInline(opCode)) {
+			return true;
+		}
+		switch (OpCodes.MODE[opCode]) {
+		case OpCodes.ABX:
+		case OpCodes.ABY:
+		case OpCodes.IZX:
+		case OpCodes.IZY:
+			return true;
+		case OpCodes.ABS:
+			return opCode != 0x4C;
+		default:
+			return false;
+		}
+	}
+
+	// flags read
+	static int uses(final int opCode) {
+		if (!isInline(opCode)) {
+			return FLAGS;
+		}
+		switch (OpCodes.getMnemonic(opCode)) {
+		case "ADC":
+		case "SBC":
+		case "ROL":
+		case "ROR":
+		case "BCC":
+		case "BCS":
+			return Registers.C;
+		case "BPL":
+		case "BMI":
+			return Registers.N;
+		case "BVC":
+		case "BVS":
+			return Registers.V;
+		case "BNE":
+		case "BEQ":
+			return Registers.Z;
+		case "PHP":
+			return FLAGS;
+		default:
+			return 0;
+		}
+	}
+
+	// flags written, whatever the operands
+	static int defs(final int opCode) {
+		if (!isInline(opCode)) {
+			return 0;
+		}
+		switch (OpCodes.getMnemonic(opCode)) {
+		case "ADC":
+		case "SBC":
+			return FLAGS;
+		case "ASL":
+		case "LSR":
+		case "ROL":
+		case "ROR":
+		case "CMP":
+		case "CPX":
+		case "CPY":
+			return NZ | Registers.C;
+		case "BIT":
+			return NZ | Registers.V;
+		case "LDA":
+		case "LDX":
+		case "LDY":
+		case "TAX":
+		case "TAY":
+		case "TXA":
+		case "TYA":
+		case "TSX":
+		case "TXS":
+		case "PLA":
+		case "AND":
+		case "EOR":
+		case "ORA":
+		case "INC":
+		case "DEC":
+		case "INX":
+		case "INY":
+		case "DEX":
+		case "DEY":
+			return NZ;
+		case "CLC":
+		case "SEC":
+			return Registers.C;
+		case "CLV":
+			return Registers.V;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Flag writes to drop per instruction. Backwards from the block end, where
+	 * every flag is live, as after any instruction the block may return at.
+	 * 
+	 * @param opCodes the block
+	 * @return dead flags written by each instruction
+	 */
+	static int[] dead(final int[] opCodes) {
+		final int[] dead = new int[opCodes.length];
+		int live = FLAGS;
+		for (int i = opCodes.length - 1; i >= 0; i--) {
+			if (isObserved(opCodes[i])) {
+				live = FLAGS;
+			}
+			dead[i] = defs(opCodes[i]) & ~live;
+			live = (live & ~defs(opCodes[i])) | uses(opCodes[i]);
+		}
+		return dead;
+	}
+
+	private static byte[] generate(final String name, final int[] opCodes) {
+		final ConstantPool cp = new ConstantPool();
+		final int thisClass = cp.classRef(name);
+		final int superClass = cp.classRef(OBJECT);
+		final int function = cp.classRef(FUNCTION);
+		final int strategy = cp.classRef(STRATEGY);
+		final int loader = cp.classRef(LOADER);
+		final int objectInit = cp.methodRef(OBJECT, "<init>", "()V");
+		final int getClassLoader = cp.methodRef("java/lang/Class", "getClassLoader", "()Ljava/lang/ClassLoader;");
+		final int apply = cp.interfaceMethodRef(LOADER, "apply", "(I)L" + OBJECT + ";");
+		final int clockField = cp.fieldRef(name, "clock", "L" + CLOCK + ";");
+		// strategy fields of the instructions not inlined
+		final int[] fields = new int[opCodes.length];
+		int strategies = 0;
+		for (int i = 0; i < opCodes.length; i++) {
+			if (!isInline(opCodes[i])) {
+				fields[i] = cp.fieldRef(name, "s" + i, "L" + STRATEGY + ";");
+				strategies++;
+			}
+		}
+
+		// <init>(IntPredicate)
+		final Code init = new Code(cp);
+		init.op(ALOAD_0).op(INVOKESPECIAL).u2(objectInit);
+		init.op(ALOAD_0).op(ALOAD_1).op(PUTFIELD).u2(clockField).op(RETURN);
+
+		// <clinit>, strategies from the defining loader
+		final Code clinit = new Code(cp);
+		clinit.op(LDC_W).u2(thisClass).op(INVOKEVIRTUAL).u2(getClassLoader).op(CHECKCAST).u2(loader).op(ASTORE_0);
+		for (int i = 0; i < opCodes.length; i++) {
+			if (fields[i] != 0) {
+				clinit.op(ALOAD_0).op(SIPUSH).u2(opCodes[i]).op(INVOKEINTERFACE).u2(apply).op(2).op(0);
+				clinit.op(CHECKCAST).u2(strategy).op(PUTSTATIC).u2(fields[i]);
+			}
+		}
+		clinit.op(RETURN);
+
+		final Emitter body = new Emitter(cp, thisClass, clockField, fields);
+		body.block(opCodes);
+
+		try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); DataOutputStream out = new DataOutputStream(bytes)) {
+			final int codeAttribute = cp.utf8("Code");
+			final int stackMapAttribute = cp.utf8("StackMapTable");
+			final int strategyType = cp.utf8("L" + STRATEGY + ";");
+			final int[] fieldNames = new int[opCodes.length];
+			for (int i = 0; i < opCodes.length; i++) {
+				if (fields[i] != 0) {
+					fieldNames[i] = cp.utf8("s" + i);
+				}
+			}
+			final int clockName = cp.utf8("clock");
+			final int clockType = cp.utf8("L" + CLOCK + ";");
+			final int initName = cp.utf8("<init>");
+			final int initType = cp.utf8("(L" + CLOCK + ";)V");
+			final int clinitName = cp.utf8("<clinit>");
+			final int voidType = cp.utf8("()V");
+			final int applyName = cp.utf8("applyAsInt");
+			final int applyType = cp.utf8(APPLY);
+
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			cp.write(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(function);
+
+			out.writeShort(strategies + 1);
+			for (int i = 0; i < opCodes.length; i++) {
+				if (fields[i] != 0) {
+					field(out, ACC_STATIC | ACC_FINAL, fieldNames[i], strategyType);
+				}
+			}
+			field(out, ACC_PRIVATE | ACC_FINAL, clockName, clockType);
+
+			out.writeShort(3);
+			method(out, ACC_PUBLIC, initName, initType, codeAttribute, 2, 2, init, 0, null);
+			method(out, ACC_STATIC, clinitName, voidType, codeAttribute, 2, 1, clinit, 0, null);
+			method(out, ACC_PUBLIC, applyName, applyType, codeAttribute, 8, LOCALS, body.code, stackMapAttribute,
+					body.frames);
+
+			out.writeShort(0);
+			out.flush();
+			return bytes.toByteArray();
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void field(final DataOutputStream out, final int access, final int name, final int type)
+			throws IOException {
+		out.writeShort(access);
+		out.writeShort(name);
+		out.writeShort(type);
+		out.writeShort(0);
+	}
+
+	private static void method(final DataOutputStream out, final int access, final int name, final int type,
+			final int codeAttribute, final int maxStack, final int maxLocals, final Code code,
+			final int stackMapAttribute, final StackMap frames) throws IOException {
+		final byte[] bytecode = code.toByteArray();
+		final byte[] stackMap = frames != null ? frames.toByteArray() : new byte[0];
+		out.writeShort(access);
+		out.writeShort(name);
+		out.writeShort(type);
+		out.writeShort(1);
+		out.writeShort(codeAttribute);
+		out.writeInt(12 + bytecode.length + (frames != null ? 6 + stackMap.length : 0));
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(bytecode.length);
+		out.write(bytecode);
+		// exception table, attributes
+		out.writeShort(0);
+		if (frames != null) {
+			out.writeShort(1);
+			out.writeShort(stackMapAttribute);
+			out.writeInt(stackMap.length);
+			out.write(stackMap);
+		} else {
+			out.writeShort(0);
+		}
+	}
+
+	/**
+	 * applyAsInt of one block. Every jump lands with an empty stack, the
+	 * locals are all set before the first instruction, so one frame fits
+	 * every target.
+	 *
+	 */
+	private static final class Emitter {
+
+		private final Code code;
+		private final StackMap frames;
+		private final int clockField;
+		private final int[] fields;
+		private final int registers;
+		private final int memory;
+		private final int exec;
+		private final int test;
+		private final int read;
+		private final int write;
+
+		// constant cycles not on the clock yet
+		private int pending;
+		// the CYCLES local holds extra cycles: page crossings, branches,
+		// strategies
+		private boolean dynamic;
+		// the last instruction set PC
+		private boolean jumped;
+
+		Emitter(final ConstantPool cp, final int thisClass, final int clockField, final int[] fields) {
+			this.code = new Code(cp);
+			this.clockField = clockField;
+			this.fields = fields;
+			this.registers = cp.classRef(REGISTERS);
+			this.memory = cp.classRef(MEMORY);
+			this.exec = cp.interfaceMethodRef(STRATEGY, "exec", EXEC);
+			this.test = cp.interfaceMethodRef(CLOCK, "test", "(I)Z");
+			this.read = cp.interfaceMethodRef(MEMORY, "read", "(I)I");
+			this.write = cp.interfaceMethodRef(MEMORY, "write", "(II)V");
+			this.frames = new StackMap(thisClass, registers, memory);
+		}
+
+		void block(final int[] opCodes) {
+			final int[] dead = dead(opCodes);
+			final int[] offsets = new int[opCodes.length + 1];
+			for (int i = 0; i < opCodes.length; i++) {
+				offsets[i + 1] = offsets[i] + OpCodes.LENGTH[opCodes[i]];
+			}
+
+			code.op(ALOAD_1).op(CHECKCAST).u2(registers).op(ASTORE_1);
+			code.op(ALOAD_2).op(CHECKCAST).u2(memory).op(ASTORE_2);
+			code.op(ALOAD_1).call("getPC", "()I").istore(PC);
+			for (final int local : new int[] { CYCLES, ADDRESS, VALUE, TEMP }) {
+				code.op(ICONST_0).istore(local);
+			}
+
+			for (int i = 0; i < opCodes.length; i++) {
+				final int opCode = opCodes[i];
+				final boolean observed = isObserved(opCode);
+				// the device sees the cycle the interpreter would be at
+				if (observed && (pending != 0 || dynamic)) {
+					clock();
+					code.op(POP);
+				}
+				if (isInline(opCode)) {
+					instruction(opCode, offsets[i], dead[i]);
+				} else {
+					strategy(i, opCode, offsets[i], i == opCodes.length - 1);
+				}
+				pending += OpCodes.CYCLES[opCode];
+				// the access may have lowered the limit
+				if (observed && i < opCodes.length - 1) {
+					clock();
+					final int next = code.jump(IFNE);
+					pc(offsets[i + 1]);
+					code.op(SIPUSH).u2(i + 1).op(IRETURN);
+					land(next);
+				}
+			}
+			if (!jumped) {
+				pc(offsets[opCodes.length]);
+			}
+			if (pending != 0 || dynamic) {
+				clock();
+				code.op(POP);
+			}
+			code.op(SIPUSH).u2(opCodes.length).op(IRETURN);
+		}
+
+		// clock.test(cycles since the last call)
+		private void clock() {
+			code.op(ALOAD_0).op(GETFIELD).u2(clockField);
+			code.push(pending);
+			if (dynamic) {
+				code.iload(CYCLES).op(IADD);
+			}
+			code.op(INVOKEINTERFACE).u2(test).op(2).op(0);
+			if (dynamic) {
+				code.op(ICONST_0).istore(CYCLES);
+			}
+			pending = 0;
+			dynamic = false;
+		}
+
+		private void land(final int jump) {
+			code.land(jump);
+			frames.frame(code.size());
+		}
+
+		// r.setPC(pc + offset)
+		private void pc(final int offset) {
+			code.op(ALOAD_1);
+			address(offset);
+			code.call("setPC", "(I)V");
+		}
+
+		// pc + offset
+		private void address(final int offset) {
+			code.iload(PC);
+			if (offset != 0) {
+				code.push(offset).op(IADD);
+			}
+		}
+
+		// m.read(pc + offset)
+		private void operand(final int offset) {
+			code.op(ALOAD_2);
+			address(offset);
+			read();
+		}
+
+		private void read() {
+			code.op(INVOKEINTERFACE).u2(read).op(2).op(0);
+		}
+
+		private void write() {
+			code.op(INVOKEINTERFACE).u2(write).op(3).op(0);
+		}
+
+		private void extra() {
+			code.iload(CYCLES).op(IADD).istore(CYCLES);
+			dynamic = true;
+		}
+
+		// effective address on the stack, page crossings to the CYCLES local
+		private void effective(final int opCode, final int offset) {
+			switch (OpCodes.MODE[opCode]) {
+			case OpCodes.IMM:
+				address(offset + 1);
+				break;
+			case OpCodes.ZP:
+				operand(offset + 1);
+				break;
+			case OpCodes.ZPX:
+			case OpCodes.ZPY:
+				operand(offset + 1);
+				code.op(ALOAD_1).call(OpCodes.MODE[opCode] == OpCodes.ZPX ? "getX" : "getY", "()I").op(IADD);
+				code.push(0xFF).op(IAND);
+				break;
+			case OpCodes.ABS:
+				absolute(offset);
+				break;
+			case OpCodes.ABX:
+			case OpCodes.ABY:
+				absolute(offset);
+				indexed(opCode, OpCodes.MODE[opCode] == OpCodes.ABX ? "getX" : "getY");
+				break;
+			case OpCodes.IZX:
+				operand(offset + 1);
+				code.op(ALOAD_1).call("getX", "()I").op(IADD).istore(TEMP);
+				code.op(ALOAD_2).iload(TEMP).push(0xFF).op(IAND);
+				read();
+				code.op(ALOAD_2).iload(TEMP).push(1).op(IADD).push(0xFF).op(IAND);
+				read();
+				code.push(8).op(ISHL).op(IADD);
+				break;
+			case OpCodes.IZY:
+				operand(offset + 1);
+				code.istore(TEMP);
+				code.op(ALOAD_2).iload(TEMP).push(0xFF).op(IAND);
+				read();
+				code.op(ALOAD_2).iload(TEMP).push(1).op(IADD).push(0xFF).op(IAND);
+				read();
+				code.push(8).op(ISHL).op(IADD);
+				indexed(opCode, "getY");
+				break;
+			default:
+				throw new IllegalArgumentException(OpCodes.getAssemblerFormat(opCode));
+			}
+		}
+
+		// 16 bit operand, low byte first
+		private void absolute(final int offset) {
+			operand(offset + 1);
+			operand(offset + 2);
+			code.push(8).op(ISHL).op(IADD);
+		}
+
+		// base on the stack => base + index, +1 cycle on a page cross
+		private void indexed(final int opCode, final String index) {
+			code.istore(TEMP);
+			code.iload(TEMP).op(ALOAD_1).call(index, "()I").op(IADD).istore(ADDRESS);
+			if (OpCodes.PENALTY[opCode] != 0) {
+				code.iload(ADDRESS).push(8).op(ISHR).iload(TEMP).push(8).op(ISHR).op(ISUB);
+				extra();
+			}
+			code.iload(ADDRESS);
+		}
+
+		// m.read(effective address)
+		private void load(final int opCode, final int offset) {
+			code.op(ALOAD_2);
+			effective(opCode, offset);
+			read();
+		}
+
+		// r.setNZ(local) unless both are dead
+		private void nz(final int local, final int dead) {
+			if ((dead & NZ) != NZ) {
+				code.op(ALOAD_1).iload(local).call("setNZ", "(I)V");
+			}
+		}
+
+		// r.setC(local), 0 or 1
+		private void flag(final String setter, final int local) {
+			code.op(ALOAD_1).iload(local).call(setter, "(Z)V");
+		}
+
+		private void register(final char register, final boolean set) {
+			switch (register) {
+			case 'A':
+				code.call(set ? "setA" : "getA", set ? "(I)V" : "()I");
+				break;
+			case 'X':
+				code.call(set ? "setX" : "getX", set ? "(I)V" : "()I");
+				break;
+			case 'Y':
+				code.call(set ? "setY" : "getY", set ? "(I)V" : "()I");
+				break;
+			default:
+				code.call(set ? "setSP" : "getSP", set ? "(I)V" : "()I");
+				break;
+			}
+		}
+
+		// local => register, NZ
+		private void transfer(final char register, final int local, final int dead) {
+			code.op(ALOAD_1).iload(local);
+			register(register, true);
+			nz(local, dead);
+		}
+
+		// the same operations as the Instruction handlers, in the same order
+		private void instruction(final int opCode, final int offset, final int dead) {
+			final String mnemonic = OpCodes.getMnemonic(opCode);
+			final boolean accumulator = OpCodes.MODE[opCode] == OpCodes.ACC;
+			switch (mnemonic) {
+			case "LDA":
+			case "LDX":
+			case "LDY":
+				load(opCode, offset);
+				code.istore(VALUE);
+				transfer(mnemonic.charAt(2), VALUE, dead);
+				break;
+			case "STA":
+			case "STX":
+			case "STY":
+				code.op(ALOAD_2);
+				effective(opCode, offset);
+				code.op(ALOAD_1);
+				register(mnemonic.charAt(2), false);
+				write();
+				break;
+			case "TAX":
+			case "TAY":
+			case "TXA":
+			case "TYA":
+			case "TSX":
+			case "TXS":
+				code.op(ALOAD_1);
+				register(mnemonic.charAt(1), false);
+				code.istore(VALUE);
+				transfer(mnemonic.charAt(2), VALUE, dead);
+				break;
+			case "PHA":
+				code.op(ALOAD_1).call("getA", "()I").istore(VALUE);
+				push();
+				break;
+			case "PHP":
+				// B and bit 5 only exist in the pushed copy
+				code.op(ALOAD_1).call("getProcessorStatus", "()I").push(Registers.B | Registers.U).op(IOR)
+						.istore(VALUE);
+				push();
+				break;
+			case "PLA":
+				code.op(ALOAD_2).push(0x0100).op(ALOAD_1).call("incrementSP", "()I").op(IADD);
+				read();
+				code.istore(VALUE);
+				transfer('A', VALUE, dead);
+				break;
+			case "AND":
+			case "EOR":
+			case "ORA":
+				code.op(ALOAD_1).call("getA", "()I");
+				load(opCode, offset);
+				code.op("AND".equals(mnemonic) ? IAND : "EOR".equals(mnemonic) ? IXOR : IOR).istore(VALUE);
+				transfer('A', VALUE, dead);
+				break;
+			case "BIT":
+				bit(opCode, offset, dead);
+				break;
+			case "ADC":
+			case "SBC":
+				load(opCode, offset);
+				if ("SBC".equals(mnemonic)) {
+					// A - M - !C == A + ~M + C
+					code.push(-1).op(IXOR).push(0xFF).op(IAND);
+				}
+				code.istore(VALUE);
+				adc(dead);
+				break;
+			case "CMP":
+			case "CPX":
+			case "CPY":
+				compare(opCode, offset, mnemonic.equals("CMP") ? 'A' : mnemonic.charAt(2), dead);
+				break;
+			case "INC":
+			case "DEC":
+				code.op(ALOAD_2);
+				effective(opCode, offset);
+				code.istore(ADDRESS).iload(ADDRESS);
+				read();
+				code.push("INC".equals(mnemonic) ? 1 : -1).op(IADD).push(0xFF).op(IAND).istore(VALUE);
+				code.op(ALOAD_2).iload(ADDRESS).iload(VALUE);
+				write();
+				nz(VALUE, dead);
+				break;
+			case "INX":
+			case "INY":
+			case "DEX":
+			case "DEY":
+				code.op(ALOAD_1);
+				register(mnemonic.charAt(2), false);
+				code.push(mnemonic.charAt(0) == 'I' ? 1 : -1).op(IADD).push(0xFF).op(IAND).istore(VALUE);
+				transfer(mnemonic.charAt(2), VALUE, dead);
+				break;
+			case "ASL":
+			case "LSR":
+			case "ROL":
+			case "ROR":
+				if (accumulator) {
+					code.op(ALOAD_1).call("getA", "()I").istore(VALUE);
+				} else {
+					code.op(ALOAD_2);
+					effective(opCode, offset);
+					code.istore(ADDRESS).iload(ADDRESS);
+					read();
+					code.istore(VALUE);
+				}
+				shift(mnemonic, dead);
+				if (accumulator) {
+					code.op(ALOAD_1).iload(TEMP).call("setA", "(I)V");
+				} else {
+					code.op(ALOAD_2).iload(ADDRESS).iload(TEMP);
+					write();
+				}
+				break;
+			case "BPL":
+			case "BMI":
+			case "BVC":
+			case "BVS":
+			case "BCC":
+			case "BCS":
+			case "BNE":
+			case "BEQ":
+				branch(mnemonic, offset);
+				break;
+			case "JMP":
+				code.op(ALOAD_1);
+				absolute(offset);
+				code.call("setPC", "(I)V");
+				jumped = true;
+				break;
+			case "CLC":
+			case "SEC":
+				if ((dead & Registers.C) == 0) {
+					code.op(ALOAD_1).push(mnemonic.charAt(0) == 'S' ? 1 : 0).call("setC", "(Z)V");
+				}
+				break;
+			case "CLV":
+				if ((dead & Registers.V) == 0) {
+					code.op(ALOAD_1).push(0).call("setV", "(Z)V");
+				}
+				break;
+			case "CLD":
+			case "SED":
+				code.op(ALOAD_1).push(mnemonic.charAt(0) == 'S' ? 1 : 0).call("setD", "(Z)V");
+				break;
+			case "NOP":
+				// dummy read, registers may have read side effects
+				if (OpCodes.MODE[opCode] != OpCodes.IMP) {
+					load(opCode, offset);
+					code.op(POP);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException(OpCodes.getAssemblerFormat(opCode));
+			}
+		}
+
+		// VALUE => m[0x0100 + SP], SP--
+		private void push() {
+			code.op(ALOAD_2).push(0x0100).op(ALOAD_1).call("getSP", "()I").op(IADD).iload(VALUE);
+			write();
+			code.op(ALOAD_1).call("decrementSP", "()I").op(POP);
+		}
+
+		// N and V are bits 7 and 6 of the operand, Z from A & operand
+		private void bit(final int opCode, final int offset, final int dead) {
+			load(opCode, offset);
+			if ((dead & (NZ | Registers.V)) == (NZ | Registers.V)) {
+				code.op(POP);
+				return;
+			}
+			code.istore(VALUE);
+			code.op(ALOAD_1).op(ALOAD_1).call("getProcessorStatus", "()I")
+					.push(~(Registers.N | Registers.V | Registers.Z)).op(IAND);
+			code.iload(VALUE).push(Registers.N | Registers.V).op(IAND).op(IOR);
+			// (A & operand & 0xFF) == 0 ? Z : 0, (x - 1) >>> 31 is 1 for 0
+			code.op(ALOAD_1).call("getA", "()I").iload(VALUE).op(IAND).push(0xFF).op(IAND).push(1).op(ISUB)
+					.push(31).op(IUSHR).push(1).op(ISHL).op(IOR);
+			code.call("setProcessorStatus", "(I)V");
+		}
+
+		// A + VALUE + C, V when both operands have the same sign and the
+		// result sign differs
+		private void adc(final int dead) {
+			code.op(ALOAD_1).call("getA", "()I").istore(TEMP);
+			code.iload(TEMP).iload(VALUE).op(IADD).op(ALOAD_1).call("isC", "()Z").op(IADD).istore(ADDRESS);
+			if ((dead & Registers.C) == 0) {
+				// sum > 0xFF
+				code.op(ALOAD_1).push(0xFF).iload(ADDRESS).op(ISUB).push(31).op(IUSHR).call("setC", "(Z)V");
+			}
+			code.iload(ADDRESS).push(0xFF).op(IAND).istore(ADDRESS);
+			if ((dead & Registers.V) == 0) {
+				code.op(ALOAD_1).iload(TEMP).iload(ADDRESS).op(IXOR).iload(VALUE).iload(ADDRESS).op(IXOR).op(IAND)
+						.push(0x80).op(IAND).push(7).op(IUSHR).call("setV", "(Z)V");
+			}
+			transfer('A', ADDRESS, dead);
+		}
+
+		private void compare(final int opCode, final int offset, final char register, final int dead) {
+			load(opCode, offset);
+			if ((dead & (NZ | Registers.C)) == (NZ | Registers.C)) {
+				code.op(POP);
+				return;
+			}
+			code.istore(VALUE);
+			// after the address, TEMP is scratch there
+			code.op(ALOAD_1);
+			register(register, false);
+			code.istore(TEMP);
+			if ((dead & Registers.C) == 0) {
+				// (register & 0xFF) >= (operand & 0xFF)
+				code.op(ALOAD_1).iload(TEMP).push(0xFF).op(IAND).iload(VALUE).push(0xFF).op(IAND).op(ISUB).push(31)
+						.op(IUSHR).push(1).op(IXOR).call("setC", "(Z)V");
+			}
+			if ((dead & NZ) != NZ) {
+				code.op(ALOAD_1).iload(TEMP).iload(VALUE).op(ISUB).call("setNZ", "(I)V");
+			}
+		}
+
+		// VALUE => TEMP, the old C read before the new one is set
+		private void shift(final String mnemonic, final int dead) {
+			switch (mnemonic) {
+			case "ASL":
+				code.iload(VALUE).push(1).op(ISHL).push(0xFF).op(IAND).istore(TEMP);
+				break;
+			case "LSR":
+				code.iload(VALUE).push(0xFF).op(IAND).push(1).op(ISHR).istore(TEMP);
+				break;
+			case "ROL":
+				code.iload(VALUE).push(1).op(ISHL).push(0xFF).op(IAND).op(ALOAD_1).call("isC", "()Z").op(IOR)
+						.istore(TEMP);
+				break;
+			default:
+				code.iload(VALUE).push(0xFF).op(IAND).push(1).op(ISHR).op(ALOAD_1).call("isC", "()Z").push(7)
+						.op(ISHL).op(IOR).istore(TEMP);
+				break;
+			}
+			if ((dead & Registers.C) == 0) {
+				// bit 7 out to the left, bit 0 out to the right
+				code.op(ALOAD_1).iload(VALUE);
+				if ("ASL".equals(mnemonic) || "ROL".equals(mnemonic)) {
+					code.push(0x80).op(IAND).push(7).op(IUSHR);
+				} else {
+					code.push(1).op(IAND);
+				}
+				code.call("setC", "(Z)V");
+			}
+			nz(TEMP, dead);
+		}
+
+		// taken => +1, +2 when the target is in another page than the next
+		// instruction
+		private void branch(final String mnemonic, final int offset) {
+			final String flag;
+			final boolean set;
+			switch (mnemonic) {
+			case "BPL":
+			case "BMI":
+				flag = "isN";
+				set = mnemonic.equals("BMI");
+				break;
+			case "BVC":
+			case "BVS":
+				flag = "isV";
+				set = mnemonic.equals("BVS");
+				break;
+			case "BCC":
+			case "BCS":
+				flag = "isC";
+				set = mnemonic.equals("BCS");
+				break;
+			default:
+				flag = "isZ";
+				set = mnemonic.equals("BEQ");
+				break;
+			}
+			address(offset + 2);
+			code.istore(TEMP);
+			code.iload(TEMP);
+			code.op(ALOAD_2);
+			address(offset + 1);
+			read();
+			code.op(I2B).op(IADD).push(0xFFFF).op(IAND).istore(ADDRESS);
+			pc(offset + 2);
+			code.op(ALOAD_1).call(flag, "()Z");
+			final int notTaken = code.jump(set ? IFEQ : IFNE);
+			code.op(ALOAD_1).iload(ADDRESS).call("setPC", "(I)V");
+			code.op(IINC).op(CYCLES).op(1);
+			code.iload(TEMP).push(0xFFFF).op(IAND).push(8).op(ISHR).iload(ADDRESS).push(8).op(ISHR);
+			final int samePage = code.jump(IF_ICMPEQ);
+			code.op(IINC).op(CYCLES).op(1);
+			land(samePage);
+			land(notTaken);
+			dynamic = true;
+			jumped = true;
+		}
+
+		// r.setPC(pc + offset); c += s.exec(r, m) + isPg
+		private void strategy(final int i, final int opCode, final int offset, final boolean last) {
+			pc(offset);
+			code.op(GETSTATIC).u2(fields[i]).op(ALOAD_1).op(ALOAD_2).op(INVOKEINTERFACE).u2(exec).op(3).op(0);
+			extra();
+			if (OpCodes.PENALTY[opCode] != 0) {
+				code.op(ALOAD_1).call("isPg", "()Z");
+				extra();
+			}
+			if (last) {
+				code.op(ALOAD_1).call("incrementPC", "()I").op(POP);
+				jumped = true;
+			}
+		}
+
+	}
+
+	/**
+	 * Bytecode buffer. Registers calls resolved against the class constant
+	 * pool, forward jumps patched once their target is known.
+	 *
+	 */
+	private static final class Code extends ByteArrayOutputStream {
+
+		private static final int ICONST_M1 = 0x02;
+
+		private final ConstantPool cp;
+
+		Code(final ConstantPool cp) {
+			this.cp = cp;
+		}
+
+		Code op(final int op) {
+			write(op);
+			return this;
+		}
+
+		Code u2(final int value) {
+			write(value >> 8);
+			write(value);
+			return this;
+		}
+
+		Code push(final int value) {
+			if (value >= -1 && value <= 5) {
+				return op(ICONST_M1 + 1 + value);
+			}
+			if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				return op(BIPUSH).op(value);
+			}
+			if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				return op(SIPUSH).u2(value);
+			}
+			return op(LDC_W).u2(cp.integer(value));
+		}
+
+		Code iload(final int local) {
+			return op(ILOAD).op(local);
+		}
+
+		Code istore(final int local) {
+			return op(ISTORE).op(local);
+		}
+
+		// r.name() on the Registers at the top of the stack
+		Code call(final String name, final String type) {
+			return op(INVOKEVIRTUAL).u2(cp.methodRef(REGISTERS, name, type));
+		}
+
+		// jump to patch, returns its offset
+		int jump(final int op) {
+			final int at = size();
+			op(op).u2(0);
+			return at;
+		}
+
+		// the jump lands here
+		void land(final int jump) {
+			final int delta = size() - jump;
+			buf[jump + 1] = (byte) (delta >> 8);
+			buf[jump + 2] = (byte) delta;
+		}
+
+	}
+
+	/**
+	 * Frames of the jump targets in applyAsInt. The locals never change after
+	 * the casts: this, Registers, Memory and the int ones, the stack is empty.
+	 * First frame full, the rest the same.
+	 *
+	 */
+	private static final class StackMap {
+
+		private final int thisClass;
+		private final int registers;
+		private final int memory;
+		private final SortedSet<Integer> offsets = new TreeSet<>();
+
+		StackMap(final int thisClass, final int registers, final int memory) {
+			this.thisClass = thisClass;
+			this.registers = registers;
+			this.memory = memory;
+		}
+
+		void frame(final int offset) {
+			offsets.add(offset);
+		}
+
+		byte[] toByteArray() {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			u2(bytes, offsets.size());
+			int last = -1;
+			for (final int offset : offsets) {
+				if (last < 0) {
+					bytes.write(FULL_FRAME);
+					u2(bytes, offset);
+					u2(bytes, LOCALS);
+					bytes.write(ITEM_OBJECT);
+					u2(bytes, thisClass);
+					bytes.write(ITEM_OBJECT);
+					u2(bytes, registers);
+					bytes.write(ITEM_OBJECT);
+					u2(bytes, memory);
+					for (int i = 3; i < LOCALS; i++) {
+						bytes.write(ITEM_INTEGER);
+					}
+					u2(bytes, 0);
+				} else {
+					bytes.write(SAME_FRAME_EXTENDED);
+					u2(bytes, offset - last - 1);
+				}
+				last = offset;
+			}
+			return bytes.toByteArray();
+		}
+
+		private static void u2(final ByteArrayOutputStream bytes, final int value) {
+			bytes.write(value >> 8);
+			bytes.write(value);
+		}
+
+	}
+
+	private static final class ConstantPool {
+
+		private static final int UTF8 = 1;
+		private static final int INTEGER = 3;
+		private static final int CLASS = 7;
+		private static final int FIELD = 9;
+		private static final int METHOD = 10;
+		private static final int INTERFACE_METHOD = 11;
+		private static final int NAME_AND_TYPE = 12;
+
+		// entry => index, insertion order is the pool order
+		private final Map<String, Integer> entries = new LinkedHashMap<>();
+		private final Map<Integer, Object[]> values = new HashMap<>();
+
+		private int add(final Object... entry) {
+			return entries.computeIfAbsent(Arrays.deepToString(entry), k -> {
+				final int index = entries.size() + 1;
+				values.put(index, entry);
+				return index;
+			});
+		}
+
+		int utf8(final String value) {
+			return add(UTF8, value);
+		}
+
+		int integer(final int value) {
+			return add(INTEGER, value);
+		}
+
+		int classRef(final String name) {
+			return add(CLASS, utf8(name));
+		}
+
+		private int nameAndType(final String name, final String type) {
+			return add(NAME_AND_TYPE, utf8(name), utf8(type));
+		}
+
+		int fieldRef(final String owner, final String name, final String type) {
+			return add(FIELD, classRef(owner), nameAndType(name, type));
+		}
+
+		int methodRef(final String owner, final String name, final String type) {
+			return add(METHOD, classRef(owner), nameAndType(name, type));
+		}
+
+		int interfaceMethodRef(final String owner, final String name, final String type) {
+			return add(INTERFACE_METHOD, classRef(owner), nameAndType(name, type));
+		}
+
+		void write(final DataOutputStream out) throws IOException {
+			out.writeShort(entries.size() + 1);
+			for (int i = 1; i <= entries.size(); i++) {
+				final Object[] entry = values.get(i);
+				out.writeByte((Integer) entry[0]);
+				if ((Integer) entry[0] == UTF8) {
+					out.writeUTF((String) entry[1]);
+				} else if ((Integer) entry[0] == INTEGER) {
+					out.writeInt((Integer) entry[1]);
+				} else {
+					for (int j = 1; j < entry.length; j++) {
+						out.writeShort((Integer) entry[j]);
+					}
+				}
+			}
+		}
+
+	}
+
+}
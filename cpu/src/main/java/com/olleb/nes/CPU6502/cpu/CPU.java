@@ -21,4 +21,25 @@ package com.olleb.nes.CPU6502.cpu;
 
 public interface CPU {
 
+	/**
+	 * RESET sequence, PC from the reset vector.
+	 */
+	public void reset();
+
+	/**
+	 * Fetch, decode and execute one instruction.
+	 * 
+	 * @return the cycles spent
+	 */
+	public int step();
+
+	/**
+	 * Fetch, decode and execute instructions until the cycle budget is spent.
+	 * The last instruction may overshoot the budget.
+	 * 
+	 * @param cycleBudget cycles to run
+	 * @return the cycles spent
+	 */
+	public long run(long cycleBudget);
+
 }
@@ -19,6 +19,332 @@
 
 package com.olleb.nes.CPU6502.cpu;
 
-public class CPU6502 implements CPU {
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM.Address;
+import com.olleb.nes.CPU6502.profile.Profiler;
+import com.olleb.nes.CPU6502.state.Stateful;
+import com.olleb.nes.CPU6502.trace.TraceBuffer;
+
+/**
+ * 6502 CPU. Fetch - decode - execute loop. Interrupts are events of the
+ * {@link InterruptController}: the run loops stop at the earliest one, they
+ * never look at the interrupt sources.
+ *
+ */
+public class CPU6502 implements CPU, Stateful {
+
+	/**
+	 * Opcode dispatch modes.
+	 *
+	 */
+	public enum Dispatch {
+		// Instruction.valueOf(opcode) table + strategy call
+		TABLE,
+		// dense switch over the opcode byte
+		SWITCH,
+		// hot basic blocks compiled to bytecode, switch for the rest
+		JIT,
+		// switch, opcode and operand bytes from a cache keyed by PC
+		PREDECODE
+	}
+
+	private final Registers registers;
+	private final Memory memory;
+	private final Dispatch dispatch;
+	private final Recompiler recompiler;
+	private final Predecoder predecoder;
+	private final InterruptController interrupts;
+	// null => tracing / profiling off, the run loops never see them
+	private TraceBuffer trace;
+	private Profiler profiler;
+
+	// totals since creation. cycles is updated per instruction, devices
+	// catching up in the middle of a batch read it through getCycles()
+	private long cycles;
+	private long instructions;
+	// end of the current batch: budget or next interrupt event
+	private long limit;
+
+	public CPU6502(final Memory memory) {
+		this(memory, Dispatch.TABLE);
+	}
+
+	public CPU6502(final Memory memory, final Dispatch dispatch) {
+		this(new Registers(), memory, dispatch);
+	}
+
+	public CPU6502(final Registers registers, final Memory memory, final Dispatch dispatch) {
+		this.registers = registers;
+		this.dispatch = dispatch;
+		this.recompiler = dispatch == Dispatch.JIT ? new Recompiler(memory, this::clock) : null;
+		this.predecoder = dispatch == Dispatch.PREDECODE ? new Predecoder(memory) : null;
+		// JIT, PREDECODE: every access goes through the cache, code writes
+		// invalidate
+		this.memory = recompiler != null ? recompiler.getMemory()
+				: predecoder != null ? predecoder.getMemory() : memory;
+		this.interrupts = new InterruptController(this);
+		registers.setInterrupts(interrupts);
+	}
+
+	/**
+	 * RESET. PC from the reset vector, SP - 3 and interrupts disabled.
+	 */
+	@Override
+	public void reset() {
+		registers.setPC(
+				memory.read(Address.VECTOR_0_.getAddress()) | (memory.read(Address.VECTOR_1_.getAddress()) << 8));
+		registers.setSP(registers.getSP() - 3);
+		registers.setI(true);
+	}
+
+	/**
+	 * Serve the interrupt events due, then one instruction.
+	 */
+	@Override
+	public int step() {
+		interrupts.poll();
+		final int c = cycles >= interrupts.getNext() ? interrupts.service() : 0;
+		cycles += c;
+		return c + step(profiler != null ? profiler.getStripe() : null);
+	}
+
+	private int step(final Profiler.Stripe stripe) {
+		final int pc = registers.getPC();
+		final int opCode = predecoder != null ? predecoder.decode(pc & 0xFFFF) : memory.read(pc) & 0xFF;
+		if (trace != null) {
+			trace(pc, opCode);
+		}
+		if (stripe != null) {
+			// only indexed modes set it
+			registers.setPg(false);
+		}
+		final int c = dispatch != Dispatch.TABLE ? Instruction.exec(opCode, registers, memory)
+				: Instruction.valueOf(opCode).exec(registers, memory);
+		registers.incrementPC();
+		cycles += c;
+		instructions++;
+		if (stripe != null) {
+			stripe.add(opCode, c, registers.isPg());
+		}
+		return c;
+	}
+
+	private void trace(final int pc, final int opCode) {
+		final int size = OpCodes.LENGTH[opCode];
+		final int operand = (size > 1 ? memory.read(pc + 1) : 0) | (size > 2 ? memory.read(pc + 2) << 8 : 0);
+		final Registers r = registers;
+		trace.record(pc, opCode, operand, r.getA(), r.getX(), r.getY(), r.getSP(), r.getProcessorStatus(), cycles);
+	}
+
+	/**
+	 * Run for the cycle budget. The IRQ lines are sampled once at the start,
+	 * interrupt events split the budget into batches.
+	 */
+	@Override
+	public long run(final long cycleBudget) {
+		final long start = cycles;
+		final long end = start + cycleBudget;
+		interrupts.poll();
+		while (cycles < end) {
+			if (cycles >= interrupts.getNext()) {
+				cycles += interrupts.service();
+			}
+			limit = Math.min(end, interrupts.getNext());
+			if (trace != null || profiler != null) {
+				runStepped();
+				continue;
+			}
+			switch (dispatch) {
+			case SWITCH:
+				runSwitch();
+				break;
+			case JIT:
+				runJit();
+				break;
+			case PREDECODE:
+				runPredecode();
+				break;
+			default:
+				runTable();
+				break;
+			}
+		}
+		return cycles - start;
+	}
+
+	// interrupt events lower the limit while the batch runs
+	void limit(final long cycle) {
+		if (cycle < limit) {
+			limit = cycle;
+		}
+	}
+
+	// compiled blocks, once per instruction: false ends the block at the
+	// limit, lowered or not
+	private boolean clock(final int c) {
+		cycles += c;
+		return cycles < limit;
+	}
+
+	// one loop per dispatch mode, keep the mode check out of the hot loop,
+	// one compare per instruction against the batch limit
+	// instruction by instruction through step, JIT blocks are not traced
+	// or profiled
+	private void runStepped() {
+		final Profiler.Stripe stripe = profiler != null ? profiler.getStripe() : null;
+		while (cycles < limit) {
+			step(stripe);
+		}
+	}
+
+	private void runTable() {
+		final Registers r = registers;
+		final Memory m = memory;
+		long n = 0;
+		while (cycles < limit) {
+			cycles += Instruction.valueOf(m.read(r.getPC()) & 0xFF).exec(r, m);
+			r.incrementPC();
+			n++;
+		}
+		instructions += n;
+	}
+
+	private void runSwitch() {
+		final Registers r = registers;
+		final Memory m = memory;
+		long n = 0;
+		while (cycles < limit) {
+			cycles += Instruction.exec(m.read(r.getPC()) & 0xFF, r, m);
+			r.incrementPC();
+			n++;
+		}
+		instructions += n;
+	}
+
+	private void runJit() {
+		final Registers r = registers;
+		final Memory m = memory;
+		final Recompiler jit = recompiler;
+		long n = 0;
+		// only jump targets and block ends start blocks
+		boolean entry = true;
+		while (cycles < limit) {
+			final int pc = r.getPC() & 0xFFFF;
+			final Block block = entry ? jit.lookup(pc) : null;
+			// a block running into the limit is interpreted, same stop as
+			// the interpreter
+			if (block != null && cycles + block.getCost() <= limit) {
+				n += block.exec(r, m);
+			} else {
+				final int opCode = m.read(pc) & 0xFF;
+				cycles += Instruction.exec(opCode, r, m);
+				r.incrementPC();
+				n++;
+				entry = Recompiler.isBlockEnd(opCode);
+			}
+		}
+		instructions += n;
+	}
+
+	private void runPredecode() {
+		final Registers r = registers;
+		final Memory m = memory;
+		final Predecoder p = predecoder;
+		long n = 0;
+		while (cycles < limit) {
+			cycles += Instruction.exec(p.decode(r.getPC() & 0xFFFF), r, m);
+			r.incrementPC();
+			n++;
+		}
+		instructions += n;
+	}
+
+	// registers, cycles, instructions, pending interrupts
+	@Override
+	public void save(final ByteBuffer buffer) {
+		registers.save(buffer);
+		buffer.putLong(cycles);
+		buffer.putLong(instructions);
+		interrupts.save(buffer);
+	}
+
+	/**
+	 * Restore after the memory the CPU runs on: code caches are flushed here.
+	 * Pending NMI and RESET are posted again, IRQ lines are sampled again.
+	 */
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		registers.restore(buffer);
+		cycles = buffer.getLong();
+		instructions = buffer.getLong();
+		interrupts.restore(buffer);
+		if (recompiler != null) {
+			recompiler.flush();
+		}
+		if (predecoder != null) {
+			predecoder.flush();
+		}
+	}
+
+	public Registers getRegisters() {
+		return registers;
+	}
+
+	public Memory getMemory() {
+		return memory;
+	}
+
+	public Dispatch getDispatch() {
+		return dispatch;
+	}
+
+	public InterruptController getInterrupts() {
+		return interrupts;
+	}
+
+	/**
+	 * Record every executed instruction. Tracing runs the slow step path,
+	 * untraced runs pay nothing.
+	 * 
+	 * @param trace the ring, null to stop
+	 */
+	public void setTrace(final TraceBuffer trace) {
+		this.trace = trace;
+	}
+
+	public TraceBuffer getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Count every executed instruction, same slow path as tracing.
+	 * 
+	 * @param profiler the profiler, null to stop
+	 */
+	public void setProfiler(final Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public Profiler getProfiler() {
+		return profiler;
+	}
+
+	Recompiler getRecompiler() {
+		return recompiler;
+	}
+
+	Predecoder getPredecoder() {
+		return predecoder;
+	}
+
+	public long getCycles() {
+		return cycles;
+	}
+
+	public long getInstructions() {
+		return instructions;
+	}
 
 }
@@ -20,15 +20,14 @@
 package com.olleb.nes.CPU6502.cpu;
 
 import java.util.Arrays;
-import java.util.function.BiConsumer;
-import java.util.function.BiPredicate;
-import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
 
 import com.olleb.nes.CPU6502.mem.Memory;
 import com.olleb.nes.CPU6502.mem.RAM.Address;
 
 /**
- * The 151 valid 6502 opcodes.
+ * The 256 6502 opcodes: the 151 documented ones plus the unofficial ones,
+ * so every opcode byte has a handler. JAM opcodes halt the CPU.
  * 
  * Dynamic instruction behavior with strategy pattern.
  *
@@ -36,744 +35,1436 @@ import com.olleb.nes.CPU6502.mem.RAM.Address;
 public enum Instruction implements InstructionStrategy<Memory> {
 	/** LOAD **/
 	// LDA - https://www.c64-wiki.com/wiki/LDA
-	_A9(0xA9, "LDA #nn", 2, (var r, var m) -> {
+	_A9(0xA9, "LDA #nn", (var r, var m) -> {
 		load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setA);
-		return 2;
+		return 0;
 	}),
 
-	_A5(0xA5, "LDA nn", 2, (var r, var m) -> {
+	_A5(0xA5, "LDA nn", (var r, var m) -> {
 		load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setA);
-		return 3;
+		return 0;
 	}),
 
-	_B5(0xB5, "LDA nn,X", 2, (var r, var m) -> {
+	_B5(0xB5, "LDA nn,X", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), Registers::setA);
-		return 4;
+		return 0;
 	}),
 
-	_AD(0xAD, "LDA nnnn", 3, (var r, var m) -> {
+	_AD(0xAD, "LDA nnnn", (var r, var m) -> {
 		load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setA);
-		return 4;
+		return 0;
 	}),
 
-	_BD(0xBD, "LDA nnnn,X", 3, (var r, var m) -> {
+	_BD(0xBD, "LDA nnnn,X", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), Registers::setA);
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_B9(0xB9, "LDA nnnn,Y", 3, (var r, var m) -> {
+	_B9(0xB9, "LDA nnnn,Y", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), Registers::setA);
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_A1(0xA1, "LDA (nn,X)", 2, (var r, var m) -> {
+	_A1(0xA1, "LDA (nn,X)", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), Registers::setA);
-		return 6;
+		return 0;
 	}),
 
-	_B1(0xB1, "LDA (nn),Y", 2, (var r, var m) -> {
+	_B1(0xB1, "LDA (nn),Y", (var r, var m) -> {
 		load(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), Registers::setA);
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// LDX - https://www.c64-wiki.com/wiki/LDX
 
-	_A2(0xA2, "LDX #nn", 2, (var r, var m) -> {
+	_A2(0xA2, "LDX #nn", (var r, var m) -> {
 		load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setX);
-		return 2;
+		return 0;
 	}),
 
-	_A6(0xA6, "LDX nn", 2, (var r, var m) -> {
+	_A6(0xA6, "LDX nn", (var r, var m) -> {
 		load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setX);
-		return 3;
+		return 0;
 	}),
 
-	_B6(0xB6, "LDX nn,Y", 2, (var r, var m) -> {
+	_B6(0xB6, "LDX nn,Y", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), Registers::setX);
-		return 4;
+		return 0;
 	}),
 
-	_AE(0xAE, "LDX nnnn", 3, (var r, var m) -> {
+	_AE(0xAE, "LDX nnnn", (var r, var m) -> {
 		load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setX);
-		return 4;
+		return 0;
 	}),
 
-	_BE(0xBE, "LDX nnnn,Y", 3, (var r, var m) -> {
+	_BE(0xBE, "LDX nnnn,Y", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), Registers::setX);
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
 	// LDY - https://www.c64-wiki.com/wiki/LDY
 
-	_A0(0xA0, "LDY #nn", 2, (var r, var m) -> {
+	_A0(0xA0, "LDY #nn", (var r, var m) -> {
 		load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setY);
-		return 2;
+		return 0;
 	}),
 
-	_A4(0xA4, "LDY nn", 2, (var r, var m) -> {
+	_A4(0xA4, "LDY nn", (var r, var m) -> {
 		load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setY);
-		return 3;
+		return 0;
 	}),
 
-	_B4(0xB4, "LDY nn,X", 2, (var r, var m) -> {
+	_B4(0xB4, "LDY nn,X", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), Registers::setY);
-		return 4;
+		return 0;
 	}),
 
-	_AC(0xAC, "LDY nnnn", 3, (var r, var m) -> {
+	_AC(0xAC, "LDY nnnn", (var r, var m) -> {
 		load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setY);
-		return 4;
+		return 0;
 	}),
 
-	_BC(0xBC, "LDY nnnn,X", 3, (var r, var m) -> {
+	_BC(0xBC, "LDY nnnn,X", (var r, var m) -> {
 		load(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), Registers::setY);
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
 	/** STORE **/
 	// STA - https://www.c64-wiki.com/wiki/STA
 
-	_85(0x85, "STA nn", 2, (var r, var m) -> {
+	_85(0x85, "STA nn", (var r, var m) -> {
 		store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA());
-		return 3;
+		return 0;
 	}),
 
-	_95(0x95, "STA nn,X", 2, (var r, var m) -> {
+	_95(0x95, "STA nn,X", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getA());
-		return 4;
+		return 0;
 	}),
 
-	_8D(0x8D, "STA nnnn", 3, (var r, var m) -> {
+	_8D(0x8D, "STA nnnn", (var r, var m) -> {
 		store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA());
-		return 4;
+		return 0;
 	}),
 
-	_9D(0x9D, "STA nnnn,X", 3, (var r, var m) -> {
+	_9D(0x9D, "STA nnnn,X", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getA());
-		return 5;
+		return 0;
 	}),
 
-	_99(0x99, "STA nnnn,Y", 3, (var r, var m) -> {
+	_99(0x99, "STA nnnn,Y", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getA());
-		return 5;
+		return 0;
 	}),
 
-	_81(0x81, "STA (nn,X)", 2, (var r, var m) -> {
+	_81(0x81, "STA (nn,X)", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA());
-		return 6;
+		return 0;
 	}),
 
-	_91(0x91, "STA (nn),Y", 2, (var r, var m) -> {
+	_91(0x91, "STA (nn),Y", (var r, var m) -> {
 		store(m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getA());
-		return 6;
+		return 0;
 	}),
 
 	// STX - https://www.c64-wiki.com/wiki/STX
 
-	_86(0x86, "STX nn", 2, (var r, var m) -> {
+	_86(0x86, "STX nn", (var r, var m) -> {
 		store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getX());
-		return 3;
+		return 0;
 	}),
 
-	_96(0x96, "STX nn,Y", 2, (var r, var m) -> {
+	_96(0x96, "STX nn,Y", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), r.getX());
-		return 4;
+		return 0;
 	}),
 
-	_8E(0x8E, "STX nnnn", 3, (var r, var m) -> {
+	_8E(0x8E, "STX nnnn", (var r, var m) -> {
 		store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getX());
-		return 4;
+		return 0;
 	}),
 
 	// STY - https://www.c64-wiki.com/wiki/STY
 
-	_84(0x84, "STY nn", 2, (var r, var m) -> {
+	_84(0x84, "STY nn", (var r, var m) -> {
 		store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getY());
-		return 3;
+		return 0;
 	}),
 
-	_94(0x94, "STY nn,X", 2, (var r, var m) -> {
+	_94(0x94, "STY nn,X", (var r, var m) -> {
 		store(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getY());
-		return 4;
+		return 0;
 	}),
 
-	_8C(0x8C, "STY nnnn", 3, (var r, var m) -> {
+	_8C(0x8C, "STY nnnn", (var r, var m) -> {
 		store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getY());
-		return 4;
+		return 0;
 	}),
 
 	/** REGISTER TRANSFERS **/
 	// TAX - https://www.c64-wiki.com/wiki/TAX
 
-	_AA(0xAA, "TAX", 1, (var r, var m) -> {
+	_AA(0xAA, "TAX", (var r, var m) -> {
 		transfer(r, r.getA(), Registers::setX);
-		return 2;
+		return 0;
 	}),
 
 	// TAY - https://www.c64-wiki.com/wiki/TAY
 
-	_A8(0xA8, "TAY", 1, (var r, var m) -> {
+	_A8(0xA8, "TAY", (var r, var m) -> {
 		transfer(r, r.getA(), Registers::setY);
-		return 2;
+		return 0;
 	}),
 
 	// TXA - https://www.c64-wiki.com/wiki/TXA
 
-	_8A(0x8A, "TXA", 1, (var r, var m) -> {
+	_8A(0x8A, "TXA", (var r, var m) -> {
 		transfer(r, r.getX(), Registers::setA);
-		return 2;
+		return 0;
 	}),
 
 	// TYA - https://www.c64-wiki.com/wiki/TYA
 
-	_98(0x98, "TYA", 1, (var r, var m) -> {
+	_98(0x98, "TYA", (var r, var m) -> {
 		transfer(r, r.getY(), Registers::setA);
-		return 2;
+		return 0;
 	}),
 
 	/** STACK **/
 	// TSX - https://www.c64-wiki.com/wiki/TSX
 
-	_BA(0xBA, "TSX", 1, (var r, var m) -> {
+	_BA(0xBA, "TSX", (var r, var m) -> {
 		stackPointerTransfer(r, r.getSP(), Registers::setX);
-		return 2;
+		return 0;
 	}),
 
 	// TXS - https://www.c64-wiki.com/wiki/TXS
 
-	_9A(0x9A, "TXS", 1, (var r, var m) -> {
+	_9A(0x9A, "TXS", (var r, var m) -> {
 		stackPointerTransfer(r, r.getX(), Registers::setSP);
-		return 2;
+		return 0;
 	}),
 
 	// PHA - https://www.c64-wiki.com/wiki/PHA
 
-	_48(0x48, "PHA", 1, (var r, var m) -> {
+	_48(0x48, "PHA", (var r, var m) -> {
 		stackPush(r, m, r.getA());
-		return 3;
+		return 0;
 	}),
 
 	// PHP - https://www.c64-wiki.com/wiki/PHP
 
-	_08(0x08, "PHP", 1, (var r, var m) -> {
-		stackPush(r, m, r.getProcessorStatus());
-		return 3;
+	_08(0x08, "PHP", (var r, var m) -> {
+		php(r, m);
+		return 0;
 	}),
 
 	// PLA - https://www.c64-wiki.com/wiki/PLA_(command)
 
-	_68(0x68, "PLA", 1, (var r, var m) -> {
-		r.setA(stackPull(r, m));
-		return 4;
+	_68(0x68, "PLA", (var r, var m) -> {
+		transfer(r, stackPull(r, m), Registers::setA);
+		return 0;
 	}),
 
 	// PLP - https://www.c64-wiki.com/wiki/PLP
 
-	_28(0x28, "PLP", 1, (var r, var m) -> {
-		r.setProcessorStatus(stackPull(r, m));
-		return 4;
+	_28(0x28, "PLP", (var r, var m) -> {
+		plp(r, m);
+		return 0;
 	}),
 
 	/** LOGICAL **/
 	// AND - https://www.c64-wiki.com/wiki/AND_(assembler)
 
-	_29(0x29, "AND #nn", 2, (var r, var m) -> {
+	_29(0x29, "AND #nn", (var r, var m) -> {
 		and(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
-		return 2;
+		return 0;
 	}),
 
-	_25(0x25, "AND nn", 2, (var r, var m) -> {
+	_25(0x25, "AND nn", (var r, var m) -> {
 		and(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_35(0x35, "AND nn,X", 2, (var r, var m) -> {
+	_35(0x35, "AND nn,X", (var r, var m) -> {
 		and(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_2D(0x2D, "AND nnnn", 3, (var r, var m) -> {
+	_2D(0x2D, "AND nnnn", (var r, var m) -> {
 		and(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_3D(0x3D, "AND nnnn,X", 3, (var r, var m) -> {
+	_3D(0x3D, "AND nnnn,X", (var r, var m) -> {
 		and(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_39(0x39, "AND nnnn,Y", 3, (var r, var m) -> {
+	_39(0x39, "AND nnnn,Y", (var r, var m) -> {
 		and(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_21(0x21, "AND (nn,X)", 2, (var r, var m) -> {
+	_21(0x21, "AND (nn,X)", (var r, var m) -> {
 		and(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_31(0x31, "AND (nn),Y", 2, (var r, var m) -> {
+	_31(0x31, "AND (nn),Y", (var r, var m) -> {
 		and(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// EOR - https://www.c64-wiki.com/wiki/EOR
 
-	_49(0x49, "EOR #nn", 2, (var r, var m) -> {
+	_49(0x49, "EOR #nn", (var r, var m) -> {
 		xor(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
-		return 2;
+		return 0;
 	}),
 
-	_45(0x45, "EOR nn", 2, (var r, var m) -> {
+	_45(0x45, "EOR nn", (var r, var m) -> {
 		xor(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_55(0x55, "EOR nn,X", 2, (var r, var m) -> {
+	_55(0x55, "EOR nn,X", (var r, var m) -> {
 		xor(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_4D(0x4D, "EOR nnnn", 3, (var r, var m) -> {
+	_4D(0x4D, "EOR nnnn", (var r, var m) -> {
 		xor(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_5D(0x5D, "EOR nnnn,X", 3, (var r, var m) -> {
+	_5D(0x5D, "EOR nnnn,X", (var r, var m) -> {
 		xor(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_59(0x59, "EOR nnnn,Y", 3, (var r, var m) -> {
+	_59(0x59, "EOR nnnn,Y", (var r, var m) -> {
 		xor(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_41(0x41, "EOR (nn,X)", 2, (var r, var m) -> {
+	_41(0x41, "EOR (nn,X)", (var r, var m) -> {
 		xor(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_51(0x51, "EOR (nn),Y", 2, (var r, var m) -> {
+	_51(0x51, "EOR (nn),Y", (var r, var m) -> {
 		xor(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// ORA - https://www.c64-wiki.com/wiki/ORA
 
-	_09(0x09, "ORA #nn", 2, (var r, var m) -> {
+	_09(0x09, "ORA #nn", (var r, var m) -> {
 		or(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
-		return 2;
+		return 0;
 	}),
 
-	_05(0x05, "ORA nn", 2, (var r, var m) -> {
+	_05(0x05, "ORA nn", (var r, var m) -> {
 		or(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_15(0x15, "ORA nn,X", 2, (var r, var m) -> {
+	_15(0x15, "ORA nn,X", (var r, var m) -> {
 		or(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_0D(0x0D, "ORA nnnn", 3, (var r, var m) -> {
+	_0D(0x0D, "ORA nnnn", (var r, var m) -> {
 		or(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_1D(0x1D, "ORA nnnn,X", 3, (var r, var m) -> {
+	_1D(0x1D, "ORA nnnn,X", (var r, var m) -> {
 		or(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_19(0x19, "ORA nnnn,Y", 3, (var r, var m) -> {
+	_19(0x19, "ORA nnnn,Y", (var r, var m) -> {
 		or(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_01(0x01, "ORA (nn,X)", 2, (var r, var m) -> {
+	_01(0x01, "ORA (nn,X)", (var r, var m) -> {
 		or(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_11(0x11, "ORA (nn),Y", 2, (var r, var m) -> {
+	_11(0x11, "ORA (nn),Y", (var r, var m) -> {
 		or(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// BIT - https://www.c64-wiki.com/wiki/BIT_(assembler)
 
-	_24(0x24, "BIT nn", 2, (var r, var m) -> {
+	_24(0x24, "BIT nn", (var r, var m) -> {
 		test(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_2C(0x2C, "BIT nnnn", 3, (var r, var m) -> {
+	_2C(0x2C, "BIT nnnn", (var r, var m) -> {
 		test(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
 	/** ARITHMETIC **/
 	// ADC - https://www.c64-wiki.com/wiki/ADC
 
-	_69(0x69, "ADC #nn", 2, (var r, var m) -> {
+	_69(0x69, "ADC #nn", (var r, var m) -> {
 		add(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
-		return 2;
+		return 0;
 	}),
 
-	_65(0x65, "ADC nn", 2, (var r, var m) -> {
+	_65(0x65, "ADC nn", (var r, var m) -> {
 		add(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_75(0x75, "ADC nn,X", 2, (var r, var m) -> {
+	_75(0x75, "ADC nn,X", (var r, var m) -> {
 		add(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_6D(0x6D, "ADC nnnn", 3, (var r, var m) -> {
+	_6D(0x6D, "ADC nnnn", (var r, var m) -> {
 		add(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_7D(0x7D, "ADC nnnn,X", 3, (var r, var m) -> {
+	_7D(0x7D, "ADC nnnn,X", (var r, var m) -> {
 		add(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_79(0x79, "ADC nnnn,Y", 3, (var r, var m) -> {
+	_79(0x79, "ADC nnnn,Y", (var r, var m) -> {
 		add(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_61(0x61, "ADC (nn,X)", 2, (var r, var m) -> {
+	_61(0x61, "ADC (nn,X)", (var r, var m) -> {
 		add(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_71(0x71, "ADC (nn),Y", 2, (var r, var m) -> {
+	_71(0x71, "ADC (nn),Y", (var r, var m) -> {
 		add(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// SBC - https://www.c64-wiki.com/wiki/SBC
 
-	_E9(0xE9, "SBC #nn", 2, (var r, var m) -> {
+	_E9(0xE9, "SBC #nn", (var r, var m) -> {
 		sub(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
-		return 2;
+		return 0;
 	}),
 
-	_E5(0xE5, "SBC nn", 2, (var r, var m) -> {
+	_E5(0xE5, "SBC nn", (var r, var m) -> {
 		sub(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_F5(0xF5, "SBC nn,X", 2, (var r, var m) -> {
+	_F5(0xF5, "SBC nn,X", (var r, var m) -> {
 		sub(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_ED(0xED, "SBC nnnn", 3, (var r, var m) -> {
+	_ED(0xED, "SBC nnnn", (var r, var m) -> {
 		sub(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 4;
+		return 0;
 	}),
 
-	_FD(0xFD, "SBC nnnn,X", 3, (var r, var m) -> {
+	_FD(0xFD, "SBC nnnn,X", (var r, var m) -> {
 		sub(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_F9(0xF9, "SBC nnnn,Y", 3, (var r, var m) -> {
+	_F9(0xF9, "SBC nnnn,Y", (var r, var m) -> {
 		sub(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_E1(0xE1, "SBC (nn,X)", 2, (var r, var m) -> {
+	_E1(0xE1, "SBC (nn,X)", (var r, var m) -> {
 		sub(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_F1(0xF1, "SBC (nn),Y", 2, (var r, var m) -> {
+	_F1(0xF1, "SBC (nn),Y", (var r, var m) -> {
 		sub(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// CMP - https://www.c64-wiki.com/wiki/CMP
 
-	_C9(0xC9, "CMP #nn", 2, (var r, var m) -> {
+	_C9(0xC9, "CMP #nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getA());
-		return 2;
+		return 0;
 	}),
 
-	_C5(0xC5, "CMP nn", 2, (var r, var m) -> {
+	_C5(0xC5, "CMP nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA());
-		return 3;
+		return 0;
 	}),
 
-	_D5(0xD5, "CMP nn,X", 2, (var r, var m) -> {
+	_D5(0xD5, "CMP nn,X", (var r, var m) -> {
 		cmp(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getA());
-		return 4;
+		return 0;
 	}),
 
-	_CD(0xCD, "CMP nnnn", 3, (var r, var m) -> {
+	_CD(0xCD, "CMP nnnn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA());
-		return 4;
+		return 0;
 	}),
 
-	_DD(0xDD, "CMP nnnn,X", 3, (var r, var m) -> {
+	_DD(0xDD, "CMP nnnn,X", (var r, var m) -> {
 		cmp(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getA());
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_D9(0xD9, "CMP nnnn,Y", 3, (var r, var m) -> {
+	_D9(0xD9, "CMP nnnn,Y", (var r, var m) -> {
 		cmp(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getA());
-		return r.isPg() ? 5 : 4;
+		return 0;
 	}),
 
-	_C1(0xC1, "CMP (nn,X)", 2, (var r, var m) -> {
+	_C1(0xC1, "CMP (nn,X)", (var r, var m) -> {
 		cmp(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA());
-		return 6;
+		return 0;
 	}),
 
-	_D1(0xD1, "CMP (nn),Y", 2, (var r, var m) -> {
+	_D1(0xD1, "CMP (nn),Y", (var r, var m) -> {
 		cmp(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getA());
-		return r.isPg() ? 6 : 5;
+		return 0;
 	}),
 
 	// CPX - https://www.c64-wiki.com/wiki/CPX
 
-	_E0(0xE0, "CPX #nn", 2, (var r, var m) -> {
+	_E0(0xE0, "CPX #nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getX());
-		return 2;
+		return 0;
 	}),
 
-	_E4(0xE4, "CPX nn", 2, (var r, var m) -> {
+	_E4(0xE4, "CPX nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getX());
-		return 3;
+		return 0;
 	}),
 
-	_EC(0xEC, "CPX nnnn", 3, (var r, var m) -> {
+	_EC(0xEC, "CPX nnnn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getX());
-		return 4;
+		return 0;
 	}),
 
 	// CPY - https://www.c64-wiki.com/wiki/CPY
 
-	_C0(0xC0, "CPY #nn", 2, (var r, var m) -> {
+	_C0(0xC0, "CPY #nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getY());
-		return 2;
+		return 0;
 	}),
 
-	_C4(0xC4, "CPY nn", 2, (var r, var m) -> {
+	_C4(0xC4, "CPY nn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getY());
-		return 3;
+		return 0;
 	}),
 
-	_CC(0xCC, "CPY nnnn", 3, (var r, var m) -> {
+	_CC(0xCC, "CPY nnnn", (var r, var m) -> {
 		cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getY());
-		return 4;
+		return 0;
 	}),
 
 	/** INCREMENTS & DECREMENTS **/
 	// INC - https://www.c64-wiki.com/wiki/INC
 
-	_E6(0xE6, "INC nn", 2, (var r, var m) -> {
+	_E6(0xE6, "INC nn", (var r, var m) -> {
 		inc(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_F6(0xF6, "INC nn,X", 2, (var r, var m) -> {
+	_F6(0xF6, "INC nn,X", (var r, var m) -> {
 		inc(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_EE(0xEE, "INC nnnn", 3, (var r, var m) -> {
+	_EE(0xEE, "INC nnnn", (var r, var m) -> {
 		inc(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_FE(0xFE, "INC nnnn,X", 3, (var r, var m) -> {
+	_FE(0xFE, "INC nnnn,X", (var r, var m) -> {
 		inc(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	// INX - https://www.c64-wiki.com/wiki/INX
 
-	_E8(0xE8, "INX", 1, (var r, var m) -> {
+	_E8(0xE8, "INX", (var r, var m) -> {
 		inc(r, Registers::setX, r.getX());
-		return 2;
+		return 0;
 	}),
 
 	// INY - https://www.c64-wiki.com/wiki/INY
 
-	_C8(0xC8, "INY", 1, (var r, var m) -> {
+	_C8(0xC8, "INY", (var r, var m) -> {
 		inc(r, Registers::setY, r.getY());
-		return 2;
+		return 0;
 	}),
 
 	// DEC - https://www.c64-wiki.com/wiki/DEC
 
-	_C6(0xC6, "DEC nn", 2, (var r, var m) -> {
+	_C6(0xC6, "DEC nn", (var r, var m) -> {
 		dec(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_D6(0xD6, "DEC nn,X", 2, (var r, var m) -> {
+	_D6(0xD6, "DEC nn,X", (var r, var m) -> {
 		dec(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_CE(0xCE, "DEC nnnn", 3, (var r, var m) -> {
+	_CE(0xCE, "DEC nnnn", (var r, var m) -> {
 		dec(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_DE(0xDE, "DEC nnnn,X", 3, (var r, var m) -> {
+	_DE(0xDE, "DEC nnnn,X", (var r, var m) -> {
 		dec(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	// DEX - https://www.c64-wiki.com/wiki/DEX
 
-	_CA(0xCA, "DEX", 1, (var r, var m) -> {
+	_CA(0xCA, "DEX", (var r, var m) -> {
 		dec(r, Registers::setX, r.getX());
-		return 2;
+		return 0;
 	}),
 
 	// DEY - https://www.c64-wiki.com/wiki/DEY
 
-	_88(0x88, "DEY", 1, (var r, var m) -> {
+	_88(0x88, "DEY", (var r, var m) -> {
 		dec(r, Registers::setY, r.getY());
-		return 2;
+		return 0;
 	}),
 
 	/** SHIFTS **/
 	// ASL - https://www.c64-wiki.com/wiki/ASL
 
-	_0A(0x0A, "ASL A", 1, (var r, var m) -> {
+	_0A(0x0A, "ASL A", (var r, var m) -> {
 		asl(r);
-		return 2;
+		return 0;
 	}),
 
-	_06(0x06, "ASL nn", 2, (var r, var m) -> {
+	_06(0x06, "ASL nn", (var r, var m) -> {
 		asl(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_16(0x16, "ASL nn,X", 2, (var r, var m) -> {
+	_16(0x16, "ASL nn,X", (var r, var m) -> {
 		asl(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_0E(0x0E, "ASL nnnn", 3, (var r, var m) -> {
+	_0E(0x0E, "ASL nnnn", (var r, var m) -> {
 		asl(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_1E(0x1E, "ASL nnnn,X", 3, (var r, var m) -> {
+	_1E(0x1E, "ASL nnnn,X", (var r, var m) -> {
 		asl(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	// LSR - https://www.c64-wiki.com/wiki/LSR
 
-	_4A(0x4A, "LSR A", 1, (var r, var m) -> {
+	_4A(0x4A, "LSR A", (var r, var m) -> {
 		lsr(r);
-		return 2;
+		return 0;
 	}),
 
-	_46(0x46, "LSR nn", 2, (var r, var m) -> {
+	_46(0x46, "LSR nn", (var r, var m) -> {
 		lsr(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_56(0x56, "LSR nn,X", 2, (var r, var m) -> {
+	_56(0x56, "LSR nn,X", (var r, var m) -> {
 		lsr(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_4E(0x4E, "LSR nnnn", 3, (var r, var m) -> {
+	_4E(0x4E, "LSR nnnn", (var r, var m) -> {
 		lsr(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_5E(0x5E, "LSR nnnn,X", 3, (var r, var m) -> {
+	_5E(0x5E, "LSR nnnn,X", (var r, var m) -> {
 		lsr(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	// ROR - https://www.c64-wiki.com/wiki/ROR
 
-	_6A(0x6A, "ROR A", 1, (var r, var m) -> {
+	_6A(0x6A, "ROR A", (var r, var m) -> {
 		ror(r);
-		return 2;
+		return 0;
 	}),
 
-	_66(0x66, "ROR nn", 2, (var r, var m) -> {
+	_66(0x66, "ROR nn", (var r, var m) -> {
 		ror(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_76(0x76, "ROR nn,X", 2, (var r, var m) -> {
+	_76(0x76, "ROR nn,X", (var r, var m) -> {
 		ror(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_6E(0x6E, "ROR nnnn", 3, (var r, var m) -> {
+	_6E(0x6E, "ROR nnnn", (var r, var m) -> {
 		ror(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_7E(0x7E, "ROR nnnn,X", 3, (var r, var m) -> {
+	_7E(0x7E, "ROR nnnn,X", (var r, var m) -> {
 		ror(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	// ROL - https://www.c64-wiki.com/wiki/ROL
 
-	_2A(0x2A, "ROL A", 1, (var r, var m) -> {
+	_2A(0x2A, "ROL A", (var r, var m) -> {
 		rol(r);
-		return 2;
+		return 0;
 	}),
 
-	_26(0x26, "ROL nn", 2, (var r, var m) -> {
+	_26(0x26, "ROL nn", (var r, var m) -> {
 		rol(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
-	_36(0x36, "ROL nn,X", 2, (var r, var m) -> {
-		ror(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
-		return 6;
+	_36(0x36, "ROL nn,X", (var r, var m) -> {
+		rol(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
 	}),
 
-	_2E(0x2E, "ROL nnnn", 3, (var r, var m) -> {
+	_2E(0x2E, "ROL nnnn", (var r, var m) -> {
 		rol(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+		return 0;
 	}),
 
-	_3E(0x3E, "ROL nnnn,X", 3, (var r, var m) -> {
+	_3E(0x3E, "ROL nnnn,X", (var r, var m) -> {
 		rol(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
-		return 7;
+		return 0;
 	}),
 
 	/** JUMPS & CALLS ***/
 	// JMP - https://www.c64-wiki.com/wiki/JMP
 
-	_4C(0x4C, "JMP nnnn", 3, (var r, var m) -> {
+	_4C(0x4C, "JMP nnnn", (var r, var m) -> {
 		jmp(r, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 3;
+		return 0;
 	}),
 
-	_6C(0x6C, "JMP (nnnn)", 3, (var r, var m) -> {
+	_6C(0x6C, "JMP (nnnn)", (var r, var m) -> {
 		jmp(r, AddressingMode.INDIRECT.applyAsInt(r, m));
-		return 5;
+		return 0;
 	}),
 
 	// JSR - https://www.c64-wiki.com/wiki/JSR
 
-	_20(0x20, "JSR nnnn", 3, (var r, var m) -> {
-		jsr(r, AddressingMode.ABSOLUTE.applyAsInt(r, m));
-		return 6;
+	_20(0x20, "JSR nnnn", (var r, var m) -> {
+		jsr(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// RTS - https://www.c64-wiki.com/wiki/RTS
+
+	_60(0x60, "RTS", (var r, var m) -> {
+		rts(r, m);
+		return 0;
+	}),
+
+	/** BRANCHES **/
+	// BPL - https://www.c64-wiki.com/wiki/BPL
+
+	_10(0x10, "BPL rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isN());
+	}),
+
+	// BMI - https://www.c64-wiki.com/wiki/BMI
+
+	_30(0x30, "BMI rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isN());
+	}),
+
+	// BVC - https://www.c64-wiki.com/wiki/BVC
+
+	_50(0x50, "BVC rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isV());
+	}),
+
+	// BVS - https://www.c64-wiki.com/wiki/BVS
+
+	_70(0x70, "BVS rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isV());
+	}),
+
+	// BCC - https://www.c64-wiki.com/wiki/BCC
+
+	_90(0x90, "BCC rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isC());
+	}),
+
+	// BCS - https://www.c64-wiki.com/wiki/BCS
+
+	_B0(0xB0, "BCS rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isC());
+	}),
+
+	// BNE - https://www.c64-wiki.com/wiki/BNE
+
+	_D0(0xD0, "BNE rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isZ());
+	}),
+
+	// BEQ - https://www.c64-wiki.com/wiki/BEQ
+
+	_F0(0xF0, "BEQ rr", (var r, var m) -> {
+		return branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isZ());
+	}),
+
+	/** STATUS FLAGS **/
+	// CLC - https://www.c64-wiki.com/wiki/CLC
+
+	_18(0x18, "CLC", (var r, var m) -> {
+		r.setC(false);
+		return 0;
+	}),
+
+	// SEC - https://www.c64-wiki.com/wiki/SEC
+
+	_38(0x38, "SEC", (var r, var m) -> {
+		r.setC(true);
+		return 0;
+	}),
+
+	// CLI - https://www.c64-wiki.com/wiki/CLI
+
+	_58(0x58, "CLI", (var r, var m) -> {
+		r.setI(false);
+		return 0;
+	}),
+
+	// SEI - https://www.c64-wiki.com/wiki/SEI
+
+	_78(0x78, "SEI", (var r, var m) -> {
+		r.setI(true);
+		return 0;
+	}),
+
+	// CLV - https://www.c64-wiki.com/wiki/CLV
+
+	_B8(0xB8, "CLV", (var r, var m) -> {
+		r.setV(false);
+		return 0;
+	}),
+
+	// CLD - https://www.c64-wiki.com/wiki/CLD
+
+	_D8(0xD8, "CLD", (var r, var m) -> {
+		r.setD(false);
+		return 0;
+	}),
+
+	// SED - https://www.c64-wiki.com/wiki/SED
+
+	_F8(0xF8, "SED", (var r, var m) -> {
+		r.setD(true);
+		return 0;
+	}),
+
+	/** INTERRUPTS **/
+	// BRK - https://www.c64-wiki.com/wiki/BRK
+
+	_00(0x00, "BRK", (var r, var m) -> {
+		brk(r, m);
+		return 0;
+	}),
+
+	// RTI - https://www.c64-wiki.com/wiki/RTI
+
+	_40(0x40, "RTI", (var r, var m) -> {
+		rti(r, m);
+		return 0;
+	}),
+
+	/** NO OPERATION **/
+	// NOP - https://www.c64-wiki.com/wiki/NOP
+
+	_EA(0xEA, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	/** UNOFFICIAL - https://www.nesdev.org/wiki/Programming_with_unofficial_opcodes **/
+	// NOP - operand read and ignored
+
+	_04(0x04, "NOP nn", (var r, var m) -> {
+		nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_0C(0x0C, "NOP nnnn", (var r, var m) -> {
+		nop(m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_14(0x14, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_1A(0x1A, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_1C(0x1C, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_34(0x34, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_3A(0x3A, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_3C(0x3C, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_44(0x44, "NOP nn", (var r, var m) -> {
+		nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_54(0x54, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_5A(0x5A, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_5C(0x5C, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_64(0x64, "NOP nn", (var r, var m) -> {
+		nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_74(0x74, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_7A(0x7A, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_7C(0x7C, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_80(0x80, "NOP #nn", (var r, var m) -> {
+		nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_82(0x82, "NOP #nn", (var r, var m) -> {
+		nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_89(0x89, "NOP #nn", (var r, var m) -> {
+		nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_C2(0xC2, "NOP #nn", (var r, var m) -> {
+		nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_D4(0xD4, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_DA(0xDA, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_DC(0xDC, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_E2(0xE2, "NOP #nn", (var r, var m) -> {
+		nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_F4(0xF4, "NOP nn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_FA(0xFA, "NOP", (var r, var m) -> {
+		return 0;
+	}),
+
+	_FC(0xFC, "NOP nnnn,X", (var r, var m) -> {
+		nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// LAX - LDA + LDX
+
+	_A3(0xA3, "LAX (nn,X)", (var r, var m) -> {
+		lax(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_A7(0xA7, "LAX nn", (var r, var m) -> {
+		lax(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_AF(0xAF, "LAX nnnn", (var r, var m) -> {
+		lax(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_B3(0xB3, "LAX (nn),Y", (var r, var m) -> {
+		lax(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_B7(0xB7, "LAX nn,Y", (var r, var m) -> {
+		lax(r, m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_BF(0xBF, "LAX nnnn,Y", (var r, var m) -> {
+		lax(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// SAX - store A & X
+
+	_83(0x83, "SAX (nn,X)", (var r, var m) -> {
+		store(m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA() & r.getX());
+		return 0;
+	}),
+
+	_87(0x87, "SAX nn", (var r, var m) -> {
+		store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA() & r.getX());
+		return 0;
+	}),
+
+	_8F(0x8F, "SAX nnnn", (var r, var m) -> {
+		store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA() & r.getX());
+		return 0;
+	}),
+
+	_97(0x97, "SAX nn,Y", (var r, var m) -> {
+		store(m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), r.getA() & r.getX());
+		return 0;
+	}),
+
+	// DCP - DEC + CMP
+
+	_C3(0xC3, "DCP (nn,X)", (var r, var m) -> {
+		dcp(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_C7(0xC7, "DCP nn", (var r, var m) -> {
+		dcp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_CF(0xCF, "DCP nnnn", (var r, var m) -> {
+		dcp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_D3(0xD3, "DCP (nn),Y", (var r, var m) -> {
+		dcp(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_D7(0xD7, "DCP nn,X", (var r, var m) -> {
+		dcp(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_DB(0xDB, "DCP nnnn,Y", (var r, var m) -> {
+		dcp(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_DF(0xDF, "DCP nnnn,X", (var r, var m) -> {
+		dcp(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// ISC - INC + SBC
+
+	_E3(0xE3, "ISC (nn,X)", (var r, var m) -> {
+		isc(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_E7(0xE7, "ISC nn", (var r, var m) -> {
+		isc(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_EF(0xEF, "ISC nnnn", (var r, var m) -> {
+		isc(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_F3(0xF3, "ISC (nn),Y", (var r, var m) -> {
+		isc(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_F7(0xF7, "ISC nn,X", (var r, var m) -> {
+		isc(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_FB(0xFB, "ISC nnnn,Y", (var r, var m) -> {
+		isc(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_FF(0xFF, "ISC nnnn,X", (var r, var m) -> {
+		isc(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// SLO - ASL + ORA
+
+	_03(0x03, "SLO (nn,X)", (var r, var m) -> {
+		slo(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_07(0x07, "SLO nn", (var r, var m) -> {
+		slo(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_0F(0x0F, "SLO nnnn", (var r, var m) -> {
+		slo(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_13(0x13, "SLO (nn),Y", (var r, var m) -> {
+		slo(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_17(0x17, "SLO nn,X", (var r, var m) -> {
+		slo(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_1B(0x1B, "SLO nnnn,Y", (var r, var m) -> {
+		slo(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_1F(0x1F, "SLO nnnn,X", (var r, var m) -> {
+		slo(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// RLA - ROL + AND
+
+	_23(0x23, "RLA (nn,X)", (var r, var m) -> {
+		rla(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_27(0x27, "RLA nn", (var r, var m) -> {
+		rla(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_2F(0x2F, "RLA nnnn", (var r, var m) -> {
+		rla(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_33(0x33, "RLA (nn),Y", (var r, var m) -> {
+		rla(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_37(0x37, "RLA nn,X", (var r, var m) -> {
+		rla(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_3B(0x3B, "RLA nnnn,Y", (var r, var m) -> {
+		rla(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_3F(0x3F, "RLA nnnn,X", (var r, var m) -> {
+		rla(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// SRE - LSR + EOR
+
+	_43(0x43, "SRE (nn,X)", (var r, var m) -> {
+		sre(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_47(0x47, "SRE nn", (var r, var m) -> {
+		sre(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_4F(0x4F, "SRE nnnn", (var r, var m) -> {
+		sre(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_53(0x53, "SRE (nn),Y", (var r, var m) -> {
+		sre(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_57(0x57, "SRE nn,X", (var r, var m) -> {
+		sre(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_5B(0x5B, "SRE nnnn,Y", (var r, var m) -> {
+		sre(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_5F(0x5F, "SRE nnnn,X", (var r, var m) -> {
+		sre(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// RRA - ROR + ADC
+
+	_63(0x63, "RRA (nn,X)", (var r, var m) -> {
+		rra(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_67(0x67, "RRA nn", (var r, var m) -> {
+		rra(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_6F(0x6F, "RRA nnnn", (var r, var m) -> {
+		rra(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_73(0x73, "RRA (nn),Y", (var r, var m) -> {
+		rra(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_77(0x77, "RRA nn,X", (var r, var m) -> {
+		rra(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_7B(0x7B, "RRA nnnn,Y", (var r, var m) -> {
+		rra(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_7F(0x7F, "RRA nnnn,X", (var r, var m) -> {
+		rra(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// SBC - same as SBC #nn at 0xE9
+
+	_EB(0xEB, "SBC #nn", (var r, var m) -> {
+		sub(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// ANC - AND #nn, C = N
+
+	_0B(0x0B, "ANC #nn", (var r, var m) -> {
+		anc(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	_2B(0x2B, "ANC #nn", (var r, var m) -> {
+		anc(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// ALR - AND #nn + LSR A
+
+	_4B(0x4B, "ALR #nn", (var r, var m) -> {
+		alr(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// ARR - AND #nn + ROR A, C and V from bits 6 and 5
+
+	_6B(0x6B, "ARR #nn", (var r, var m) -> {
+		arr(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// AXS - X = A & X - #nn
+
+	_CB(0xCB, "AXS #nn", (var r, var m) -> {
+		axs(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// LAS - A = X = SP = M & SP
+
+	_BB(0xBB, "LAS nnnn,Y", (var r, var m) -> {
+		las(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// XAA - unstable, A = (A | 0xEE) & X & #nn
+
+	_8B(0x8B, "XAA #nn", (var r, var m) -> {
+		xaa(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// LXA - unstable, A = X = (A | 0xEE) & #nn
+
+	_AB(0xAB, "LXA #nn", (var r, var m) -> {
+		lxa(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// SHA - store A & X & (H + 1)
+
+	_93(0x93, "SHA (nn),Y", (var r, var m) -> {
+		sh(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getY(), r.getA() & r.getX());
+		return 0;
+	}),
+
+	_9F(0x9F, "SHA nnnn,Y", (var r, var m) -> {
+		sh(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getY(), r.getA() & r.getX());
+		return 0;
+	}),
+
+	// SHX - store X & (H + 1)
+
+	_9E(0x9E, "SHX nnnn,Y", (var r, var m) -> {
+		sh(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getY(), r.getX());
+		return 0;
+	}),
+
+	// SHY - store Y & (H + 1)
+
+	_9C(0x9C, "SHY nnnn,X", (var r, var m) -> {
+		sh(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getX(), r.getY());
+		return 0;
+	}),
+
+	// TAS - SP = A & X, store SP & (H + 1)
+
+	_9B(0x9B, "TAS nnnn,Y", (var r, var m) -> {
+		tas(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+		return 0;
+	}),
+
+	// JAM - halts the CPU, PC stays on the opcode
+
+	_02(0x02, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_12(0x12, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_22(0x22, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_32(0x32, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_42(0x42, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_52(0x52, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_62(0x62, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_72(0x72, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_92(0x92, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_B2(0xB2, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_D2(0xD2, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
+	}),
+
+	_F2(0xF2, "JAM", (var r, var m) -> {
+		jam(r);
+		return 0;
 	}),
 
 	;
@@ -787,20 +1478,24 @@ public enum Instruction implements InstructionStrategy<Memory> {
 
 	private final int opCode;
 	private final String assemblerFormat;
-	private final int size;
 	private final InstructionStrategy<Memory> instructionStrategy;
 
-	private Instruction(final int opCode, final String assemblerFormat, final int size,
+	// size, cycles and addressing mode come from the OpCodes tables
+	private Instruction(final int opCode, final String assemblerFormat,
 			final InstructionStrategy<Memory> instructionStrategy) {
 		this.opCode = opCode;
-		this.size = size;
 		this.assemblerFormat = assemblerFormat;
 		this.instructionStrategy = instructionStrategy;
 	}
 
 	@Override
 	public int exec(final Registers r, final Memory m) {
-		return instructionStrategy.exec(r, m);
+		return instructionStrategy.exec(r, m) + OpCodes.CYCLES[opCode] + (OpCodes.PENALTY[opCode] & r.getPg());
+	}
+
+	// compiled blocks bind the strategies as constants
+	InstructionStrategy<Memory> getInstructionStrategy() {
+		return instructionStrategy;
 	}
 
 	public String getAssemblerFormat() {
@@ -808,25 +1503,804 @@ public enum Instruction implements InstructionStrategy<Memory> {
 	}
 
 	public int getSize() {
-		return size;
+		return OpCodes.LENGTH[opCode];
+	}
+
+	public int getCycles() {
+		return OpCodes.CYCLES[opCode];
 	}
 
 	public int getOpCode() {
 		return opCode;
 	}
 
+	// null for implied and accumulator
+	public AddressingMode getAddressingMode() {
+		return OpCodes.getAddressingMode(opCode);
+	}
+
 	public static Instruction valueOf(final int opcode) {
 		return instructions[opcode];
 	}
 
+	/**
+	 * Switch based dispatch. Same semantics as {@link #exec(Registers, Memory)}
+	 * but the handlers are reached through a dense switch over the opcode byte,
+	 * so the JIT can inline them into the caller loop instead of going through
+	 * a megamorphic strategy call. Cycles from the opcode tables.
+	 * 
+	 * @param opCode the opcode byte
+	 * @param r      registers
+	 * @param m      memory
+	 * @return the cycles spent
+	 */
+	static int exec(final int opCode, final Registers r, final Memory m) {
+		switch (opCode) {
+		case 0xA9: // LDA #nn
+			load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xA5: // LDA nn
+			load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xB5: // LDA nn,X
+			load(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xAD: // LDA nnnn
+			load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xBD: // LDA nnnn,X
+			load(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xB9: // LDA nnnn,Y
+			load(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xA1: // LDA (nn,X)
+			load(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xB1: // LDA (nn),Y
+			load(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), Registers::setA);
+			break;
+		case 0xA2: // LDX #nn
+			load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setX);
+			break;
+		case 0xA6: // LDX nn
+			load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setX);
+			break;
+		case 0xB6: // LDX nn,Y
+			load(r, m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), Registers::setX);
+			break;
+		case 0xAE: // LDX nnnn
+			load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setX);
+			break;
+		case 0xBE: // LDX nnnn,Y
+			load(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), Registers::setX);
+			break;
+		case 0xA0: // LDY #nn
+			load(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), Registers::setY);
+			break;
+		case 0xA4: // LDY nn
+			load(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), Registers::setY);
+			break;
+		case 0xB4: // LDY nn,X
+			load(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), Registers::setY);
+			break;
+		case 0xAC: // LDY nnnn
+			load(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), Registers::setY);
+			break;
+		case 0xBC: // LDY nnnn,X
+			load(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), Registers::setY);
+			break;
+		case 0x85: // STA nn
+			store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA());
+			break;
+		case 0x95: // STA nn,X
+			store(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getA());
+			break;
+		case 0x8D: // STA nnnn
+			store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA());
+			break;
+		case 0x9D: // STA nnnn,X
+			store(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getA());
+			break;
+		case 0x99: // STA nnnn,Y
+			store(m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getA());
+			break;
+		case 0x81: // STA (nn,X)
+			store(m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA());
+			break;
+		case 0x91: // STA (nn),Y
+			store(m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getA());
+			break;
+		case 0x86: // STX nn
+			store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getX());
+			break;
+		case 0x96: // STX nn,Y
+			store(m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), r.getX());
+			break;
+		case 0x8E: // STX nnnn
+			store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getX());
+			break;
+		case 0x84: // STY nn
+			store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getY());
+			break;
+		case 0x94: // STY nn,X
+			store(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getY());
+			break;
+		case 0x8C: // STY nnnn
+			store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getY());
+			break;
+		case 0xAA: // TAX
+			transfer(r, r.getA(), Registers::setX);
+			break;
+		case 0xA8: // TAY
+			transfer(r, r.getA(), Registers::setY);
+			break;
+		case 0x8A: // TXA
+			transfer(r, r.getX(), Registers::setA);
+			break;
+		case 0x98: // TYA
+			transfer(r, r.getY(), Registers::setA);
+			break;
+		case 0xBA: // TSX
+			stackPointerTransfer(r, r.getSP(), Registers::setX);
+			break;
+		case 0x9A: // TXS
+			stackPointerTransfer(r, r.getX(), Registers::setSP);
+			break;
+		case 0x48: // PHA
+			stackPush(r, m, r.getA());
+			break;
+		case 0x08: // PHP
+			php(r, m);
+			break;
+		case 0x68: // PLA
+			transfer(r, stackPull(r, m), Registers::setA);
+			break;
+		case 0x28: // PLP
+			plp(r, m);
+			break;
+		case 0x29: // AND #nn
+			and(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x25: // AND nn
+			and(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x35: // AND nn,X
+			and(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x2D: // AND nnnn
+			and(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x3D: // AND nnnn,X
+			and(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x39: // AND nnnn,Y
+			and(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x21: // AND (nn,X)
+			and(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x31: // AND (nn),Y
+			and(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x49: // EOR #nn
+			xor(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x45: // EOR nn
+			xor(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x55: // EOR nn,X
+			xor(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x4D: // EOR nnnn
+			xor(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x5D: // EOR nnnn,X
+			xor(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x59: // EOR nnnn,Y
+			xor(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x41: // EOR (nn,X)
+			xor(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x51: // EOR (nn),Y
+			xor(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x09: // ORA #nn
+			or(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x05: // ORA nn
+			or(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x15: // ORA nn,X
+			or(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x0D: // ORA nnnn
+			or(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x1D: // ORA nnnn,X
+			or(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x19: // ORA nnnn,Y
+			or(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x01: // ORA (nn,X)
+			or(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x11: // ORA (nn),Y
+			or(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x24: // BIT nn
+			test(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x2C: // BIT nnnn
+			test(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x69: // ADC #nn
+			add(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x65: // ADC nn
+			add(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x75: // ADC nn,X
+			add(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x6D: // ADC nnnn
+			add(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x7D: // ADC nnnn,X
+			add(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x79: // ADC nnnn,Y
+			add(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x61: // ADC (nn,X)
+			add(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x71: // ADC (nn),Y
+			add(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0xE9: // SBC #nn
+			sub(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xE5: // SBC nn
+			sub(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xF5: // SBC nn,X
+			sub(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xED: // SBC nnnn
+			sub(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xFD: // SBC nnnn,X
+			sub(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xF9: // SBC nnnn,Y
+			sub(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0xE1: // SBC (nn,X)
+			sub(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0xF1: // SBC (nn),Y
+			sub(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0xC9: // CMP #nn
+			cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getA());
+			break;
+		case 0xC5: // CMP nn
+			cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA());
+			break;
+		case 0xD5: // CMP nn,X
+			cmp(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m), r.getA());
+			break;
+		case 0xCD: // CMP nnnn
+			cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA());
+			break;
+		case 0xDD: // CMP nnnn,X
+			cmp(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getA());
+			break;
+		case 0xD9: // CMP nnnn,Y
+			cmp(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getA());
+			break;
+		case 0xC1: // CMP (nn,X)
+			cmp(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA());
+			break;
+		case 0xD1: // CMP (nn),Y
+			cmp(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getA());
+			break;
+		case 0xE0: // CPX #nn
+			cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getX());
+			break;
+		case 0xE4: // CPX nn
+			cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getX());
+			break;
+		case 0xEC: // CPX nnnn
+			cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getX());
+			break;
+		case 0xC0: // CPY #nn
+			cmp(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m), r.getY());
+			break;
+		case 0xC4: // CPY nn
+			cmp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getY());
+			break;
+		case 0xCC: // CPY nnnn
+			cmp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getY());
+			break;
+		case 0xE6: // INC nn
+			inc(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xF6: // INC nn,X
+			inc(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xEE: // INC nnnn
+			inc(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xFE: // INC nnnn,X
+			inc(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xE8: // INX
+			inc(r, Registers::setX, r.getX());
+			break;
+		case 0xC8: // INY
+			inc(r, Registers::setY, r.getY());
+			break;
+		case 0xC6: // DEC nn
+			dec(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xD6: // DEC nn,X
+			dec(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xCE: // DEC nnnn
+			dec(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xDE: // DEC nnnn,X
+			dec(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xCA: // DEX
+			dec(r, Registers::setX, r.getX());
+			break;
+		case 0x88: // DEY
+			dec(r, Registers::setY, r.getY());
+			break;
+		case 0x0A: // ASL A
+			asl(r);
+			break;
+		case 0x06: // ASL nn
+			asl(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x16: // ASL nn,X
+			asl(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x0E: // ASL nnnn
+			asl(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x1E: // ASL nnnn,X
+			asl(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x4A: // LSR A
+			lsr(r);
+			break;
+		case 0x46: // LSR nn
+			lsr(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x56: // LSR nn,X
+			lsr(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x4E: // LSR nnnn
+			lsr(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x5E: // LSR nnnn,X
+			lsr(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x6A: // ROR A
+			ror(r);
+			break;
+		case 0x66: // ROR nn
+			ror(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x76: // ROR nn,X
+			ror(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x6E: // ROR nnnn
+			ror(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x7E: // ROR nnnn,X
+			ror(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x2A: // ROL A
+			rol(r);
+			break;
+		case 0x26: // ROL nn
+			rol(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x36: // ROL nn,X
+			rol(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x2E: // ROL nnnn
+			rol(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x3E: // ROL nnnn,X
+			rol(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x4C: // JMP nnnn
+			jmp(r, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x6C: // JMP (nnnn)
+			jmp(r, AddressingMode.INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x20: // JSR nnnn
+			jsr(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x60: // RTS
+			rts(r, m);
+			break;
+		case 0x10: // BPL rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isN());
+		case 0x30: // BMI rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isN());
+		case 0x50: // BVC rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isV());
+		case 0x70: // BVS rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isV());
+		case 0x90: // BCC rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isC());
+		case 0xB0: // BCS rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isC());
+		case 0xD0: // BNE rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), !r.isZ());
+		case 0xF0: // BEQ rr
+			return OpCodes.CYCLES[opCode] + branch(r, AddressingMode.RELATIVE.applyAsInt(r, m), r.isZ());
+		case 0x18: // CLC
+			r.setC(false);
+			break;
+		case 0x38: // SEC
+			r.setC(true);
+			break;
+		case 0x58: // CLI
+			r.setI(false);
+			break;
+		case 0x78: // SEI
+			r.setI(true);
+			break;
+		case 0xB8: // CLV
+			r.setV(false);
+			break;
+		case 0xD8: // CLD
+			r.setD(false);
+			break;
+		case 0xF8: // SED
+			r.setD(true);
+			break;
+		case 0x00: // BRK
+			brk(r, m);
+			break;
+		case 0x40: // RTI
+			rti(r, m);
+			break;
+		case 0xEA: // NOP
+			break;
+		case 0x04: // NOP nn
+			nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x0C: // NOP nnnn
+			nop(m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x14: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x1A: // NOP
+			break;
+		case 0x1C: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x34: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x3A: // NOP
+			break;
+		case 0x3C: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x44: // NOP nn
+			nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x54: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x5A: // NOP
+			break;
+		case 0x5C: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x64: // NOP nn
+			nop(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x74: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x7A: // NOP
+			break;
+		case 0x7C: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x80: // NOP #nn
+			nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x82: // NOP #nn
+			nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x89: // NOP #nn
+			nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xC2: // NOP #nn
+			nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xD4: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xDA: // NOP
+			break;
+		case 0xDC: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xE2: // NOP #nn
+			nop(m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xF4: // NOP nn,X
+			nop(m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xFA: // NOP
+			break;
+		case 0xFC: // NOP nnnn,X
+			nop(m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xA3: // LAX (nn,X)
+			lax(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0xA7: // LAX nn
+			lax(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xAF: // LAX nnnn
+			lax(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xB3: // LAX (nn),Y
+			lax(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0xB7: // LAX nn,Y
+			lax(r, m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m));
+			break;
+		case 0xBF: // LAX nnnn,Y
+			lax(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x83: // SAX (nn,X)
+			store(m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m), r.getA() & r.getX());
+			break;
+		case 0x87: // SAX nn
+			store(m, AddressingMode.ZERO_PAGE.applyAsInt(r, m), r.getA() & r.getX());
+			break;
+		case 0x8F: // SAX nnnn
+			store(m, AddressingMode.ABSOLUTE.applyAsInt(r, m), r.getA() & r.getX());
+			break;
+		case 0x97: // SAX nn,Y
+			store(m, AddressingMode.INDEXED_ZERO_PAGE_Y.applyAsInt(r, m), r.getA() & r.getX());
+			break;
+		case 0xC3: // DCP (nn,X)
+			dcp(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0xC7: // DCP nn
+			dcp(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xCF: // DCP nnnn
+			dcp(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xD3: // DCP (nn),Y
+			dcp(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0xD7: // DCP nn,X
+			dcp(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xDB: // DCP nnnn,Y
+			dcp(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0xDF: // DCP nnnn,X
+			dcp(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xE3: // ISC (nn,X)
+			isc(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0xE7: // ISC nn
+			isc(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0xEF: // ISC nnnn
+			isc(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0xF3: // ISC (nn),Y
+			isc(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0xF7: // ISC nn,X
+			isc(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0xFB: // ISC nnnn,Y
+			isc(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0xFF: // ISC nnnn,X
+			isc(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x03: // SLO (nn,X)
+			slo(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x07: // SLO nn
+			slo(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x0F: // SLO nnnn
+			slo(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x13: // SLO (nn),Y
+			slo(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x17: // SLO nn,X
+			slo(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x1B: // SLO nnnn,Y
+			slo(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x1F: // SLO nnnn,X
+			slo(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x23: // RLA (nn,X)
+			rla(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x27: // RLA nn
+			rla(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x2F: // RLA nnnn
+			rla(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x33: // RLA (nn),Y
+			rla(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x37: // RLA nn,X
+			rla(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x3B: // RLA nnnn,Y
+			rla(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x3F: // RLA nnnn,X
+			rla(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x43: // SRE (nn,X)
+			sre(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x47: // SRE nn
+			sre(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x4F: // SRE nnnn
+			sre(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x53: // SRE (nn),Y
+			sre(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x57: // SRE nn,X
+			sre(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x5B: // SRE nnnn,Y
+			sre(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x5F: // SRE nnnn,X
+			sre(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0x63: // RRA (nn,X)
+			rra(r, m, AddressingMode.INDEXED_INDIRECT.applyAsInt(r, m));
+			break;
+		case 0x67: // RRA nn
+			rra(r, m, AddressingMode.ZERO_PAGE.applyAsInt(r, m));
+			break;
+		case 0x6F: // RRA nnnn
+			rra(r, m, AddressingMode.ABSOLUTE.applyAsInt(r, m));
+			break;
+		case 0x73: // RRA (nn),Y
+			rra(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m));
+			break;
+		case 0x77: // RRA nn,X
+			rra(r, m, AddressingMode.INDEXED_ZERO_PAGE_X.applyAsInt(r, m));
+			break;
+		case 0x7B: // RRA nnnn,Y
+			rra(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x7F: // RRA nnnn,X
+			rra(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m));
+			break;
+		case 0xEB: // SBC #nn
+			sub(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x0B: // ANC #nn
+			anc(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x2B: // ANC #nn
+			anc(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x4B: // ALR #nn
+			alr(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x6B: // ARR #nn
+			arr(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xCB: // AXS #nn
+			axs(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xBB: // LAS nnnn,Y
+			las(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x8B: // XAA #nn
+			xaa(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0xAB: // LXA #nn
+			lxa(r, m, AddressingMode.IMMEDIATE.applyAsInt(r, m));
+			break;
+		case 0x93: // SHA (nn),Y
+			sh(r, m, AddressingMode.INDIRECT_INDEXED.applyAsInt(r, m), r.getY(), r.getA() & r.getX());
+			break;
+		case 0x9F: // SHA nnnn,Y
+			sh(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getY(), r.getA() & r.getX());
+			break;
+		case 0x9E: // SHX nnnn,Y
+			sh(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m), r.getY(), r.getX());
+			break;
+		case 0x9C: // SHY nnnn,X
+			sh(r, m, AddressingMode.INDEXED_ABSOLUTE_X.applyAsInt(r, m), r.getX(), r.getY());
+			break;
+		case 0x9B: // TAS nnnn,Y
+			tas(r, m, AddressingMode.INDEXED_ABSOLUTE_Y.applyAsInt(r, m));
+			break;
+		case 0x02: // JAM
+			jam(r);
+			break;
+		case 0x12: // JAM
+			jam(r);
+			break;
+		case 0x22: // JAM
+			jam(r);
+			break;
+		case 0x32: // JAM
+			jam(r);
+			break;
+		case 0x42: // JAM
+			jam(r);
+			break;
+		case 0x52: // JAM
+			jam(r);
+			break;
+		case 0x62: // JAM
+			jam(r);
+			break;
+		case 0x72: // JAM
+			jam(r);
+			break;
+		case 0x92: // JAM
+			jam(r);
+			break;
+		case 0xB2: // JAM
+			jam(r);
+			break;
+		case 0xD2: // JAM
+			jam(r);
+			break;
+		case 0xF2: // JAM
+			jam(r);
+			break;
+		default:
+			throw new IllegalStateException(String.format("Illegal opcode 0x%02X", opCode));
+		}
+		return OpCodes.CYCLES[opCode] + (OpCodes.PENALTY[opCode] & r.getPg());
+	}
+
 	// TODO review args order
 	private static void load(final Registers registers, final Memory memory, final int address,
-			BiConsumer<Registers, Integer> destination) {
+			ObjIntConsumer<Registers> destination) {
 		final int result = memory.read(address);
 		destination.accept(registers, result);
-//		Flags.setFlags(registers, result, 'n', 'z');
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
 	private static void store(final Memory memory, final int address, final int value) {
@@ -834,19 +2308,16 @@ public enum Instruction implements InstructionStrategy<Memory> {
 	}
 
 	private static void transfer(final Registers registers, final int value,
-			final BiConsumer<Registers, Integer> destination) {
+			final ObjIntConsumer<Registers> destination) {
 		destination.accept(registers, value);
-//		Flags.setFlags(registers, value, 'n', 'z');
-		registers.setN(Flags.NEGATIVE.test(value));
-		registers.setZ(Flags.ZERO.test(value));
+		registers.setNZ(value);
 	}
 
 	// TODO refactor
 	private static void stackPointerTransfer(final Registers registers, final int value,
-			final BiConsumer<Registers, Integer> destination) {
+			final ObjIntConsumer<Registers> destination) {
 		destination.accept(registers, value);
-		registers.setN(Flags.NEGATIVE.test(value));
-		registers.setZ(Flags.ZERO.test(value));
+		registers.setNZ(value);
 	}
 
 	private static void stackPush(final Registers registers, final Memory memory, final int value) {
@@ -855,65 +2326,67 @@ public enum Instruction implements InstructionStrategy<Memory> {
 	}
 
 	private static int stackPull(final Registers registers, final Memory memory) {
-		final int value = memory.read(Address.STACK_BEGIN.getAddress() + registers.getSP());
-		registers.incrementPC();
-		return value;
+		return memory.read(Address.STACK_BEGIN.getAddress() + registers.incrementSP());
+	}
+
+	// B and bit 5 only exist in the pushed copy of P
+	private static void php(final Registers registers, final Memory memory) {
+		stackPush(registers, memory, registers.getProcessorStatus() | Registers.B | Registers.U);
+	}
+
+	private static void plp(final Registers registers, final Memory memory) {
+		registers.setProcessorStatus(stackPull(registers, memory) & ~Registers.B);
 	}
 
 	private static void and(final Registers registers, final Memory memory, final int address) {
 		final int result = registers.getA() & memory.read(address);
 		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
 	private static void xor(final Registers registers, final Memory memory, final int address) {
 		final int result = registers.getA() ^ memory.read(address);
 		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
 	private static void or(final Registers registers, final Memory memory, final int address) {
 		final int result = registers.getA() | memory.read(address);
 		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
+	// N and V are bits 7 and 6 of the operand, Z from A & operand
 	private static void test(final Registers registers, final Memory memory, final int address) {
-		final int result = memory.read(address);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(registers.getA() & result));
-		registers.setV(Flags.OVERFLOW_BIT.test(result));
+		final int value = memory.read(address);
+		registers.setProcessorStatus((registers.getProcessorStatus() & ~(Registers.N | Registers.V | Registers.Z))
+				| (value & (Registers.N | Registers.V)) | ((registers.getA() & value & 0xFF) == 0 ? Registers.Z : 0));
 	}
 
+	// V => both operands have the same sign and the result sign differs
 	private static void add(final Registers registers, final Memory memory, final int address) {
-		final int result = memory.read(address) + registers.getA() + (registers.isC() ? 1 : 0);
-		registers.setA(result);
-		registers.setC(Flags.CARRY.test(result));
-		registers.setZ(Flags.ZERO.test(result));
-		registers.setV(Flags.OVERFLOW.test(result));
-		registers.setN(Flags.NEGATIVE.test(result));
+		adc(registers, memory.read(address));
 	}
 
+	// A - M - !C == A + ~M + C
 	private static void sub(final Registers registers, final Memory memory, final int address) {
-		final int result = registers.getA() - memory.read(address) - (!registers.isC() ? 1 : 0);
+		adc(registers, ~memory.read(address) & 0xFF);
+	}
+
+	private static void adc(final Registers registers, final int value) {
+		final int a = registers.getA();
+		final int sum = a + value + (registers.isC() ? 1 : 0);
+		final int result = sum & 0xFF;
+		registers.setC(sum > 0xFF);
+		registers.setV(((a ^ result) & (value ^ result) & 0x80) != 0);
 		registers.setA(result);
-//		Flags.setFlags(registers, value, 'k', 'z', 'v', 'n');
-		registers.setZ(Flags.ZERO.test(result));
-		registers.setV(Flags.OVERFLOW.test(result));
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setC(!Flags.CARRY.test(result));
+		registers.setNZ(result);
 	}
 
 	private static void cmp(final Registers registers, final Memory memory, final int address, final int value) {
-		final int result = value - memory.read(address);
-		registers.setN(Flags.NEGATIVE.test(result));
-		if (result >= 0) {
-			registers.setC(true);
-		}
-		registers.setZ(Flags.ZERO.test(result));
+		final int operand = memory.read(address);
+		registers.setC((value & 0xFF) >= (operand & 0xFF));
+		registers.setNZ(value - operand);
 	}
 
 	// unsigned integer => wrap around to 255/$FF
@@ -922,139 +2395,252 @@ public enum Instruction implements InstructionStrategy<Memory> {
 	private static void inc(final Registers registers, final Memory memory, final int address) {
 		final int result = (memory.read(address) + 1) & 0x00FF;
 		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
-	private static void inc(final Registers registers, final BiConsumer<Registers, Integer> destination,
+	private static void inc(final Registers registers, final ObjIntConsumer<Registers> destination,
 			final int value) {
 		final int result = (value + 1) & 0x00FF;
 		destination.accept(registers, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
 	// TODO refactor
 	private static void dec(final Registers registers, final Memory memory, final int address) {
 		final int result = (memory.read(address) - 1) & 0x00FF;
 		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
-	private static void dec(final Registers registers, final BiConsumer<Registers, Integer> destination,
+	private static void dec(final Registers registers, final ObjIntConsumer<Registers> destination,
 			final int value) {
 		final int result = (value - 1) & 0x00FF;
 		destination.accept(registers, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setNZ(result);
 	}
 
 	// TODO refactor
 	private static void asl(final Registers registers) {
-		int result = registers.getA();
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 7));
-		result = (result << 1) & 0x00FF;
-		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setA(asl(registers, registers.getA()));
 	}
 
 	private static void asl(final Registers registers, final Memory memory, final int address) {
-		int result = memory.read(address);
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 7));
-		result = (result << 1) & 0x00FF;
-		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		memory.write(address, asl(registers, memory.read(address)));
+	}
+
+	private static int asl(final Registers registers, final int value) {
+		registers.setC((value & 0x80) != 0);
+		final int result = (value << 1) & 0x00FF;
+		registers.setNZ(result);
+		return result;
 	}
 
 	// TODO refactor
 	private static void lsr(final Registers registers) {
-		int result = registers.getA();
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 0));
-		result >>= 1;
-		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setA(lsr(registers, registers.getA()));
 	}
 
 	private static void lsr(final Registers registers, final Memory memory, final int address) {
-		int result = memory.read(address);
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 0));
-		result >>= 1;
-		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		memory.write(address, lsr(registers, memory.read(address)));
+	}
+
+	private static int lsr(final Registers registers, final int value) {
+		registers.setC((value & 0x01) != 0);
+		final int result = (value & 0x00FF) >> 1;
+		registers.setNZ(result);
+		return result;
 	}
 
 	// TODO refactor
 	private static void ror(final Registers registers) {
-		int result = registers.getA();
-		if (registers.isC())
-			result |= 0x0100;
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 0));
-		result >>= 1;
-		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setA(ror(registers, registers.getA()));
 	}
 
 	private static void ror(final Registers registers, final Memory memory, final int address) {
-		int result = memory.read(address);
-		if (registers.isC())
-			result |= 0x0100;
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 0));
-		result >>= 1;
-		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		memory.write(address, ror(registers, memory.read(address)));
+	}
+
+	private static int ror(final Registers registers, final int value) {
+		final int result = ((value & 0x00FF) >> 1) | (registers.isC() ? 0x80 : 0);
+		registers.setC((value & 0x01) != 0);
+		registers.setNZ(result);
+		return result;
 	}
 
 	// TODO refactor
 	private static void rol(final Registers registers) {
-		int result = registers.getA() << 1;
-		if (registers.isC())
-			result |= 0x0001;
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 7));
-		result &= 0x00FF;
-		registers.setA(result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		registers.setA(rol(registers, registers.getA()));
 	}
 
 	private static void rol(final Registers registers, final Memory memory, final int address) {
-		int result = memory.read(address) << 1;
-		if (registers.isC())
-			result |= 0x0001;
-		registers.setC(Flags.CARRY_BY_BIT.test(result, 7));
-		result &= 0x00FF;
-		memory.write(address, result);
-		registers.setN(Flags.NEGATIVE.test(result));
-		registers.setZ(Flags.ZERO.test(result));
+		memory.write(address, rol(registers, memory.read(address)));
+	}
+
+	private static int rol(final Registers registers, final int value) {
+		final int result = ((value << 1) & 0x00FF) | (registers.isC() ? 0x01 : 0);
+		registers.setC((value & 0x80) != 0);
+		registers.setNZ(result);
+		return result;
 	}
 
+	// the fetch loop steps PC past the last byte of every instruction
 	private static void jmp(final Registers registers, final int address) {
-		registers.setPC(address);
+		registers.setPC(address - 1);
+	}
+
+	// pushes the address of the last JSR byte, RTS adds one
+	private static void jsr(final Registers registers, final Memory memory, final int address) {
+		push(registers, memory, registers.getPC() & 0xFFFF);
+		jmp(registers, address);
 	}
 
-	private static void jsr(final Registers registers, final int address) {
+	private static void rts(final Registers registers, final Memory memory) {
+		registers.setPC(pull(registers, memory));
+	}
+
+	// 16 bit address, high byte first
+	private static void push(final Registers registers, final Memory memory, final int address) {
+		stackPush(registers, memory, address >> 8);
+		stackPush(registers, memory, address & 0xFF);
+	}
 
+	private static int pull(final Registers registers, final Memory memory) {
+		final int low = stackPull(registers, memory);
+		return low | (stackPull(registers, memory) << 8);
 	}
 
-	private static class Flags {
-		private static final IntPredicate ZERO = x -> (x == 0);
-		// MSB 2^7 = 0x0080
-		private static final IntPredicate NEGATIVE = x -> ((x & 0x0080) != 0);
-		// MSB 2^6 = 0x0040
-		private static final IntPredicate OVERFLOW_BIT = x -> ((x & 0x0040) != 0);
-		// +127 (0x007F) (01111111) <=> -128 (0x0080) (10000000)
-		private static final IntPredicate OVERFLOW = x -> (x > 0x007F || x < 0x0080);
-		// overflow in bit 7
-		private static final IntPredicate CARRY = x -> (x >> 8 != 0);
-		// contents of bit y
-		private static final BiPredicate<Integer, Integer> CARRY_BY_BIT = (x, y) -> (((x >> y) & 1) != 0);
+	// taken => +1, +2 when the target is in another page than the next
+	// instruction
+	private static int branch(final Registers registers, final int address, final boolean condition) {
+		if (!condition) {
+			return 0;
+		}
+		final int next = (registers.getPC() + 1) & 0xFFFF;
+		jmp(registers, address);
+		return next >> 8 == address >> 8 ? 1 : 2;
+	}
 
+	// BRK skips the padding byte after the opcode
+	private static void brk(final Registers registers, final Memory memory) {
+		push(registers, memory, (registers.getPC() + 2) & 0xFFFF);
+		php(registers, memory);
+		registers.setI(true);
+		jmp(registers, memory.read(Address.IRQ_VECTOR_0_.getAddress())
+				| (memory.read(Address.IRQ_VECTOR_1_.getAddress()) << 8));
+	}
+
+	private static void rti(final Registers registers, final Memory memory) {
+		plp(registers, memory);
+		jmp(registers, pull(registers, memory));
+	}
+
+	// dummy read, registers may have read side effects
+	private static void nop(final Memory memory, final int address) {
+		memory.read(address);
+	}
+
+	// the fetch loop steps PC back onto the opcode, forever
+	private static void jam(final Registers registers) {
+		registers.setPC(registers.getPC() - 1);
+	}
+
+	/** unofficial **/
+
+	private static void lax(final Registers registers, final Memory memory, final int address) {
+		final int result = memory.read(address);
+		registers.setA(result);
+		registers.setX(result);
+		registers.setNZ(result);
+	}
+
+	private static void dcp(final Registers registers, final Memory memory, final int address) {
+		final int result = (memory.read(address) - 1) & 0xFF;
+		memory.write(address, result);
+		registers.setC(registers.getA() >= result);
+		registers.setNZ(registers.getA() - result);
+	}
+
+	private static void isc(final Registers registers, final Memory memory, final int address) {
+		final int result = (memory.read(address) + 1) & 0xFF;
+		memory.write(address, result);
+		adc(registers, ~result & 0xFF);
+	}
+
+	private static void slo(final Registers registers, final Memory memory, final int address) {
+		final int value = asl(registers, memory.read(address));
+		memory.write(address, value);
+		transfer(registers, registers.getA() | value, Registers::setA);
+	}
+
+	private static void rla(final Registers registers, final Memory memory, final int address) {
+		final int value = rol(registers, memory.read(address));
+		memory.write(address, value);
+		transfer(registers, registers.getA() & value, Registers::setA);
+	}
+
+	private static void sre(final Registers registers, final Memory memory, final int address) {
+		final int value = lsr(registers, memory.read(address));
+		memory.write(address, value);
+		transfer(registers, registers.getA() ^ value, Registers::setA);
+	}
+
+	private static void rra(final Registers registers, final Memory memory, final int address) {
+		final int value = ror(registers, memory.read(address));
+		memory.write(address, value);
+		adc(registers, value);
+	}
+
+	private static void anc(final Registers registers, final Memory memory, final int address) {
+		and(registers, memory, address);
+		registers.setC(registers.isN());
+	}
+
+	private static void alr(final Registers registers, final Memory memory, final int address) {
+		and(registers, memory, address);
+		lsr(registers);
+	}
+
+	private static void arr(final Registers registers, final Memory memory, final int address) {
+		final int result = ((registers.getA() & memory.read(address)) >> 1) | (registers.isC() ? 0x80 : 0);
+		transfer(registers, result, Registers::setA);
+		registers.setC((result & 0x40) != 0);
+		registers.setV((((result >> 6) ^ (result >> 5)) & 0x01) != 0);
+	}
+
+	private static void axs(final Registers registers, final Memory memory, final int address) {
+		final int result = (registers.getA() & registers.getX()) - memory.read(address);
+		registers.setC(result >= 0);
+		transfer(registers, result & 0xFF, Registers::setX);
+	}
+
+	private static void las(final Registers registers, final Memory memory, final int address) {
+		final int result = memory.read(address) & registers.getSP();
+		registers.setSP(result);
+		registers.setX(result);
+		transfer(registers, result, Registers::setA);
+	}
+
+	private static void xaa(final Registers registers, final Memory memory, final int address) {
+		transfer(registers, (registers.getA() | 0xEE) & registers.getX() & memory.read(address), Registers::setA);
+	}
+
+	private static void lxa(final Registers registers, final Memory memory, final int address) {
+		final int result = (registers.getA() | 0xEE) & memory.read(address);
+		registers.setX(result);
+		transfer(registers, result, Registers::setA);
+	}
+
+	private static void tas(final Registers registers, final Memory memory, final int address) {
+		registers.setSP(registers.getA() & registers.getX());
+		sh(registers, memory, address, registers.getY(), registers.getSP());
+	}
+
+	// SHA, SHX, SHY, TAS: value & (high byte of the base address + 1). On a
+	// page cross the stored value also replaces the high byte of the address
+	private static void sh(final Registers registers, final Memory memory, final int address, final int index,
+			final int value) {
+		final int result = value & (((address - index) >> 8) + 1) & 0xFF;
+		memory.write(registers.getPg() != 0 ? (result << 8) | (address & 0xFF) : address, result);
 	}
 
 }
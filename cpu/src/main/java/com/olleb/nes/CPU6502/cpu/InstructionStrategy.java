@@ -21,8 +21,15 @@ package com.olleb.nes.CPU6502.cpu;
 
 import com.olleb.nes.CPU6502.mem.Memory;
 
+/**
+ * Executes an instruction, or a block of them, and returns the cycles spent.
+ * The per-opcode handlers of {@link Instruction} only return the cycles the
+ * {@link OpCodes} tables cannot tell, the caller adds the table cycles.
+ * Public for the compiled blocks, defined in their own class loader.
+ *
+ */
 @FunctionalInterface
-interface InstructionStrategy<T extends Memory> {
+public interface InstructionStrategy<T extends Memory> {
 	
 	int exec(Registers registers, T t);
 
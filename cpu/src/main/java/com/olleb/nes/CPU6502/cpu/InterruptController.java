@@ -0,0 +1,214 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM.Address;
+import com.olleb.nes.CPU6502.state.Stateful;
+
+/**
+ * NMI, IRQ, RESET and DMA halts of a {@link CPU6502}. Sources post events at
+ * CPU cycles: NMI edges, line changes, RESET, halts. The controller keeps the earliest
+ * one as the single deadline the run loops compare against, so the cost per
+ * instruction is one compare however many sources there are.
+ * 
+ * IRQ lines are level triggered and sampled at events, at the start of every
+ * run batch (scheduler component deadlines) and when the I flag clears.
+ * Pending NMI, RESET and halt are part of the CPU save state, the lines are
+ * not.
+ *
+ */
+public final class InterruptController implements Stateful {
+
+	// push PC, push P, read the vector
+	static final int CYCLES = 7;
+
+	private final CPU6502 cpu;
+	private BooleanSupplier[] lines = new BooleanSupplier[0];
+
+	// next event, CPU cycle
+	private long next = Long.MAX_VALUE;
+	// pending NMI edge, CPU cycle
+	private long nmi = Long.MAX_VALUE;
+	private boolean reset;
+	// pending halt, CPU cycles
+	private int halt;
+
+	InterruptController(final CPU6502 cpu) {
+		this.cpu = cpu;
+	}
+
+	/**
+	 * IRQ source: mapper, APU. Lines are wired-OR.
+	 * 
+	 * @param line asserted while true
+	 */
+	public void addIRQ(final BooleanSupplier line) {
+		lines = Arrays.copyOf(lines, lines.length + 1);
+		lines[lines.length - 1] = line;
+	}
+
+	/**
+	 * NMI edge.
+	 * 
+	 * @param cycle CPU cycle of the edge, taken at the first instruction
+	 *              boundary from there
+	 */
+	public void nmi(final long cycle) {
+		nmi = Math.min(nmi, cycle);
+		schedule(cycle);
+	}
+
+	/**
+	 * RESET at the next instruction boundary.
+	 */
+	public void reset() {
+		reset = true;
+		schedule(cpu.getCycles());
+	}
+
+	/**
+	 * Halt the CPU at the next instruction boundary, DMA.
+	 * 
+	 * @param cycles CPU cycles
+	 */
+	public void halt(final int cycles) {
+		halt += cycles;
+		schedule(cpu.getCycles());
+	}
+
+	/**
+	 * Sample the IRQ lines at the cycle.
+	 * 
+	 * @param cycle CPU cycle
+	 */
+	public void schedule(final long cycle) {
+		if (cycle < next) {
+			next = cycle;
+			cpu.limit(cycle);
+		}
+	}
+
+	long getNext() {
+		return next;
+	}
+
+	boolean isIRQ() {
+		for (final BooleanSupplier line : lines) {
+			if (line.getAsBoolean()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// batch start or I cleared: the lines may have moved meanwhile
+	void poll() {
+		if (!cpu.getRegisters().isI() && isIRQ()) {
+			schedule(cpu.getCycles());
+		}
+	}
+
+	/**
+	 * Serve the events due at the current cycle, RESET, then halt, then NMI,
+	 * then IRQ.
+	 * 
+	 * @return the cycles spent
+	 */
+	int service() {
+		final long now = cpu.getCycles();
+		next = Long.MAX_VALUE;
+		if (reset) {
+			reset = false;
+			nmi = Long.MAX_VALUE;
+			halt = 0;
+			cpu.reset();
+			return 0;
+		}
+		if (halt != 0) {
+			final int cycles = halt;
+			halt = 0;
+			// NMI and IRQ once halted
+			next = now;
+			return cycles;
+		}
+		if (nmi <= now) {
+			nmi = Long.MAX_VALUE;
+			return interrupt(Address.NMI_VECTOR_0_.getAddress());
+		}
+		if (nmi != Long.MAX_VALUE) {
+			next = nmi;
+		}
+		if (!cpu.getRegisters().isI() && isIRQ()) {
+			return interrupt(Address.IRQ_VECTOR_0_.getAddress());
+		}
+		return 0;
+	}
+
+	// like BRK, B clear in the pushed P, PC already on the next instruction
+	private int interrupt(final int vector) {
+		final Registers r = cpu.getRegisters();
+		final Memory m = cpu.getMemory();
+		final int pc = r.getPC() & 0xFFFF;
+		push(r, m, pc >> 8);
+		push(r, m, pc & 0xFF);
+		push(r, m, (r.getProcessorStatus() & ~Registers.B) | Registers.U);
+		r.setI(true);
+		r.setPC(m.read(vector) | (m.read(vector + 1) << 8));
+		return CYCLES;
+	}
+
+	private static void push(final Registers r, final Memory m, final int value) {
+		m.write(Address.STACK_BEGIN.getAddress() + r.getSP(), value);
+		r.decrementSP();
+	}
+
+	// pending NMI cycle, RESET, halt => 13 bytes
+	@Override
+	public void save(final ByteBuffer buffer) {
+		buffer.putLong(nmi);
+		buffer.put((byte) (reset ? 1 : 0));
+		buffer.putInt(halt);
+	}
+
+	/**
+	 * Restore after the CPU cycles: pending events are posted again, IRQ
+	 * lines are sampled at the next batch.
+	 */
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		nmi = buffer.getLong();
+		reset = buffer.get() != 0;
+		halt = buffer.getInt();
+		next = Long.MAX_VALUE;
+		if (nmi != Long.MAX_VALUE) {
+			schedule(nmi);
+		}
+		if (reset || halt != 0) {
+			schedule(cpu.getCycles());
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static description of the 256 opcodes, official and unofficial: base
+ * cycles, page-cross penalty, length, addressing mode and mnemonic.
+ * 
+ * Primitive tables indexed by the opcode byte. The interpreter adds the
+ * penalty of indexed reads as {@code CYCLES[op] + (PENALTY[op] & pg)}, no
+ * branch per instruction. Branch and interrupt timing is not in the tables,
+ * their handlers return the extra cycles.
+ *
+ */
+public final class OpCodes {
+
+	/** addressing mode ids **/
+	public static final int IMP = 0;
+	public static final int ACC = 1;
+	public static final int IMM = 2;
+	public static final int ZP = 3;
+	public static final int ZPX = 4;
+	public static final int ZPY = 5;
+	public static final int ABS = 6;
+	public static final int ABX = 7;
+	public static final int ABY = 8;
+	public static final int IZX = 9;
+	public static final int IZY = 10;
+	public static final int IND = 11;
+	public static final int REL = 12;
+
+	// instruction length per mode id
+	private static final byte[] MODE_LENGTH = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 2, 2, 3, 2 };
+
+	// operand syntax per mode id, as in Instruction assembler formats
+	private static final String[] MODE_FORMAT = { "", " A", " #nn", " nn", " nn,X", " nn,Y", " nnnn", " nnnn,X",
+			" nnnn,Y", " (nn,X)", " (nn),Y", " (nnnn)", " rr" };
+
+	// mode id => AddressingMode, null for implied and accumulator
+	private static final AddressingMode[] ADDRESSING_MODES = { null, null, AddressingMode.IMMEDIATE,
+			AddressingMode.ZERO_PAGE, AddressingMode.INDEXED_ZERO_PAGE_X, AddressingMode.INDEXED_ZERO_PAGE_Y,
+			AddressingMode.ABSOLUTE, AddressingMode.INDEXED_ABSOLUTE_X, AddressingMode.INDEXED_ABSOLUTE_Y,
+			AddressingMode.INDEXED_INDIRECT, AddressingMode.INDIRECT_INDEXED, AddressingMode.INDIRECT,
+			AddressingMode.RELATIVE };
+
+	static final byte[] MODE = {
+			/* 0_ */ IMP, IZX, IMP, IZX, ZP, ZP, ZP, ZP, IMP, IMM, ACC, IMM, ABS, ABS, ABS, ABS,
+			/* 1_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX,
+			/* 2_ */ ABS, IZX, IMP, IZX, ZP, ZP, ZP, ZP, IMP, IMM, ACC, IMM, ABS, ABS, ABS, ABS,
+			/* 3_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX,
+			/* 4_ */ IMP, IZX, IMP, IZX, ZP, ZP, ZP, ZP, IMP, IMM, ACC, IMM, ABS, ABS, ABS, ABS,
+			/* 5_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX,
+			/* 6_ */ IMP, IZX, IMP, IZX, ZP, ZP, ZP, ZP, IMP, IMM, ACC, IMM, IND, ABS, ABS, ABS,
+			/* 7_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX,
+			/* 8_ */ IMM, IZX, IMM, IZX, ZP, ZP, ZP, ZP, IMP, IMM, IMP, IMM, ABS, ABS, ABS, ABS,
+			/* 9_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPY, ZPY, IMP, ABY, IMP, ABY, ABX, ABX, ABY, ABY,
+			/* A_ */ IMM, IZX, IMM, IZX, ZP, ZP, ZP, ZP, IMP, IMM, IMP, IMM, ABS, ABS, ABS, ABS,
+			/* B_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPY, ZPY, IMP, ABY, IMP, ABY, ABX, ABX, ABY, ABY,
+			/* C_ */ IMM, IZX, IMM, IZX, ZP, ZP, ZP, ZP, IMP, IMM, IMP, IMM, ABS, ABS, ABS, ABS,
+			/* D_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX,
+			/* E_ */ IMM, IZX, IMM, IZX, ZP, ZP, ZP, ZP, IMP, IMM, IMP, IMM, ABS, ABS, ABS, ABS,
+			/* F_ */ REL, IZY, IMP, IZY, ZPX, ZPX, ZPX, ZPX, IMP, ABY, IMP, ABY, ABX, ABX, ABX, ABX };
+
+	static final byte[] CYCLES = {
+			/* 0_ */ 7, 6, 2, 8, 3, 3, 5, 5, 3, 2, 2, 2, 4, 4, 6, 6,
+			/* 1_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7,
+			/* 2_ */ 6, 6, 2, 8, 3, 3, 5, 5, 4, 2, 2, 2, 4, 4, 6, 6,
+			/* 3_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7,
+			/* 4_ */ 6, 6, 2, 8, 3, 3, 5, 5, 3, 2, 2, 2, 3, 4, 6, 6,
+			/* 5_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7,
+			/* 6_ */ 6, 6, 2, 8, 3, 3, 5, 5, 4, 2, 2, 2, 5, 4, 6, 6,
+			/* 7_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7,
+			/* 8_ */ 2, 6, 2, 6, 3, 3, 3, 3, 2, 2, 2, 2, 4, 4, 4, 4,
+			/* 9_ */ 2, 6, 2, 6, 4, 4, 4, 4, 2, 5, 2, 5, 5, 5, 5, 5,
+			/* A_ */ 2, 6, 2, 6, 3, 3, 3, 3, 2, 2, 2, 2, 4, 4, 4, 4,
+			/* B_ */ 2, 5, 2, 5, 4, 4, 4, 4, 2, 4, 2, 4, 4, 4, 4, 4,
+			/* C_ */ 2, 6, 2, 8, 3, 3, 5, 5, 2, 2, 2, 2, 4, 4, 6, 6,
+			/* D_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7,
+			/* E_ */ 2, 6, 2, 8, 3, 3, 5, 5, 2, 2, 2, 2, 4, 4, 6, 6,
+			/* F_ */ 2, 5, 2, 8, 4, 4, 6, 6, 2, 4, 2, 7, 4, 4, 7, 7 };
+
+	// 1 => +1 cycle when the indexed address crosses a page
+	static final byte[] PENALTY = {
+			/* 0_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* 1_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0,
+			/* 2_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* 3_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0,
+			/* 4_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* 5_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0,
+			/* 6_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* 7_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0,
+			/* 8_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* 9_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* A_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* B_ */ 0, 1, 0, 1, 0, 0, 0, 0, 0, 1, 0, 1, 1, 1, 1, 1,
+			/* C_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* D_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0,
+			/* E_ */ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+			/* F_ */ 0, 1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0 };
+
+	static final byte[] LENGTH = new byte[256];
+
+	// index into MNEMONICS
+	static final short[] MNEMONIC = new short[256];
+
+	private static final String[] MNEMONICS;
+
+	static {
+		final String[] names = {
+				/* 0_ */ "BRK", "ORA", "JAM", "SLO", "NOP", "ORA", "ASL", "SLO", "PHP", "ORA", "ASL", "ANC", "NOP", "ORA", "ASL", "SLO",
+				/* 1_ */ "BPL", "ORA", "JAM", "SLO", "NOP", "ORA", "ASL", "SLO", "CLC", "ORA", "NOP", "SLO", "NOP", "ORA", "ASL", "SLO",
+				/* 2_ */ "JSR", "AND", "JAM", "RLA", "BIT", "AND", "ROL", "RLA", "PLP", "AND", "ROL", "ANC", "BIT", "AND", "ROL", "RLA",
+				/* 3_ */ "BMI", "AND", "JAM", "RLA", "NOP", "AND", "ROL", "RLA", "SEC", "AND", "NOP", "RLA", "NOP", "AND", "ROL", "RLA",
+				/* 4_ */ "RTI", "EOR", "JAM", "SRE", "NOP", "EOR", "LSR", "SRE", "PHA", "EOR", "LSR", "ALR", "JMP", "EOR", "LSR", "SRE",
+				/* 5_ */ "BVC", "EOR", "JAM", "SRE", "NOP", "EOR", "LSR", "SRE", "CLI", "EOR", "NOP", "SRE", "NOP", "EOR", "LSR", "SRE",
+				/* 6_ */ "RTS", "ADC", "JAM", "RRA", "NOP", "ADC", "ROR", "RRA", "PLA", "ADC", "ROR", "ARR", "JMP", "ADC", "ROR", "RRA",
+				/* 7_ */ "BVS", "ADC", "JAM", "RRA", "NOP", "ADC", "ROR", "RRA", "SEI", "ADC", "NOP", "RRA", "NOP", "ADC", "ROR", "RRA",
+				/* 8_ */ "NOP", "STA", "NOP", "SAX", "STY", "STA", "STX", "SAX", "DEY", "NOP", "TXA", "XAA", "STY", "STA", "STX", "SAX",
+				/* 9_ */ "BCC", "STA", "JAM", "SHA", "STY", "STA", "STX", "SAX", "TYA", "STA", "TXS", "TAS", "SHY", "STA", "SHX", "SHA",
+				/* A_ */ "LDY", "LDA", "LDX", "LAX", "LDY", "LDA", "LDX", "LAX", "TAY", "LDA", "TAX", "LXA", "LDY", "LDA", "LDX", "LAX",
+				/* B_ */ "BCS", "LDA", "JAM", "LAX", "LDY", "LDA", "LDX", "LAX", "CLV", "LDA", "TSX", "LAS", "LDY", "LDA", "LDX", "LAX",
+				/* C_ */ "CPY", "CMP", "NOP", "DCP", "CPY", "CMP", "DEC", "DCP", "INY", "CMP", "DEX", "AXS", "CPY", "CMP", "DEC", "DCP",
+				/* D_ */ "BNE", "CMP", "JAM", "DCP", "NOP", "CMP", "DEC", "DCP", "CLD", "CMP", "NOP", "DCP", "NOP", "CMP", "DEC", "DCP",
+				/* E_ */ "CPX", "SBC", "NOP", "ISC", "CPX", "SBC", "INC", "ISC", "INX", "SBC", "NOP", "SBC", "CPX", "SBC", "INC", "ISC",
+				/* F_ */ "BEQ", "SBC", "JAM", "ISC", "NOP", "SBC", "INC", "ISC", "SED", "SBC", "NOP", "ISC", "NOP", "SBC", "INC", "ISC" };
+		final List<String> mnemonics = new ArrayList<>();
+		for (int i = 0; i < 256; i++) {
+			if (!mnemonics.contains(names[i])) {
+				mnemonics.add(names[i]);
+			}
+			MNEMONIC[i] = (short) mnemonics.indexOf(names[i]);
+			LENGTH[i] = MODE_LENGTH[MODE[i]];
+		}
+		MNEMONICS = mnemonics.toArray(new String[0]);
+	}
+
+	private OpCodes() {
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return the cycles without page-cross penalty or branch cycles
+	 */
+	public static int getCycles(final int opCode) {
+		return CYCLES[opCode];
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return 1 if crossing a page adds a cycle, else 0
+	 */
+	public static int getPenalty(final int opCode) {
+		return PENALTY[opCode];
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return 1 - 3 bytes, opcode included
+	 */
+	public static int getLength(final int opCode) {
+		return LENGTH[opCode];
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return the mode id, {@link #IMP} .. {@link #REL}
+	 */
+	public static int getMode(final int opCode) {
+		return MODE[opCode];
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return the mode, null for implied and accumulator
+	 */
+	public static AddressingMode getAddressingMode(final int opCode) {
+		return ADDRESSING_MODES[MODE[opCode]];
+	}
+
+	public static int getMnemonicId(final int opCode) {
+		return MNEMONIC[opCode];
+	}
+
+	public static String getMnemonic(final int opCode) {
+		return MNEMONICS[MNEMONIC[opCode]];
+	}
+
+	/**
+	 * @param opCode the opcode byte
+	 * @return "LDA nnnn,X" like {@link Instruction#getAssemblerFormat()}
+	 */
+	public static String getAssemblerFormat(final int opCode) {
+		return getMnemonic(opCode) + MODE_FORMAT[MODE[opCode]];
+	}
+
+}
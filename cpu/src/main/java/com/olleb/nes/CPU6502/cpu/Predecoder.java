@@ -0,0 +1,238 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.util.Arrays;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+/**
+ * Predecode cache. Per PC the opcode and operand bytes, fetched once; the
+ * instruction reads its operand from the cache instead of the bus.
+ * 
+ * RAM and PRG RAM bytes holding cached code are tracked in a bitmap, a write
+ * to one of them drops the instructions covering it, RAM mirrors included.
+ * Cartridge entries live in one page per PRG bank, like the compiled blocks
+ * are keyed by bank: mapper register writes only pick the pages of the
+ * banks mapped, the entries of a bank switched out are kept for its return.
+ *
+ */
+final class Predecoder {
+
+	// code is never fetched from PPU / APU registers
+	private static final int IO_BEGIN = Bus.Address.PPU_BEGIN.getAddress();
+	private static final int IO_END = Bus.Address.PRG_RAM_BEGIN.getAddress() - 1;
+	private static final int ROM_BEGIN = Bus.Address.PRG_ROM_BEGIN.getAddress();
+	// 2 KiB RAM mirrored up to here
+	private static final int RAM_END = Bus.Address.PPU_BEGIN.getAddress();
+	private static final int RAM_MASK = 0x07FF;
+	// 8 KiB slots, the PRG bank size
+	private static final int SLOT_SHIFT = 13;
+	private static final int SLOT_MASK = (1 << SLOT_SHIFT) - 1;
+	private static final int ROM_SLOT = ROM_BEGIN >> SLOT_SHIFT;
+
+	// no operand served
+	private static final int NONE = -16;
+
+	private final Memory memory;
+	private final Bus bus;
+	// per slot: epoch << 32 | length << 24 | operand << 8 | opcode, stale when
+	// the epoch differs. Cartridge slots point to the page of their bank
+	private final long[][] slots = new long[0x10000 >> SLOT_SHIFT][];
+	// PRG bank => page, filled on first use
+	private long[][] banks = new long[0][];
+	// cartridge slots without a mapper
+	private final boolean[] writable = new boolean[slots.length];
+	// writable bytes holding cached code, 0x0000 - 0x7FFF, RAM folded to
+	// 0x0000 - 0x07FF
+	private final long[] code = new long[ROM_BEGIN >> 6];
+	private int epoch = 1;
+	// the cartridge may be mapped after the CPU, banks read on the first
+	// fetch
+	private boolean mapped;
+	private long fetched;
+
+	// operand of the current instruction, length bytes at base
+	private int base = NONE;
+	private int length;
+	private int operand;
+
+	private final Memory cached = new Memory() {
+		@Override
+		public int read(final int address) {
+			final int o = address - base;
+			if (o >= 0 && o < length) {
+				return (operand >> (o << 3)) & 0xFF;
+			}
+			return memory.read(address);
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			final int a = address & 0xFFFF;
+			if (a >= ROM_BEGIN) {
+				memory.write(address, value);
+				if (writable[a >> SLOT_SHIFT]) {
+					invalidate(a);
+				} else {
+					// bank switches, the banks after the write
+					map();
+				}
+				return;
+			}
+			final int f = a < RAM_END ? a & RAM_MASK : a;
+			if ((code[f >> 6] & (1L << f)) != 0) {
+				code[f >> 6] &= ~(1L << f);
+				if (f < RAM_END) {
+					// code may run from any mirror
+					for (int mirror = f; mirror < RAM_END; mirror += RAM_MASK + 1) {
+						invalidate(mirror);
+					}
+				} else {
+					invalidate(f);
+				}
+			}
+			memory.write(address, value);
+		}
+	};
+
+	Predecoder(final Memory memory) {
+		this.memory = memory;
+		this.bus = memory instanceof Bus ? (Bus) memory : null;
+		// cartridge slots without a mapper keep their own page
+		for (int slot = 0; slot < slots.length; slot++) {
+			slots[slot] = new long[SLOT_MASK + 1];
+		}
+		Arrays.fill(writable, true);
+	}
+
+	/**
+	 * Opcode at PC. Its operand is served by {@link #getMemory()} until the
+	 * next decode.
+	 * 
+	 * @param pc the PC
+	 * @return the opcode
+	 */
+	int decode(final int pc) {
+		final long entry = slots[pc >> SLOT_SHIFT][pc & SLOT_MASK];
+		if ((int) (entry >>> 32) != epoch) {
+			return fetch(pc);
+		}
+		base = pc + 1;
+		length = (int) entry >>> 24 & 0x03;
+		operand = (int) entry >>> 8 & 0xFFFF;
+		return (int) entry & 0xFF;
+	}
+
+	private int fetch(final int pc) {
+		if (!mapped) {
+			map();
+		}
+		final int opCode = memory.read(pc) & 0xFF;
+		final int last = pc + OpCodes.LENGTH[opCode] - 1;
+		base = NONE;
+		// in one slot, the page holds the whole instruction
+		if (last > 0xFFFF || (last >= IO_BEGIN && pc <= IO_END) || (last >> SLOT_SHIFT) != (pc >> SLOT_SHIFT)) {
+			return opCode;
+		}
+		int operand = 0;
+		for (int a = last; a > pc; a--) {
+			operand = (operand << 8) | (memory.read(a) & 0xFF);
+		}
+		for (int a = pc; a <= last && a < ROM_BEGIN; a++) {
+			final int f = a < RAM_END ? a & RAM_MASK : a;
+			code[f >> 6] |= 1L << f;
+		}
+		fetched++;
+		slots[pc >> SLOT_SHIFT][pc & SLOT_MASK] = ((long) epoch << 32) | ((last - pc) << 24) | (operand << 8)
+				| opCode;
+		base = pc + 1;
+		length = last - pc;
+		this.operand = operand;
+		return opCode;
+	}
+
+	// instructions are up to 3 bytes, the ones covering the address start at
+	// most 2 bytes before
+	private void invalidate(final int address) {
+		for (int pc = Math.max(0, address - 2); pc <= address; pc++) {
+			slots[pc >> SLOT_SHIFT][pc & SLOT_MASK] = 0;
+		}
+		if (address - base >= 0 && address - base < length) {
+			base = NONE;
+		}
+	}
+
+	// memory replaced underneath, save state restore
+	void flush() {
+		Arrays.fill(code, 0);
+		base = NONE;
+		if (++epoch == 0) {
+			for (final long[] page : slots) {
+				Arrays.fill(page, 0);
+			}
+			for (final long[] page : banks) {
+				if (page != null) {
+					Arrays.fill(page, 0);
+				}
+			}
+			epoch = 1;
+		}
+		map();
+	}
+
+	// cartridge slots to the pages of the banks mapped
+	private void map() {
+		mapped = true;
+		if (bus == null) {
+			return;
+		}
+		for (int slot = ROM_SLOT; slot < slots.length; slot++) {
+			final Memory device = bus.getDevice(slot << SLOT_SHIFT);
+			writable[slot] = !(device instanceof Mapper);
+			if (device instanceof Mapper) {
+				final int bank = ((Mapper) device).getBank(slot << SLOT_SHIFT);
+				if (bank >= banks.length) {
+					banks = Arrays.copyOf(banks, bank + 1);
+				}
+				if (banks[bank] == null) {
+					banks[bank] = new long[SLOT_MASK + 1];
+				}
+				slots[slot] = banks[bank];
+			}
+		}
+	}
+
+	/**
+	 * Memory the CPU runs on: operands from the cache, writes invalidate.
+	 * 
+	 * @return the cached memory
+	 */
+	Memory getMemory() {
+		return cached;
+	}
+
+	long getFetched() {
+		return fetched;
+	}
+
+}
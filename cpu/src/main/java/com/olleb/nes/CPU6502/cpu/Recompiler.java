@@ -0,0 +1,243 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+/**
+ * JIT tier above the interpreter. Counts block entries per PC, compiles hot
+ * blocks through {@link BlockCompiler} and caches them by PC and PRG bank.
+ * Writes through {@link #getMemory()} invalidate the blocks they hit, RAM
+ * mirrors included; a block overwriting its own opcodes finishes on the old
+ * ones.
+ *
+ */
+final class Recompiler {
+
+	// block entries before compiling
+	static final int THRESHOLD = 32;
+	// instructions per block
+	static final int MAX_LENGTH = 32;
+	// longest block in bytes
+	private static final int MAX_BYTES = MAX_LENGTH * 3;
+
+	// code is never fetched from PPU / APU registers
+	private static final int IO_BEGIN = Bus.Address.PPU_BEGIN.getAddress();
+	private static final int IO_END = Bus.Address.PRG_RAM_BEGIN.getAddress() - 1;
+	// 2 KiB RAM mirrored up to here
+	private static final int RAM_END = Bus.Address.PPU_BEGIN.getAddress();
+	private static final int RAM_MASK = 0x07FF;
+
+	private final Memory memory;
+	private final Bus bus;
+	private final BlockCompiler compiler;
+	private final Block[] blocks = new Block[0x10000];
+	private final int[] counters = new int[0x10000];
+	// pages holding compiled writable code, RAM pages folded to 0x0000 -
+	// 0x07FF
+	private final boolean[] codePages = new boolean[0x100];
+	private long compiled;
+
+	private final Memory watched = new Memory() {
+		@Override
+		public int read(final int address) {
+			return memory.read(address);
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			final int a = fold(address & 0xFFFF);
+			if (codePages[a >> 8]) {
+				if (a < RAM_END) {
+					// code may run from any mirror
+					for (int mirror = a; mirror < RAM_END; mirror += RAM_MASK + 1) {
+						invalidate(mirror);
+					}
+				} else {
+					invalidate(a);
+				}
+			}
+			memory.write(address, value);
+		}
+	};
+
+	/**
+	 * @param memory the memory the CPU runs on
+	 * @param clock  takes the cycles of each compiled instruction, false ends
+	 *               the block
+	 */
+	Recompiler(final Memory memory, final IntPredicate clock) {
+		this.memory = memory;
+		this.bus = memory instanceof Bus ? (Bus) memory : null;
+		this.compiler = new BlockCompiler(clock);
+	}
+
+	/**
+	 * Compiled block at PC, compiles it once hot.
+	 * 
+	 * @param pc the PC
+	 * @return the block, null to interpret
+	 */
+	Block lookup(final int pc) {
+		final int bank = bank(pc);
+		for (Block block = blocks[pc]; block != null; block = block.next) {
+			if (block.getBank() == bank) {
+				return block;
+			}
+		}
+		if (++counters[pc] < THRESHOLD) {
+			return null;
+		}
+		counters[pc] = 0;
+		return compile(pc, bank);
+	}
+
+	private Block compile(final int pc, final int bank) {
+		final int[] opCodes = new int[MAX_LENGTH];
+		int n = 0;
+		int cost = 0;
+		int address = pc;
+		while (n < MAX_LENGTH && address <= 0xFFFF && (address < IO_BEGIN || address > IO_END)
+				// same 8 KiB slot, the bank key covers the whole block
+				&& ((address ^ pc) & ~0x1FFF) == 0) {
+			final int opCode = memory.read(address) & 0xFF;
+			opCodes[n++] = opCode;
+			// branches: taken + page crossed
+			cost += OpCodes.CYCLES[opCode] + OpCodes.PENALTY[opCode] + ((opCode & 0x1F) == 0x10 ? 2 : 0);
+			address += OpCodes.LENGTH[opCode];
+			if (isBlockEnd(opCode)) {
+				break;
+			}
+		}
+		if (n == 0) {
+			return null;
+		}
+		if (compiler.isFull()) {
+			// every block holds on to the loader of its class
+			flush();
+			compiler.reset();
+		}
+
+		final Block block = new Block(pc, address - 1, bank, n, cost, compiler.compile(Arrays.copyOf(opCodes, n)));
+		block.next = blocks[pc];
+		blocks[pc] = block;
+		if (isWritable(pc)) {
+			for (int page = pc >> 8; page <= (block.getEnd() >> 8); page++) {
+				codePages[fold(page << 8) >> 8] = true;
+			}
+		}
+		compiled++;
+		return block;
+	}
+
+	// unlink the blocks of the bank mapped whose code covers the address,
+	// other banks at the same PC are kept
+	private void invalidate(final int address) {
+		final int bank = bank(address);
+		for (int pc = Math.max(0, address - MAX_BYTES); pc <= address; pc++) {
+			Block previous = null;
+			for (Block block = blocks[pc]; block != null; block = block.next) {
+				if (block.getBank() == bank && block.contains(address)) {
+					if (previous == null) {
+						blocks[pc] = block.next;
+					} else {
+						previous.next = block.next;
+					}
+				} else {
+					previous = block;
+				}
+			}
+		}
+	}
+
+	// memory replaced underneath, save state restore
+	void flush() {
+		Arrays.fill(blocks, null);
+		Arrays.fill(counters, 0);
+		Arrays.fill(codePages, false);
+	}
+
+	private static int fold(final int address) {
+		return address < RAM_END ? address & RAM_MASK : address;
+	}
+
+	// anything but a mapper: RAM, PRG RAM or flat memory up to 0xFFFF, writes
+	// above a mapper are register writes and switch the bank key instead
+	private boolean isWritable(final int pc) {
+		return bus == null || !(bus.getDevice(pc) instanceof Mapper);
+	}
+
+	private int bank(final int pc) {
+		if (bus != null) {
+			final Memory device = bus.getDevice(pc);
+			if (device instanceof Mapper) {
+				return ((Mapper) device).getBank(pc);
+			}
+		}
+		return 0;
+	}
+
+	// control transfers: branches, JMP, JSR, RTS, RTI, BRK and JAM, which
+	// jumps to itself
+	static boolean isBlockEnd(final int opCode) {
+		switch (opCode) {
+		case 0x4C:
+		case 0x6C:
+		case 0x20:
+		case 0x60:
+		case 0x40:
+		case 0x00:
+		case 0x02:
+		case 0x12:
+		case 0x22:
+		case 0x32:
+		case 0x42:
+		case 0x52:
+		case 0x62:
+		case 0x72:
+		case 0x92:
+		case 0xB2:
+		case 0xD2:
+		case 0xF2:
+			return true;
+		default:
+			return (opCode & 0x1F) == 0x10;
+		}
+	}
+
+	/**
+	 * Memory the CPU runs on, writes invalidate compiled blocks.
+	 * 
+	 * @return the watched memory
+	 */
+	Memory getMemory() {
+		return watched;
+	}
+
+	long getCompiled() {
+		return compiled;
+	}
+
+}
@@ -19,13 +19,15 @@
 
 package com.olleb.nes.CPU6502.cpu;
 
-import com.olleb.nes.CPU6502.mem.RAM;
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.state.Stateful;
 
 /**
  * 6502 CPU Registers.
  *
  */
-public final class Registers {
+public final class Registers implements Stateful {
 
 	/**
 	 * registers 
@@ -36,50 +38,73 @@ public final class Registers {
 	 * y -> index register Y
 	 */
 	private int pc;
-	private int sp = RAM.Address.STACK_END.getAddress(); // descending stack
+	private int sp; // descending stack. Power-up value, RESET leaves it at 0xFD
 	private int a;
 	private int x;
 	private int y;
 
 	/**
-	 * cpu status 
+	 * cpu status, packed as the 6502 P register: NV-BDIZC
 	 * c -> carry flag
 	 * z -> zero flag
 	 * i -> interrupt disable
 	 * d -> decimal mode flag
 	 * b -> break command
+	 * - -> unused, always 1
 	 * v -> overflow flag
 	 * n -> negative flag
 	 */
-	private boolean c;
-	private boolean z;
-	private boolean i;
-	private boolean d;
-	private boolean b;
-	private boolean v;
-	private boolean n;
+	public static final int C = 0x01;
+	public static final int Z = 0x02;
+	public static final int I = 0x04;
+	public static final int D = 0x08;
+	public static final int B = 0x10;
+	public static final int U = 0x20;
+	public static final int V = 0x40;
+	public static final int N = 0x80;
+
+	private int p = U;
+
+	// N and Z flags for every 8 bit value
+	private static final int[] NZ = new int[256];
+
+	static {
+		for (int i = 0; i < NZ.length; i++) {
+			NZ[i] = (i == 0 ? Z : 0) | (i & N);
+		}
+	}
+
+	// page crossed, 0 or 1 so it adds to the cycles without a branch
+	private int pg;
 
-	// page crossed
-	private boolean pg;
+	// told when I clears, pending IRQs are taken then
+	private InterruptController interrupts;
 
 	public int getProcessorStatus() {
-		int r = 0;
-		for (boolean b : new boolean[] { c, z, i, d, b, v, n }) {
-			r = (r << 1) + (b ? 1 : 0);
-		}
-		return r;
+		return p;
 	}
-	
+
 	public void setProcessorStatus(final int status) {
-		c = ((status >> 6) & 1) == 1 ? true : false;
-		z = ((status >> 5) & 1) == 1 ? true : false;
-		i = ((status >> 4) & 1) == 1 ? true : false;
-		d = ((status >> 3) & 1) == 1 ? true : false;
-		b = ((status >> 2) & 1) == 1 ? true : false;
-		v = ((status >> 1) & 1) == 1 ? true : false;
-		n = ((status >> 0) & 1) == 1 ? true : false;
+		final int old = p;
+		p = (status & 0xFF) | U;
+		if ((old & ~p & I) != 0) {
+			unmasked();
+		}
 	}
-	
+
+	/**
+	 * Set N and Z flags from the low byte of the value.
+	 * 
+	 * @param value the result
+	 */
+	public void setNZ(final int value) {
+		p = (p & ~(N | Z)) | NZ[value & 0xFF];
+	}
+
+	private void set(final int flag, final boolean value) {
+		p = value ? p | flag : p & ~flag;
+	}
+
 	public int getPC() {
 		return pc;
 	}
@@ -122,59 +147,73 @@ public final class Registers {
 	}
 
 	public boolean isC() {
-		return c;
+		return (p & C) != 0;
 	}
 
 	public void setC(boolean c) {
-		this.c = c;
+		set(C, c);
 	}
 
 	public boolean isZ() {
-		return z;
+		return (p & Z) != 0;
 	}
 
 	public void setZ(boolean z) {
-		this.z = z;
+		set(Z, z);
 	}
 
 	public boolean isI() {
-		return i;
+		return (p & I) != 0;
 	}
 
 	public void setI(boolean i) {
-		this.i = i;
+		final boolean old = isI();
+		set(I, i);
+		if (old && !i) {
+			unmasked();
+		}
+	}
+
+	private void unmasked() {
+		if (interrupts != null) {
+			interrupts.poll();
+		}
+	}
+
+	void setInterrupts(final InterruptController interrupts) {
+		this.interrupts = interrupts;
 	}
 
 	public boolean isD() {
-		return d;
+		return (p & D) != 0;
 	}
 
 	public void setD(boolean d) {
-		this.d = d;
+		set(D, d);
 	}
 
 	public boolean isB() {
-		return b;
+		return (p & B) != 0;
 	}
 
 	public void setB(boolean b) {
-		this.b = b;
+		set(B, b);
 	}
 
 	public boolean isV() {
-		return v;
+		return (p & V) != 0;
 	}
 
 	public void setV(boolean v) {
-		this.v = v;
+		set(V, v);
 	}
 
 	public boolean isN() {
-		return n;
+		return (p & N) != 0;
 	}
 
 	public void setN(boolean n) {
-		this.n = n;
+		set(N, n);
 	}
 
 	public int incrementPC() {
@@ -199,11 +238,40 @@ public final class Registers {
 	}
 	
 	public boolean isPg() {
-		return pg;
+		return pg != 0;
 	}
 
 	public void setPg(boolean pg) {
+		this.pg = pg ? 1 : 0;
+	}
+
+	int getPg() {
+		return pg;
+	}
+
+	void setPg(final int pg) {
 		this.pg = pg;
 	}
 		
+	// PC, SP, A, X, Y, P => 7 bytes
+	@Override
+	public void save(final ByteBuffer buffer) {
+		buffer.putShort((short) pc);
+		buffer.put((byte) sp);
+		buffer.put((byte) a);
+		buffer.put((byte) x);
+		buffer.put((byte) y);
+		buffer.put((byte) p);
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		pc = buffer.getShort() & 0xFFFF;
+		sp = buffer.get() & 0xFF;
+		a = buffer.get() & 0xFF;
+		x = buffer.get() & 0xFF;
+		y = buffer.get() & 0xFF;
+		p = (buffer.get() & 0xFF) | U;
+	}
+
 }
@@ -0,0 +1,120 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import java.util.Arrays;
+
+/***
+ * CPU address bus. 64 KiB address space decoded by a 256 entry page table
+ * of devices, one per 256 byte page: address &gt;&gt; 8 =&gt; device.
+ *
+ */
+public final class Bus implements Memory {
+
+	public enum Address {
+		RAM_BEGIN(0x0000),
+		RAM_END(0x1FFF),
+		PPU_BEGIN(0x2000),
+		PPU_END(0x3FFF),
+		// APU and I/O registers 0x4000 - 0x401F, rest of the page is
+		// cartridge expansion
+		IO_BEGIN(0x4000),
+		IO_END(0x40FF),
+		CARTRIDGE_BEGIN(0x4100),
+		PRG_RAM_BEGIN(0x6000),
+		PRG_ROM_BEGIN(0x8000),
+		CARTRIDGE_END(0xFFFF);
+
+		private final int value;
+
+		private Address(final int address) {
+			this.value = address;
+		}
+
+		public int getAddress() {
+			return value;
+		}
+	}
+
+	private static final int PAGE_SHIFT = 8;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGES = 0x10000 >> PAGE_SHIFT;
+
+	// unmapped: open bus, reads return the high byte of the address
+	private static final Memory OPEN_BUS = new Memory() {
+		@Override
+		public int read(final int address) {
+			return address >> PAGE_SHIFT;
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+		}
+	};
+
+	private final Memory[] pages = new Memory[PAGES];
+
+	public Bus() {
+		Arrays.fill(pages, OPEN_BUS);
+	}
+
+	public Bus(final RAM ram) {
+		this();
+		map(Address.RAM_BEGIN.value, Address.RAM_END.value, ram);
+	}
+
+	/**
+	 * Map a device. Page granularity, the device receives the full 16 bit
+	 * address and solves its own mirrors.
+	 * 
+	 * @param begin  first address, page aligned
+	 * @param end    last address, page end
+	 * @param device the device
+	 */
+	public void map(final int begin, final int end, final Memory device) {
+		if ((begin & (PAGE_SIZE - 1)) != 0 || (end & (PAGE_SIZE - 1)) != PAGE_SIZE - 1 || begin > end
+				|| end > Address.CARTRIDGE_END.value) {
+			throw new IllegalArgumentException(String.format("Unaligned range 0x%04X - 0x%04X", begin, end));
+		}
+		Arrays.fill(pages, begin >> PAGE_SHIFT, (end >> PAGE_SHIFT) + 1, device);
+	}
+
+	public void unmap(final int begin, final int end) {
+		map(begin, end, OPEN_BUS);
+	}
+
+	// 16 bit address space, wraps around 0xFFFF
+	@Override
+	public int read(final int address) {
+		final int a = address & 0xFFFF;
+		return pages[a >> PAGE_SHIFT].read(a);
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		final int a = address & 0xFFFF;
+		pages[a >> PAGE_SHIFT].write(a, value & 0xFF);
+	}
+
+	public Memory getDevice(final int address) {
+		return pages[(address & 0xFFFF) >> PAGE_SHIFT];
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * iNES / NES 2.0 cartridge. The .nes file is memory mapped and PRG / CHR
+ * banks are read-only views over the mapping, no copies. Instances loading
+ * the same file share the OS page cache.
+ * 
+ * https://wiki.nesdev.com/w/index.php/INES
+ * https://wiki.nesdev.com/w/index.php/NES_2.0
+ *
+ */
+public final class Cartridge {
+
+	public static final int HEADER_SIZE = 16;
+	public static final int TRAINER_SIZE = 512;
+	public static final int PRG_BANK_SIZE = 0x4000;
+	public static final int CHR_BANK_SIZE = 0x2000;
+
+	// "NES" + MS-DOS EOF
+	private static final int MAGIC = 0x4E45531A;
+
+	public enum Mirroring {
+		HORIZONTAL,
+		VERTICAL,
+		FOUR_SCREEN,
+		// mapper controlled
+		ONE_SCREEN_LOW,
+		ONE_SCREEN_HIGH
+	}
+
+	private final ByteBuffer prg;
+	private final ByteBuffer chr;
+	private final int mapper;
+	private final int subMapper;
+	private final Mirroring mirroring;
+	private final boolean battery;
+	private final boolean nes2;
+
+	private Cartridge(final ByteBuffer prg, final ByteBuffer chr, final int mapper, final int subMapper,
+			final Mirroring mirroring, final boolean battery, final boolean nes2) {
+		this.prg = prg;
+		this.chr = chr;
+		this.mapper = mapper;
+		this.subMapper = subMapper;
+		this.mirroring = mirroring;
+		this.battery = battery;
+		this.nes2 = nes2;
+	}
+
+	/**
+	 * Memory map and parse a .nes file.
+	 * 
+	 * @param path the .nes file
+	 * @return the cartridge
+	 * @throws IOException on read errors
+	 */
+	public static Cartridge load(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return parse(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Parse an iNES / NES 2.0 image.
+	 * 
+	 * @param image the whole file
+	 * @return the cartridge
+	 */
+	public static Cartridge parse(final ByteBuffer image) {
+		final ByteBuffer b = image.slice().asReadOnlyBuffer();
+		if (b.remaining() < HEADER_SIZE || b.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not an iNES file");
+		}
+		final int flags6 = b.get(6) & 0xFF;
+		final int flags7 = b.get(7) & 0xFF;
+		final boolean nes2 = (flags7 & 0x0C) == 0x08;
+
+		int mapper = (flags6 >> 4) | (flags7 & 0xF0);
+		int subMapper = 0;
+		long prgSize = (b.get(4) & 0xFF) * PRG_BANK_SIZE;
+		long chrSize = (b.get(5) & 0xFF) * CHR_BANK_SIZE;
+		if (nes2) {
+			final int byte8 = b.get(8) & 0xFF;
+			final int byte9 = b.get(9) & 0xFF;
+			mapper |= (byte8 & 0x0F) << 8;
+			subMapper = byte8 >> 4;
+			prgSize = nes2Size(b.get(4) & 0xFF, byte9 & 0x0F, PRG_BANK_SIZE);
+			chrSize = nes2Size(b.get(5) & 0xFF, byte9 >> 4, CHR_BANK_SIZE);
+		}
+
+		final Mirroring mirroring = (flags6 & 0x08) != 0 ? Mirroring.FOUR_SCREEN
+				: (flags6 & 0x01) != 0 ? Mirroring.VERTICAL : Mirroring.HORIZONTAL;
+		final boolean battery = (flags6 & 0x02) != 0;
+		final int prgOffset = HEADER_SIZE + ((flags6 & 0x04) != 0 ? TRAINER_SIZE : 0);
+
+		if (prgSize > Integer.MAX_VALUE || chrSize > Integer.MAX_VALUE
+				|| b.remaining() < prgOffset + prgSize + chrSize) {
+			throw new IllegalArgumentException("Truncated iNES file");
+		}
+		return new Cartridge(slice(b, prgOffset, (int) prgSize), slice(b, prgOffset + (int) prgSize, (int) chrSize),
+				mapper, subMapper, mirroring, battery, nes2);
+	}
+
+	// MSB nibble 0xF => exponent-multiplier notation: 2^E * (MM * 2 + 1),
+	// E clamped at 32 as anything past 2^31 is rejected anyway
+	private static long nes2Size(final int lsb, final int msb, final int unit) {
+		if (msb == 0x0F) {
+			return (1L << Math.min(lsb >> 2, 32)) * ((lsb & 0x03) * 2 + 1);
+		}
+		return (long) ((msb << 8) | lsb) * unit;
+	}
+
+	private static ByteBuffer slice(final ByteBuffer b, final int offset, final int length) {
+		final ByteBuffer d = b.duplicate();
+		d.position(offset).limit(offset + length);
+		return d.slice();
+	}
+
+	public ByteBuffer getPRG() {
+		return prg.duplicate();
+	}
+
+	public ByteBuffer getCHR() {
+		return chr.duplicate();
+	}
+
+	public ByteBuffer getPRGBank(final int bank) {
+		return slice(prg, bank * PRG_BANK_SIZE, PRG_BANK_SIZE);
+	}
+
+	public ByteBuffer getCHRBank(final int bank) {
+		return slice(chr, bank * CHR_BANK_SIZE, CHR_BANK_SIZE);
+	}
+
+	/**
+	 * Whole PRG ROM as Memory, mirrored when smaller than 32 KiB.
+	 * 
+	 * @return the PRG ROM view
+	 */
+	public Memory getPRGMemory() {
+		return new ROM(prg);
+	}
+
+	public int getPRGBanks() {
+		return prg.capacity() / PRG_BANK_SIZE;
+	}
+
+	public int getCHRBanks() {
+		return chr.capacity() / CHR_BANK_SIZE;
+	}
+
+	public int getMapper() {
+		return mapper;
+	}
+
+	public int getSubMapper() {
+		return subMapper;
+	}
+
+	public Mirroring getMirroring() {
+		return mirroring;
+	}
+
+	public boolean hasBattery() {
+		return battery;
+	}
+
+	public boolean isNES2() {
+		return nes2;
+	}
+
+}
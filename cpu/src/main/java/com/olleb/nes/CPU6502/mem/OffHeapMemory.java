@@ -0,0 +1,122 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/***
+ * Off-heap 6502 memory. The full 64 KiB address space plus cartridge banks in
+ * a direct ByteBuffer, outside the Java heap and visible to native code
+ * without copies.
+ *
+ */
+public final class OffHeapMemory implements Memory {
+
+	public static final int ADDRESS_SPACE = 0x10000;
+	// PRG ROM bank size
+	public static final int BANK_SIZE = 0x4000;
+
+	// 0x0000 - 0xFFFF address space, then the banks
+	private final ByteBuffer mem;
+	private final int banks;
+
+	public OffHeapMemory() {
+		this(0);
+	}
+
+	public OffHeapMemory(final int banks) {
+		this(ByteBuffer.allocateDirect(ADDRESS_SPACE + banks * BANK_SIZE), banks);
+	}
+
+	/**
+	 * Wrap an existing direct buffer, shared with native tooling.
+	 * 
+	 * @param buffer direct buffer, at least 64 KiB + banks * 16 KiB
+	 * @param banks  cartridge banks after the address space
+	 */
+	public OffHeapMemory(final ByteBuffer buffer, final int banks) {
+		if (!buffer.isDirect() || buffer.capacity() < ADDRESS_SPACE + banks * BANK_SIZE) {
+			throw new IllegalArgumentException("Direct buffer of " + (ADDRESS_SPACE + banks * BANK_SIZE)
+					+ " bytes expected");
+		}
+		this.mem = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		this.banks = banks;
+	}
+
+	// Mirrors 0x0000:0x07FF => 0x0800 - 0x1FFF, same as RAM
+	private static int mirror(final int address) {
+		final int a = address & 0xFFFF;
+		return a <= RAM.Address.MIRROR_END.getAddress() ? a & RAM.Address.END.getAddress() : a;
+	}
+
+	@Override
+	public int read(final int address) {
+		return mem.get(mirror(address)) & 0xFF;
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		mem.put(mirror(address), (byte) value);
+	}
+
+	/**
+	 * Cartridge bank view, no copy.
+	 * 
+	 * @param bank bank number
+	 * @return 16 KiB view over the bank
+	 */
+	public ByteBuffer getBank(final int bank) {
+		if (bank < 0 || bank >= banks) {
+			throw new IndexOutOfBoundsException("Bank " + bank + " of " + banks);
+		}
+		return slice(ADDRESS_SPACE + bank * BANK_SIZE, BANK_SIZE);
+	}
+
+	/**
+	 * The whole backing buffer, no copy.
+	 * 
+	 * @return view over address space and banks
+	 */
+	public ByteBuffer getBuffer() {
+		return slice(0, mem.capacity());
+	}
+
+	private ByteBuffer slice(final int offset, final int length) {
+		final ByteBuffer b = mem.duplicate();
+		b.position(offset).limit(offset + length);
+		return b.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public int getBanks() {
+		return banks;
+	}
+
+	public int getSize() {
+		return mem.capacity();
+	}
+
+	public void clear() {
+		for (int i = 0; i < mem.capacity(); i++) {
+			mem.put(i, (byte) 0x0);
+		}
+	}
+
+}
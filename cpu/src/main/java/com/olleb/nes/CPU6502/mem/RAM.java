@@ -19,19 +19,24 @@
 
 package com.olleb.nes.CPU6502.mem;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import com.olleb.nes.CPU6502.state.Stateful;
+
 /***
  * 6502 RAM Memory.
  *
  */
-public final class RAM implements Memory {
+public final class RAM implements Memory, Stateful {
 
 	// Zero page: 0x0000 - 0x00FF
 	// Stack: 0x0100 - 0x01FF
 	// RAM: 0x0200 - 0x0800
 	// Mirrors 0x0000:0x07FF => 0x0800 - 0x1FFF
-	private final int mem[] = new int[Address.END.value + 1];
+	// 8 bit cells. Mapped at 0x0000 - 0x1FFF by the Bus, standalone every
+	// address mirrors.
+	private final byte mem[] = new byte[Address.END.value + 1];
 
 	public enum Address {
 		TOTAL_BEGIN(0x0000),
@@ -40,8 +45,12 @@ public final class RAM implements Memory {
 		MIRROR_BEGIN(0x0800),
 		MIRROR_END(0x1FFF),
 		TOTAL_END(0x1FFF),
+		NMI_VECTOR_0_(0xFFFA),
+		NMI_VECTOR_1_(0xFFFB),
 		VECTOR_0_(0xFFFC),
 		VECTOR_1_(0xFFFD),
+		IRQ_VECTOR_0_(0xFFFE),
+		IRQ_VECTOR_1_(0xFFFF),
 		ZERO_PAGE_BEGIN(0x0000),
 		ZERO_PAGE_END(0x00FF),
 		STACK_BEGIN(0x0100),
@@ -60,21 +69,13 @@ public final class RAM implements Memory {
 
 	@Override
 	public int read(final int address) {
-		if(address > Address.TOTAL_END.value) {
-			return -1;
-		}else if (address <= Address.MIRROR_END.value) {
-			return mem[address & Address.END.value];
-		} 
-		return mem[address];
+		return mem[address & Address.END.value] & 0xFF;
 	}
 
 	@Override
 	public void write(final int address, final int value) {
 		// write mirrors optimized. Write only once.
-		if (address <= Address.MIRROR_END.value) {
-			mem[address & Address.END.value] = value;
-		} else
-			mem[address] = value;
+		mem[address & Address.END.value] = (byte) value;
 	}
 
 	public int getSize() {
@@ -82,11 +83,21 @@ public final class RAM implements Memory {
 	}
 	
 	public void clear() {
-		Arrays.fill(mem, 0x0);
+		Arrays.fill(mem, (byte) 0x0);
 	}
 	
 	public void push() {
 		
 	}
 
+	@Override
+	public void save(final ByteBuffer buffer) {
+		buffer.put(mem);
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		buffer.get(mem);
+	}
+
 }
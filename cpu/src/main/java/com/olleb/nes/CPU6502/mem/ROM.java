@@ -0,0 +1,57 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import java.nio.ByteBuffer;
+
+/***
+ * Read-only memory view over a ByteBuffer, no copy. The address is masked
+ * into the buffer, so a 16 KiB bank mapped at 0x8000 - 0xFFFF mirrors.
+ * Writes are ignored.
+ *
+ */
+public final class ROM implements Memory {
+
+	private final ByteBuffer rom;
+	private final int mask;
+
+	public ROM(final ByteBuffer rom) {
+		final int size = rom.remaining();
+		if (Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("ROM size must be a power of two: " + size);
+		}
+		this.rom = rom.slice();
+		this.mask = size - 1;
+	}
+
+	@Override
+	public int read(final int address) {
+		return rom.get(address & mask) & 0xFF;
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+	}
+
+	public int getSize() {
+		return mask + 1;
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Cartridge.Mirroring;
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Mapper base. PRG in 8 KiB slots, CHR in 1 KiB slots. Every slot holds the
+ * offset of its bank, bank switching rewrites the slot.
+ *
+ */
+abstract class AbstractMapper implements Mapper {
+
+	static final int PRG_SLOT_SHIFT = 13;
+	static final int PRG_SLOT_SIZE = 1 << PRG_SLOT_SHIFT;
+	static final int CHR_SLOT_SHIFT = 10;
+	static final int CHR_SLOT_SIZE = 1 << CHR_SLOT_SHIFT;
+
+	private static final int PRG_RAM_SIZE = 0x2000;
+
+	private final ByteBuffer prg;
+	private final ByteBuffer chr;
+	private final boolean chrRAM;
+
+	// 0x8000 - 0xFFFF => 4 x 8 KiB
+	private final int[] prgTable = new int[4];
+	// 0x0000 - 0x1FFF => 8 x 1 KiB
+	private final int[] chrTable = new int[8];
+
+	// banks in slot units
+	private final int prgBanks;
+	private final int chrBanks;
+
+	private final byte[] prgRAM = new byte[PRG_RAM_SIZE];
+	private final Memory prgRAMDevice = new Memory() {
+		@Override
+		public int read(final int address) {
+			return prgRAM[address & (PRG_RAM_SIZE - 1)] & 0xFF;
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			prgRAM[address & (PRG_RAM_SIZE - 1)] = (byte) value;
+		}
+	};
+
+	private Mirroring mirroring;
+
+	AbstractMapper(final Cartridge cartridge) {
+		this.prg = cartridge.getPRG();
+		// no CHR ROM => 8 KiB CHR RAM
+		this.chrRAM = cartridge.getCHRBanks() == 0;
+		this.chr = chrRAM ? ByteBuffer.allocate(Cartridge.CHR_BANK_SIZE) : cartridge.getCHR();
+		this.prgBanks = Math.max(1, prg.capacity() >> PRG_SLOT_SHIFT);
+		this.chrBanks = Math.max(1, chr.capacity() >> CHR_SLOT_SHIFT);
+		this.mirroring = cartridge.getMirroring();
+	}
+
+	@Override
+	public int read(final int address) {
+		return prg.get(prgTable[(address >> PRG_SLOT_SHIFT) & 0x03] | (address & (PRG_SLOT_SIZE - 1))) & 0xFF;
+	}
+
+	@Override
+	public int readCHR(final int address) {
+		return chr.get(chrTable[(address >> CHR_SLOT_SHIFT) & 0x07] | (address & (CHR_SLOT_SIZE - 1))) & 0xFF;
+	}
+
+	@Override
+	public void writeCHR(final int address, final int value) {
+		if (chrRAM) {
+			chr.put(chrTable[(address >> CHR_SLOT_SHIFT) & 0x07] | (address & (CHR_SLOT_SIZE - 1)), (byte) value);
+		}
+	}
+
+	@Override
+	public Mirroring getMirroring() {
+		return mirroring;
+	}
+
+	void setMirroring(final Mirroring mirroring) {
+		this.mirroring = mirroring;
+	}
+
+	@Override
+	public int getBank(final int address) {
+		return prgTable[(address >> PRG_SLOT_SHIFT) & 0x03] >> PRG_SLOT_SHIFT;
+	}
+
+	@Override
+	public int getCHRBank(final int address) {
+		return chrTable[(address >> CHR_SLOT_SHIFT) & 0x07] >> CHR_SLOT_SHIFT;
+	}
+
+	@Override
+	public Memory getPRGRAM() {
+		return prgRAMDevice;
+	}
+
+	// slot tables, mirroring, PRG RAM, CHR RAM
+	@Override
+	public void save(final ByteBuffer buffer) {
+		for (final int offset : prgTable) {
+			buffer.putInt(offset);
+		}
+		for (final int offset : chrTable) {
+			buffer.putInt(offset);
+		}
+		buffer.put((byte) mirroring.ordinal());
+		buffer.put(prgRAM);
+		if (chrRAM) {
+			buffer.put(chr.duplicate().clear());
+		}
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		for (int i = 0; i < prgTable.length; i++) {
+			prgTable[i] = buffer.getInt();
+		}
+		for (int i = 0; i < chrTable.length; i++) {
+			chrTable[i] = buffer.getInt();
+		}
+		mirroring = Mirroring.values()[buffer.get()];
+		buffer.get(prgRAM);
+		if (chrRAM) {
+			final ByteBuffer src = buffer.slice().limit(chr.capacity());
+			chr.duplicate().clear().put(src);
+			buffer.position(buffer.position() + chr.capacity());
+		}
+	}
+
+	// negative banks count from the last one, -1 => last bank
+	void setPRG8(final int slot, final int bank) {
+		prgTable[slot] = Math.floorMod(bank, prgBanks) << PRG_SLOT_SHIFT;
+	}
+
+	void setPRG16(final int slot, final int bank) {
+		setPRG8(slot * 2, bank * 2);
+		setPRG8(slot * 2 + 1, bank * 2 + 1);
+	}
+
+	void setPRG32(final int bank) {
+		setPRG16(0, bank * 2);
+		setPRG16(1, bank * 2 + 1);
+	}
+
+	void setCHR1(final int slot, final int bank) {
+		chrTable[slot] = Math.floorMod(bank, chrBanks) << CHR_SLOT_SHIFT;
+	}
+
+	void setCHR2(final int slot, final int bank) {
+		setCHR1(slot * 2, bank * 2);
+		setCHR1(slot * 2 + 1, bank * 2 + 1);
+	}
+
+	void setCHR4(final int slot, final int bank) {
+		setCHR2(slot * 2, bank * 2);
+		setCHR2(slot * 2 + 1, bank * 2 + 1);
+	}
+
+	void setCHR8(final int bank) {
+		setCHR4(0, bank * 2);
+		setCHR4(1, bank * 2 + 1);
+	}
+
+}
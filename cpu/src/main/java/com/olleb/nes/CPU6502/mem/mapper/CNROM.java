@@ -0,0 +1,43 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import com.olleb.nes.CPU6502.mem.Cartridge;
+
+/**
+ * Mapper 3. Fixed PRG, 8 KiB CHR bank switched.
+ *
+ */
+public final class CNROM extends AbstractMapper {
+
+	public CNROM(final Cartridge cartridge) {
+		super(cartridge);
+		for (int i = 0; i < 4; i++) {
+			setPRG8(i, i);
+		}
+		setCHR8(0);
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		setCHR8(value);
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Cartridge.Mirroring;
+
+/**
+ * Mapper 1. Serial 5 bit shift register, written one bit per write.
+ * https://wiki.nesdev.com/w/index.php/MMC1
+ *
+ */
+public final class MMC1 extends AbstractMapper {
+
+	private static final Mirroring[] MIRRORING = { Mirroring.ONE_SCREEN_LOW, Mirroring.ONE_SCREEN_HIGH,
+			Mirroring.VERTICAL, Mirroring.HORIZONTAL };
+
+	// bit 5 marker, full after 5 writes
+	private static final int SHIFT_RESET = 0x10;
+
+	private int shift = SHIFT_RESET;
+	// power-up: PRG mode 3, last bank fixed at 0xC000
+	private int control = 0x0C;
+	private int chr0;
+	private int chr1;
+	private int prgBank;
+
+	public MMC1(final Cartridge cartridge) {
+		super(cartridge);
+		update();
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		if ((value & 0x80) != 0) {
+			shift = SHIFT_RESET;
+			control |= 0x0C;
+			update();
+			return;
+		}
+		final boolean full = (shift & 0x01) != 0;
+		shift = (shift >> 1) | ((value & 0x01) << 4);
+		if (full) {
+			switch ((address >> 13) & 0x03) {
+			case 0:
+				control = shift;
+				break;
+			case 1:
+				chr0 = shift;
+				break;
+			case 2:
+				chr1 = shift;
+				break;
+			default:
+				prgBank = shift & 0x0F;
+				break;
+			}
+			shift = SHIFT_RESET;
+			update();
+		}
+	}
+
+	@Override
+	public void save(final ByteBuffer buffer) {
+		super.save(buffer);
+		buffer.put((byte) shift);
+		buffer.put((byte) control);
+		buffer.put((byte) chr0);
+		buffer.put((byte) chr1);
+		buffer.put((byte) prgBank);
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		super.restore(buffer);
+		shift = buffer.get() & 0xFF;
+		control = buffer.get() & 0xFF;
+		chr0 = buffer.get() & 0xFF;
+		chr1 = buffer.get() & 0xFF;
+		prgBank = buffer.get() & 0xFF;
+	}
+
+	private void update() {
+		setMirroring(MIRRORING[control & 0x03]);
+		switch ((control >> 2) & 0x03) {
+		case 0:
+		case 1:
+			// 32 KiB, low bit ignored
+			setPRG32(prgBank >> 1);
+			break;
+		case 2:
+			setPRG16(0, 0);
+			setPRG16(1, prgBank);
+			break;
+		default:
+			setPRG16(0, prgBank);
+			setPRG16(1, -1);
+			break;
+		}
+		if ((control & 0x10) == 0) {
+			setCHR8(chr0 >> 1);
+		} else {
+			setCHR4(0, chr0);
+			setCHR4(1, chr1);
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import java.nio.ByteBuffer;
+
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Cartridge.Mirroring;
+
+/**
+ * Mapper 4. 8 KiB PRG / 1-2 KiB CHR banks and scanline IRQ counter.
+ * https://wiki.nesdev.com/w/index.php/MMC3
+ *
+ */
+public final class MMC3 extends AbstractMapper {
+
+	// R0 - R7
+	private final int[] banks = new int[8];
+	private int bankSelect;
+
+	private int irqLatch;
+	private int irqCounter;
+	private boolean irqReload;
+	private boolean irqEnabled;
+	private boolean irq;
+
+	public MMC3(final Cartridge cartridge) {
+		super(cartridge);
+		update();
+	}
+
+	// even / odd register pairs at 0x8000, 0xA000, 0xC000 and 0xE000
+	@Override
+	public void write(final int address, final int value) {
+		final boolean odd = (address & 0x01) != 0;
+		switch ((address >> 13) & 0x03) {
+		case 0:
+			if (odd) {
+				banks[bankSelect & 0x07] = value;
+			} else {
+				bankSelect = value;
+			}
+			update();
+			break;
+		case 1:
+			// odd => PRG RAM protect, not emulated
+			if (!odd && getMirroring() != Mirroring.FOUR_SCREEN) {
+				setMirroring((value & 0x01) != 0 ? Mirroring.HORIZONTAL : Mirroring.VERTICAL);
+			}
+			break;
+		case 2:
+			if (odd) {
+				irqCounter = 0;
+				irqReload = true;
+			} else {
+				irqLatch = value;
+			}
+			break;
+		default:
+			irqEnabled = odd;
+			if (!odd) {
+				irq = false;
+			}
+			break;
+		}
+	}
+
+	@Override
+	public void save(final ByteBuffer buffer) {
+		super.save(buffer);
+		for (final int bank : banks) {
+			buffer.put((byte) bank);
+		}
+		buffer.put((byte) bankSelect);
+		buffer.put((byte) irqLatch);
+		buffer.put((byte) irqCounter);
+		buffer.put((byte) ((irqReload ? 0x01 : 0) | (irqEnabled ? 0x02 : 0) | (irq ? 0x04 : 0)));
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		super.restore(buffer);
+		for (int i = 0; i < banks.length; i++) {
+			banks[i] = buffer.get() & 0xFF;
+		}
+		bankSelect = buffer.get() & 0xFF;
+		irqLatch = buffer.get() & 0xFF;
+		irqCounter = buffer.get() & 0xFF;
+		final int flags = buffer.get();
+		irqReload = (flags & 0x01) != 0;
+		irqEnabled = (flags & 0x02) != 0;
+		irq = (flags & 0x04) != 0;
+	}
+
+	private void update() {
+		// PRG mode: 0xC000 or 0x8000 fixed to the second last bank
+		final boolean prgMode = (bankSelect & 0x40) != 0;
+		setPRG8(prgMode ? 2 : 0, banks[6]);
+		setPRG8(1, banks[7]);
+		setPRG8(prgMode ? 0 : 2, -2);
+		setPRG8(3, -1);
+
+		// CHR inversion: 2 KiB banks at 0x0000 or 0x1000
+		final int inversion = (bankSelect & 0x80) != 0 ? 4 : 0;
+		setCHR1(inversion, banks[0] & 0xFE);
+		setCHR1(inversion + 1, banks[0] | 0x01);
+		setCHR1(inversion + 2, banks[1] & 0xFE);
+		setCHR1(inversion + 3, banks[1] | 0x01);
+		for (int i = 0; i < 4; i++) {
+			setCHR1(i + 4 - inversion, banks[2 + i]);
+		}
+	}
+
+	@Override
+	public void scanline() {
+		if (irqCounter == 0 || irqReload) {
+			irqCounter = irqLatch;
+			irqReload = false;
+		} else {
+			irqCounter--;
+		}
+		if (irqCounter == 0 && irqEnabled) {
+			irq = true;
+		}
+	}
+
+	@Override
+	public boolean isIRQ() {
+		return irq;
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Cartridge.Mirroring;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.state.Stateful;
+
+/**
+ * Cartridge mapper. CPU side 0x8000 - 0xFFFF through {@link Memory}, PPU side
+ * 0x0000 - 0x1FFF through the CHR methods. Bank switches rewrite translation
+ * tables, reads are a single table lookup. Bank registers, PRG RAM and CHR
+ * RAM go to save states.
+ *
+ */
+public interface Mapper extends Memory, Stateful {
+
+	public int readCHR(int address);
+
+	public void writeCHR(int address, int value);
+
+	public Mirroring getMirroring();
+
+	/**
+	 * PRG RAM, 0x6000 - 0x7FFF.
+	 * 
+	 * @return the PRG RAM device
+	 */
+	public Memory getPRGRAM();
+
+	// scanline counter clock, MMC3
+	public default void scanline() {
+	}
+
+	public default boolean isIRQ() {
+		return false;
+	}
+
+	/**
+	 * PRG bank mapped at the CPU address, for caches keyed by code location.
+	 * 
+	 * @param address CPU address, 0x8000 - 0xFFFF
+	 * @return the bank in 8 KiB units
+	 */
+	public default int getBank(final int address) {
+		return 0;
+	}
+
+	/**
+	 * CHR bank mapped at the PPU address, for caches keyed by pattern data.
+	 * 
+	 * @param address PPU address, 0x0000 - 0x1FFF
+	 * @return the bank in 1 KiB units
+	 */
+	public default int getCHRBank(final int address) {
+		return (address >> 10) & 0x07;
+	}
+
+	/**
+	 * Map PRG RAM and PRG ROM on the CPU bus.
+	 * 
+	 * @param bus the CPU bus
+	 */
+	public default void map(final Bus bus) {
+		bus.map(Bus.Address.PRG_RAM_BEGIN.getAddress(), Bus.Address.PRG_ROM_BEGIN.getAddress() - 1, getPRGRAM());
+		bus.map(Bus.Address.PRG_ROM_BEGIN.getAddress(), Bus.Address.CARTRIDGE_END.getAddress(), this);
+	}
+
+	/**
+	 * Mapper for the cartridge iNES mapper number.
+	 * 
+	 * @param cartridge the cartridge
+	 * @return the mapper
+	 */
+	public static Mapper of(final Cartridge cartridge) {
+		switch (cartridge.getMapper()) {
+		case 0:
+			return new NROM(cartridge);
+		case 1:
+			return new MMC1(cartridge);
+		case 2:
+			return new UxROM(cartridge);
+		case 3:
+			return new CNROM(cartridge);
+		case 4:
+			return new MMC3(cartridge);
+		default:
+			throw new IllegalArgumentException("Unsupported mapper " + cartridge.getMapper());
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import com.olleb.nes.CPU6502.mem.Cartridge;
+
+/**
+ * Mapper 2. 16 KiB PRG bank switched at 0x8000, last bank fixed at 0xC000.
+ *
+ */
+public final class UxROM extends AbstractMapper {
+
+	public UxROM(final Cartridge cartridge) {
+		super(cartridge);
+		setPRG16(0, 0);
+		setPRG16(1, -1);
+		setCHR8(0);
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		setPRG16(0, value);
+	}
+
+}
@@ -0,0 +1,55 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * Periodic JFR event, totals of one addressing mode.
+ *
+ */
+@Name("com.olleb.nes.AddressingMode")
+@Label("Addressing Mode Statistics")
+@Category({ "NES", "CPU" })
+@Description("Executions, cycles and page crossings of one addressing mode")
+@Period("1 s")
+public final class AddressingModeEvent extends Event {
+
+	@Label("Profiler")
+	String profiler;
+
+	@Label("Addressing Mode")
+	String addressingMode;
+
+	@Label("Count")
+	long count;
+
+	@Label("Cycles")
+	long cycles;
+
+	@Label("Page Crossings")
+	long pageCrossings;
+
+}
@@ -0,0 +1,285 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.profile;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.olleb.nes.CPU6502.cpu.AddressingMode;
+import com.olleb.nes.CPU6502.cpu.Instruction;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Execution profile: count, cycles and page crossings per opcode. Every
+ * thread writes its own {@link Stripe}, reads merge the stripes. Per
+ * addressing mode totals are folded from the opcodes on read.
+ * 
+ * Published as an MXBean and as periodic JFR events once registered.
+ *
+ */
+public final class Profiler implements ProfilerMXBean {
+
+	/**
+	 * Counters of one thread, plain writes from the owner only.
+	 *
+	 */
+	public static final class Stripe {
+
+		private final long[] counts = new long[256];
+		private final long[] cycles = new long[256];
+		private final long[] pageCrossings = new long[256];
+
+		public void add(final int opCode, final int cycles, final boolean pageCrossed) {
+			counts[opCode]++;
+			this.cycles[opCode] += cycles;
+			if (pageCrossed) {
+				pageCrossings[opCode]++;
+			}
+		}
+
+	}
+
+	private final String name;
+	private final List<Stripe> stripes = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Stripe> stripe = ThreadLocal.withInitial(() -> {
+		final Stripe s = new Stripe();
+		stripes.add(s);
+		return s;
+	});
+	private final Runnable opCodeHook = this::emitOpCodes;
+	private final Runnable addressingModeHook = this::emitAddressingModes;
+	private ObjectName objectName;
+
+	public Profiler(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * The stripe of the calling thread. Fetch once per batch, not per
+	 * instruction.
+	 * 
+	 * @return the stripe
+	 */
+	public Stripe getStripe() {
+		return stripe.get();
+	}
+
+	private long[] merge(final int counter) {
+		final long[] r = new long[256];
+		for (final Stripe s : stripes) {
+			final long[] values = counter == 0 ? s.counts : counter == 1 ? s.cycles : s.pageCrossings;
+			for (int i = 0; i < r.length; i++) {
+				r[i] += values[i];
+			}
+		}
+		return r;
+	}
+
+	public long[] getCounts() {
+		return merge(0);
+	}
+
+	public long[] getCycleTotals() {
+		return merge(1);
+	}
+
+	public long[] getPageCrossingTotals() {
+		return merge(2);
+	}
+
+	@Override
+	public long getInstructions() {
+		long r = 0;
+		for (final long count : getCounts()) {
+			r += count;
+		}
+		return r;
+	}
+
+	@Override
+	public long getCycles() {
+		long r = 0;
+		for (final long c : getCycleTotals()) {
+			r += c;
+		}
+		return r;
+	}
+
+	@Override
+	public long getPageCrossings() {
+		long r = 0;
+		for (final long c : getPageCrossingTotals()) {
+			r += c;
+		}
+		return r;
+	}
+
+	@Override
+	public Map<String, Long> getOpCodeCounts() {
+		return byOpCode(getCounts());
+	}
+
+	@Override
+	public Map<String, Long> getOpCodeCycles() {
+		return byOpCode(getCycleTotals());
+	}
+
+	@Override
+	public Map<String, Long> getAddressingModeCounts() {
+		return byAddressingMode(getCounts());
+	}
+
+	@Override
+	public Map<String, Long> getAddressingModeCycles() {
+		return byAddressingMode(getCycleTotals());
+	}
+
+	@Override
+	public Map<String, Long> getAddressingModePageCrossings() {
+		return byAddressingMode(getPageCrossingTotals());
+	}
+
+	// "BD LDA nnnn,X" => value, executed opcodes only
+	private static Map<String, Long> byOpCode(final long[] values) {
+		final Map<String, Long> r = new TreeMap<>();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				r.put(label(i), values[i]);
+			}
+		}
+		return r;
+	}
+
+	private static Map<String, Long> byAddressingMode(final long[] values) {
+		final Map<AddressingMode, Long> modes = new EnumMap<>(AddressingMode.class);
+		for (int i = 0; i < values.length; i++) {
+			final AddressingMode mode = addressingMode(i);
+			if (values[i] != 0 && mode != null) {
+				modes.merge(mode, values[i], Long::sum);
+			}
+		}
+		final Map<String, Long> r = new TreeMap<>();
+		modes.forEach((k, v) -> r.put(k.name(), v));
+		return r;
+	}
+
+	static String label(final int opCode) {
+		final Instruction instruction = Instruction.valueOf(opCode);
+		return String.format("%02X %s", opCode, instruction == null ? "???" : instruction.getAssemblerFormat());
+	}
+
+	static AddressingMode addressingMode(final int opCode) {
+		final Instruction instruction = Instruction.valueOf(opCode);
+		return instruction == null ? null : instruction.getAddressingMode();
+	}
+
+	// stripes keep their owners, counters go back to zero
+	@Override
+	public void reset() {
+		for (final Stripe s : stripes) {
+			Arrays.fill(s.counts, 0);
+			Arrays.fill(s.cycles, 0);
+			Arrays.fill(s.pageCrossings, 0);
+		}
+	}
+
+	/**
+	 * Publish as MXBean com.olleb.nes:type=Profiler,name=... and as periodic
+	 * JFR events.
+	 */
+	public synchronized void register() {
+		if (objectName != null) {
+			return;
+		}
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.olleb.nes:type=Profiler,name=" + ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+		} catch (final JMException e) {
+			throw new IllegalStateException("MXBean registration failed", e);
+		}
+		FlightRecorder.addPeriodicEvent(OpCodeEvent.class, opCodeHook);
+		FlightRecorder.addPeriodicEvent(AddressingModeEvent.class, addressingModeHook);
+	}
+
+	public synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (final JMException e) {
+			throw new IllegalStateException("MXBean unregistration failed", e);
+		}
+		FlightRecorder.removePeriodicEvent(opCodeHook);
+		FlightRecorder.removePeriodicEvent(addressingModeHook);
+		objectName = null;
+	}
+
+	// one event per executed opcode
+	private void emitOpCodes() {
+		final long[] counts = getCounts();
+		final long[] cycles = getCycleTotals();
+		final long[] pageCrossings = getPageCrossingTotals();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			final OpCodeEvent event = new OpCodeEvent();
+			event.profiler = name;
+			event.opCode = label(i);
+			event.count = counts[i];
+			event.cycles = cycles[i];
+			event.pageCrossings = pageCrossings[i];
+			event.commit();
+		}
+	}
+
+	// one event per used addressing mode
+	private void emitAddressingModes() {
+		final Map<String, Long> counts = getAddressingModeCounts();
+		final Map<String, Long> cycles = getAddressingModeCycles();
+		final Map<String, Long> pageCrossings = getAddressingModePageCrossings();
+		for (final Map.Entry<String, Long> count : counts.entrySet()) {
+			final AddressingModeEvent event = new AddressingModeEvent();
+			event.profiler = name;
+			event.addressingMode = count.getKey();
+			event.count = count.getValue();
+			event.cycles = cycles.getOrDefault(count.getKey(), 0L);
+			event.pageCrossings = pageCrossings.getOrDefault(count.getKey(), 0L);
+			event.commit();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+}
@@ -0,0 +1,49 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.profile;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link Profiler}. Maps are keyed by "opcode format" or
+ * addressing mode name.
+ *
+ */
+public interface ProfilerMXBean {
+
+	public long getInstructions();
+
+	public long getCycles();
+
+	public long getPageCrossings();
+
+	public Map<String, Long> getOpCodeCounts();
+
+	public Map<String, Long> getOpCodeCycles();
+
+	public Map<String, Long> getAddressingModeCounts();
+
+	public Map<String, Long> getAddressingModeCycles();
+
+	public Map<String, Long> getAddressingModePageCrossings();
+
+	public void reset();
+
+}
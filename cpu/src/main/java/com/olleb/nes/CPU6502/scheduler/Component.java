@@ -0,0 +1,45 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.scheduler;
+
+/**
+ * Chip driven by the master clock (PPU, APU). Runs lazily: only when the CPU
+ * touches its registers or its deadline is reached.
+ *
+ */
+public interface Component {
+
+	/**
+	 * Run up to the CPU cycle.
+	 * 
+	 * @param cycle CPU cycle to catch up with
+	 */
+	public void catchUp(long cycle);
+
+	/**
+	 * Next CPU cycle the component must run at: NMI, IRQ, frame end.
+	 * 
+	 * @return the deadline, Long.MAX_VALUE if none
+	 */
+	public default long getDeadline() {
+		return Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.scheduler;
+
+import java.util.Arrays;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Master clock scheduler. The CPU runs in batches up to the nearest
+ * component deadline; components catch up at their deadline or when the
+ * CPU touches their registers, never in lockstep.
+ *
+ */
+public final class Scheduler {
+
+	private final CPU6502 cpu;
+	private Component[] components = new Component[0];
+
+	public Scheduler(final CPU6502 cpu) {
+		this.cpu = cpu;
+	}
+
+	public void add(final Component component) {
+		components = Arrays.copyOf(components, components.length + 1);
+		components[components.length - 1] = component;
+	}
+
+	/**
+	 * Wrap the component registers: every access catches the component up
+	 * with the CPU first. Map the result on the Bus. Accesses catch up to the
+	 * start of the current instruction.
+	 * 
+	 * @param component the component
+	 * @param registers its register window
+	 * @return catch-up register window
+	 */
+	public Memory attach(final Component component, final Memory registers) {
+		return new Memory() {
+			@Override
+			public int read(final int address) {
+				component.catchUp(cpu.getCycles());
+				return registers.read(address);
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				component.catchUp(cpu.getCycles());
+				registers.write(address, value);
+			}
+		};
+	}
+
+	/**
+	 * Run the CPU for the cycle budget, components catch up at their
+	 * deadlines and at the end of the budget.
+	 * 
+	 * @param cycleBudget CPU cycles
+	 * @return the cycles spent
+	 */
+	public long run(final long cycleBudget) {
+		final long start = cpu.getCycles();
+		final long end = start + cycleBudget;
+		long now = start;
+		while (now < end) {
+			long deadline = end;
+			for (final Component component : components) {
+				deadline = Math.min(deadline, component.getDeadline());
+			}
+			// at least one instruction, a missed deadline must not stall
+			cpu.run(Math.max(1, deadline - now));
+			now = cpu.getCycles();
+			for (final Component component : components) {
+				if (component.getDeadline() <= now) {
+					component.catchUp(now);
+				}
+			}
+		}
+		for (final Component component : components) {
+			component.catchUp(now);
+		}
+		return now - start;
+	}
+
+	public long getCycles() {
+		return cpu.getCycles();
+	}
+
+	public CPU6502 getCPU() {
+		return cpu;
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.state;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Rewind buffer on top of a {@link Memory} device. Copy on write with 256 byte
+ * pages: the first write to a page after a checkpoint saves the old page
+ * content, so every frame only costs the pages it touched. Frames are kept
+ * in a ring of page slots, the oldest ones are dropped when it is full.
+ * 
+ * Memory only, pair it with a {@link SaveState} of the CPU per frame.
+ *
+ */
+public final class RewindMemory implements Memory {
+
+	public static final int PAGE_SIZE = 0x100;
+	private static final int PAGE_SHIFT = 8;
+
+	private final Memory memory;
+	private final int mask;
+
+	// pages written since the last checkpoint
+	private final boolean[] dirty;
+
+	// page slot ring: old content and page number
+	private final byte[] slots;
+	private final int[] slotPages;
+	private int head;
+	private int used;
+
+	// frame ring: first slot and slot count of every frame, the newest one
+	// is open until the next checkpoint
+	private final int[] frameStart;
+	private final int[] frameLength;
+	private int newest;
+	private int frames = 1;
+
+	/**
+	 * @param memory   the device
+	 * @param size     device size, power of two, multiple of the page size
+	 * @param capacity page slots in the ring, at least the device pages
+	 * @param history  checkpoints kept
+	 */
+	public RewindMemory(final Memory memory, final int size, final int capacity, final int history) {
+		if (size < PAGE_SIZE || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Size must be a power of two of at least one page");
+		}
+		if (capacity < size >> PAGE_SHIFT || history < 1) {
+			throw new IllegalArgumentException("Capacity must hold a frame writing every page");
+		}
+		this.memory = memory;
+		this.mask = size - 1;
+		this.dirty = new boolean[size >> PAGE_SHIFT];
+		this.slots = new byte[capacity * PAGE_SIZE];
+		this.slotPages = new int[capacity];
+		this.frameStart = new int[history];
+		this.frameLength = new int[history];
+	}
+
+	@Override
+	public int read(final int address) {
+		return memory.read(address);
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		final int page = (address & mask) >> PAGE_SHIFT;
+		if (!dirty[page]) {
+			copy(page);
+		}
+		memory.write(address, value);
+	}
+
+	private void copy(final int page) {
+		// the open frame always fits, see the capacity check
+		while (used == slotPages.length) {
+			dropOldest();
+		}
+		final int slot = head;
+		final int base = page << PAGE_SHIFT;
+		final int offset = slot * PAGE_SIZE;
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			slots[offset + i] = (byte) memory.read(base + i);
+		}
+		slotPages[slot] = page;
+		head = (head + 1) % slotPages.length;
+		used++;
+		frameLength[newest]++;
+		dirty[page] = true;
+	}
+
+	/**
+	 * Close the current frame.
+	 */
+	public void checkpoint() {
+		if (frames == frameStart.length) {
+			dropOldest();
+		}
+		newest = (newest + 1) % frameStart.length;
+		frameStart[newest] = head;
+		frameLength[newest] = 0;
+		frames++;
+		for (int i = 0; i < dirty.length; i++) {
+			dirty[i] = false;
+		}
+	}
+
+	/**
+	 * Back to an earlier checkpoint, the frames after it are discarded.
+	 * 
+	 * @param checkpoints 1 => the last checkpoint, 2 => the one before
+	 * @return the checkpoints rewound, less than asked when the history is
+	 *         shorter
+	 */
+	public int rewind(final int checkpoints) {
+		final int n = Math.min(checkpoints, frames);
+		for (int i = 0; i < n; i++) {
+			if (i > 0) {
+				// the emptied frame goes away, the previous one is open again
+				newest = (newest + frameStart.length - 1) % frameStart.length;
+				frames--;
+			}
+			undo();
+		}
+		for (int i = 0; i < dirty.length; i++) {
+			dirty[i] = false;
+		}
+		return n;
+	}
+
+	// newest frame: old pages back, slots freed
+	private void undo() {
+		final int start = frameStart[newest];
+		final int length = frameLength[newest];
+		for (int i = 0; i < length; i++) {
+			final int slot = (start + i) % slotPages.length;
+			final int base = slotPages[slot] << PAGE_SHIFT;
+			final int offset = slot * PAGE_SIZE;
+			for (int j = 0; j < PAGE_SIZE; j++) {
+				memory.write(base + j, slots[offset + j] & 0xFF);
+			}
+		}
+		head = start;
+		used -= length;
+		frameLength[newest] = 0;
+	}
+
+	private void dropOldest() {
+		final int oldest = (newest + frameStart.length - frames + 1) % frameStart.length;
+		used -= frameLength[oldest];
+		frameLength[oldest] = 0;
+		frames--;
+	}
+
+	/**
+	 * @return checkpoints that can be rewound
+	 */
+	public int getHistory() {
+		return frames;
+	}
+
+	public Memory getMemory() {
+		return memory;
+	}
+
+}
@@ -0,0 +1,77 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.state;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Versioned save state. Header, then every component as a length prefixed
+ * section, in the order given. Restore with the same components in the same
+ * order.
+ * 
+ * <pre>
+ * magic 'NESS' | version | sections | (length | state) * sections
+ * </pre>
+ *
+ */
+public final class SaveState {
+
+	public static final int MAGIC = 0x4E455353;
+	// bump on any layout change
+	public static final int VERSION = 3;
+
+	private SaveState() {
+	}
+
+	public static void save(final ByteBuffer buffer, final Stateful... components) {
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(components.length);
+		for (final Stateful component : components) {
+			final int length = buffer.position();
+			buffer.putInt(0);
+			component.save(buffer);
+			buffer.putInt(length, buffer.position() - length - Integer.BYTES);
+		}
+	}
+
+	public static void restore(final ByteBuffer buffer, final Stateful... components) {
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a save state");
+		}
+		final int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported save state version " + version);
+		}
+		final int sections = buffer.getInt();
+		if (sections != components.length) {
+			throw new IllegalArgumentException(sections + " sections, " + components.length + " components");
+		}
+		for (final Stateful component : components) {
+			final int length = buffer.getInt();
+			final int end = buffer.position() + length;
+			component.restore(buffer);
+			if (buffer.position() != end) {
+				throw new IllegalArgumentException("Section size mismatch for " + component.getClass().getSimpleName());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.state;
+
+import java.nio.ByteBuffer;
+
+/**
+ * State saved to and restored from a save state. Plain puts and gets on the
+ * buffer, no reflection, no Java serialization.
+ *
+ */
+public interface Stateful {
+
+	/**
+	 * Write the state at the buffer position.
+	 * 
+	 * @param buffer the save state
+	 */
+	public void save(ByteBuffer buffer);
+
+	/**
+	 * Read the state back from the buffer position, same layout as
+	 * {@link #save(ByteBuffer)}.
+	 * 
+	 * @param buffer the save state
+	 */
+	public void restore(ByteBuffer buffer);
+
+}
@@ -0,0 +1,150 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.trace;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution trace ring. Preallocated off-heap, fixed 16 byte records, one
+ * producer (the CPU thread) and one consumer. The producer never waits: a
+ * full ring drops the record and counts it.
+ * 
+ * <pre>
+ * 0: cycle (48 bits) | PC &lt;&lt; 48
+ * 8: opcode | operand &lt;&lt; 8 | A &lt;&lt; 24 | X &lt;&lt; 32 | Y &lt;&lt; 40 | SP &lt;&lt; 48 | P &lt;&lt; 56
+ * </pre>
+ *
+ */
+public final class TraceBuffer {
+
+	public static final int RECORD_SIZE = 16;
+
+	private static final long CYCLE_MASK = (1L << 48) - 1;
+
+	private final ByteBuffer ring;
+	private final int mask;
+
+	// records written / read, published with lazySet
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	// producer side copy of tail, refreshed only when the ring looks full
+	private long tailCache;
+	private long dropped;
+
+	/**
+	 * @param capacity records, power of two
+	 */
+	public TraceBuffer(final int capacity) {
+		if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.ring = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Record an instruction about to execute. Producer thread only.
+	 */
+	public void record(final int pc, final int opCode, final int operand, final int a, final int x, final int y,
+			final int sp, final int p, final long cycle) {
+		final long h = head.get();
+		if (h - tailCache > mask) {
+			tailCache = tail.get();
+			if (h - tailCache > mask) {
+				dropped++;
+				return;
+			}
+		}
+		final int offset = (int) (h & mask) * RECORD_SIZE;
+		ring.putLong(offset, (cycle & CYCLE_MASK) | ((long) (pc & 0xFFFF) << 48));
+		ring.putLong(offset + 8, (opCode & 0xFF) | ((long) (operand & 0xFFFF) << 8) | ((long) (a & 0xFF) << 24)
+				| ((long) (x & 0xFF) << 32) | ((long) (y & 0xFF) << 40) | ((long) (sp & 0xFF) << 48)
+				| ((long) (p & 0xFF) << 56));
+		head.lazySet(h + 1);
+	}
+
+	/**
+	 * Next record. Consumer thread only.
+	 * 
+	 * @param record the two record words
+	 * @return false when empty
+	 */
+	public boolean poll(final long[] record) {
+		final long t = tail.get();
+		if (t == head.get()) {
+			return false;
+		}
+		final int offset = (int) (t & mask) * RECORD_SIZE;
+		record[0] = ring.getLong(offset);
+		record[1] = ring.getLong(offset + 8);
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	public static int getPC(final long[] record) {
+		return (int) (record[0] >>> 48);
+	}
+
+	public static long getCycle(final long[] record) {
+		return record[0] & CYCLE_MASK;
+	}
+
+	public static int getOpCode(final long[] record) {
+		return (int) record[1] & 0xFF;
+	}
+
+	public static int getOperand(final long[] record) {
+		return (int) (record[1] >>> 8) & 0xFFFF;
+	}
+
+	public static int getA(final long[] record) {
+		return (int) (record[1] >>> 24) & 0xFF;
+	}
+
+	public static int getX(final long[] record) {
+		return (int) (record[1] >>> 32) & 0xFF;
+	}
+
+	public static int getY(final long[] record) {
+		return (int) (record[1] >>> 40) & 0xFF;
+	}
+
+	public static int getSP(final long[] record) {
+		return (int) (record[1] >>> 48) & 0xFF;
+	}
+
+	public static int getP(final long[] record) {
+		return (int) (record[1] >>> 56) & 0xFF;
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return records lost on a full ring, read from the producer thread
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+}
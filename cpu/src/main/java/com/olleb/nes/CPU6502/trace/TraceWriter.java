@@ -0,0 +1,137 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+import com.olleb.nes.CPU6502.cpu.OpCodes;
+
+/**
+ * Trace consumer thread. Drains a {@link TraceBuffer} into nestest style
+ * lines:
+ * 
+ * <pre>
+ * C000  4C F5 C5  JMP $C5F5                       A:00 X:00 Y:00 P:24 SP:FD CYC:7
+ * </pre>
+ *
+ */
+public final class TraceWriter implements AutoCloseable {
+
+	// idle poll interval
+	private static final long PARK_NANOS = 100_000;
+
+	private final TraceBuffer buffer;
+	private final Writer out;
+	private final Thread thread;
+	private volatile boolean running = true;
+	private volatile IOException error;
+
+	public TraceWriter(final TraceBuffer buffer, final Writer out) {
+		this.buffer = buffer;
+		this.out = out;
+		this.thread = new Thread(this::drain, "trace-writer");
+		this.thread.setDaemon(true);
+	}
+
+	public TraceWriter start() {
+		thread.start();
+		return this;
+	}
+
+	private void drain() {
+		final long[] record = new long[2];
+		final StringBuilder sb = new StringBuilder(96);
+		try {
+			while (true) {
+				// read the flag first: records before close are all drained
+				final boolean stop = !running;
+				if (buffer.poll(record)) {
+					sb.setLength(0);
+					out.append(format(sb, record)).append('\n');
+				} else if (stop) {
+					break;
+				} else {
+					out.flush();
+					LockSupport.parkNanos(PARK_NANOS);
+				}
+			}
+			out.flush();
+		} catch (final IOException e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * Stop after the records written so far.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		running = false;
+		thread.join();
+		if (error != null) {
+			throw new UncheckedIOException(error);
+		}
+	}
+
+	/**
+	 * One nestest line.
+	 * 
+	 * @param sb     line buffer
+	 * @param record the two record words
+	 * @return the line buffer
+	 */
+	public static StringBuilder format(final StringBuilder sb, final long[] record) {
+		final int opCode = TraceBuffer.getOpCode(record);
+		final int operand = TraceBuffer.getOperand(record);
+		final int size = OpCodes.getLength(opCode);
+		final int pc = TraceBuffer.getPC(record);
+
+		sb.append(String.format("%04X  %02X", pc, opCode));
+		for (int i = 1; i < 3; i++) {
+			sb.append(i < size ? String.format(" %02X", (operand >> ((i - 1) * 8)) & 0xFF) : "   ");
+		}
+		sb.append("  ");
+		final int column = sb.length();
+		// branches show the target
+		sb.append(disassemble(OpCodes.getAssemblerFormat(opCode),
+				OpCodes.getMode(opCode) == OpCodes.REL ? (pc + 2 + (byte) operand) & 0xFFFF : operand));
+		while (sb.length() < column + 32) {
+			sb.append(' ');
+		}
+		return sb.append(String.format("A:%02X X:%02X Y:%02X P:%02X SP:%02X CYC:%d", TraceBuffer.getA(record),
+				TraceBuffer.getX(record), TraceBuffer.getY(record), TraceBuffer.getP(record), TraceBuffer.getSP(record),
+				TraceBuffer.getCycle(record)));
+	}
+
+	// "LDA nnnn,X" => "LDA $0200,X", "BNE rr" => "BNE $C72A"
+	static String disassemble(final String format, final int operand) {
+		if (format.contains("rr")) {
+			return format.replace("rr", String.format("$%04X", operand));
+		}
+		if (format.contains("nnnn")) {
+			return format.replace("nnnn", String.format("$%04X", operand));
+		}
+		return format.replace("nn", String.format("$%02X", operand & 0xFF));
+	}
+
+}
@@ -18,6 +18,14 @@
  */
 
 module cpu {
+	requires java.management;
+	requires jdk.jfr;
+
 	exports com.olleb.nes.CPU6502.cpu;
 	exports com.olleb.nes.CPU6502.mem;
+	exports com.olleb.nes.CPU6502.mem.mapper;
+	exports com.olleb.nes.CPU6502.scheduler;
+	exports com.olleb.nes.CPU6502.profile;
+	exports com.olleb.nes.CPU6502.state;
+	exports com.olleb.nes.CPU6502.trace;
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Allocation profile of the fetch - decode - execute loop. Executed
+ * instructions must not allocate.
+ *
+ */
+@DisplayName("Allocation Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class AllocationTest extends InstructionsTestBase {
+
+	private static final int INSTRUCTIONS = 1_000_000;
+
+	// cycles per run call, one frame
+	private static final long BATCH = 29_781;
+
+	private final int ep = 0x0200;
+
+	// LDX #$20, LDA $00F0,X (page crossed), ASL A, TAX, LDY $10, STA $10,
+	// ROL $10, INC $10, PHA, TSX, JMP $0200
+	private final int[] program = { 0xA2, 0x20, 0xBD, 0xF0, 0x00, 0x0A, 0xAA, 0xA4, 0x10, 0x85, 0x10, 0x26, 0x10,
+			0xE6, 0x10, 0x48, 0xBA, 0x4C, 0x00, 0x02 };
+
+	private final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private long allocatedBytes() {
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// same entry point as the emulator loop
+	private static void run(final CPU6502 cpu) {
+		final long instructions = cpu.getInstructions();
+		while (cpu.getInstructions() - instructions < INSTRUCTIONS) {
+			cpu.run(BATCH);
+		}
+	}
+
+	@Test
+	@DisplayName("1M instructions allocate zero bytes")
+	void testZeroAllocation() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			reset();
+			for (int i = 0; i < program.length; i++) {
+				ram.write(ep + i, program[i]);
+			}
+			ram.write(0x0110, 0xC3);
+			ram.write(0x10, 0x9F);
+			registers.setPC(ep);
+			final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+
+			// link lambdas and method references, compile the blocks and let
+			// the JIT settle, deoptimization materializes scalar replaced
+			// objects
+			run(cpu);
+
+			// measurement overhead
+			final long overhead = -allocatedBytes() + allocatedBytes();
+
+			final long before = allocatedBytes();
+			run(cpu);
+			final long allocated = allocatedBytes() - before - overhead;
+
+			assertEquals(0, allocated, dispatch.toString());
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+
+/**
+ * 6502 CPU fetch - decode - execute loop test.
+ *
+ */
+@DisplayName("CPU6502 Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class CPU6502Test extends InstructionsTestBase {
+
+	private final int ep = 0x0200;
+
+	// LDA #$05, STA $10, INX, INC $10, JMP $0200 => 15 cycles, 5 instructions
+	private final int[] program = { 0xA9, 0x05, 0x85, 0x10, 0xE8, 0xE6, 0x10, 0x4C, 0x00, 0x02 };
+
+	private void load() {
+		for (int i = 0; i < program.length; i++) {
+			ram.write(ep + i, program[i]);
+		}
+		registers.setPC(ep);
+	}
+
+	@Test
+	@DisplayName("Run loop")
+	void testRun() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			reset();
+			load();
+			final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+
+			assertEquals(150, cpu.run(150));
+			assertEquals(50, cpu.getInstructions());
+			assertEquals(ep, registers.getPC());
+			assertEquals(10, registers.getX());
+			assertEquals(6, ram.read(0x10));
+		}
+	}
+
+	@Test
+	@DisplayName("Step")
+	void testStep() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			reset();
+			load();
+			final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+
+			assertEquals(2, cpu.step());
+			assertEquals(ep + 2, registers.getPC());
+			assertEquals(3, cpu.step());
+			assertEquals(5, cpu.getCycles());
+			assertEquals(2, cpu.getInstructions());
+		}
+	}
+
+	@Test
+	@DisplayName("Reset")
+	void testReset() {
+		// RAM mirrors the vectors: 0xFFFC => 0x07FC
+		ram.write(0xFFFC, 0x34);
+		ram.write(0xFFFD, 0x12);
+		final CPU6502 cpu = new CPU6502(registers, ram, Dispatch.TABLE);
+		cpu.reset();
+
+		assertEquals(0x1234, registers.getPC());
+		assertEquals(0xFD, registers.getSP());
+		assertTrue(registers.isI());
+	}
+
+}
@@ -0,0 +1,144 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+/**
+ * 6502 branches, calls, interrupts and flag instructions. No CPU involved: PC
+ * is left on the last byte of the instruction.
+ *
+ */
+@DisplayName("Control Instructions Test. No CPU.")
+@TestInstance(Lifecycle.PER_CLASS)
+class ControlInstructionsNoCPUTest extends InstructionsTestBase {
+
+	private int exec(final int pc, final int... program) {
+		for (int i = 0; i < program.length; i++) {
+			ram.write(pc + i, program[i]);
+		}
+		registers.setPC(pc);
+		return Instruction.valueOf(program[0]).exec(registers, ram);
+	}
+
+	@Test
+	@DisplayName("Branch - BNE D0")
+	void testBranch() {
+		// not taken
+		registers.setZ(true);
+		assertEquals(2, exec(0x0300, 0xD0, 0x10));
+		assertEquals(0x0301, registers.getPC());
+
+		// taken, same page: next instruction 0x0302 + 0x10
+		registers.setZ(false);
+		assertEquals(3, exec(0x0300, 0xD0, 0x10));
+		assertEquals(0x0312 - 1, registers.getPC());
+
+		// taken backwards into the previous page
+		assertEquals(4, exec(0x0300, 0xD0, 0xFC));
+		assertEquals(0x02FE - 1, registers.getPC());
+	}
+
+	@Test
+	@DisplayName("JSR / RTS - 20/60")
+	void testSubroutine() {
+		registers.setSP(0xFD);
+		final int sp = registers.getSP();
+		assertEquals(6, exec(0x0300, 0x20, 0x34, 0x02));
+		assertEquals(0x0234 - 1, registers.getPC());
+		// last byte of JSR
+		assertEquals(0x03, ram.read(0x0100 + sp));
+		assertEquals(0x02, ram.read(0x0100 + sp - 1));
+
+		assertEquals(6, exec(0x0234, 0x60));
+		assertEquals(sp, registers.getSP());
+		// the fetch loop steps onto 0x0303
+		assertEquals(0x0302, registers.getPC());
+	}
+
+	@Test
+	@DisplayName("BRK / RTI - 00/40")
+	void testInterrupt() {
+		// RAM mirrors the vector: 0xFFFE => 0x07FE
+		ram.write(0xFFFE, 0x00);
+		ram.write(0xFFFF, 0x04);
+		registers.setProcessorStatus(Registers.C);
+		registers.setSP(0xFD);
+		final int sp = registers.getSP();
+
+		assertEquals(7, exec(0x0300, 0x00));
+		assertEquals(0x0400 - 1, registers.getPC());
+		assertTrue(registers.isI());
+		// return address skips the padding byte, B set in the pushed P
+		assertEquals(0x03, ram.read(0x0100 + sp));
+		assertEquals(0x02, ram.read(0x0100 + sp - 1));
+		assertEquals(Registers.C | Registers.B | Registers.U, ram.read(0x0100 + sp - 2));
+
+		assertEquals(6, exec(0x0400, 0x40));
+		assertEquals(0x0302 - 1, registers.getPC());
+		assertEquals(sp, registers.getSP());
+		assertFalse(registers.isI());
+		assertTrue(registers.isC());
+	}
+
+	@Test
+	@DisplayName("Flags - 18/38/58/78/B8/D8/F8")
+	void testFlags() {
+		exec(0x0300, 0x38);
+		exec(0x0300, 0x78);
+		exec(0x0300, 0xF8);
+		assertEquals(Registers.C | Registers.I | Registers.D | Registers.U, registers.getProcessorStatus());
+
+		registers.setV(true);
+		exec(0x0300, 0x18);
+		exec(0x0300, 0x58);
+		exec(0x0300, 0xD8);
+		assertEquals(2, exec(0x0300, 0xB8));
+		assertEquals(Registers.U, registers.getProcessorStatus());
+	}
+
+	@Test
+	@DisplayName("JMP indirect page wrap - 6C")
+	void testIndirect() {
+		ram.write(0x02FF, 0x34);
+		ram.write(0x0200, 0x12);
+		ram.write(0x0300, 0x56);
+		exec(0x0400, 0x6C, 0xFF, 0x02);
+		assertEquals(0x1234 - 1, registers.getPC());
+	}
+
+	@Test
+	@DisplayName("Zero page X wrap - B5")
+	void testZeroPageWrap() {
+		registers.setX(0x20);
+		ram.write(0x0010, 0x42);
+		ram.write(0x0110, 0x24);
+		exec(0x0300, 0xB5, 0xF0);
+		assertEquals(0x42, registers.getA());
+	}
+
+}
@@ -0,0 +1,497 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * Differential fuzzing. Random registers, memory and opcode through the
+ * strategy table (reference) and every optimized path: switch dispatch,
+ * compiled block, predecode cache cold and warm. Random blocks of up to
+ * {@link #BLOCK} instructions through the compiler, a device in the I/O range
+ * lowering the limit at its first access. State, cycles, memory writes and
+ * device accesses must match. Cases run in parallel on all cores.
+ * 
+ * Known results, not derived from the handlers, for ADC / SBC carry and
+ * overflow, BIT and page crossing cycles on every path.
+ *
+ */
+@DisplayName("Differential fuzz test")
+class DifferentialFuzzTest {
+
+	private static final long CASES = Long.getLong("fuzz.cases", 500_000L);
+	// one class per block, -Dfuzz.blocks=N to scale
+	private static final long BLOCKS = Long.getLong("fuzz.blocks", 20_000L);
+	private static final int[] OPCODES = Arrays.stream(Instruction.values()).mapToInt(Instruction::getOpCode)
+			.toArray();
+	// instructions per random block
+	private static final int BLOCK = 12;
+	// as the recompiler, code is never fetched from here
+	private static final int IO_BEGIN = 0x2000;
+	private static final int IO_END = 0x5FFF;
+
+	/**
+	 * Memory of a case: every byte derived from the seed but the code, writes
+	 * journaled. Nothing to clear between cases. In block cases the I/O range
+	 * is a device logging the cycle of every access.
+	 *
+	 */
+	private static final class FuzzMemory implements Memory {
+
+		private final Context context;
+		private final int[] addresses = new int[64];
+		private final int[] values = new int[64];
+		private final StringBuilder accesses = new StringBuilder();
+		private int writes;
+		private long seed;
+		private int pc;
+		private int[] code;
+		private boolean device;
+
+		FuzzMemory(final Context context) {
+			this.context = context;
+		}
+
+		void reset(final long seed, final int pc, final int[] code, final boolean device) {
+			this.seed = seed;
+			this.pc = pc;
+			this.code = code;
+			this.device = device;
+			writes = 0;
+			accesses.setLength(0);
+		}
+
+		@Override
+		public int read(final int address) {
+			final int a = address & 0xFFFF;
+			access('R', a, 0);
+			for (int i = writes - 1; i >= 0; i--) {
+				if (addresses[i] == a) {
+					return values[i];
+				}
+			}
+			if (a >= pc && a < pc + code.length) {
+				return code[a - pc];
+			}
+			// splitmix64 finalizer
+			long z = seed + a * 0x9E3779B97F4A7C15L;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return (int) (z ^ (z >>> 31)) & 0xFF;
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			access('W', address & 0xFFFF, value & 0xFF);
+			addresses[writes] = address & 0xFFFF;
+			values[writes++] = value & 0xFF;
+		}
+
+		// the device sees the cycle, an access may post an NMI
+		private void access(final char type, final int address, final int value) {
+			if (device && address >= IO_BEGIN && address <= IO_END) {
+				accesses.append(String.format(" %c%04X=%02X@%d", type, address, value, context.cycles));
+				if (context.nmi) {
+					context.limit = Math.min(context.limit, context.cycles);
+				}
+			}
+		}
+
+		String journal() {
+			final StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < writes; i++) {
+				sb.append(String.format(" %04X=%02X", addresses[i], values[i]));
+			}
+			return sb.append(accesses).toString();
+		}
+
+	}
+
+	// per thread: registers, memory, compiler and predecoder reused across
+	// cases
+	private static final class Context {
+		final Registers r = new Registers();
+		final FuzzMemory m = new FuzzMemory(this);
+		final Predecoder predecoder = new Predecoder(m);
+		int[] opCodes;
+		int pc;
+		// as CPU6502: cycles of the batch, its limit lowered by the device
+		int cycles;
+		int limit;
+		boolean nmi;
+		final BlockCompiler compiler = new BlockCompiler(c -> {
+			cycles += c;
+			return cycles < limit;
+		});
+
+		// random state, one opcode at a random PC
+		void init(final long seed) {
+			final SplittableRandom random = new SplittableRandom(seed);
+			opCodes = new int[] { OPCODES[random.nextInt(OPCODES.length)] };
+			pc = random.nextInt(0x10000);
+			// operand bytes and the rest stay random
+			m.reset(seed, pc, opCodes, false);
+			registers(random);
+		}
+
+		// random state, a block of random opcodes and operands: block ends
+		// only last, code out of the I/O range
+		void block(final long seed) {
+			final SplittableRandom random = new SplittableRandom(seed);
+			final int n = 1 + random.nextInt(BLOCK);
+			opCodes = new int[n];
+			int length = 0;
+			for (int i = 0; i < n; i++) {
+				do {
+					opCodes[i] = OPCODES[random.nextInt(OPCODES.length)];
+				} while (i < n - 1 && Recompiler.isBlockEnd(opCodes[i]));
+				length += OpCodes.LENGTH[opCodes[i]];
+			}
+			final int[] code = new int[length];
+			for (int i = 0, a = 0; i < n; i++) {
+				code[a++] = opCodes[i];
+				for (int k = 1; k < OpCodes.LENGTH[opCodes[i]]; k++) {
+					code[a++] = random.nextInt(256);
+				}
+			}
+			do {
+				pc = random.nextInt(0x10000 - length);
+			} while (pc + length > IO_BEGIN && pc <= IO_END);
+			nmi = random.nextBoolean();
+			m.reset(seed, pc, code, true);
+			registers(random);
+		}
+
+		private void registers(final SplittableRandom random) {
+			r.setPC(pc);
+			r.setA(random.nextInt(256));
+			r.setX(random.nextInt(256));
+			r.setY(random.nextInt(256));
+			r.setSP(random.nextInt(256));
+			r.setProcessorStatus(random.nextInt(256));
+			cycles = 0;
+			limit = Integer.MAX_VALUE;
+		}
+
+		String state(final int cycles) {
+			return String.format("PC:%04X A:%02X X:%02X Y:%02X SP:%02X P:%02X CYC:%d%s", r.getPC() & 0xFFFF, r.getA(),
+					r.getX(), r.getY(), r.getSP(), r.getProcessorStatus(), cycles, m.journal());
+		}
+	}
+
+	private static final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+	private static String fuzz(final long seed) {
+		final Context c = contexts.get();
+
+		c.init(seed);
+		final int opCode = c.opCodes[0];
+		final int cycles = Instruction.valueOf(opCode).exec(c.r, c.m);
+		c.r.incrementPC();
+		final String reference = c.state(cycles);
+
+		c.init(seed);
+		final int switched = Instruction.exec(opCode, c.r, c.m);
+		c.r.incrementPC();
+		final String switchState = c.state(switched);
+
+		c.init(seed);
+		c.compiler.compile(c.opCodes).applyAsInt(c.r, c.m);
+		final String compiled = c.state(c.cycles);
+
+		// fetched, then served from the cache
+		c.init(seed);
+		c.predecoder.flush();
+		final int predecoded = Instruction.exec(c.predecoder.decode(c.pc), c.r, c.predecoder.getMemory());
+		c.r.incrementPC();
+		final String predecodeState = c.state(predecoded);
+
+		c.init(seed);
+		final int cached = Instruction.exec(c.predecoder.decode(c.pc), c.r, c.predecoder.getMemory());
+		c.r.incrementPC();
+		final String cachedState = c.state(cached);
+
+		if (!reference.equals(switchState) || !reference.equals(compiled) || !reference.equals(predecodeState)
+				|| !reference.equals(cachedState)) {
+			return String.format(
+					"seed %d opcode %02X%n  table     %s%n  switch    %s%n  compiled  %s%n  predecode %s%n  cached    %s",
+					seed, opCode, reference, switchState, compiled, predecodeState, cachedState);
+		}
+		return null;
+	}
+
+	// the interpreter stops at the limit, checked after every instruction
+	private static String fuzzBlock(final long seed) {
+		final Context c = contexts.get();
+
+		c.block(seed);
+		int executed = 0;
+		for (final int opCode : c.opCodes) {
+			c.cycles += Instruction.valueOf(opCode).exec(c.r, c.m);
+			c.r.incrementPC();
+			executed++;
+			if (c.cycles >= c.limit) {
+				break;
+			}
+		}
+		final String reference = c.state(c.cycles) + " n:" + executed;
+
+		c.block(seed);
+		if (c.compiler.isFull()) {
+			c.compiler.reset();
+		}
+		final int n = c.compiler.compile(c.opCodes).applyAsInt(c.r, c.m);
+		final String compiled = c.state(c.cycles) + " n:" + n;
+
+		if (!reference.equals(compiled)) {
+			return String.format("seed %d block %s%n  table     %s%n  compiled  %s", seed, format(c.opCodes),
+					reference, compiled);
+		}
+		return null;
+	}
+
+	private static String format(final int[] opCodes) {
+		final StringBuilder sb = new StringBuilder();
+		for (final int opCode : opCodes) {
+			sb.append(String.format("%02X ", opCode));
+		}
+		return sb.toString().trim();
+	}
+
+	private static void run(final long cases, final LongFunction<String> fuzz) {
+		final Queue<String> failures = new ConcurrentLinkedQueue<>();
+		LongStream.range(0, cases).parallel().forEach(seed -> {
+			final String failure = fuzz.apply(seed);
+			if (failure != null && failures.size() < 10) {
+				failures.add(failure);
+			}
+		});
+		assertTrue(failures.isEmpty(), () -> String.join(System.lineSeparator(), failures));
+	}
+
+	@Test
+	@DisplayName("Optimized paths match the strategy table")
+	void testDifferential() {
+		run(CASES, DifferentialFuzzTest::fuzz);
+	}
+
+	@Test
+	@DisplayName("Compiled blocks match the strategy table, stopped early or not")
+	void testBlocks() {
+		run(BLOCKS, DifferentialFuzzTest::fuzzBlock);
+	}
+
+	/**
+	 * Flat 64 KiB memory.
+	 *
+	 */
+	private static final class FlatMemory implements Memory {
+
+		private final int[] bytes = new int[0x10000];
+
+		@Override
+		public int read(final int address) {
+			return bytes[address & 0xFFFF];
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			bytes[address & 0xFFFF] = value & 0xFF;
+		}
+
+	}
+
+	private static final int EP = 0x02F0;
+
+	// program at EP, A:X:Y and P in => A, NVZC and cycles out per path
+	private static String[] execute(final int[] program, final int a, final int x, final int y, final int p,
+			final int... memory) {
+		final String[] states = new String[4];
+		final int[] opCodes = opCodes(program);
+		for (int path = 0; path < states.length; path++) {
+			final FlatMemory m = new FlatMemory();
+			for (int i = 0; i < memory.length; i += 2) {
+				m.write(memory[i], memory[i + 1]);
+			}
+			for (int i = 0; i < program.length; i++) {
+				m.write(EP + i, program[i]);
+			}
+			final Registers r = new Registers();
+			r.setPC(EP);
+			r.setA(a);
+			r.setX(x);
+			r.setY(y);
+			r.setSP(0xFF);
+			r.setProcessorStatus(p);
+			final int[] cycles = new int[1];
+			final Predecoder predecoder = new Predecoder(m);
+			for (final int opCode : opCodes) {
+				switch (path) {
+				case 0:
+					cycles[0] += Instruction.valueOf(opCode).exec(r, m);
+					break;
+				case 1:
+					cycles[0] += Instruction.exec(opCode, r, m);
+					break;
+				case 3:
+					cycles[0] += Instruction.exec(predecoder.decode(r.getPC() & 0xFFFF), r, predecoder.getMemory());
+					break;
+				default:
+					continue;
+				}
+				r.incrementPC();
+			}
+			if (path == 2) {
+				new BlockCompiler(c -> {
+					cycles[0] += c;
+					return true;
+				}).compile(opCodes).applyAsInt(r, m);
+			}
+			final int flags = Registers.N | Registers.V | Registers.Z | Registers.C;
+			states[path] = String.format("A:%02X P:%02X CYC:%d", r.getA(), r.getProcessorStatus() & flags,
+					cycles[0]);
+		}
+		return states;
+	}
+
+	private static int[] opCodes(final int[] program) {
+		int n = 0;
+		for (int i = 0; i < program.length; i += OpCodes.LENGTH[program[i]]) {
+			n++;
+		}
+		final int[] opCodes = new int[n];
+		for (int i = 0, k = 0; i < program.length; i += OpCodes.LENGTH[program[i]]) {
+			opCodes[k++] = program[i];
+		}
+		return opCodes;
+	}
+
+	private static void assertKnown(final String expected, final String[] states, final String message) {
+		final String[] paths = { "table", "switch", "compiled", "predecode" };
+		for (int i = 0; i < states.length; i++) {
+			assertEquals(expected, states[i], message + " " + paths[i]);
+		}
+	}
+
+	private static String flags(final boolean n, final boolean v, final boolean z, final boolean c) {
+		return String.format("%02X",
+				(n ? Registers.N : 0) | (v ? Registers.V : 0) | (z ? Registers.Z : 0) | (c ? Registers.C : 0));
+	}
+
+	@Test
+	@DisplayName("ADC and SBC carry and overflow")
+	void testArithmetic() {
+		// A, M, C in => A, N, V, Z, C out. Binary, D clear
+		final int[][] adc = { { 0x50, 0x10, 0, 0x60, 0, 0, 0, 0 }, { 0x50, 0x50, 0, 0xA0, 1, 1, 0, 0 },
+				{ 0x50, 0x90, 0, 0xE0, 1, 0, 0, 0 }, { 0x50, 0xD0, 0, 0x20, 0, 0, 0, 1 },
+				{ 0xD0, 0x10, 0, 0xE0, 1, 0, 0, 0 }, { 0xD0, 0x50, 0, 0x20, 0, 0, 0, 1 },
+				{ 0xD0, 0x90, 0, 0x60, 0, 1, 0, 1 }, { 0xD0, 0xD0, 0, 0xA0, 1, 0, 0, 1 },
+				{ 0xFF, 0x00, 1, 0x00, 0, 0, 1, 1 }, { 0x7F, 0x00, 1, 0x80, 1, 1, 0, 0 },
+				{ 0x80, 0xFF, 0, 0x7F, 0, 1, 0, 1 } };
+		// C set: no borrow
+		final int[][] sbc = { { 0x50, 0xF0, 1, 0x60, 0, 0, 0, 0 }, { 0x50, 0xB0, 1, 0xA0, 1, 1, 0, 0 },
+				{ 0x50, 0x70, 1, 0xE0, 1, 0, 0, 0 }, { 0x50, 0x30, 1, 0x20, 0, 0, 0, 1 },
+				{ 0xD0, 0xF0, 1, 0xE0, 1, 0, 0, 0 }, { 0xD0, 0xB0, 1, 0x20, 0, 0, 0, 1 },
+				{ 0xD0, 0x70, 1, 0x60, 0, 1, 0, 1 }, { 0xD0, 0x30, 1, 0xA0, 1, 0, 0, 1 },
+				{ 0x00, 0x01, 1, 0xFF, 1, 0, 0, 0 }, { 0x80, 0x01, 1, 0x7F, 0, 1, 0, 1 },
+				{ 0x05, 0x03, 0, 0x01, 0, 0, 0, 1 }, { 0x05, 0x05, 1, 0x00, 0, 0, 1, 1 } };
+		for (final int op : new int[] { 0x69, 0xE9 }) {
+			for (final int[] t : op == 0x69 ? adc : sbc) {
+				// CLC / SEC, LDA #A, ADC / SBC #M
+				final int[] program = { t[2] != 0 ? 0x38 : 0x18, 0xA9, t[0], op, t[1] };
+				final String expected = String.format("A:%02X P:%s CYC:6", t[3],
+						flags(t[4] != 0, t[5] != 0, t[6] != 0, t[7] != 0));
+				assertKnown(expected, execute(program, 0, 0, 0, Registers.V | Registers.D),
+						String.format("%02X %02X %02X C%d", op, t[0], t[1], t[2]));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("BIT flags")
+	void testBit() {
+		// A, M => N, V, Z. C kept
+		final int[][] bit = { { 0x0F, 0xC0, 1, 1, 1 }, { 0xFF, 0x40, 0, 1, 0 }, { 0x01, 0x81, 1, 0, 0 },
+				{ 0x80, 0x3F, 0, 0, 1 } };
+		for (final int[] t : bit) {
+			// BIT $10, BIT $1000
+			for (final int[] program : new int[][] { { 0x24, 0x10 }, { 0x2C, 0x00, 0x10 } }) {
+				final String expected = String.format("A:%02X P:%s CYC:%d", t[0],
+						flags(t[2] != 0, t[3] != 0, t[4] != 0, true), program.length + 1);
+				assertKnown(expected, execute(program, t[0], 0, 0, Registers.C, 0x10, t[1], 0x1000, t[1]),
+						String.format("BIT %02X %02X", t[0], t[1]));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Page crossing cycles")
+	void testPageCross() {
+		// $10F0 + X / Y: +1 on reads crossing into $11xx, stores always
+		// pay it
+		final int[][] cases = {
+				// LDA $10F0,X
+				{ 0x20, 0, 5, 0xBD, 0xF0, 0x10 }, { 0x0F, 0, 4, 0xBD, 0xF0, 0x10 },
+				// LDA $10F0,Y
+				{ 0, 0x10, 5, 0xB9, 0xF0, 0x10 }, { 0, 0x0F, 4, 0xB9, 0xF0, 0x10 },
+				// LDA ($80),Y => $10F0
+				{ 0, 0x10, 6, 0xB1, 0x80 }, { 0, 0x0F, 5, 0xB1, 0x80 },
+				// STA $10F0,X
+				{ 0x20, 0, 5, 0x9D, 0xF0, 0x10 }, { 0x0F, 0, 5, 0x9D, 0xF0, 0x10 },
+				// LDA $10F0,X ; STA $10F0,X ; LDX $10F0,Y
+				{ 0x20, 0x20, 15, 0xBD, 0xF0, 0x10, 0x9D, 0xF0, 0x10, 0xBE, 0xF0, 0x10 } };
+		for (final int[] t : cases) {
+			final int[] program = Arrays.copyOfRange(t, 3, t.length);
+			final String[] states = execute(program, 0, t[0], t[1], 0, 0x80, 0xF0, 0x81, 0x10);
+			for (final String state : states) {
+				assertTrue(state.endsWith("CYC:" + t[2]), format(program) + " " + state);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Branch cycles")
+	void testBranch() {
+		// BNE at EP = $02F0, next instruction at $02F2: not taken 2, same
+		// page 3, crossing into $03xx 4
+		final int[][] cases = { { 0x02, Registers.Z, 2 }, { 0x02, 0, 3 }, { 0x20, 0, 4 }, { 0x80, 0, 3 },
+				{ 0xF0, 0, 3 } };
+		for (final int[] t : cases) {
+			final String[] states = execute(new int[] { 0xD0, t[0] }, 0, 0, 0, t[1]);
+			for (final String state : states) {
+				assertTrue(state.endsWith("CYC:" + t[2]), String.format("BNE %02X %s", t[0], state));
+			}
+		}
+	}
+
+}
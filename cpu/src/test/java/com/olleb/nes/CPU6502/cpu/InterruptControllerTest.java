@@ -0,0 +1,137 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * NMI / IRQ / RESET through the interrupt controller, every dispatch mode.
+ *
+ */
+@DisplayName("Interrupt controller Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class InterruptControllerTest extends InstructionsTestBase {
+
+	private final int ep = 0x0200;
+	private final int nmi = 0x0300;
+	private final int irq = 0x0380;
+
+	private void load(final int address, final int... program) {
+		load(ram, address, program);
+	}
+
+	// code caches see the writes through the CPU memory
+	private static void load(final Memory memory, final int address, final int... program) {
+		for (int i = 0; i < program.length; i++) {
+			memory.write(address + i, program[i]);
+		}
+	}
+
+	// RAM mirrors the vectors: 0xFFFA => 0x07FA
+	private CPU6502 cpu(final Dispatch dispatch) {
+		reset();
+		ram.write(0xFFFA, nmi & 0xFF);
+		ram.write(0xFFFB, nmi >> 8);
+		ram.write(0xFFFC, ep & 0xFF);
+		ram.write(0xFFFD, ep >> 8);
+		ram.write(0xFFFE, irq & 0xFF);
+		ram.write(0xFFFF, irq >> 8);
+		// INY, RTI
+		load(nmi, 0xC8, 0x40);
+		// INC $12 (acknowledge), RTI
+		load(irq, 0xE6, 0x12, 0x40);
+		registers.setPC(ep);
+		registers.setSP(0xFD);
+		return new CPU6502(registers, ram, dispatch);
+	}
+
+	@Test
+	@DisplayName("NMI at its cycle")
+	void testNMI() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			final CPU6502 cpu = cpu(dispatch);
+			// INX, JMP $0200 => 5 cycles a loop
+			load(ep, 0xE8, 0x4C, 0x00, 0x02);
+			cpu.getInterrupts().nmi(20);
+
+			cpu.run(19);
+			assertEquals(0, registers.getY());
+			assertEquals(20, cpu.getCycles());
+			cpu.run(100);
+			assertEquals(1, registers.getY());
+			// 4 loops before, taken at the loop start, B clear in the pushed P
+			assertEquals(ep >> 8, ram.read(0x01FD));
+			assertEquals(ep & 0xFF, ram.read(0x01FC));
+			assertEquals(0, ram.read(0x01FB) & Registers.B);
+			assertEquals(0xFD, registers.getSP());
+			// 120 cycles - NMI 7 - handler 8 => 21 loops
+			assertEquals(21, registers.getX());
+		}
+	}
+
+	@Test
+	@DisplayName("IRQ masked until CLI")
+	void testIRQ() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			final CPU6502 cpu = cpu(dispatch);
+			// asserted until acknowledged
+			cpu.getInterrupts().addIRQ(() -> ram.read(0x12) == 0);
+			// INX, JMP $0200
+			load(ep, 0xE8, 0x4C, 0x00, 0x02);
+			registers.setI(true);
+			cpu.run(100);
+			assertEquals(0, ram.read(0x12));
+
+			// CLI, INX, JMP $0201
+			load(cpu.getMemory(), ep, 0x58, 0xE8, 0x4C, 0x01, 0x02);
+			registers.setPC(ep);
+			cpu.run(100);
+			assertEquals(1, ram.read(0x12), dispatch.name());
+			assertTrue(registers.getX() > 20);
+			assertTrue(!registers.isI());
+		}
+	}
+
+	@Test
+	@DisplayName("RESET")
+	void testReset() {
+		final CPU6502 cpu = cpu(Dispatch.SWITCH);
+		// INX, JMP $0200
+		load(ep, 0xE8, 0x4C, 0x00, 0x02);
+		cpu.run(10);
+		registers.setPC(0x0400);
+		load(cpu.getMemory(), 0x0400, 0x4C, 0x00, 0x04);
+		cpu.getInterrupts().reset();
+		cpu.run(10);
+		assertTrue(registers.getPC() >= ep && registers.getPC() < ep + 4);
+		assertTrue(registers.isI());
+	}
+
+}
@@ -51,7 +51,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int valueL = 0x0002;
 		final int y = 0x0005;
 		final int addrValue = 0x0200;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int cycles = 5;
 		final Instruction instruction = Instruction.valueOf(op);
 
@@ -99,7 +99,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int valueL = 0x0002;
 		final int x = 0x0005;
 		final int addr = 0x0200;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int cycles = 6;
 		final Instruction instruction = Instruction.valueOf(op);
 
@@ -144,7 +144,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int valueM = 0x0000;
 		final int valueL = 0x0002;
 		final int addr = 0x0200;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int xy = 0x0010;
 		final int xy_crossed = 0x0100;
 
@@ -238,7 +238,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int valueM = 0x0000;
 		final int valueL = 0x0002;
 		final int addr = 0x0200;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int cycles = 4;
 		final Instruction instruction = Instruction.valueOf(op);
 
@@ -279,7 +279,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int ep = 0x0300;
 		final int X = 0x0010;
 		final int addr = 0x000A;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int cycles = 4;
 		final Instruction instruction = Instruction.valueOf(op);
 
@@ -319,7 +319,7 @@ class LoadInstructionsNoCPUTest extends InstructionsTestBase {
 		final int op = 0xA5;
 		final int ep = 0x0300;
 		final int addr = 0x000A;
-		final int value = 0xCAFE;
+		final int value = 0x00CA;
 		final int cycles = 3;
 		final Instruction instruction = Instruction.valueOf(op);
 
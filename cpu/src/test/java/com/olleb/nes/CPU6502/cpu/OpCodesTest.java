@@ -0,0 +1,94 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+
+/**
+ * Opcode tables test.
+ *
+ */
+@DisplayName("Opcode Tables Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class OpCodesTest extends InstructionsTestBase {
+
+	@Test
+	@DisplayName("Tables agree with the instructions")
+	void testInstructions() {
+		for (final Instruction instruction : Instruction.values()) {
+			final int op = instruction.getOpCode();
+			final String name = instruction.name();
+			assertEquals(instruction.getAssemblerFormat(), OpCodes.getAssemblerFormat(op), name);
+			assertEquals(AddressingMode.of(instruction.getAssemblerFormat()), instruction.getAddressingMode(), name);
+			assertEquals(instruction.getAssemblerFormat().split(" ")[0], OpCodes.getMnemonic(op), name);
+		}
+	}
+
+	@Test
+	@DisplayName("Lengths, penalties and mnemonics")
+	void testTables() {
+		assertEquals(3, OpCodes.getLength(0x20));
+		assertEquals(2, OpCodes.getLength(0xF0));
+		assertEquals(1, OpCodes.getLength(0x0A));
+		assertEquals(OpCodes.REL, OpCodes.getMode(0xF0));
+		assertEquals(7, OpCodes.getCycles(0x00));
+
+		// reads pay the page cross, stores and read-modify-write do not
+		assertEquals(1, OpCodes.getPenalty(0xBD));
+		assertEquals(1, OpCodes.getPenalty(0xB3));
+		assertEquals(0, OpCodes.getPenalty(0x9D));
+		assertEquals(0, OpCodes.getPenalty(0xFE));
+		int penalties = 0;
+		for (int op = 0; op < 256; op++) {
+			penalties += OpCodes.getPenalty(op);
+		}
+		assertEquals(32, penalties);
+
+		assertEquals(OpCodes.getMnemonicId(0xA9), OpCodes.getMnemonicId(0xBD));
+		assertEquals("LAX", OpCodes.getMnemonic(0xA7));
+		assertEquals("SBC #nn", OpCodes.getAssemblerFormat(0xEB));
+	}
+
+	@Test
+	@DisplayName("Page cross cycles in every dispatch mode")
+	void testPenalty() {
+		// LDX #$01, LDA $02FF,X => 2 + 5, STA $02FF,X => 5 crossed or not
+		for (final Dispatch dispatch : Dispatch.values()) {
+			reset();
+			final int[] program = { 0xA2, 0x01, 0xBD, 0xFF, 0x02, 0x9D, 0xFF, 0x02 };
+			for (int i = 0; i < program.length; i++) {
+				ram.write(0x0200 + i, program[i]);
+			}
+			registers.setPC(0x0200);
+			final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+			assertEquals(2, cpu.step(), dispatch.name());
+			assertEquals(5, cpu.step(), dispatch.name());
+			assertEquals(5, cpu.step(), dispatch.name());
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+/**
+ * Predecode cache test. Self modifying code against the switch interpreter.
+ *
+ */
+@DisplayName("Predecoder Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class PredecoderTest extends InstructionsTestBase {
+
+	private final int ep = 0x0200;
+
+	private void load(final int... program) {
+		reset();
+		for (int i = 0; i < program.length; i++) {
+			ram.write(ep + i, program[i]);
+		}
+		registers.setPC(ep);
+	}
+
+	@Test
+	@DisplayName("Operand writes invalidate")
+	void testOperand() {
+		// LDA #$01, INC $0201, JMP $0200 => 11 cycles, A = loop number
+		for (final Dispatch dispatch : new Dispatch[] { Dispatch.SWITCH, Dispatch.PREDECODE }) {
+			load(0xA9, 0x01, 0xEE, 0x01, 0x02, 0x4C, 0x00, 0x02);
+			new CPU6502(registers, ram, dispatch).run(11 * 100);
+
+			assertEquals(100, registers.getA(), dispatch.name());
+			assertEquals(101, ram.read(0x0201), dispatch.name());
+		}
+	}
+
+	@Test
+	@DisplayName("Opcode writes invalidate")
+	void testOpCode() {
+		// INX, LDA #$C8, STA $0200, JMP $0200 => INX runs once, then INY
+		for (final Dispatch dispatch : new Dispatch[] { Dispatch.SWITCH, Dispatch.PREDECODE }) {
+			load(0xE8, 0xA9, 0xC8, 0x8D, 0x00, 0x02, 0x4C, 0x00, 0x02);
+			new CPU6502(registers, ram, dispatch).run(11 * 10);
+
+			assertEquals(1, registers.getX(), dispatch.name());
+			assertEquals(9, registers.getY(), dispatch.name());
+		}
+	}
+
+	@Test
+	@DisplayName("Writes through RAM mirrors invalidate")
+	void testMirror() {
+		// LDA #$01, INC $1A01, JMP $0200 => the operand through a mirror
+		for (final Dispatch dispatch : new Dispatch[] { Dispatch.SWITCH, Dispatch.PREDECODE }) {
+			load(0xA9, 0x01, 0xEE, 0x01, 0x1A, 0x4C, 0x00, 0x02);
+			new CPU6502(registers, ram, dispatch).run(11 * 100);
+
+			assertEquals(100, registers.getA(), dispatch.name());
+		}
+	}
+
+	// UxROM, 4 x 16 KiB: bank 0 INX, RTS; bank 1 INY, RTS; fixed bank
+	// switches between both and calls them
+	private static Cartridge uxrom() {
+		final int bank = Cartridge.PRG_BANK_SIZE;
+		final byte[] image = new byte[Cartridge.HEADER_SIZE + 4 * bank];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = 4;
+		image[6] = 2 << 4;
+		final int prg = Cartridge.HEADER_SIZE;
+		image[prg] = (byte) 0xE8;
+		image[prg + 1] = 0x60;
+		image[prg + bank] = (byte) 0xC8;
+		image[prg + bank + 1] = 0x60;
+		// LDA #$00, STA $8000, JSR $8000, LDA #$01, STA $8000, JSR $8000,
+		// JMP $C000
+		final int[] fixed = { 0xA9, 0x00, 0x8D, 0x00, 0x80, 0x20, 0x00, 0x80, 0xA9, 0x01, 0x8D, 0x00, 0x80, 0x20,
+				0x00, 0x80, 0x4C, 0x00, 0xC0 };
+		for (int i = 0; i < fixed.length; i++) {
+			image[prg + 3 * bank + i] = (byte) fixed[i];
+		}
+		return Cartridge.parse(ByteBuffer.wrap(image));
+	}
+
+	@Test
+	@DisplayName("Bank switches keep the cached banks")
+	void testBanks() {
+		final String[] states = new String[2];
+		for (final Dispatch dispatch : new Dispatch[] { Dispatch.SWITCH, Dispatch.PREDECODE }) {
+			final Bus bus = new Bus(new RAM());
+			Mapper.of(uxrom()).map(bus);
+			final Registers r = new Registers();
+			r.setPC(0xC000);
+			r.setSP(0xFF);
+			final CPU6502 cpu = new CPU6502(r, bus, dispatch);
+			cpu.run(10_000);
+			if (dispatch == Dispatch.PREDECODE) {
+				// both banks cached, nothing fetched again
+				final long fetched = cpu.getPredecoder().getFetched();
+				cpu.run(10_000);
+				assertEquals(fetched, cpu.getPredecoder().getFetched());
+			} else {
+				cpu.run(10_000);
+			}
+			// one call per bank a loop
+			assertTrue(r.getY() > 100 && r.getX() - r.getY() >= 0 && r.getX() - r.getY() <= 1, dispatch.name());
+			states[dispatch == Dispatch.PREDECODE ? 1 : 0] = r.getX() + " " + r.getY() + " " + r.getPC();
+		}
+		assertEquals(states[0], states[1]);
+	}
+
+}
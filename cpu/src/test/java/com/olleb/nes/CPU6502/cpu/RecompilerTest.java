@@ -0,0 +1,219 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntBiFunction;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+
+/**
+ * JIT tier test. Compiled blocks against the switch interpreter.
+ *
+ */
+@DisplayName("Recompiler Test")
+@TestInstance(Lifecycle.PER_CLASS)
+class RecompilerTest extends InstructionsTestBase {
+
+	private final int ep = 0x0200;
+
+	// LDA #$05, STA $10, INX, INC $10, LDY $10, ASL, PHA, TSX, JMP $0200
+	private final int[] program = { 0xA9, 0x05, 0x85, 0x10, 0xE8, 0xE6, 0x10, 0xA4, 0x10, 0x0A, 0x48, 0xBA, 0x4C,
+			0x00, 0x02 };
+
+	private CPU6502 run(final Dispatch dispatch, final long cycles) {
+		reset();
+		for (int i = 0; i < program.length; i++) {
+			ram.write(ep + i, program[i]);
+		}
+		registers.setPC(ep);
+		registers.setSP(0xFF);
+		final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+		cpu.run(cycles);
+		return cpu;
+	}
+
+	@Test
+	@DisplayName("Compiled blocks match the interpreter")
+	void testInterpreter() {
+		final long cycles = 100_000;
+		final CPU6502 jit = run(Dispatch.JIT, cycles);
+		final int a = registers.getA(), x = registers.getX(), y = registers.getY(), sp = registers.getSP();
+		final int p = registers.getProcessorStatus(), pc = registers.getPC(), m = ram.read(0x10);
+		final CPU6502 interpreter = run(Dispatch.SWITCH, cycles);
+
+		assertEquals(1, jit.getRecompiler().getCompiled());
+		assertEquals(interpreter.getCycles(), jit.getCycles());
+		assertEquals(interpreter.getInstructions(), jit.getInstructions());
+		assertEquals(registers.getA(), a);
+		assertEquals(registers.getX(), x);
+		assertEquals(registers.getY(), y);
+		assertEquals(registers.getSP(), sp);
+		assertEquals(registers.getProcessorStatus(), p);
+		assertEquals(registers.getPC(), pc);
+		assertEquals(ram.read(0x10), m);
+	}
+
+	@Test
+	@DisplayName("Blocks shared by opcode sequence")
+	void testShared() {
+		final BlockCompiler compiler = new BlockCompiler(c -> true);
+		assertSame(compiler.compile(new int[] { 0xE8, 0x4C }), compiler.compile(new int[] { 0xE8, 0x4C }));
+	}
+
+	@Test
+	@DisplayName("Block classes live in the compiler class loader")
+	void testLoader() {
+		final BlockCompiler compiler = new BlockCompiler(c -> true);
+		final ToIntBiFunction<Registers, Memory> block = compiler.compile(new int[] { 0xE8, 0x4C });
+		assertNotSame(BlockCompiler.class.getClassLoader(), block.getClass().getClassLoader());
+
+		compiler.reset();
+		final ToIntBiFunction<Registers, Memory> again = compiler.compile(new int[] { 0xE8, 0x4C });
+		assertNotSame(block.getClass().getClassLoader(), again.getClass().getClassLoader());
+	}
+
+	// cycle of every access to $2000 - $3FFF, NMI posted at the first write
+	private List<Long> probe(final Dispatch dispatch, final long batch) {
+		reset();
+		// INX, LDA #$01, STA $2000, INY, LDA $2002, TAX, STA $2001, INX, JMP $0200
+		final int[] io = { 0xE8, 0xA9, 0x01, 0x8D, 0x00, 0x20, 0xC8, 0xAD, 0x02, 0x20, 0xAA, 0x8D, 0x01, 0x20, 0xE8,
+				0x4C, 0x00, 0x02 };
+		for (int i = 0; i < io.length; i++) {
+			ram.write(ep + i, io[i]);
+		}
+		// NMI: INC $20, RTI
+		ram.write(0x0300, 0xE6);
+		ram.write(0x0301, 0x20);
+		ram.write(0x0302, 0x40);
+		ram.write(0xFFFA, 0x00);
+		ram.write(0xFFFB, 0x03);
+		registers.setPC(ep);
+		registers.setSP(0xFF);
+
+		final List<Long> accesses = new ArrayList<>();
+		final Bus bus = new Bus(ram);
+		bus.map(0x8000, 0xFFFF, ram);
+		final CPU6502[] cpu = new CPU6502[1];
+		bus.map(0x2000, 0x3FFF, new Memory() {
+			@Override
+			public int read(final int address) {
+				accesses.add(cpu[0].getCycles());
+				return 0x80;
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				if (accesses.isEmpty()) {
+					cpu[0].getInterrupts().nmi(cpu[0].getCycles());
+				}
+				accesses.add(cpu[0].getCycles());
+			}
+		});
+		cpu[0] = new CPU6502(registers, bus, dispatch);
+		for (long cycles = 0; cycles < 20_000; cycles += batch) {
+			cpu[0].run(batch);
+		}
+		accesses.add(cpu[0].getCycles());
+		accesses.add((long) ram.read(0x20));
+		accesses.add((long) registers.getX());
+		return accesses;
+	}
+
+	@Test
+	@DisplayName("Accesses and limits inside blocks at the interpreter cycle")
+	void testTiming() {
+		for (final long batch : new long[] { 7, 113, 20_000 }) {
+			assertEquals(probe(Dispatch.SWITCH, batch), probe(Dispatch.JIT, batch), "batch " + batch);
+		}
+	}
+
+	@Test
+	@DisplayName("Writes invalidate compiled code")
+	void testInvalidate() {
+		final CPU6502 cpu = run(Dispatch.JIT, 10_000);
+		assertEquals(1, cpu.getRecompiler().getCompiled());
+
+		// LDA #$05 => LDY #$05, the block is compiled again once hot
+		assertEquals(0x0A, registers.getA());
+		final Memory memory = cpu.getMemory();
+		memory.write(ep, 0xA0);
+		registers.setPC(ep);
+		cpu.run(10_000);
+
+		assertEquals(2, cpu.getRecompiler().getCompiled());
+		// A no longer reloaded, ASL shifts it out
+		assertEquals(0, registers.getA());
+	}
+
+	@Test
+	@DisplayName("Writes through RAM mirrors invalidate compiled code")
+	void testMirror() {
+		final CPU6502 cpu = run(Dispatch.JIT, 10_000);
+		assertEquals(1, cpu.getRecompiler().getCompiled());
+
+		// LDA #$05 => LDY #$05 through the 0x1A00 mirror
+		cpu.getMemory().write(0x1800 | ep, 0xA0);
+		registers.setPC(ep);
+		cpu.run(10_000);
+
+		assertEquals(2, cpu.getRecompiler().getCompiled());
+		assertEquals(0, registers.getA());
+	}
+
+	@Test
+	@DisplayName("Writes to flat memory above 0x8000 invalidate compiled code")
+	void testFlat() {
+		reset();
+		final int flat = 0x8000;
+		for (int i = 0; i < program.length; i++) {
+			ram.write(flat + i, program[i]);
+		}
+		// JMP $8000
+		ram.write(flat + program.length - 1, 0x80);
+		registers.setPC(flat);
+		registers.setSP(0xFF);
+		final Bus bus = new Bus(ram);
+		bus.map(flat, 0xFFFF, ram);
+		final CPU6502 cpu = new CPU6502(registers, bus, Dispatch.JIT);
+		cpu.run(10_000);
+		assertEquals(1, cpu.getRecompiler().getCompiled());
+
+		cpu.getMemory().write(flat, 0xA0);
+		registers.setPC(flat);
+		cpu.run(10_000);
+
+		assertEquals(2, cpu.getRecompiler().getCompiled());
+		assertEquals(0, registers.getA());
+	}
+
+}
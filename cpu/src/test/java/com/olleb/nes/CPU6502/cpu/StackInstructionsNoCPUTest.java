@@ -44,13 +44,18 @@ class StackInstructionsNoCPUTest extends InstructionsTestBase {
 		registers.setZ(false);
 		registers.setI(false);
 		registers.setD(true);
-		registers.setB(true);
+		registers.setB(false);
 		registers.setV(true);
 		registers.setN(false);
 
+		final int sp = registers.getSP();
+
 		Instruction.valueOf(0x08).exec(registers, ram);
 
-		registers = new Registers();
+		// NV-BDIZC, B and bit 5 set in the pushed copy
+		assertEquals(0b0111_1001, ram.read(offset + sp));
+
+		registers.setProcessorStatus(0);
 
 		assertEquals(false, registers.isC());
 		assertEquals(false, registers.isZ());
@@ -62,11 +67,12 @@ class StackInstructionsNoCPUTest extends InstructionsTestBase {
 
 		Instruction.valueOf(0x28).exec(registers, ram);
 
+		assertEquals(sp, registers.getSP());
 		assertEquals(true, registers.isC());
 		assertEquals(false, registers.isZ());
 		assertEquals(false, registers.isI());
 		assertEquals(true, registers.isD());
-		assertEquals(true, registers.isB());
+		assertEquals(false, registers.isB());
 		assertEquals(true, registers.isV());
 		assertEquals(false, registers.isN());
 
@@ -79,7 +85,7 @@ class StackInstructionsNoCPUTest extends InstructionsTestBase {
 		final int cycles = 3;
 		final Instruction instruction = Instruction.valueOf(op);
 
-		registers.setA(0xCAFE);
+		registers.setA(0x00CA);
 
 		int result = instruction.exec(registers, ram);
 
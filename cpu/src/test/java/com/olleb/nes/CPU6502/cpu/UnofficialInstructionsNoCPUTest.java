@@ -0,0 +1,156 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+
+/**
+ * Unofficial opcodes test. No CPU involved.
+ *
+ */
+@DisplayName("Unofficial Instructions Test. No CPU.")
+@TestInstance(Lifecycle.PER_CLASS)
+class UnofficialInstructionsNoCPUTest extends InstructionsTestBase {
+
+	private int exec(final int... program) {
+		for (int i = 0; i < program.length; i++) {
+			ram.write(0x0300 + i, program[i]);
+		}
+		registers.setPC(0x0300);
+		return Instruction.valueOf(program[0]).exec(registers, ram);
+	}
+
+	@Test
+	@DisplayName("Every opcode has a handler")
+	void testCoverage() {
+		for (int op = 0; op < 256; op++) {
+			assertNotNull(Instruction.valueOf(op), Integer.toHexString(op));
+		}
+	}
+
+	@Test
+	@DisplayName("LAX / SAX - A7/87")
+	void testLAX() {
+		ram.write(0x0010, 0x80);
+		assertEquals(3, exec(0xA7, 0x10));
+		assertEquals(0x80, registers.getA());
+		assertEquals(0x80, registers.getX());
+		assertTrue(registers.isN());
+
+		registers.setX(0x0F);
+		assertEquals(3, exec(0x87, 0x20));
+		assertEquals(0x00, ram.read(0x0020));
+		registers.setA(0xFF);
+		exec(0x87, 0x20);
+		assertEquals(0x0F, ram.read(0x0020));
+	}
+
+	@Test
+	@DisplayName("DCP / ISC - C7/E7")
+	void testDCP() {
+		registers.setA(0x40);
+		ram.write(0x0010, 0x41);
+		assertEquals(5, exec(0xC7, 0x10));
+		assertEquals(0x40, ram.read(0x0010));
+		assertTrue(registers.isZ());
+		assertTrue(registers.isC());
+
+		// 0x40 - 0x41 with carry set
+		exec(0xE7, 0x10);
+		assertEquals(0x41, ram.read(0x0010));
+		assertEquals(0xFF, registers.getA());
+		assertFalse(registers.isC());
+	}
+
+	@Test
+	@DisplayName("SLO / RLA / SRE / RRA - 07/27/47/67")
+	void testReadModifyWrite() {
+		ram.write(0x0010, 0x81);
+		registers.setA(0x01);
+		assertEquals(5, exec(0x07, 0x10));
+		assertEquals(0x02, ram.read(0x0010));
+		assertEquals(0x03, registers.getA());
+		assertTrue(registers.isC());
+
+		// 0x02 << 1 | C
+		exec(0x27, 0x10);
+		assertEquals(0x05, ram.read(0x0010));
+		assertEquals(0x01, registers.getA());
+
+		exec(0x47, 0x10);
+		assertEquals(0x02, ram.read(0x0010));
+		assertEquals(0x03, registers.getA());
+		assertTrue(registers.isC());
+
+		// 0x02 >> 1 | C << 7 = 0x81, A + 0x81 + 0
+		exec(0x67, 0x10);
+		assertEquals(0x81, ram.read(0x0010));
+		assertEquals(0x84, registers.getA());
+	}
+
+	@Test
+	@DisplayName("Page cross penalty - BF, 1C")
+	void testPenalty() {
+		registers.setY(0x01);
+		assertEquals(5, exec(0xBF, 0xFF, 0x02));
+		registers.setX(0x01);
+		assertEquals(4, exec(0x1C, 0x00, 0x02));
+		assertEquals(5, exec(0x1C, 0xFF, 0x02));
+	}
+
+	@Test
+	@DisplayName("SHY page cross - 9C")
+	void testSHY() {
+		registers.setY(0x05);
+		registers.setX(0x01);
+		exec(0x9C, 0x00, 0x02);
+		// Y & (0x02 + 1)
+		assertEquals(0x01, ram.read(0x0201));
+
+		// crossed: the value replaces the high byte, 0x0300 => 0x0100
+		exec(0x9C, 0xFF, 0x02);
+		assertEquals(0x01, ram.read(0x0100));
+	}
+
+	@Test
+	@DisplayName("JAM halts in every dispatch mode")
+	void testJAM() {
+		for (final Dispatch dispatch : Dispatch.values()) {
+			reset();
+			ram.write(0x0300, 0x02);
+			registers.setPC(0x0300);
+			final CPU6502 cpu = new CPU6502(registers, ram, dispatch);
+
+			assertTrue(cpu.run(100) >= 100, dispatch.name());
+			assertEquals(0x0300, registers.getPC(), dispatch.name());
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.functional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.cpu.Registers;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+/**
+ * Functional test ROMs from the test resources, next to this class. Every ROM
+ * runs with every dispatch mode, in parallel.
+ * 
+ * <ul>
+ * <li>name.nes + name.log: nestest automation mode from 0xC000, CPU state
+ * diffed against the log line by line</li>
+ * <li>name.bin + name.properties: flat binary (Klaus Dormann functional
+ * test), runs until a trap, the trap must be the success address</li>
+ * </ul>
+ * 
+ * The public suites are always cases: nestest.nes / nestest.log (kevtris)
+ * and 6502_functional_test.bin (Klaus Dormann, GPL), its load, start and
+ * success addresses in 6502_functional_test.properties. The build requires
+ * the binaries in the directory and fails their cases otherwise,
+ * -Dfunctional.required=false skips them instead. The smoke ROMs are extra
+ * cases.
+ *
+ */
+@DisplayName("Functional test ROMs")
+@Execution(ExecutionMode.CONCURRENT)
+class FunctionalTest {
+
+	// "C000  4C F5 C5  JMP $C5F5   A:00 X:00 Y:00 P:24 SP:FD PPU:  0, 21 CYC:7"
+	private static final Pattern LOG = Pattern.compile(
+			"^([0-9A-F]{4}) .*A:([0-9A-F]{2}) X:([0-9A-F]{2}) Y:([0-9A-F]{2}) P:([0-9A-F]{2}) SP:([0-9A-F]{2}).* CYC:(\\d+)");
+
+	// trap detection limit
+	private static final long MAX_CYCLES = 200_000_000L;
+
+	// public suites, cases even when the files are missing
+	private static final String NESTEST = "nestest.nes";
+	private static final String KLAUS = "6502_functional_test.bin";
+	private static final boolean REQUIRED = Boolean.getBoolean("functional.required");
+
+	private static Path resources() throws URISyntaxException {
+		return Paths.get(FunctionalTest.class.getResource(FunctionalTest.class.getSimpleName() + ".class").toURI())
+				.getParent();
+	}
+
+	// ROMs found by their reference file, plus the public one
+	private static Stream<Arguments> roms(final String reference, final String extension, final String required)
+			throws IOException, URISyntaxException {
+		final TreeSet<String> roms = new TreeSet<>();
+		roms.add(required);
+		try (Stream<Path> files = Files.list(resources())) {
+			roms.addAll(files.map(p -> p.getFileName().toString()).filter(name -> name.endsWith(reference))
+					.map(name -> sibling(name, extension)).collect(Collectors.toList()));
+		}
+		return roms.stream().flatMap(rom -> Stream.of(Dispatch.values()).map(d -> Arguments.of(rom, d)));
+	}
+
+	static Stream<Arguments> nestest() throws IOException, URISyntaxException {
+		return roms(".log", ".nes", NESTEST);
+	}
+
+	static Stream<Arguments> flat() throws IOException, URISyntaxException {
+		return roms(".properties", ".bin", KLAUS);
+	}
+
+	// skipped while a public suite is not in the directory
+	private static void assumePresent(final String... files) throws URISyntaxException {
+		for (final String file : files) {
+			final boolean present = Files.exists(resources().resolve(file));
+			final String message = file + " not in " + resources();
+			if (REQUIRED) {
+				assertTrue(present, message);
+			} else {
+				assumeTrue(present, message);
+			}
+		}
+	}
+
+	private static String sibling(final String rom, final String extension) {
+		return rom.substring(0, rom.lastIndexOf('.')) + extension;
+	}
+
+	private static String state(final int pc, final int a, final int x, final int y, final int p, final int sp,
+			final long cycles) {
+		return String.format("%04X A:%02X X:%02X Y:%02X P:%02X SP:%02X CYC:%d", pc, a, x, y, p, sp, cycles);
+	}
+
+	@ParameterizedTest(name = "{0} {1}")
+	@MethodSource("nestest")
+	@DisplayName("nestest log")
+	void testLog(final String rom, final Dispatch dispatch) throws IOException, URISyntaxException {
+		assumePresent(rom, sibling(rom, ".log"));
+		final List<String> log = Files.readAllLines(resources().resolve(sibling(rom, ".log")));
+		final Bus bus = new Bus(new RAM());
+		Mapper.of(Cartridge.load(resources().resolve(rom))).map(bus);
+		final CPU6502 cpu = new CPU6502(bus, dispatch);
+		final Registers r = cpu.getRegisters();
+		r.setPC(0xC000);
+		r.setSP(0xFD);
+		r.setProcessorStatus(0x24);
+
+		long offset = -1;
+		for (int line = 0; line < log.size(); line++) {
+			final Matcher m = LOG.matcher(log.get(line));
+			assertTrue(m.find(), "Unreadable log line " + (line + 1));
+			final long cycles = Long.parseLong(m.group(7));
+			if (offset < 0) {
+				offset = cycles;
+			}
+			final String expected = state(Integer.parseInt(m.group(1), 16), Integer.parseInt(m.group(2), 16),
+					Integer.parseInt(m.group(3), 16), Integer.parseInt(m.group(4), 16),
+					Integer.parseInt(m.group(5), 16), Integer.parseInt(m.group(6), 16), cycles);
+			final String actual = state(r.getPC(), r.getA(), r.getX(), r.getY(), r.getProcessorStatus(), r.getSP(),
+					cpu.getCycles() + offset);
+			assertEquals(expected, actual, rom + " line " + (line + 1));
+			cpu.step();
+		}
+	}
+
+	@ParameterizedTest(name = "{0} {1}")
+	@MethodSource("flat")
+	@DisplayName("Trap at success")
+	void testTrap(final String rom, final Dispatch dispatch) throws IOException, URISyntaxException {
+		assumePresent(rom, sibling(rom, ".properties"));
+		final Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(resources().resolve(sibling(rom, ".properties")))) {
+			properties.load(reader);
+		}
+		final int load = Integer.decode(properties.getProperty("load", "0"));
+		final int start = Integer.decode(properties.getProperty("start"));
+		final int success = Integer.decode(properties.getProperty("success"));
+
+		// flat 64 KiB, no mirrors
+		final byte[] image = new byte[0x10000];
+		final byte[] bin = Files.readAllBytes(resources().resolve(rom));
+		System.arraycopy(bin, 0, image, load, bin.length);
+		final Memory memory = new Memory() {
+			@Override
+			public int read(final int address) {
+				return image[address & 0xFFFF] & 0xFF;
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				image[address & 0xFFFF] = (byte) value;
+			}
+		};
+		final CPU6502 cpu = new CPU6502(memory, dispatch);
+		final Registers r = cpu.getRegisters();
+		r.setPC(start);
+		r.setSP(0xFF);
+
+		// trap: JMP * or a branch to itself
+		int pc = -1;
+		while (r.getPC() != pc && cpu.getCycles() < MAX_CYCLES) {
+			pc = r.getPC();
+			cpu.step();
+		}
+		assertEquals(String.format("%04X", success), String.format("%04X", r.getPC()), rom + " trapped");
+	}
+
+}
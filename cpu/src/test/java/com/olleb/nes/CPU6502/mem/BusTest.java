@@ -0,0 +1,108 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+@DisplayName("Bus tests")
+@TestInstance(Lifecycle.PER_CLASS)
+class BusTest extends RAMTestBase {
+
+	private Bus bus;
+
+	// 8 byte register file mirrored over its range, like the PPU registers
+	private final int[] registers = new int[8];
+
+	private final Memory device = new Memory() {
+		@Override
+		public int read(final int address) {
+			return registers[address & 0x07];
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+			registers[address & 0x07] = value;
+		}
+	};
+
+	@BeforeEach
+	@Override
+	public void reset() {
+		super.reset();
+		bus = new Bus(ram);
+	}
+
+	@Test
+	@DisplayName("Test RAM and mirrors")
+	void testRAM() {
+		bus.write(0x0010, 0xCA);
+		assertEquals(0xCA, ram.read(0x0010));
+		assertEquals(0xCA, bus.read(0x0810));
+		assertEquals(0xCA, bus.read(0x1810));
+
+		bus.write(0x1FFF, 0x01FE);
+		assertEquals(0xFE, bus.read(0x07FF));
+	}
+
+	@Test
+	@DisplayName("Test device mapping")
+	void testMap() {
+		bus.map(Bus.Address.PPU_BEGIN.getAddress(), Bus.Address.PPU_END.getAddress(), device);
+		assertSame(device, bus.getDevice(0x2000));
+		assertSame(device, bus.getDevice(0x3FFF));
+		assertSame(ram, bus.getDevice(0x1FFF));
+
+		bus.write(0x2006, 0x21);
+		assertEquals(0x21, registers[6]);
+		assertEquals(0x21, bus.read(0x3FFE));
+
+		bus.unmap(Bus.Address.PPU_BEGIN.getAddress(), Bus.Address.PPU_END.getAddress());
+		assertEquals(0x20, bus.read(0x2006));
+	}
+
+	@Test
+	@DisplayName("Test open bus and wrap around")
+	void testOpenBus() {
+		assertEquals(0x80, bus.read(0x8000));
+		bus.write(0x8000, 0xFF);
+		assertEquals(0x80, bus.read(0x8000));
+
+		// 0x10010 => 0x0010
+		bus.write(0x0010, 0x42);
+		assertEquals(0x42, bus.read(0x10010));
+	}
+
+	@Test
+	@DisplayName("Test unaligned ranges")
+	void testUnaligned() {
+		assertThrows(IllegalArgumentException.class, () -> bus.map(0x2001, 0x3FFF, device));
+		assertThrows(IllegalArgumentException.class, () -> bus.map(0x2000, 0x3FFE, device));
+		assertThrows(IllegalArgumentException.class, () -> bus.map(0x3F00, 0x20FF, device));
+	}
+
+}
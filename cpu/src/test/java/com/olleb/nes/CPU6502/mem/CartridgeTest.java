@@ -0,0 +1,122 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Cartridge tests")
+class CartridgeTest {
+
+	@TempDir
+	Path dir;
+
+	// header + 1 x 16 KiB PRG + 1 x 8 KiB CHR
+	private byte[] image(final int flags6, final int flags7, final int byte8) {
+		final byte[] image = new byte[Cartridge.HEADER_SIZE + Cartridge.PRG_BANK_SIZE + Cartridge.CHR_BANK_SIZE];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = 1;
+		image[5] = 1;
+		image[6] = (byte) flags6;
+		image[7] = (byte) flags7;
+		image[8] = (byte) byte8;
+		// reset vector 0x8000 at the end of the PRG bank
+		image[Cartridge.HEADER_SIZE + 0x3FFC] = 0x00;
+		image[Cartridge.HEADER_SIZE + 0x3FFD] = (byte) 0x80;
+		image[Cartridge.HEADER_SIZE + Cartridge.PRG_BANK_SIZE] = 0x3C;
+		return image;
+	}
+
+	@Test
+	@DisplayName("Test iNES load")
+	void testLoad() throws IOException {
+		final Path rom = dir.resolve("test.nes");
+		// mapper 1, vertical, battery
+		Files.write(rom, image(0x13, 0x00, 0));
+		final Cartridge cartridge = Cartridge.load(rom);
+
+		assertFalse(cartridge.isNES2());
+		assertEquals(1, cartridge.getMapper());
+		assertEquals(Cartridge.Mirroring.VERTICAL, cartridge.getMirroring());
+		assertTrue(cartridge.hasBattery());
+		assertEquals(1, cartridge.getPRGBanks());
+		assertEquals(1, cartridge.getCHRBanks());
+		assertTrue(cartridge.getPRG().isReadOnly());
+		assertEquals(0x3C, cartridge.getCHRBank(0).get(0));
+
+		// NROM-128 mirrored in 0x8000 - 0xFFFF
+		final Bus bus = new Bus(new RAM());
+		bus.map(Bus.Address.PRG_ROM_BEGIN.getAddress(), Bus.Address.CARTRIDGE_END.getAddress(),
+				cartridge.getPRGMemory());
+		assertEquals(0x80, bus.read(RAM.Address.VECTOR_1_.getAddress()));
+		assertEquals(0x80, bus.read(0xBFFD));
+	}
+
+	@Test
+	@DisplayName("Test NES 2.0 header")
+	void testNES2() {
+		// mapper 0x104 sub mapper 2, four screen
+		final Cartridge cartridge = Cartridge.parse(ByteBuffer.wrap(image(0x48, 0x08, 0x21)));
+		assertTrue(cartridge.isNES2());
+		assertEquals(0x104, cartridge.getMapper());
+		assertEquals(2, cartridge.getSubMapper());
+		assertEquals(Cartridge.Mirroring.FOUR_SCREEN, cartridge.getMirroring());
+	}
+
+	@Test
+	@DisplayName("Test invalid images")
+	void testInvalid() {
+		final byte[] image = image(0, 0, 0);
+		assertThrows(IllegalArgumentException.class,
+				() -> Cartridge.parse(ByteBuffer.wrap(image, 0, Cartridge.HEADER_SIZE + 10)));
+		image[0] = 'X';
+		assertThrows(IllegalArgumentException.class, () -> Cartridge.parse(ByteBuffer.wrap(image)));
+	}
+
+	@Test
+	@DisplayName("Test NES 2.0 sizes past 2 GiB")
+	void testNES2Overflow() {
+		// exponent-multiplier notation in both nibbles of byte 9: 2^31 * 3 PRG, 2^63 * 7 CHR
+		final byte[] image = image(0, 0x08, 0);
+		image[9] = (byte) 0xFF;
+		for (final int[] sizes : new int[][] { { 31 << 2 | 1, 0 }, { 0, 63 << 2 | 3 }, { 30 << 2, 30 << 2 } }) {
+			image[4] = (byte) sizes[0];
+			image[5] = (byte) sizes[1];
+			final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+					() -> Cartridge.parse(ByteBuffer.wrap(image)));
+			assertEquals("Truncated iNES file", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Off-heap memory tests")
+class OffHeapMemoryTest {
+
+	@Test
+	@DisplayName("Test size and reads/writes")
+	void testReadWrite() {
+		final OffHeapMemory memory = new OffHeapMemory(2);
+		assertEquals(0x10000 + 2 * 0x4000, memory.getSize());
+		assertTrue(memory.getBuffer().isDirect());
+
+		memory.write(0x0010, 0x01CA);
+		assertEquals(0xCA, memory.read(0x0010));
+		// RAM mirrors
+		assertEquals(0xCA, memory.read(0x0810));
+		assertEquals(0xCA, memory.read(0x1810));
+
+		memory.write(0xFFFC, 0x80);
+		assertEquals(0x80, memory.read(0xFFFC));
+		assertEquals(0x80, memory.getBuffer().get(0xFFFC) & 0xFF);
+
+		memory.clear();
+		assertEquals(0, memory.read(0xFFFC));
+	}
+
+	@Test
+	@DisplayName("Test banks are views")
+	void testBanks() {
+		final OffHeapMemory memory = new OffHeapMemory(2);
+		final ByteBuffer bank = memory.getBank(1);
+		assertEquals(0x4000, bank.capacity());
+
+		bank.put(0, (byte) 0x42);
+		assertEquals(0x42, memory.getBuffer().get(0x10000 + 0x4000));
+		assertThrows(IndexOutOfBoundsException.class, () -> memory.getBank(2));
+	}
+
+	@Test
+	@DisplayName("Test shared buffer")
+	void testShared() {
+		final ByteBuffer shared = ByteBuffer.allocateDirect(0x10000);
+		final OffHeapMemory memory = new OffHeapMemory(shared, 0);
+		memory.write(0x8000, 0x4C);
+		assertEquals(0x4C, shared.get(0x8000));
+
+		assertThrows(IllegalArgumentException.class, () -> new OffHeapMemory(ByteBuffer.allocate(0x10000), 0));
+	}
+
+}
@@ -49,6 +49,7 @@ class RAMTest extends RAMTestBase {
 		// fill ram[0x0000] = 0x0000 to ram[0x01FF] = 0x01FF
 		final List<Integer> values = generateValuesList(addr[0], addr[1]);
 		values.forEach((i) -> ram.write(i, i));
+		values.replaceAll((i) -> i & 0xFF);
 
 		// check RAM values
 		List<Integer> check = getReadedValuesList(values);
@@ -68,9 +69,10 @@ class RAMTest extends RAMTestBase {
 		mirror = generateValuesList(addr[3], addr[4]);
 		check = getReadedValuesList(mirror);
 		assertTrue(check.equals(values));
-		
-		// oom
-		assertEquals(-1, ram.read(0xFFFFF));
+
+		// 8 bit cells
+		ram.write(addr[0], 0x01CA);
+		assertEquals(0xCA, ram.read(addr[0]));
 	}
 
 	private List<Integer> generateValuesList(int start, int end) {
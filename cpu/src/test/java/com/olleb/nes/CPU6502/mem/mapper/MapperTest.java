@@ -0,0 +1,198 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.mem.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Cartridge.Mirroring;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+@DisplayName("Mapper tests")
+class MapperTest {
+
+	// every 8 KiB PRG slot and 1 KiB CHR slot starts with its bank number
+	private static Cartridge cartridge(final int mapper, final int prg16, final int chr8) {
+		final int prgSize = prg16 * Cartridge.PRG_BANK_SIZE;
+		final int chrSize = chr8 * Cartridge.CHR_BANK_SIZE;
+		final byte[] image = new byte[Cartridge.HEADER_SIZE + prgSize + chrSize];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = (byte) prg16;
+		image[5] = (byte) chr8;
+		image[6] = (byte) (mapper << 4);
+		for (int i = 0; i < prgSize / 0x2000; i++) {
+			image[Cartridge.HEADER_SIZE + i * 0x2000] = (byte) i;
+		}
+		for (int i = 0; i < chrSize / 0x0400; i++) {
+			image[Cartridge.HEADER_SIZE + prgSize + i * 0x0400] = (byte) i;
+		}
+		return Cartridge.parse(ByteBuffer.wrap(image));
+	}
+
+	// 8 KiB bank at 0x8000, 0xA000, 0xC000, 0xE000
+	private static int[] prg(final Mapper mapper) {
+		return new int[] { mapper.read(0x8000), mapper.read(0xA000), mapper.read(0xC000), mapper.read(0xE000) };
+	}
+
+	private static int[] chr(final Mapper mapper) {
+		final int[] r = new int[8];
+		for (int i = 0; i < r.length; i++) {
+			r[i] = mapper.readCHR(i * 0x0400);
+		}
+		return r;
+	}
+
+	private static void assertBanks(final int[] expected, final int[] actual) {
+		assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+	}
+
+	@Test
+	@DisplayName("NROM")
+	void testNROM() {
+		final Mapper mapper = Mapper.of(cartridge(0, 1, 1));
+		assertTrue(mapper instanceof NROM);
+		// 16 KiB mirrored
+		assertBanks(new int[] { 0, 1, 0, 1 }, prg(mapper));
+
+		final Bus bus = new Bus(new RAM());
+		mapper.map(bus);
+		bus.write(0x6000, 0x42);
+		assertEquals(0x42, bus.read(0x6000));
+		assertEquals(1, bus.read(0xE000));
+
+		// CHR ROM is read-only
+		mapper.writeCHR(0x0000, 0xFF);
+		assertEquals(0, mapper.readCHR(0x0000));
+	}
+
+	@Test
+	@DisplayName("UxROM")
+	void testUxROM() {
+		final Mapper mapper = Mapper.of(cartridge(2, 8, 0));
+		assertBanks(new int[] { 0, 1, 14, 15 }, prg(mapper));
+		mapper.write(0x8000, 3);
+		assertBanks(new int[] { 6, 7, 14, 15 }, prg(mapper));
+
+		// CHR RAM
+		mapper.writeCHR(0x1234, 0x5A);
+		assertEquals(0x5A, mapper.readCHR(0x1234));
+	}
+
+	@Test
+	@DisplayName("CNROM")
+	void testCNROM() {
+		final Mapper mapper = Mapper.of(cartridge(3, 2, 4));
+		assertBanks(new int[] { 0, 1, 2, 3 }, prg(mapper));
+		mapper.write(0x8000, 2);
+		assertBanks(new int[] { 16, 17, 18, 19, 20, 21, 22, 23 }, chr(mapper));
+	}
+
+	private static void mmc1(final Mapper mapper, final int address, final int value) {
+		for (int i = 0; i < 5; i++) {
+			mapper.write(address, value >> i);
+		}
+	}
+
+	@Test
+	@DisplayName("MMC1")
+	void testMMC1() {
+		final Mapper mapper = Mapper.of(cartridge(1, 8, 4));
+		// power-up: last bank fixed at 0xC000
+		assertBanks(new int[] { 0, 1, 14, 15 }, prg(mapper));
+
+		mmc1(mapper, 0xE000, 2);
+		assertBanks(new int[] { 4, 5, 14, 15 }, prg(mapper));
+
+		// vertical, PRG mode 2, CHR 4 KiB mode
+		mmc1(mapper, 0x8000, 0b1_10_10);
+		assertEquals(Mirroring.VERTICAL, mapper.getMirroring());
+		assertBanks(new int[] { 0, 1, 4, 5 }, prg(mapper));
+
+		mmc1(mapper, 0xA000, 3);
+		mmc1(mapper, 0xC000, 5);
+		assertBanks(new int[] { 12, 13, 14, 15, 20, 21, 22, 23 }, chr(mapper));
+
+		// reset bit
+		mapper.write(0x8000, 0x80);
+		assertBanks(new int[] { 4, 5, 14, 15 }, prg(mapper));
+	}
+
+	@Test
+	@DisplayName("MMC3")
+	void testMMC3() {
+		final Mapper mapper = Mapper.of(cartridge(4, 8, 8));
+		assertBanks(new int[] { 0, 0, 14, 15 }, prg(mapper));
+
+		// R6 = 3, R7 = 5
+		mapper.write(0x8000, 6);
+		mapper.write(0x8001, 3);
+		mapper.write(0x8000, 7);
+		mapper.write(0x8001, 5);
+		assertBanks(new int[] { 3, 5, 14, 15 }, prg(mapper));
+
+		// PRG mode 1 swaps 0x8000 and 0xC000
+		mapper.write(0x8000, 0x40);
+		assertBanks(new int[] { 14, 5, 3, 15 }, prg(mapper));
+
+		// R0 = 2 KiB bank 10, R2 = 1 KiB bank 33, CHR inversion
+		mapper.write(0x8000, 0x80);
+		mapper.write(0x8001, 10);
+		mapper.write(0x8000, 0x82);
+		mapper.write(0x8001, 33);
+		assertEquals(33, mapper.readCHR(0x0000));
+		assertEquals(10, mapper.readCHR(0x1000));
+		assertEquals(11, mapper.readCHR(0x1400));
+
+		mapper.write(0xA000, 1);
+		assertEquals(Mirroring.HORIZONTAL, mapper.getMirroring());
+
+		// IRQ after 3 scanlines
+		mapper.write(0xC000, 2);
+		mapper.write(0xC001, 0);
+		mapper.write(0xE001, 0);
+		mapper.scanline();
+		mapper.scanline();
+		assertFalse(mapper.isIRQ());
+		mapper.scanline();
+		assertTrue(mapper.isIRQ());
+		mapper.write(0xE000, 0);
+		assertFalse(mapper.isIRQ());
+	}
+
+	@Test
+	@DisplayName("Unsupported mapper")
+	void testUnsupported() {
+		assertThrows(IllegalArgumentException.class, () -> Mapper.of(cartridge(5, 1, 1)));
+	}
+
+}
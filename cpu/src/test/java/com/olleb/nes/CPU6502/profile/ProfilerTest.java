@@ -0,0 +1,140 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@DisplayName("Profiler tests")
+class ProfilerTest {
+
+	private static final int EP = 0x0200;
+
+	// LDX #$20, LDA $00F0,X (page crossed), INX, JMP $0200 => 12 cycles
+	private static final int[] PROGRAM = { 0xA2, 0x20, 0xBD, 0xF0, 0x00, 0xE8, 0x4C, 0x00, 0x02 };
+
+	private static void run(final Profiler profiler, final int loops) {
+		final RAM ram = new RAM();
+		final CPU6502 cpu = new CPU6502(ram, Dispatch.SWITCH);
+		for (int i = 0; i < PROGRAM.length; i++) {
+			ram.write(EP + i, PROGRAM[i]);
+		}
+		cpu.getRegisters().setPC(EP);
+		cpu.setProfiler(profiler);
+		cpu.run(12L * loops);
+	}
+
+	@Test
+	@DisplayName("Per opcode and addressing mode")
+	void testCounters() {
+		final Profiler profiler = new Profiler("counters");
+		run(profiler, 100);
+
+		assertEquals(400, profiler.getInstructions());
+		assertEquals(1200, profiler.getCycles());
+		assertEquals(100, profiler.getPageCrossings());
+		assertEquals(100, profiler.getOpCodeCounts().get("BD LDA nnnn,X"));
+		assertEquals(500, profiler.getOpCodeCycles().get("BD LDA nnnn,X"));
+		assertEquals(100, profiler.getAddressingModeCounts().get("IMMEDIATE"));
+		assertEquals(100, profiler.getAddressingModeCounts().get("ABSOLUTE"));
+		assertEquals(500, profiler.getAddressingModeCycles().get("INDEXED_ABSOLUTE_X"));
+		assertEquals(100, profiler.getAddressingModePageCrossings().get("INDEXED_ABSOLUTE_X"));
+		// INX implied
+		assertEquals(3, profiler.getAddressingModeCounts().size());
+
+		profiler.reset();
+		assertEquals(0, profiler.getInstructions());
+	}
+
+	@Test
+	@DisplayName("Stripes merged on read")
+	void testStripes() throws InterruptedException {
+		final Profiler profiler = new Profiler("stripes");
+		final Thread t1 = new Thread(() -> run(profiler, 100));
+		final Thread t2 = new Thread(() -> run(profiler, 50));
+		t1.start();
+		t2.start();
+		t1.join();
+		t2.join();
+
+		assertEquals(600, profiler.getInstructions());
+		assertEquals(150, profiler.getPageCrossings());
+	}
+
+	@Test
+	@DisplayName("JMX")
+	void testJMX() throws Exception {
+		final Profiler profiler = new Profiler("jmx");
+		profiler.register();
+		try {
+			run(profiler, 10);
+			final ObjectName name = new ObjectName("com.olleb.nes:type=Profiler,name=\"jmx\"");
+			assertEquals(40L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Instructions"));
+			assertEquals(10L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PageCrossings"));
+		} finally {
+			profiler.unregister();
+		}
+	}
+
+	@Test
+	@DisplayName("JFR")
+	void testJFR(@TempDir final Path dir) throws Exception {
+		final Profiler profiler = new Profiler("jfr");
+		profiler.register();
+		final Path file = dir.resolve("profile.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.olleb.nes.OpCode").with("period", "endChunk");
+			recording.enable("com.olleb.nes.AddressingMode").with("period", "endChunk");
+			recording.start();
+			run(profiler, 10);
+			recording.stop();
+			recording.dump(file);
+		} finally {
+			profiler.unregister();
+		}
+
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(e -> "jfr".equals(e.getString("profiler"))).collect(Collectors.toList());
+		assertTrue(events.stream().anyMatch(e -> "BD LDA nnnn,X".equals(e.getString("opCode"))
+				&& e.getLong("count") == 10 && e.getLong("pageCrossings") == 10));
+		assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.olleb.nes.AddressingMode")
+				&& "INDEXED_ABSOLUTE_X".equals(e.getString("addressingMode")) && e.getLong("cycles") == 50));
+	}
+
+}
@@ -0,0 +1,126 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+@DisplayName("Scheduler tests")
+class SchedulerTest {
+
+	private static final int EP = 0x0200;
+
+	// fake chip: event every 100 CPU cycles, records every catch up
+	private static final class Chip implements Component {
+		private final List<Long> catchUps = new ArrayList<>();
+		private long cycle;
+		private long deadline = 100;
+		private int events;
+
+		@Override
+		public void catchUp(final long cycle) {
+			assertTrue(cycle >= this.cycle);
+			this.cycle = cycle;
+			catchUps.add(cycle);
+			while (cycle >= deadline) {
+				events++;
+				deadline += 100;
+			}
+		}
+
+		@Override
+		public long getDeadline() {
+			return deadline;
+		}
+	}
+
+	private final Memory registers = new Memory() {
+		@Override
+		public int read(final int address) {
+			return 0;
+		}
+
+		@Override
+		public void write(final int address, final int value) {
+		}
+	};
+
+	private Bus bus;
+	private CPU6502 cpu;
+	private Scheduler scheduler;
+	private Chip chip;
+
+	@BeforeEach
+	void init() {
+		bus = new Bus(new RAM());
+		cpu = new CPU6502(bus);
+		cpu.getRegisters().setPC(EP);
+		scheduler = new Scheduler(cpu);
+		chip = new Chip();
+		scheduler.add(chip);
+		bus.map(0x2000, 0x3FFF, scheduler.attach(chip, registers));
+	}
+
+	private void load(final int... program) {
+		for (int i = 0; i < program.length; i++) {
+			bus.write(EP + i, program[i]);
+		}
+	}
+
+	@Test
+	@DisplayName("Catch up at deadlines")
+	void testDeadlines() {
+		// INX, JMP $0200 => 5 cycles per loop
+		load(0xE8, 0x4C, 0x00, 0x02);
+		final long cycles = scheduler.run(1000);
+
+		assertTrue(cycles >= 1000);
+		assertEquals(cycles / 100, chip.events);
+		// one catch up per deadline + end of batch, no lockstep
+		assertTrue(chip.catchUps.size() <= 11, chip.catchUps.toString());
+		assertEquals(cycles, chip.cycle);
+	}
+
+	@Test
+	@DisplayName("Catch up on register access")
+	void testRegisterAccess() {
+		// LDA $2002, JMP $0200 => 7 cycles per loop
+		load(0xAD, 0x02, 0x20, 0x4C, 0x00, 0x02);
+		scheduler.run(70);
+
+		// 10 register reads, each at the start of its LDA
+		for (int i = 0; i < 10; i++) {
+			assertTrue(chip.catchUps.contains(i * 7L), chip.catchUps.toString());
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.state;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.mem.RAM;
+
+@DisplayName("Rewind memory tests")
+class RewindMemoryTest {
+
+	private static final int SIZE = 0x800;
+
+	private final Random random = new Random(6502);
+	private final List<byte[]> checkpoints = new ArrayList<>();
+	private RAM ram;
+
+	@BeforeEach
+	void init() {
+		ram = new RAM();
+		checkpoints.clear();
+	}
+
+	private byte[] dump() {
+		final byte[] r = new byte[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			r[i] = (byte) ram.read(i);
+		}
+		return r;
+	}
+
+	// a frame touching a few pages, then checkpoint
+	private void frame(final RewindMemory memory) {
+		for (int i = 0; i < 16; i++) {
+			memory.write(random.nextInt(SIZE), random.nextInt(256));
+		}
+		memory.checkpoint();
+		checkpoints.add(dump());
+	}
+
+	@Test
+	@DisplayName("Rewind to every checkpoint")
+	void testRewind() {
+		final RewindMemory memory = new RewindMemory(ram, SIZE, 1024, 100);
+		checkpoints.add(dump());
+		for (int i = 0; i < 50; i++) {
+			frame(memory);
+		}
+		// open frame
+		memory.write(0x10, 0xCA);
+
+		assertEquals(1, memory.rewind(1));
+		assertArrayEquals(checkpoints.get(50), dump());
+		assertEquals(3, memory.rewind(3));
+		assertArrayEquals(checkpoints.get(48), dump());
+
+		// new timeline from checkpoint 48
+		memory.write(0x20, 0xFE);
+		memory.checkpoint();
+		assertEquals(2, memory.rewind(2));
+		assertArrayEquals(checkpoints.get(48), dump());
+
+		assertEquals(49, memory.rewind(100));
+		assertArrayEquals(checkpoints.get(0), dump());
+	}
+
+	@Test
+	@DisplayName("Only touched pages are copied")
+	void testDelta() {
+		// one slot per frame
+		final RewindMemory memory = new RewindMemory(ram, SIZE, SIZE / RewindMemory.PAGE_SIZE, 100);
+		checkpoints.add(dump());
+		for (int i = 0; i < 8; i++) {
+			memory.write(i * 0x100, i + 1);
+			memory.write(i * 0x100 + 1, i + 1);
+			memory.checkpoint();
+			checkpoints.add(dump());
+		}
+		assertEquals(9, memory.getHistory());
+		assertEquals(9, memory.rewind(9));
+		assertArrayEquals(checkpoints.get(0), dump());
+	}
+
+	@Test
+	@DisplayName("Oldest frames dropped when the ring is full")
+	void testRing() {
+		final RewindMemory memory = new RewindMemory(ram, SIZE, 32, 100);
+		checkpoints.add(dump());
+		for (int i = 0; i < 50; i++) {
+			frame(memory);
+		}
+		final int history = memory.getHistory();
+		assertEquals(history, memory.rewind(1000));
+		assertArrayEquals(checkpoints.get(checkpoints.size() - history), dump());
+
+		final RewindMemory frames = new RewindMemory(ram, SIZE, 1024, 10);
+		for (int i = 0; i < 50; i++) {
+			frame(frames);
+		}
+		assertEquals(10, frames.getHistory());
+		assertEquals(10, frames.rewind(1000));
+		assertArrayEquals(checkpoints.get(checkpoints.size() - 10), dump());
+	}
+
+	@Test
+	@DisplayName("Invalid sizes")
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new RewindMemory(ram, 0x300, 16, 10));
+		assertThrows(IllegalArgumentException.class, () -> new RewindMemory(ram, SIZE, 4, 10));
+	}
+
+}
@@ -0,0 +1,164 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.state;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.cpu.Registers;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+@DisplayName("Save state tests")
+class SaveStateTest {
+
+	private static final int EP = 0x0200;
+
+	// LDA #$05, STA $10, INX, INC $10, PHA, JMP $0200
+	private static final int[] PROGRAM = { 0xA9, 0x05, 0x85, 0x10, 0xE8, 0xE6, 0x10, 0x48, 0x4C, 0x00, 0x02 };
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(0x8000);
+	private RAM ram;
+	private CPU6502 cpu;
+
+	@BeforeEach
+	void init() {
+		ram = new RAM();
+		cpu = new CPU6502(new Registers(), ram, Dispatch.SWITCH);
+		for (int i = 0; i < PROGRAM.length; i++) {
+			ram.write(EP + i, PROGRAM[i]);
+		}
+		cpu.getRegisters().setPC(EP);
+	}
+
+	private static String dump(final CPU6502 cpu, final RAM ram) {
+		final Registers r = cpu.getRegisters();
+		final StringBuilder sb = new StringBuilder(String.format("%04X %02X %02X %02X %02X %02X %d %d ", r.getPC(),
+				r.getSP(), r.getA(), r.getX(), r.getY(), r.getProcessorStatus(), cpu.getCycles(), cpu.getInstructions()));
+		for (int i = 0; i < ram.getSize(); i++) {
+			sb.append(ram.read(i));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	@DisplayName("Snapshot and restore")
+	void testRoundTrip() {
+		cpu.run(1000);
+		SaveState.save(buffer.clear(), ram, cpu);
+		final String saved = dump(cpu, ram);
+
+		cpu.run(1000);
+		final String after = dump(cpu, ram);
+		SaveState.restore(buffer.flip(), ram, cpu);
+
+		assertEquals(saved, dump(cpu, ram));
+		assertEquals(0, buffer.remaining());
+
+		// deterministic replay from the state
+		cpu.run(1000);
+		assertEquals(after, dump(cpu, ram));
+	}
+
+	@Test
+	@DisplayName("Compact")
+	void testSize() {
+		SaveState.save(buffer.clear(), ram, cpu);
+		// header + 2 sections: 2 KiB RAM, 7 bytes registers + 16 bytes counters
+		// + 13 bytes pending interrupts
+		assertEquals(12 + 4 + 0x800 + 4 + 7 + 16 + 13, buffer.position());
+	}
+
+	@Test
+	@DisplayName("Version and layout checked")
+	void testInvalid() {
+		SaveState.save(buffer.clear(), ram, cpu);
+		buffer.flip();
+		assertThrows(IllegalArgumentException.class, () -> SaveState.restore(buffer.duplicate(), cpu, ram));
+		assertThrows(IllegalArgumentException.class, () -> SaveState.restore(buffer.duplicate(), ram));
+
+		buffer.putInt(4, SaveState.VERSION + 1);
+		assertThrows(IllegalArgumentException.class, () -> SaveState.restore(buffer.duplicate(), ram, cpu));
+	}
+
+	@Test
+	@DisplayName("Mapper state")
+	void testMapper() {
+		// MMC3, 8 x 16 KiB PRG, no CHR ROM => CHR RAM
+		final byte[] image = new byte[Cartridge.HEADER_SIZE + 8 * Cartridge.PRG_BANK_SIZE];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = 8;
+		image[6] = 0x40;
+		for (int i = 0; i < 16; i++) {
+			image[Cartridge.HEADER_SIZE + i * 0x2000] = (byte) i;
+		}
+		final Mapper mapper = Mapper.of(Cartridge.parse(ByteBuffer.wrap(image)));
+		mapper.write(0x8000, 6);
+		mapper.write(0x8001, 3);
+		mapper.writeCHR(0x0123, 0xCA);
+		mapper.getPRGRAM().write(0x6010, 0xFE);
+		SaveState.save(buffer.clear(), mapper);
+
+		mapper.write(0x8001, 5);
+		mapper.writeCHR(0x0123, 0);
+		mapper.getPRGRAM().write(0x6010, 0);
+		SaveState.restore(buffer.flip(), mapper);
+
+		assertEquals(3, mapper.read(0x8000));
+		assertEquals(0xCA, mapper.readCHR(0x0123));
+		assertEquals(0xFE, mapper.getPRGRAM().read(0x6010));
+		assertTrue(buffer.remaining() == 0);
+	}
+
+	@Test
+	@DisplayName("Restore flushes code caches")
+	void testCaches() {
+		for (final Dispatch dispatch : new Dispatch[] { Dispatch.JIT, Dispatch.PREDECODE }) {
+			// LDA #$05 => LDY #$05 in the state
+			init();
+			ram.write(EP, 0xA0);
+			SaveState.save(buffer.clear(), ram, cpu);
+
+			init();
+			final CPU6502 cached = new CPU6502(new Registers(), ram, dispatch);
+			cached.getRegisters().setPC(EP);
+			cached.run(10_000);
+			SaveState.restore(buffer.flip(), ram, cached);
+			cached.run(10_000);
+
+			assertEquals(0, cached.getRegisters().getA(), dispatch.name());
+			assertEquals(0x05, cached.getRegisters().getY(), dispatch.name());
+		}
+	}
+
+}
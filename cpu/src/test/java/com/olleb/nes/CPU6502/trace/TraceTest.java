@@ -0,0 +1,107 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.CPU6502.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.RAM;
+
+@DisplayName("Trace tests")
+class TraceTest {
+
+	private static final int EP = 0x0200;
+
+	// LDA #$05, STA $10, INX, LDA $0010,X, JMP $0200
+	private static final int[] PROGRAM = { 0xA9, 0x05, 0x85, 0x10, 0xE8, 0xBD, 0x10, 0x00, 0x4C, 0x00, 0x02 };
+
+	private RAM ram;
+	private CPU6502 cpu;
+
+	@BeforeEach
+	void init() {
+		ram = new RAM();
+		cpu = new CPU6502(ram, Dispatch.SWITCH);
+		for (int i = 0; i < PROGRAM.length; i++) {
+			ram.write(EP + i, PROGRAM[i]);
+		}
+		cpu.getRegisters().setPC(EP);
+		cpu.getRegisters().setSP(0xFD);
+	}
+
+	@Test
+	@DisplayName("nestest lines")
+	void testFormat() throws InterruptedException {
+		final TraceBuffer buffer = new TraceBuffer(1024);
+		final StringWriter out = new StringWriter();
+		cpu.setTrace(buffer);
+		try (TraceWriter writer = new TraceWriter(buffer, out).start()) {
+			cpu.run(14);
+		}
+
+		final String[] lines = out.toString().split("\n");
+		assertEquals(5, lines.length);
+		assertEquals("0200  A9 05     LDA #$05                        A:00 X:00 Y:00 P:20 SP:FD CYC:0", lines[0]);
+		assertEquals("0202  85 10     STA $10                         A:05 X:00 Y:00 P:20 SP:FD CYC:2", lines[1]);
+		assertEquals("0204  E8        INX                             A:05 X:00 Y:00 P:20 SP:FD CYC:5", lines[2]);
+		assertEquals("0205  BD 10 00  LDA $0010,X                     A:05 X:01 Y:00 P:20 SP:FD CYC:7", lines[3]);
+		assertEquals("0208  4C 00 02  JMP $0200                       A:00 X:01 Y:00 P:22 SP:FD CYC:11", lines[4]);
+	}
+
+	@Test
+	@DisplayName("Full ring drops, never blocks")
+	void testDropped() {
+		final TraceBuffer buffer = new TraceBuffer(4);
+		cpu.setTrace(buffer);
+		cpu.run(14);
+
+		assertEquals(1, buffer.getDropped());
+		final long[] record = new long[2];
+		assertTrue(buffer.poll(record));
+		assertEquals(EP, TraceBuffer.getPC(record));
+		assertEquals(0xA9, TraceBuffer.getOpCode(record));
+		assertEquals(0x05, TraceBuffer.getOperand(record));
+		for (int i = 0; i < 3; i++) {
+			assertTrue(buffer.poll(record));
+		}
+		assertFalse(buffer.poll(record));
+	}
+
+	@Test
+	@DisplayName("Tracing off")
+	void testOff() {
+		final TraceBuffer buffer = new TraceBuffer(16);
+		cpu.setTrace(buffer);
+		cpu.setTrace(null);
+		cpu.run(14);
+
+		assertFalse(buffer.poll(new long[2]));
+	}
+
+}
@@ -0,0 +1,63 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.headless;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Golden frame hashes of a ROM, one file per ROM in a golden directory:
+ * rom.nes => rom.nes.frames, one hex frame hash per line in frame order.
+ *
+ */
+public final class GoldenFrames {
+
+	private static final String SUFFIX = ".frames";
+
+	private GoldenFrames() {
+	}
+
+	public static Path path(final Path dir, final Path rom) {
+		return dir.resolve(rom.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * @param file golden file
+	 * @return the frame hashes, null if there is no golden file
+	 * @throws IOException on read errors
+	 */
+	public static long[] read(final Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		return Files.readAllLines(file).stream().map(String::trim).filter(line -> !line.isEmpty())
+				.mapToLong(line -> Long.parseUnsignedLong(line, 16)).toArray();
+	}
+
+	public static void write(final Path file, final long[] hashes) throws IOException {
+		Files.write(file, LongStream.of(hashes).mapToObj(hash -> String.format("%016X", hash))
+				.collect(Collectors.toList()));
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.headless;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32;
+
+import com.olleb.nes.APU2A03.APU;
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+import com.olleb.nes.CPU6502.scheduler.Scheduler;
+import com.olleb.nes.PPU2C02.FrameBuffer;
+import com.olleb.nes.PPU2C02.PPU;
+
+/**
+ * Runs ROMs headless, one CPU6502 + PPU + APU + Bus instance per ROM, in parallel
+ * on a fork-join pool. Instances share nothing, so throughput scales with the
+ * cores.
+ * 
+ * Every frame is hashed by the PPU as it renders. With a golden directory,
+ * ROMs with {@link GoldenFrames} stop at the first divergent frame. Audio
+ * is drained every frame into a CRC32.
+ *
+ */
+public final class HeadlessRunner {
+
+	// NTSC: 341 * 262 PPU dots / 3 per CPU cycle
+	public static final long CYCLES_PER_FRAME = 29781;
+
+	private final int parallelism;
+	private final Dispatch dispatch;
+	// null => no golden frame checks
+	private final Path golden;
+
+	public HeadlessRunner() {
+		this(Runtime.getRuntime().availableProcessors(), Dispatch.SWITCH);
+	}
+
+	public HeadlessRunner(final int parallelism, final Dispatch dispatch) {
+		this(parallelism, dispatch, null);
+	}
+
+	public HeadlessRunner(final int parallelism, final Dispatch dispatch, final Path golden) {
+		this.parallelism = parallelism;
+		this.dispatch = dispatch;
+		this.golden = golden;
+	}
+
+	public static long frames(final int frames) {
+		return frames * CYCLES_PER_FRAME;
+	}
+
+	/**
+	 * Run every ROM for the cycle budget.
+	 * 
+	 * @param roms        .nes files
+	 * @param cycleBudget cycles per ROM
+	 * @return results, in the ROM order
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<Result> run(final List<Path> roms, final long cycleBudget) throws InterruptedException {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.submit(() -> roms.parallelStream().map(rom -> run(rom, cycleBudget))
+					.collect(Collectors.toList())).get();
+		} catch (final ExecutionException e) {
+			// run(Path, long) reports errors in the result
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Run a ROM for the cycle budget in the calling thread, or up to the
+	 * first frame that differs from its golden frames.
+	 * 
+	 * @param rom         .nes file
+	 * @param cycleBudget cycles
+	 * @return the result
+	 */
+	public Result run(final Path rom, final long cycleBudget) {
+		final long start = System.nanoTime();
+		final RAM ram = new RAM();
+		final LongStream.Builder hashes = LongStream.builder();
+		final CRC32 audio = new CRC32();
+		int frames = 0;
+		CPU6502 cpu = null;
+		try {
+			final Bus bus = new Bus(ram);
+			final Mapper mapper = Mapper.of(Cartridge.load(rom));
+			mapper.map(bus);
+			cpu = new CPU6502(bus, dispatch);
+			final Scheduler scheduler = new Scheduler(cpu);
+			final PPU ppu = new PPU(mapper);
+			ppu.map(bus, scheduler);
+			final APU apu = new APU(bus);
+			apu.map(bus, scheduler);
+			final short[] samples = new short[APU.SAMPLE_RATE / 10];
+			final ByteBuffer bytes = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+			final ShortBuffer pcm = bytes.asShortBuffer();
+			final long[] expected = golden != null ? GoldenFrames.read(GoldenFrames.path(golden, rom)) : null;
+			final FrameBuffer output = ppu.getOutput();
+			String error = null;
+			cpu.reset();
+			while (cpu.getCycles() < cycleBudget && error == null) {
+				// VBlank at most, every frame is seen
+				scheduler.run(Math.min(ppu.getDeadline(), cycleBudget) - cpu.getCycles());
+				if (output.swap()) {
+					final long hash = output.getHash();
+					hashes.add(hash);
+					if (expected != null && frames < expected.length && expected[frames] != hash) {
+						error = String.format("frame %d diverged: %016X, golden %016X", frames, hash, expected[frames]);
+					}
+					frames++;
+				}
+				hash(apu, samples, pcm, bytes.array(), audio);
+			}
+			return new Result(rom, cpu.getCycles(), cpu.getInstructions(), System.nanoTime() - start, hash(ram),
+					hashes.build().toArray(), audio.getValue(), error);
+		} catch (final IOException | RuntimeException e) {
+			return new Result(rom, cpu == null ? 0 : cpu.getCycles(), cpu == null ? 0 : cpu.getInstructions(),
+					System.nanoTime() - start, hash(ram), hashes.build().toArray(), audio.getValue(), e.toString());
+		}
+	}
+
+	private static long hash(final RAM ram) {
+		final CRC32 crc = new CRC32();
+		for (int i = 0; i < ram.getSize(); i++) {
+			crc.update(ram.read(i));
+		}
+		return crc.getValue();
+	}
+
+	// little endian 16 bit PCM
+	private static void hash(final APU apu, final short[] samples, final ShortBuffer pcm, final byte[] bytes,
+			final CRC32 crc) {
+		int n;
+		while ((n = apu.readSamples(samples, 0, samples.length)) > 0) {
+			pcm.clear();
+			pcm.put(samples, 0, n);
+			crc.update(bytes, 0, n * 2);
+		}
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public Dispatch getDispatch() {
+		return dispatch;
+	}
+
+	public Path getGolden() {
+		return golden;
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.headless;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+
+/**
+ * Headless batch runner CLI.
+ * 
+ * <pre>
+ * java -jar headless.jar [--frames N | --cycles N] [--threads N] [--dispatch TABLE|SWITCH|JIT|PREDECODE]
+ *     [--golden DIR] [--record DIR] rom.nes...
+ * </pre>
+ * 
+ * One tab separated line per ROM: rom, status, cycles, instructions, wall
+ * time (ms), RAM CRC32, frames, last frame hash, audio CRC32. Exit status 1
+ * if any ROM failed or diverged from its golden frames in --golden. --record
+ * writes the frame hashes of the completed runs as golden frames.
+ *
+ */
+public final class Main {
+
+	private static final String USAGE = "usage: headless [--frames N | --cycles N] [--threads N] "
+			+ "[--dispatch TABLE|SWITCH|JIT|PREDECODE] [--golden DIR] [--record DIR] rom.nes...";
+
+	private Main() {
+	}
+
+	public static void main(final String[] args) throws InterruptedException {
+		long cycles = HeadlessRunner.frames(60);
+		int threads = Runtime.getRuntime().availableProcessors();
+		Dispatch dispatch = Dispatch.SWITCH;
+		Path golden = null;
+		Path record = null;
+		final List<Path> roms = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--frames":
+					cycles = HeadlessRunner.frames(Integer.parseInt(args[++i]));
+					break;
+				case "--cycles":
+					cycles = Long.parseLong(args[++i]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--dispatch":
+					dispatch = Dispatch.valueOf(args[++i]);
+					break;
+				case "--golden":
+					golden = Paths.get(args[++i]);
+					break;
+				case "--record":
+					record = Paths.get(args[++i]);
+					break;
+				default:
+					roms.add(Paths.get(args[i]));
+					break;
+				}
+			}
+		} catch (final RuntimeException e) {
+			roms.clear();
+		}
+		if (roms.isEmpty()) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		final long start = System.nanoTime();
+		final List<Result> results = new HeadlessRunner(threads, dispatch, golden).run(roms, cycles);
+		final double seconds = (System.nanoTime() - start) / 1e9;
+
+		long total = 0;
+		boolean ok = true;
+		for (final Result result : results) {
+			System.out.println(result);
+			total += result.getCycles();
+			ok &= result.isOk();
+			if (record != null && result.isOk()) {
+				write(record, result);
+			}
+		}
+		System.out.printf("# %d ROMs, %d threads, %.3f s, %.1f MHz aggregate%n", results.size(), threads, seconds,
+				total / seconds / 1e6);
+		System.exit(ok ? 0 : 1);
+	}
+
+	private static void write(final Path dir, final Result result) {
+		try {
+			GoldenFrames.write(GoldenFrames.path(dir, result.getRom()), result.getFrameHashes());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
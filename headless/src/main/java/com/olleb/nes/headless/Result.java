@@ -0,0 +1,120 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.headless;
+
+import java.nio.file.Path;
+
+/**
+ * Headless run result for a ROM.
+ *
+ */
+public final class Result {
+
+	private final Path rom;
+	private final long cycles;
+	private final long instructions;
+	private final long wallTime;
+	private final long ramHash;
+	private final long[] frameHashes;
+	private final long audioHash;
+	private final String error;
+
+	Result(final Path rom, final long cycles, final long instructions, final long wallTime, final long ramHash,
+			final long[] frameHashes, final long audioHash, final String error) {
+		this.rom = rom;
+		this.cycles = cycles;
+		this.instructions = instructions;
+		this.wallTime = wallTime;
+		this.ramHash = ramHash;
+		this.frameHashes = frameHashes;
+		this.audioHash = audioHash;
+		this.error = error;
+	}
+
+	public Path getRom() {
+		return rom;
+	}
+
+	public long getCycles() {
+		return cycles;
+	}
+
+	public long getInstructions() {
+		return instructions;
+	}
+
+	/**
+	 * @return wall time in nanoseconds
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return CRC32 of the 2 KiB internal RAM at the end of the run
+	 */
+	public long getRamHash() {
+		return ramHash;
+	}
+
+	public int getFrames() {
+		return frameHashes.length;
+	}
+
+	/**
+	 * @return the hash of every frame completed, in frame order
+	 */
+	public long[] getFrameHashes() {
+		return frameHashes.clone();
+	}
+
+	/**
+	 * @return hash of the last frame, 0 if none
+	 */
+	public long getFrameHash() {
+		return frameHashes.length == 0 ? 0 : frameHashes[frameHashes.length - 1];
+	}
+
+	/**
+	 * @return CRC32 of the audio, 16 bit little endian PCM at 48 kHz
+	 */
+	public long getAudioHash() {
+		return audioHash;
+	}
+
+	/**
+	 * @return null when the run completed
+	 */
+	public String getError() {
+		return error;
+	}
+
+	public boolean isOk() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s\t%s\t%d\t%d\t%.3f\t%08X\t%d\t%016X\t%08X", rom,
+				isOk() ? "OK" : "ERROR " + error, cycles, instructions, wallTime / 1e6, ramHash, getFrames(),
+				getFrameHash(), audioHash);
+	}
+
+}
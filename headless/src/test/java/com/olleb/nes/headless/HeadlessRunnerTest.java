@@ -0,0 +1,121 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.olleb.nes.headless;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+
+@DisplayName("Headless runner tests")
+class HeadlessRunnerTest {
+
+	@TempDir
+	Path dir;
+
+	// NROM-128: LDA #value, STA $10, INC $10, JMP $8000 at 0x8000
+	private Path rom(final String name, final int value) throws IOException {
+		final byte[] image = new byte[16 + 0x4000 + 0x2000];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = 1;
+		image[5] = 1;
+		final int[] program = { 0xA9, value, 0x85, 0x10, 0xE6, 0x10, 0x4C, 0x00, 0x80 };
+		for (int i = 0; i < program.length; i++) {
+			image[16 + i] = (byte) program[i];
+		}
+		// reset vector
+		image[16 + 0x3FFD] = (byte) 0x80;
+		final Path rom = dir.resolve(name);
+		Files.write(rom, image);
+		return rom;
+	}
+
+	@Test
+	@DisplayName("Run ROMs in parallel")
+	void testRun() throws Exception {
+		final List<Path> roms = Arrays.asList(rom("a.nes", 1), rom("b.nes", 2), rom("a2.nes", 1));
+		final long budget = HeadlessRunner.frames(10);
+		final List<Result> results = new HeadlessRunner(2, Dispatch.SWITCH).run(roms, budget);
+
+		assertEquals(3, results.size());
+		for (int i = 0; i < roms.size(); i++) {
+			final Result result = results.get(i);
+			assertEquals(roms.get(i), result.getRom());
+			assertTrue(result.isOk(), result.getError());
+			assertTrue(result.getCycles() >= budget);
+			assertTrue(result.getInstructions() > 0);
+		}
+		// same program => same RAM, same audio
+		assertEquals(results.get(0).getRamHash(), results.get(2).getRamHash());
+		assertEquals(results.get(0).getAudioHash(), results.get(2).getAudioHash());
+		assertNotEquals(results.get(0).getRamHash(), results.get(1).getRamHash());
+	}
+
+	@Test
+	@DisplayName("Errors are reported per ROM")
+	void testError() throws Exception {
+		final Path missing = dir.resolve("missing.nes");
+		final Result result = new HeadlessRunner().run(missing, 1000);
+		assertFalse(result.isOk());
+		assertEquals(0, result.getCycles());
+	}
+
+	@Test
+	@DisplayName("Stop at the first frame that differs from the golden frames")
+	void testGolden() throws Exception {
+		final Path rom = rom("g.nes", 3);
+		final long budget = HeadlessRunner.frames(10);
+		final Result result = new HeadlessRunner().run(rom, budget);
+		assertTrue(result.isOk(), result.getError());
+		assertEquals(10, result.getFrames());
+
+		final Path golden = Files.createDirectory(dir.resolve("golden"));
+		final long[] hashes = result.getFrameHashes();
+		GoldenFrames.write(GoldenFrames.path(golden, rom), hashes);
+		final HeadlessRunner runner = new HeadlessRunner(1, Dispatch.SWITCH, golden);
+		final Result same = runner.run(rom, budget);
+		assertTrue(same.isOk(), same.getError());
+		assertEquals(result.getFrameHash(), same.getFrameHash());
+
+		hashes[3] ^= 1;
+		GoldenFrames.write(GoldenFrames.path(golden, rom), hashes);
+		final Result diverged = runner.run(rom, budget);
+		assertFalse(diverged.isOk());
+		assertTrue(diverged.getError().startsWith("frame 3 diverged"), diverged.getError());
+		assertEquals(4, diverged.getFrames());
+		assertTrue(diverged.getCycles() < HeadlessRunner.frames(5));
+	}
+
+}
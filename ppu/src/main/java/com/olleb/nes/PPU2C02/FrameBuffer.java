@@ -0,0 +1,129 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.PPU2C02;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PPU output, triple buffered. The PPU renders into the back buffer and
+ * publishes it at VBlank with one atomic exchange against the ready buffer;
+ * consumers exchange the ready buffer with their front buffer. No locks, no
+ * copies, no allocation per frame: the three ARGB buffers are preallocated
+ * and a consumer reads its front buffer in place until the next
+ * {@link #swap()}. The PPU never waits, a slow consumer skips frames.
+ * 
+ * One producer, one consumer thread.
+ *
+ */
+public final class FrameBuffer {
+
+	// ready buffer index | FRESH when published and not swapped yet
+	private static final int FRESH = 0x04;
+	private static final int INDEX = 0x03;
+
+	private final int[][] pixels = new int[3][PPU.WIDTH * PPU.HEIGHT];
+	// read-only views over pixels
+	private final IntBuffer[] buffers = new IntBuffer[3];
+	// frame number of each buffer, written before the buffer is published
+	private final long[] frames = new long[3];
+	private final long[] hashes = new long[3];
+	private final AtomicInteger ready = new AtomicInteger(1);
+
+	// producer
+	private int back = 0;
+	// consumer
+	private int front = 2;
+
+	public FrameBuffer() {
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = IntBuffer.wrap(pixels[i]).asReadOnlyBuffer();
+		}
+	}
+
+	int[] getBack() {
+		return pixels[back];
+	}
+
+	/**
+	 * Hand the back buffer to the consumer, render into the previous ready
+	 * buffer.
+	 * 
+	 * @param frame frame number of the back buffer
+	 * @param hash  hash of the back buffer, rolled line by line by the PPU
+	 * @return the new back buffer
+	 */
+	int[] publish(final long frame, final long hash) {
+		frames[back] = frame;
+		hashes[back] = hash;
+		back = ready.getAndSet(back | FRESH) & INDEX;
+		return pixels[back];
+	}
+
+	/**
+	 * Take the last published frame as the front buffer.
+	 * 
+	 * @return true if a frame was published since the last swap
+	 */
+	public boolean swap() {
+		if ((ready.get() & FRESH) == 0) {
+			return false;
+		}
+		front = ready.getAndSet(front) & INDEX;
+		return true;
+	}
+
+	/**
+	 * Front buffer, 256 x 240 ARGB. Valid until the next {@link #swap()}.
+	 * 
+	 * @return the pixels
+	 */
+	public int[] getPixels() {
+		return pixels[front];
+	}
+
+	/**
+	 * Front buffer as a read-only view, rewound on every call.
+	 * 
+	 * @return view over {@link #getPixels()}
+	 */
+	public IntBuffer getBuffer() {
+		return buffers[front].clear();
+	}
+
+	/**
+	 * @return frame number of the front buffer
+	 */
+	public long getFrame() {
+		return frames[front];
+	}
+
+	/**
+	 * Hash of the front buffer, over the palette index of every pixel. Taken
+	 * as the lines are rendered, golden frame checks never scan the pixels.
+	 * 
+	 * @return 64 bit frame hash
+	 */
+	public long getHash() {
+		return hashes[front];
+	}
+
+}
@@ -0,0 +1,616 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.PPU2C02;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.olleb.nes.CPU6502.cpu.InterruptController;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+import com.olleb.nes.CPU6502.scheduler.Component;
+import com.olleb.nes.CPU6502.scheduler.Scheduler;
+import com.olleb.nes.CPU6502.state.Stateful;
+
+/**
+ * 2C02 PPU, NTSC. Scanline renderer: a whole visible line is drawn at once
+ * when the PPU reaches its horizontal blank, from the scroll registers,
+ * nametables, OAM and the decoded pattern rows of the {@link TileCache}.
+ * Mid-line register writes apply to the whole line. Frames are rendered in
+ * place into the back buffer of the {@link FrameBuffer} output.
+ * 
+ * Registers at 0x2000 - 0x3FFF, mirrored every 8 bytes. Runs lazily as a
+ * {@link Component}: 3 dots per CPU cycle, caught up on register accesses and
+ * at the start of VBlank.
+ *
+ */
+public final class PPU implements Memory, Component, Stateful {
+
+	public static final int WIDTH = 256;
+	public static final int HEIGHT = 240;
+
+	static final int DOTS = 341;
+	static final int SCANLINES = 262;
+	private static final int VBLANK_LINE = 241;
+	private static final int PRE_RENDER_LINE = 261;
+
+	// OAMDMA, CPU halted 513 cycles, 514 from an odd one
+	static final int OAM_DMA = 0x4014;
+	static final int DMA_CYCLES = 513;
+
+	// PPUCTRL
+	private static final int INCREMENT_32 = 0x04;
+	private static final int SPRITE_TABLE = 0x08;
+	private static final int BACKGROUND_TABLE = 0x10;
+	private static final int SPRITE_16 = 0x20;
+	private static final int NMI_ENABLE = 0x80;
+
+	// PPUMASK
+	private static final int GREYSCALE = 0x01;
+	private static final int BACKGROUND_LEFT = 0x02;
+	private static final int SPRITES_LEFT = 0x04;
+	private static final int BACKGROUND = 0x08;
+	private static final int SPRITES = 0x10;
+
+	// PPUSTATUS
+	private static final int OVERFLOW = 0x20;
+	private static final int SPRITE_0_HIT = 0x40;
+	private static final int VBLANK = 0x80;
+
+	// 64 bit multiplicative hash over the palette index of every pixel
+	static final long HASH_SEED = 0xCBF29CE484222325L;
+	static final long HASH_PRIME = 0x9E3779B97F4A7C15L;
+
+	// sprite line buffer: palette index | flags, 0 => transparent
+	private static final int BEHIND = 0x100;
+	private static final int SPRITE_0 = 0x200;
+
+	private final Mapper mapper;
+	private final TileCache tiles;
+	// null => NMI only through isNMI()
+	private InterruptController interrupts;
+
+	// 4 nametables, mirrored down to the 2 KiB of the console unless four
+	// screen
+	private final byte[] nametables = new byte[0x1000];
+	private final byte[] palette = new byte[0x20];
+	private final byte[] oam = new byte[0x100];
+	// nametable => offset in nametables, from the mapper mirroring
+	private final int[] pages = new int[4];
+
+	private final FrameBuffer output = new FrameBuffer();
+	// back buffer of the output
+	private int[] frame = output.getBack();
+	// one line of background and sprite palette indexes
+	private final int[] background = new int[WIDTH];
+	private final int[] sprites = new int[WIDTH];
+
+	private int ctrl;
+	private int mask;
+	private int status;
+	private int oamAddress;
+	// PPUDATA read buffer, last value on the PPU data bus
+	private int buffer;
+	private int latch;
+
+	// loopy registers: current and temporary VRAM address, fine X, write
+	// toggle
+	private int v;
+	private int t;
+	private int x;
+	private boolean w;
+
+	private int line;
+	private int dot;
+	private long frames;
+	// rolling hash of the lines rendered so far in this frame
+	private long hash = HASH_SEED;
+	// since power-up, CPU cycle * 3
+	private long dots;
+
+	public PPU(final Mapper mapper) {
+		this.mapper = mapper;
+		this.tiles = new TileCache(mapper);
+	}
+
+	/**
+	 * Map the registers on the CPU bus, caught up by the scheduler. NMI edges
+	 * go to the interrupt controller of the CPU, and so does the IRQ line of
+	 * the mapper, whose scanline counter the PPU clocks. OAM DMA at 0x4014
+	 * halts the CPU, the rest of the I/O page keeps going to the device
+	 * mapped there before.
+	 * 
+	 * @param bus       the CPU bus
+	 * @param scheduler the scheduler of the CPU
+	 */
+	public void map(final Bus bus, final Scheduler scheduler) {
+		interrupts = scheduler.getCPU().getInterrupts();
+		interrupts.addIRQ(mapper::isIRQ);
+		scheduler.add(this);
+		bus.map(Bus.Address.PPU_BEGIN.getAddress(), Bus.Address.PPU_END.getAddress(), scheduler.attach(this, this));
+
+		final int begin = Bus.Address.IO_BEGIN.getAddress();
+		final Memory io = bus.getDevice(begin);
+		bus.map(begin, Bus.Address.IO_END.getAddress(), new Memory() {
+			@Override
+			public int read(final int address) {
+				return io.read(address);
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+				if (address == OAM_DMA) {
+					// copied at once, the CPU halted after the write
+					final long cycle = scheduler.getCycles();
+					catchUp(cycle);
+					dma(bus, value);
+					interrupts.halt(DMA_CYCLES + (int) (cycle & 1));
+				} else {
+					io.write(address, value);
+				}
+			}
+		});
+	}
+
+	@Override
+	public int read(final int address) {
+		switch (address & 0x07) {
+		case 2:
+			// low bits: stale bus
+			final int result = status | (latch & 0x1F);
+			status &= ~VBLANK;
+			w = false;
+			return latch = result;
+		case 4:
+			return latch = oam[oamAddress] & 0xFF;
+		case 7:
+			final int a = v & 0x3FFF;
+			if (a >= 0x3F00) {
+				// palette reads are not buffered, the buffer gets the
+				// nametable below
+				buffer = readVRAM(a - 0x1000);
+				latch = readVRAM(a);
+			} else {
+				latch = buffer;
+				buffer = readVRAM(a);
+			}
+			incrementAddress();
+			return latch;
+		default:
+			return latch;
+		}
+	}
+
+	@Override
+	public void write(final int address, final int value) {
+		latch = value;
+		switch (address & 0x07) {
+		case 0:
+			// enabling NMI during VBlank is an edge too
+			if ((value & ~ctrl & NMI_ENABLE) != 0 && (status & VBLANK) != 0) {
+				nmi();
+			}
+			ctrl = value;
+			t = (t & ~0x0C00) | ((value & 0x03) << 10);
+			break;
+		case 1:
+			mask = value;
+			break;
+		case 3:
+			oamAddress = value;
+			break;
+		case 4:
+			oam[oamAddress] = (byte) value;
+			oamAddress = (oamAddress + 1) & 0xFF;
+			break;
+		case 5:
+			if (!w) {
+				t = (t & ~0x001F) | (value >> 3);
+				x = value & 0x07;
+			} else {
+				t = (t & ~0x73E0) | ((value & 0x07) << 12) | ((value & 0xF8) << 2);
+			}
+			w = !w;
+			break;
+		case 6:
+			if (!w) {
+				t = (t & 0x00FF) | ((value & 0x3F) << 8);
+			} else {
+				t = (t & 0x7F00) | value;
+				v = t;
+			}
+			w = !w;
+			break;
+		case 7:
+			writeVRAM(v & 0x3FFF, value);
+			incrementAddress();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * OAM DMA, 0x4014. 256 bytes from the CPU page into OAM.
+	 * 
+	 * @param memory the CPU bus
+	 * @param page   source page
+	 */
+	public void dma(final Memory memory, final int page) {
+		for (int i = 0; i < 0x100; i++) {
+			oam[(oamAddress + i) & 0xFF] = (byte) memory.read((page << 8) | i);
+		}
+	}
+
+	/**
+	 * Run whole scanline segments up to the CPU cycle. Events: VBlank at
+	 * dot 1, the visible line at dot 257, the mapper scanline clock at dot
+	 * 260 and the vertical scroll reload at dot 280 of the pre-render line.
+	 */
+	@Override
+	public void catchUp(final long cycle) {
+		final long target = cycle * 3;
+		while (dots < target) {
+			final int event = dot < 1 ? 1 : dot < 257 ? 257 : dot < 260 ? 260 : dot < 280 ? 280 : DOTS;
+			final int n = (int) Math.min(event - dot, target - dots);
+			dot += n;
+			dots += n;
+			if (dot == event) {
+				event(event);
+			}
+		}
+	}
+
+	// start of the next VBlank, NMI time. While rendering with an interrupt
+	// controller, also the next mapper scanline clock: scanline IRQs are
+	// seen on their line
+	@Override
+	public long getDeadline() {
+		long n = (VBLANK_LINE - line) * DOTS + 1 - dot;
+		if (n <= 0) {
+			n += SCANLINES * DOTS;
+		}
+		if (interrupts != null && (mask & (BACKGROUND | SPRITES)) != 0) {
+			n = Math.min(n, scanline());
+		}
+		return (dots + n + 2) / 3;
+	}
+
+	// dots to the next dot 260 of a visible or the pre-render line
+	private long scanline() {
+		int l = line;
+		long n = 260 - dot;
+		if (n <= 0) {
+			n += DOTS;
+			l++;
+		}
+		if (l >= HEIGHT && l < PRE_RENDER_LINE) {
+			n += (long) (PRE_RENDER_LINE - l) * DOTS;
+		}
+		return n;
+	}
+
+	private void nmi() {
+		if (interrupts != null) {
+			interrupts.nmi((dots + 2) / 3);
+		}
+	}
+
+	private void event(final int event) {
+		final boolean rendering = (mask & (BACKGROUND | SPRITES)) != 0;
+		final boolean visible = line < HEIGHT;
+		switch (event) {
+		case 1:
+			if (line == VBLANK_LINE) {
+				status |= VBLANK;
+				if ((ctrl & NMI_ENABLE) != 0) {
+					nmi();
+				}
+				frame = output.publish(frames, hash);
+				hash = HASH_SEED;
+			} else if (line == PRE_RENDER_LINE) {
+				status = 0;
+			}
+			break;
+		case 257:
+			if (visible) {
+				render(line);
+			}
+			if (rendering && (visible || line == PRE_RENDER_LINE)) {
+				incrementY();
+				v = (v & ~0x041F) | (t & 0x041F);
+			}
+			break;
+		case 260:
+			if (rendering && (visible || line == PRE_RENDER_LINE)) {
+				mapper.scanline();
+			}
+			break;
+		case 280:
+			if (rendering && line == PRE_RENDER_LINE) {
+				v = (v & ~0x7BE0) | (t & 0x7BE0);
+			}
+			break;
+		default:
+			dot = 0;
+			if (++line == SCANLINES) {
+				line = 0;
+				// odd frames skip the first dot when rendering
+				if ((frames++ & 1) == 0 && rendering) {
+					dot = 1;
+				}
+			}
+			break;
+		}
+	}
+
+	private void render(final int y) {
+		final int[] background = this.background;
+		final int[] sprites = this.sprites;
+		final int[] frame = this.frame;
+		updatePages();
+		if ((mask & BACKGROUND) != 0) {
+			renderBackground();
+		} else {
+			Arrays.fill(background, 0);
+		}
+		Arrays.fill(sprites, 0);
+		if ((mask & SPRITES) != 0) {
+			renderSprites(y);
+		}
+		if ((mask & BACKGROUND_LEFT) == 0) {
+			Arrays.fill(background, 0, 8, 0);
+		}
+		if ((mask & SPRITES_LEFT) == 0) {
+			Arrays.fill(sprites, 0, 8, 0);
+		}
+
+		final int grey = (mask & GREYSCALE) != 0 ? 0x30 : 0x3F;
+		final int offset = y * WIDTH;
+		long h = hash;
+		for (int px = 0; px < WIDTH; px++) {
+			final int b = background[px];
+			final int s = sprites[px];
+			final int color;
+			if (s != 0 && ((s & BEHIND) == 0 || b == 0)) {
+				color = palette[0x10 | (s & 0x0F)];
+			} else {
+				color = palette[b];
+			}
+			if ((s & SPRITE_0) != 0 && b != 0 && px != WIDTH - 1) {
+				status |= SPRITE_0_HIT;
+			}
+			frame[offset + px] = Palette.toARGB(color & grey);
+			h = (h + (color & grey)) * HASH_PRIME;
+		}
+		hash = h;
+	}
+
+	// 33 tiles from v, the first one shifted out by fine X
+	private void renderBackground() {
+		final int[] background = this.background;
+		final int table = (ctrl & BACKGROUND_TABLE) << 8;
+		final int fineY = (v >> 12) & 0x07;
+		int address = v;
+		int px = -x;
+		for (int tile = 0; tile < 33; tile++) {
+			final int id = nametable(0x2000 | (address & 0x0FFF));
+			final int attribute = nametable(
+					0x23C0 | (address & 0x0C00) | ((address >> 4) & 0x38) | ((address >> 2) & 0x07));
+			final int shift = ((address >> 4) & 0x04) | (address & 0x02);
+			final int attr = ((attribute >> shift) & 0x03) << 2;
+			final int row = tiles.getRow(table | (id << 4) | fineY);
+			for (int i = 7; i >= 0; i--, px++) {
+				if (px >= 0 && px < WIDTH) {
+					final int p = (row >> (i << 1)) & 0x03;
+					// palette entry 0 of every palette is the backdrop
+					background[px] = p == 0 ? 0 : attr | p;
+				}
+			}
+			// coarse X, wraps into the horizontal nametable
+			if ((address & 0x001F) == 31) {
+				address = (address & ~0x001F) ^ 0x0400;
+			} else {
+				address++;
+			}
+		}
+	}
+
+	// first 8 sprites on the line, the lowest OAM index wins a pixel
+	private void renderSprites(final int y) {
+		final int[] sprites = this.sprites;
+		final int height = (ctrl & SPRITE_16) != 0 ? 16 : 8;
+		int count = 0;
+		for (int i = 0; i < 64; i++) {
+			final int o = i << 2;
+			// OAM Y is the line above the sprite
+			final int row = y - 1 - (oam[o] & 0xFF);
+			if (row < 0 || row >= height) {
+				continue;
+			}
+			if (count++ == 8) {
+				status |= OVERFLOW;
+				break;
+			}
+			final int tile = oam[o + 1] & 0xFF;
+			final int attributes = oam[o + 2] & 0xFF;
+			final int left = oam[o + 3] & 0xFF;
+			final int r = (attributes & 0x80) != 0 ? height - 1 - row : row;
+			final int address = height == 16 ? ((tile & 0x01) << 12) | (((tile & 0xFE) + (r >> 3)) << 4) | (r & 0x07)
+					: ((ctrl & SPRITE_TABLE) << 9) | (tile << 4) | r;
+			final int pattern = tiles.getRow(address);
+			final boolean flip = (attributes & 0x40) != 0;
+			final int flags = ((attributes & 0x03) << 2) | ((attributes & 0x20) != 0 ? BEHIND : 0)
+					| (i == 0 ? SPRITE_0 : 0);
+			for (int j = 0; j < 8 && left + j < WIDTH; j++) {
+				final int p = (pattern >> ((flip ? j : 7 - j) << 1)) & 0x03;
+				if (p != 0 && sprites[left + j] == 0) {
+					sprites[left + j] = flags | p;
+				}
+			}
+		}
+	}
+
+	private void incrementY() {
+		if ((v & 0x7000) != 0x7000) {
+			v += 0x1000;
+			return;
+		}
+		v &= ~0x7000;
+		int coarse = (v & 0x03E0) >> 5;
+		if (coarse == 29) {
+			coarse = 0;
+			v ^= 0x0800;
+		} else if (coarse == 31) {
+			coarse = 0;
+		} else {
+			coarse++;
+		}
+		v = (v & ~0x03E0) | (coarse << 5);
+	}
+
+	private void incrementAddress() {
+		v = (v + ((ctrl & INCREMENT_32) != 0 ? 32 : 1)) & 0x7FFF;
+	}
+
+	private int readVRAM(final int address) {
+		if (address < 0x2000) {
+			return mapper.readCHR(address);
+		}
+		if (address < 0x3F00) {
+			updatePages();
+			return nametable(address);
+		}
+		return palette[paletteIndex(address)] & 0x3F;
+	}
+
+	private void writeVRAM(final int address, final int value) {
+		if (address < 0x2000) {
+			tiles.invalidate(address);
+			mapper.writeCHR(address, value);
+		} else if (address < 0x3F00) {
+			updatePages();
+			nametables[pages[(address >> 10) & 0x03] | (address & 0x03FF)] = (byte) value;
+		} else {
+			palette[paletteIndex(address)] = (byte) (value & 0x3F);
+		}
+	}
+
+	private int nametable(final int address) {
+		return nametables[pages[(address >> 10) & 0x03] | (address & 0x03FF)] & 0xFF;
+	}
+
+	// 0x3F10, 0x3F14, 0x3F18, 0x3F1C mirror the backdrop entries
+	private static int paletteIndex(final int address) {
+		final int i = address & 0x1F;
+		return (i & 0x13) == 0x10 ? i & ~0x10 : i;
+	}
+
+	// the mapper may switch mirroring at any time
+	private void updatePages() {
+		switch (mapper.getMirroring()) {
+		case HORIZONTAL:
+			pages[0] = pages[1] = 0x000;
+			pages[2] = pages[3] = 0x400;
+			break;
+		case VERTICAL:
+			pages[0] = pages[2] = 0x000;
+			pages[1] = pages[3] = 0x400;
+			break;
+		case ONE_SCREEN_LOW:
+			pages[0] = pages[1] = pages[2] = pages[3] = 0x000;
+			break;
+		case ONE_SCREEN_HIGH:
+			pages[0] = pages[1] = pages[2] = pages[3] = 0x400;
+			break;
+		default:
+			for (int i = 0; i < pages.length; i++) {
+				pages[i] = i << 10;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * NMI line: VBlank while NMI is enabled. Edge triggered on the CPU side.
+	 * 
+	 * @return true while asserted
+	 */
+	public boolean isNMI() {
+		return (status & ctrl & NMI_ENABLE) != 0;
+	}
+
+	/**
+	 * Completed frames, published at the start of VBlank.
+	 * 
+	 * @return the output
+	 */
+	public FrameBuffer getOutput() {
+		return output;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	public int getScanline() {
+		return line;
+	}
+
+	public int getDot() {
+		return dot;
+	}
+
+	// registers, loopy registers, timing, nametables, palette, OAM
+	@Override
+	public void save(final ByteBuffer buffer) {
+		buffer.put((byte) ctrl).put((byte) mask).put((byte) status).put((byte) oamAddress).put((byte) this.buffer)
+				.put((byte) latch);
+		buffer.putShort((short) v).putShort((short) t).put((byte) x).put((byte) (w ? 1 : 0));
+		buffer.putShort((short) line).putShort((short) dot).putLong(frames).putLong(dots)
+				.putLong(hash);
+		buffer.put(nametables).put(palette).put(oam);
+	}
+
+	@Override
+	public void restore(final ByteBuffer buffer) {
+		ctrl = buffer.get() & 0xFF;
+		mask = buffer.get() & 0xFF;
+		status = buffer.get() & 0xFF;
+		oamAddress = buffer.get() & 0xFF;
+		this.buffer = buffer.get() & 0xFF;
+		latch = buffer.get() & 0xFF;
+		v = buffer.getShort() & 0x7FFF;
+		t = buffer.getShort() & 0x7FFF;
+		x = buffer.get() & 0x07;
+		w = buffer.get() != 0;
+		line = buffer.getShort();
+		dot = buffer.getShort();
+		frames = buffer.getLong();
+		dots = buffer.getLong();
+		hash = buffer.getLong();
+		buffer.get(nametables).get(palette).get(oam);
+		// CHR RAM comes back with the mapper
+		tiles.flush();
+	}
+
+}
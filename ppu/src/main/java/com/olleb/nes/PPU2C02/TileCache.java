@@ -0,0 +1,113 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.PPU2C02;
+
+import java.util.Arrays;
+
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+
+/**
+ * Decoded pattern rows. The two bit planes of a tile row are interleaved
+ * once into 8 x 2 bit pixels, leftmost pixel in the high bits, and cached per
+ * CHR bank: bank switches select another cached bank, only CHR RAM writes
+ * invalidate.
+ *
+ */
+final class TileCache {
+
+	// 1 KiB bank => 64 tiles x 8 rows
+	private static final int BANK_SHIFT = 10;
+	private static final int ROWS = 64 * 8;
+	// decoded rows are 16 bit
+	private static final int INVALID = -1;
+
+	// byte => its bits at the even positions: 0b1011 => 0b01_00_01_01
+	private static final int[] SPREAD = new int[256];
+
+	static {
+		for (int i = 0; i < SPREAD.length; i++) {
+			for (int bit = 0; bit < 8; bit++) {
+				SPREAD[i] |= ((i >> bit) & 1) << (bit * 2);
+			}
+		}
+	}
+
+	private final Mapper mapper;
+	// physical bank => rows, allocated on first use
+	private int[][] banks = new int[8][];
+
+	TileCache(final Mapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param address pattern address of the row, plane 0: table | tile &lt;&lt; 4 | y
+	 * @return 8 pixels, 2 bits each, leftmost in bits 15-14
+	 */
+	int getRow(final int address) {
+		final int[] rows = rows(mapper.getCHRBank(address));
+		final int index = row(address);
+		final int row = rows[index];
+		if (row != INVALID) {
+			return row;
+		}
+		return rows[index] = SPREAD[mapper.readCHR(address)] | (SPREAD[mapper.readCHR(address | 0x08)] << 1);
+	}
+
+	/**
+	 * CHR write at the PPU address, call before the bank is switched away.
+	 * 
+	 * @param address PPU address, 0x0000 - 0x1FFF
+	 */
+	void invalidate(final int address) {
+		final int bank = mapper.getCHRBank(address);
+		if (bank < banks.length && banks[bank] != null) {
+			banks[bank][row(address)] = INVALID;
+		}
+	}
+
+	void flush() {
+		for (final int[] rows : banks) {
+			if (rows != null) {
+				Arrays.fill(rows, INVALID);
+			}
+		}
+	}
+
+	// both planes of a row share the entry
+	private static int row(final int address) {
+		return ((address & ((1 << BANK_SHIFT) - 1)) >> 4 << 3) | (address & 0x07);
+	}
+
+	private int[] rows(final int bank) {
+		if (bank >= banks.length) {
+			banks = Arrays.copyOf(banks, Math.max(bank + 1, banks.length * 2));
+		}
+		int[] rows = banks[bank];
+		if (rows == null) {
+			rows = new int[ROWS];
+			Arrays.fill(rows, INVALID);
+			banks[bank] = rows;
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.PPU2C02;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FrameBuffer tests")
+class FrameBufferTest {
+
+	@Test
+	@DisplayName("Published frames are swapped without copying")
+	void testSwap() {
+		final FrameBuffer output = new FrameBuffer();
+		assertFalse(output.swap());
+
+		final int[] back = output.getBack();
+		back[0] = 1;
+		final int[] next = output.publish(0, 0);
+		assertNotSame(back, next);
+		assertTrue(output.swap());
+		assertSame(back, output.getPixels());
+		assertEquals(1, output.getBuffer().get(0));
+		assertFalse(output.swap());
+
+		// the consumer keeps its front buffer, skipped frames are recycled
+		next[0] = 2;
+		final int[] third = output.publish(1, 1);
+		third[0] = 3;
+		output.publish(2, 2);
+		assertSame(back, output.getPixels());
+		assertTrue(output.swap());
+		assertEquals(3, output.getPixels()[0]);
+		assertEquals(2, output.getFrame());
+		assertEquals(2, output.getHash());
+	}
+
+	@Test
+	@DisplayName("Consumer thread never sees a buffer being rendered")
+	void testThreads() throws InterruptedException {
+		final FrameBuffer output = new FrameBuffer();
+		final int frames = 20_000;
+		final AtomicReference<String> error = new AtomicReference<>();
+		final Thread consumer = new Thread(() -> {
+			long last = -1;
+			while (last < frames - 1) {
+				if (output.swap()) {
+					final int[] pixels = output.getPixels();
+					final long frame = output.getFrame();
+					// every pixel holds the frame number
+					if (frame <= last || pixels[0] != (int) frame || pixels[pixels.length - 1] != (int) frame) {
+						error.set("frame " + frame + " after " + last);
+						return;
+					}
+					last = frame;
+				}
+			}
+		});
+		consumer.start();
+		int[] back = output.getBack();
+		for (int frame = 0; frame < frames; frame++) {
+			back[0] = frame;
+			back[back.length - 1] = frame;
+			back = output.publish(frame, frame);
+		}
+		consumer.join(10_000);
+		assertFalse(consumer.isAlive());
+		assertNull(error.get());
+	}
+
+}
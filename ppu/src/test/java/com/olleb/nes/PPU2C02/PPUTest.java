@@ -0,0 +1,329 @@
+/**
+ * nes.class - NES / Famicom emulator
+ * 
+ * Copyright (c) 2018 Àngel Ollé Blázquez
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.olleb.nes.PPU2C02;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.olleb.nes.CPU6502.cpu.CPU6502;
+import com.olleb.nes.CPU6502.cpu.CPU6502.Dispatch;
+import com.olleb.nes.CPU6502.mem.Bus;
+import com.olleb.nes.CPU6502.mem.Cartridge;
+import com.olleb.nes.CPU6502.mem.Memory;
+import com.olleb.nes.CPU6502.mem.RAM;
+import com.olleb.nes.CPU6502.mem.mapper.Mapper;
+import com.olleb.nes.CPU6502.scheduler.Scheduler;
+import com.olleb.nes.CPU6502.state.SaveState;
+
+@DisplayName("PPU tests")
+class PPUTest {
+
+	private static final int BACKDROP = 0x0F;
+	private static final int COLOR_2 = 0x16;
+	private static final int COLOR_3 = 0x2A;
+
+	private PPU ppu;
+
+	// UxROM, CHR RAM, vertical mirroring
+	@BeforeEach
+	void setUp() {
+		final byte[] image = new byte[Cartridge.HEADER_SIZE + Cartridge.PRG_BANK_SIZE];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[4] = 1;
+		image[6] = (byte) ((2 << 4) | 0x01);
+		ppu = new PPU(Mapper.of(Cartridge.parse(ByteBuffer.wrap(image))));
+	}
+
+	private void address(final int address) {
+		ppu.write(0x2006, address >> 8);
+		ppu.write(0x2006, address & 0xFF);
+	}
+
+	private void write(final int address, final int... values) {
+		address(address);
+		for (final int value : values) {
+			ppu.write(0x2007, value);
+		}
+	}
+
+	// CPU cycle when the PPU is past the dot, no odd frame skip
+	private static long cycle(final int frame, final int line, final int dot) {
+		return ((long) frame * PPU.SCANLINES * PPU.DOTS + line * PPU.DOTS + dot) / 3 + 1;
+	}
+
+	// tile 1: left half color 3, right half color 2
+	private void setUpTile() {
+		write(0x0010, 0xF0, 0xF0, 0xF0, 0xF0, 0xF0, 0xF0, 0xF0, 0xF0, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF);
+		write(0x2000, 0x01);
+		write(0x3F00, BACKDROP, 0x00, COLOR_2, COLOR_3);
+		address(0x0000);
+	}
+
+	@Test
+	@DisplayName("VRAM access through PPUADDR / PPUDATA")
+	void testVRAM() {
+		write(0x2123, 0x42, 0x43);
+		address(0x2123);
+		// buffered
+		ppu.read(0x2007);
+		assertEquals(0x42, ppu.read(0x2007));
+		assertEquals(0x43, ppu.read(0x2007));
+
+		// increment 32
+		ppu.write(0x2000, 0x04);
+		write(0x2200, 0x11, 0x22);
+		ppu.write(0x2000, 0x00);
+		address(0x2220);
+		ppu.read(0x2007);
+		assertEquals(0x22, ppu.read(0x2007));
+
+		// registers mirrored every 8 bytes
+		ppu.write(0x3FFE, 0x21);
+		ppu.write(0x3FFE, 0x23);
+		ppu.read(0x3FFF);
+		assertEquals(0x42, ppu.read(0x3FFF));
+	}
+
+	@Test
+	@DisplayName("Nametable and palette mirroring")
+	void testMirroring() {
+		write(0x2000, 0x55);
+		write(0x2400, 0x66);
+		address(0x2800);
+		ppu.read(0x2007);
+		assertEquals(0x55, ppu.read(0x2007));
+		address(0x2C00);
+		ppu.read(0x2007);
+		assertEquals(0x66, ppu.read(0x2007));
+		// 0x3000 - 0x3EFF mirror 0x2000
+		address(0x3000);
+		ppu.read(0x2007);
+		assertEquals(0x55, ppu.read(0x2007));
+
+		// palette reads are not buffered, sprite backdrop entries mirror
+		write(0x3F10, 0x21);
+		address(0x3F00);
+		assertEquals(0x21, ppu.read(0x2007));
+		write(0x3F24, 0x12);
+		address(0x3F04);
+		assertEquals(0x12, ppu.read(0x2007));
+	}
+
+	@Test
+	@DisplayName("VBlank flag and NMI")
+	void testVBlank() {
+		final long vblank = (241 * PPU.DOTS + 1 + 2) / 3;
+		assertEquals(vblank, ppu.getDeadline());
+		ppu.catchUp(vblank - 1);
+		assertEquals(0, ppu.read(0x2002) & 0x80);
+		ppu.catchUp(vblank);
+		assertFalse(ppu.isNMI());
+		ppu.write(0x2000, 0x80);
+		assertTrue(ppu.isNMI());
+		assertEquals(vblank + PPU.SCANLINES * PPU.DOTS / 3 + 1, ppu.getDeadline());
+
+		// reading the status acknowledges
+		assertEquals(0x80, ppu.read(0x2002) & 0x80);
+		assertFalse(ppu.isNMI());
+		assertEquals(0, ppu.read(0x2002) & 0x80);
+
+		ppu.catchUp(vblank + PPU.SCANLINES * PPU.DOTS / 3 + 1);
+		assertTrue(ppu.isNMI());
+		assertEquals(1, ppu.getFrames());
+	}
+
+	// CPU and PPU on the scheduler, the program at 0x8000. NMI handler
+	// counts in $10
+	private Scheduler system(final RAM ram, final int... program) {
+		final Bus bus = new Bus(ram);
+		final int[] rom = new int[0x8000];
+		System.arraycopy(program, 0, rom, 0, program.length);
+		// INC $10, RTI
+		rom[0x10] = 0xE6;
+		rom[0x11] = 0x10;
+		rom[0x12] = 0x40;
+		rom[0x7FFA] = 0x10;
+		rom[0x7FFB] = 0x80;
+		rom[0x7FFD] = 0x80;
+		bus.map(0x8000, 0xFFFF, new Memory() {
+			@Override
+			public int read(final int address) {
+				return rom[address & 0x7FFF];
+			}
+
+			@Override
+			public void write(final int address, final int value) {
+			}
+		});
+		final CPU6502 cpu = new CPU6502(bus, Dispatch.SWITCH);
+		final Scheduler scheduler = new Scheduler(cpu);
+		ppu.map(bus, scheduler);
+		cpu.reset();
+		return scheduler;
+	}
+
+	@Test
+	@DisplayName("NMI delivered to the CPU at VBlank")
+	void testNMI() {
+		final RAM ram = new RAM();
+		// LDA #$80, STA $2000, JMP $8005
+		final Scheduler scheduler = system(ram, 0xA9, 0x80, 0x8D, 0x00, 0x20, 0x4C, 0x05, 0x80);
+		final CPU6502 cpu = scheduler.getCPU();
+
+		scheduler.run((241 * PPU.DOTS) / 3);
+		assertEquals(0, ram.read(0x10));
+		scheduler.run(cycle(2, 242, 0) - cpu.getCycles());
+		assertEquals(3, ram.read(0x10));
+	}
+
+	@Test
+	@DisplayName("Save state at VBlank keeps the pending NMI")
+	void testSaveStateNMI() {
+		final RAM ram = new RAM();
+		// LDA #$80, STA $2000, JMP $8005
+		final Scheduler scheduler = system(ram, 0xA9, 0x80, 0x8D, 0x00, 0x20, 0x4C, 0x05, 0x80);
+		final CPU6502 cpu = scheduler.getCPU();
+
+		// back at the VBlank edge, NMI posted, not served yet
+		scheduler.run(cycle(0, 241, 1) - cpu.getCycles());
+		assertEquals(0, ram.read(0x10));
+		final ByteBuffer state = ByteBuffer.allocate(0x4000);
+		SaveState.save(state, ram, ppu, cpu);
+		state.flip();
+
+		scheduler.run(cycle(2, 242, 0) - cpu.getCycles());
+		assertEquals(3, ram.read(0x10));
+		final long cycles = cpu.getCycles();
+
+		SaveState.restore(state, ram, ppu, cpu);
+		scheduler.run(cycles - cpu.getCycles());
+		assertEquals(3, ram.read(0x10));
+	}
+
+	@Test
+	@DisplayName("OAM DMA halts the CPU and feeds the sprites")
+	void testDMA() {
+		setUpTile();
+		write(0x3F10, BACKDROP, 0x00, COLOR_2, COLOR_3);
+		address(0x0000);
+		// sprites only, left column included
+		ppu.write(0x2001, 0x14);
+		final RAM ram = new RAM();
+		// sprite 0 from page 2: line 1, tile 1, x 8. The rest transparent
+		ram.write(0x0201, 0x01);
+		ram.write(0x0203, 0x08);
+		// LDA #$02, STA $4014, INX, JMP $8005
+		final Scheduler scheduler = system(ram, 0xA9, 0x02, 0x8D, 0x14, 0x40, 0xE8, 0x4C, 0x05, 0x80);
+		final CPU6502 cpu = scheduler.getCPU();
+
+		// STA from cycle 2, even: 513 cycles after it, then INX, JMP twice
+		scheduler.run(2 + 4 + PPU.DMA_CYCLES + 2 * 5);
+		assertEquals(2, cpu.getRegisters().getX());
+
+		scheduler.run(cycle(0, 241, 1) - cpu.getCycles());
+		final FrameBuffer output = ppu.getOutput();
+		assertTrue(output.swap());
+		final int[] frame = output.getPixels();
+		for (int x = 0; x < 4; x++) {
+			assertEquals(Palette.toARGB(BACKDROP), frame[PPU.WIDTH + x]);
+			assertEquals(Palette.toARGB(COLOR_3), frame[PPU.WIDTH + 8 + x]);
+			assertEquals(Palette.toARGB(COLOR_2), frame[PPU.WIDTH + 12 + x]);
+		}
+		assertEquals(Palette.toARGB(BACKDROP), frame[0]);
+	}
+
+	@Test
+	@DisplayName("Background line and CHR RAM writes")
+	void testBackground() {
+		setUpTile();
+		ppu.write(0x2001, 0x0A);
+		final FrameBuffer output = ppu.getOutput();
+		ppu.catchUp(cycle(0, 241, 1));
+		assertTrue(output.swap());
+		assertEquals(0, output.getFrame());
+		int[] frame = output.getPixels();
+		for (int x = 0; x < 4; x++) {
+			assertEquals(Palette.toARGB(COLOR_3), frame[x]);
+			assertEquals(Palette.toARGB(COLOR_2), frame[x + 4]);
+		}
+		assertEquals(Palette.toARGB(BACKDROP), frame[8]);
+		assertFalse(output.swap());
+		final long hash = output.getHash();
+
+		// same picture, same hash
+		ppu.catchUp(cycle(1, 241, 1));
+		assertTrue(output.swap());
+		assertEquals(hash, output.getHash());
+
+		// the cached row is replaced
+		write(0x0010, 0x0F);
+		address(0x0000);
+		ppu.catchUp(cycle(2, 241, 1));
+		assertTrue(output.swap());
+		assertNotEquals(hash, output.getHash());
+		frame = output.getPixels();
+		for (int x = 0; x < 4; x++) {
+			assertEquals(Palette.toARGB(COLOR_2), frame[x]);
+			assertEquals(Palette.toARGB(COLOR_3), frame[x + 4]);
+		}
+
+		// fine X scroll
+		ppu.write(0x2005, 2);
+		ppu.write(0x2005, 0);
+		ppu.catchUp(cycle(3, 241, 1));
+		assertTrue(output.swap());
+		assertEquals(Palette.toARGB(COLOR_2), output.getBuffer().get(0));
+		assertEquals(Palette.toARGB(COLOR_3), output.getBuffer().get(2));
+		assertEquals(Palette.toARGB(BACKDROP), output.getBuffer().get(6));
+	}
+
+	@Test
+	@DisplayName("Sprite 0 hit")
+	void testSprite0() {
+		setUpTile();
+		// OAM y is the line above the sprite
+		ppu.write(0x2003, 0);
+		for (final int value : new int[] { 0, 1, 0, 4 }) {
+			ppu.write(0x2004, value);
+		}
+		ppu.write(0x2001, 0x1E);
+		ppu.catchUp(cycle(0, 0, 257));
+		assertEquals(0, ppu.read(0x2002) & 0x40);
+		ppu.catchUp(cycle(0, 1, 257));
+		assertEquals(0x40, ppu.read(0x2002) & 0x40);
+
+		// cleared on the pre-render line
+		ppu.catchUp(cycle(0, 261, 2));
+		assertEquals(0, ppu.read(0x2002) & 0x40);
+	}
+
+}